@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streaming form of {@link ExponentialWeightedMovingAverageHistoricalVolatilityCalculator}.
+ * <p>
+ * Only the current variance is kept; each new return updates it in $O(1)$ using
+ * $$
+ * \begin{eqnarray*}
+ * \sigma_t^2 = \lambda \sigma_{t-1}^2 + (1 - \lambda)r_t^2
+ * \end{eqnarray*}
+ * $$
+ * Seeding with a return series and then adding each new return gives the same volatility as
+ * {@link ExponentialWeightedMovingAverageHistoricalVolatilityCalculator} over the extended return series.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator {
+  /** Lambda, the volatility weighting parameter */
+  private final double _lambda;
+  /** Lambda minus one */
+  private final double _lambdaM1;
+  /** The number of returns seen */
+  private int _count;
+  /** The current variance */
+  private double _variance;
+
+  /**
+   * @param lambda The weight parameter, not negative
+   */
+  public StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(final double lambda) {
+    ArgumentChecker.notNegative(lambda, "lambda");
+    _lambda = lambda;
+    _lambdaM1 = 1 - lambda;
+  }
+
+  /**
+   * Replaces the state with that from a return series.
+   * @param returns The return series, not null. This should be created using the same return calculator that would be
+   * passed to {@link ExponentialWeightedMovingAverageHistoricalVolatilityCalculator}.
+   */
+  public void seed(final DoubleTimeSeries<?> returns) {
+    ArgumentChecker.notNull(returns, "returns");
+    _count = 0;
+    _variance = 0;
+    final double[] values = returns.valuesArrayFast();
+    for (final double value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * Adds a return.
+   * @param returnValue The return for the next period
+   */
+  public void add(final double returnValue) {
+    if (_count == 0) {
+      _variance = returnValue * returnValue;
+    } else {
+      _variance = _lambda * _variance + _lambdaM1 * returnValue * returnValue;
+    }
+    _count++;
+  }
+
+  /**
+   * @return The number of returns seen
+   */
+  public int getCount() {
+    return _count;
+  }
+
+  /**
+   * @return The current volatility
+   * @throws IllegalStateException If no returns have been added
+   */
+  public double getVolatility() {
+    if (_count == 0) {
+      throw new IllegalStateException("No returns");
+    }
+    return Math.sqrt(_variance);
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streaming form of {@link HistoricalCovarianceCalculator} over a rolling window of return pairs.
+ * <p>
+ * The running sums of $x$, $y$ and $xy$ over the window are kept so that adding an observation, and dropping the
+ * oldest one once the window is full, costs $O(1)$. The covariance is the same as that given by
+ * {@link HistoricalCovarianceCalculator} for the return series in the window.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class StreamingHistoricalCovarianceCalculator {
+  /** The observations in the window, as a ring buffer */
+  private final double[] _x;
+  /** The observations in the window, as a ring buffer */
+  private final double[] _y;
+  /** The index of the oldest observation */
+  private int _start;
+  /** The number of observations in the window */
+  private int _count;
+  /** The sum of x over the window */
+  private double _sumX;
+  /** The sum of y over the window */
+  private double _sumY;
+  /** The sum of xy over the window */
+  private double _sumXY;
+
+  /**
+   * @param window The maximum number of observations used, greater than one
+   */
+  public StreamingHistoricalCovarianceCalculator(final int window) {
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    _x = new double[window];
+    _y = new double[window];
+  }
+
+  /**
+   * Replaces the state with the last observations from a pair of return series.
+   * @param x The first return series, not null
+   * @param y The second return series, not null
+   * @throws IllegalArgumentException If the series are not the same size
+   */
+  public void seed(final DoubleTimeSeries<?> x, final DoubleTimeSeries<?> y) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.notNull(y, "y");
+    ArgumentChecker.isTrue(x.size() == y.size(), "time series must be the same size");
+    final double[] xs = x.valuesArrayFast();
+    final double[] ys = y.valuesArrayFast();
+    _start = 0;
+    _count = 0;
+    _sumX = 0;
+    _sumY = 0;
+    _sumXY = 0;
+    for (int i = Math.max(xs.length - _x.length, 0); i < xs.length; i++) {
+      add(xs[i], ys[i]);
+    }
+  }
+
+  /**
+   * Adds an observation, dropping the oldest if the window is full.
+   * @param x The first return
+   * @param y The second return
+   */
+  public void add(final double x, final double y) {
+    final int window = _x.length;
+    if (_count == window) {
+      _sumX -= _x[_start];
+      _sumY -= _y[_start];
+      _sumXY -= _x[_start] * _y[_start];
+      _x[_start] = x;
+      _y[_start] = y;
+      _start = (_start + 1) % window;
+    } else {
+      final int index = (_start + _count) % window;
+      _x[index] = x;
+      _y[index] = y;
+      _count++;
+    }
+    _sumX += x;
+    _sumY += y;
+    _sumXY += x * y;
+  }
+
+  /**
+   * @return The number of observations in the window
+   */
+  public int getCount() {
+    return _count;
+  }
+
+  /**
+   * @return The covariance of the observations in the window
+   * @throws IllegalStateException If there are fewer than two observations
+   */
+  public double getCovariance() {
+    if (_count < 2) {
+      throw new IllegalStateException("Need at least two observations");
+    }
+    final int n = _count;
+    return _sumXY / (n - 1) - (_sumX / n) * (_sumY / n);
+  }
+
+}
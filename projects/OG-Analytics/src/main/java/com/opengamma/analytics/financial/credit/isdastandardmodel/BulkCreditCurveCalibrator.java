@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.analytics.financial.credit.isdastandardmodel.FastCreditCurveBuilder.PreparedCalibration;
+import com.opengamma.analytics.financial.model.BumpType;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calibrates the credit curves of many issuers quoted on the same set of CDSs (the same maturities and conventions)
+ * against the same yield curve, as happens for an end-of-day run over a whole reference-entity universe.
+ * <p>
+ * The parts of the CDS leg pricing that depend only on the CDSs and the yield curve are computed once with
+ * {@link FastCreditCurveBuilder#prepareCalibration} and shared by all the issuers, which are then calibrated in
+ * parallel on a fork-join pool. The bucketed CS01 reuses the same prepared calibration and, as the credit curve is
+ * bootstrapped, only recalibrates the nodes from the bumped one onwards.
+ * <p>
+ * The results are the same as calibrating each issuer on its own with {@link FastCreditCurveBuilder} and computing the
+ * CS01 with {@link FiniteDifferenceSpreadSensitivityCalculator}, whatever the parallelism of the pool.
+ */
+public class BulkCreditCurveCalibrator {
+
+  /**
+   * The pool shared by the calibrators created without one.
+   */
+  private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+  private final FastCreditCurveBuilder _curveBuilder;
+  private final AnalyticCDSPricer _pricer;
+  private final ForkJoinPool _pool;
+
+  /**
+   * Creates a calibrator using the original ISDA accrual-on-default formula and a shared pool.
+   */
+  public BulkCreditCurveCalibrator() {
+    _curveBuilder = new FastCreditCurveBuilder();
+    _pricer = new AnalyticCDSPricer();
+    _pool = DEFAULT_POOL;
+  }
+
+  /**
+   * Creates a calibrator.
+   * @param formula The accrual on default formulae, not null
+   * @param pool The pool running the calibrations, not null
+   */
+  public BulkCreditCurveCalibrator(final AccrualOnDefaultFormulae formula, final ForkJoinPool pool) {
+    ArgumentChecker.notNull(formula, "formula");
+    ArgumentChecker.notNull(pool, "pool");
+    _curveBuilder = new FastCreditCurveBuilder(formula);
+    _pricer = new AnalyticCDSPricer(formula);
+    _pool = pool;
+  }
+
+  /**
+   * Calibrates the credit curve of each issuer to its par spreads.
+   * @param calibrationCDSs The calibration CDSs, common to all the issuers, not null
+   * @param parSpreads The par spreads of the calibration CDSs for each issuer (issuer/CDS), not null
+   * @param yieldCurve The yield (or discount) curve, not null
+   * @return The credit curve of each issuer
+   */
+  public ISDACompliantCreditCurve[] calibrateCreditCurves(final CDSAnalytic[] calibrationCDSs, final double[][] parSpreads, final ISDACompliantYieldCurve yieldCurve) {
+    ArgumentChecker.noNulls(parSpreads, "parSpreads");
+    final double[][] pointsUpfront = new double[parSpreads.length][];
+    for (int i = 0; i < parSpreads.length; i++) {
+      pointsUpfront[i] = new double[parSpreads[i].length];
+    }
+    return calibrateCreditCurves(calibrationCDSs, parSpreads, yieldCurve, pointsUpfront);
+  }
+
+  /**
+   * Calibrates the credit curve of each issuer to its premiums and points up-front.
+   * @param calibrationCDSs The calibration CDSs, common to all the issuers, not null
+   * @param premiums The premiums (coupons) of the calibration CDSs for each issuer (issuer/CDS), not null
+   * @param yieldCurve The yield (or discount) curve, not null
+   * @param pointsUpfront The points up-front of the calibration CDSs for each issuer (issuer/CDS), not null
+   * @return The credit curve of each issuer
+   */
+  public ISDACompliantCreditCurve[] calibrateCreditCurves(final CDSAnalytic[] calibrationCDSs, final double[][] premiums, final ISDACompliantYieldCurve yieldCurve,
+      final double[][] pointsUpfront) {
+    ArgumentChecker.noNulls(premiums, "premiums");
+    ArgumentChecker.noNulls(pointsUpfront, "pointsUpfront");
+    final int nIssuers = premiums.length;
+    ArgumentChecker.isTrue(nIssuers == pointsUpfront.length, "Number of issuers in premiums ({}) does not match that in pointsUpfront ({})", nIssuers, pointsUpfront.length);
+    final PreparedCalibration calibration = _curveBuilder.prepareCalibration(calibrationCDSs, yieldCurve);
+    final ISDACompliantCreditCurve[] res = new ISDACompliantCreditCurve[nIssuers];
+    if (nIssuers > 0) {
+      _pool.invoke(new IssuerTask(new IssuerCalculation() {
+        @Override
+        public void compute(final int issuer) {
+          res[issuer] = _curveBuilder.calibrateCreditCurve(calibration, premiums[issuer], pointsUpfront[issuer]);
+        }
+      }, 0, nIssuers));
+    }
+    return res;
+  }
+
+  /**
+   * The bucketed CS01 of a CDS on each issuer, by bumping each market par spread of the issuer in turn. For each issuer this
+   * is the same as {@link FiniteDifferenceSpreadSensitivityCalculator#bucketedCS01FromParSpreads(CDSAnalytic, double, ISDACompliantYieldCurve,
+   * CDSAnalytic[], double[], double, BumpType)}: the difference of the dirty prices with the bumped and base curves divided by the bump amount.
+   * @param cds The CDS to compute the CS01 of for each issuer, not null
+   * @param cdsCoupons The coupon of the CDS of each issuer, not null
+   * @param yieldCurve The yield (or discount) curve, not null
+   * @param marketCDSs The market CDSs used to build the credit curves, common to all the issuers, not null
+   * @param marketParSpreads The par spreads of the market CDSs for each issuer (issuer/CDS), not null
+   * @param fracBumpAmount The fraction bump amount, so a 1pb bump is 1e-4
+   * @param bumpType ADDITIVE or MULTIPLICATIVE
+   * @return The bucketed CS01 of each issuer (issuer/market CDS)
+   */
+  public double[][] bucketedCS01FromParSpreads(final CDSAnalytic[] cds, final double[] cdsCoupons, final ISDACompliantYieldCurve yieldCurve, final CDSAnalytic[] marketCDSs,
+      final double[][] marketParSpreads, final double fracBumpAmount, final BumpType bumpType) {
+    ArgumentChecker.noNulls(cds, "cds");
+    ArgumentChecker.notNull(cdsCoupons, "cdsCoupons");
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.noNulls(marketParSpreads, "marketParSpreads");
+    ArgumentChecker.notNull(bumpType, "bumpType");
+    ArgumentChecker.isTrue(Math.abs(fracBumpAmount) > 1e-10, "bump amount too small");
+    final int nIssuers = cds.length;
+    ArgumentChecker.isTrue(nIssuers == cdsCoupons.length, "Number of CDSs ({}) does not match number of coupons ({})", nIssuers, cdsCoupons.length);
+    ArgumentChecker.isTrue(nIssuers == marketParSpreads.length, "Number of CDSs ({}) does not match number of issuers in marketParSpreads ({})", nIssuers, marketParSpreads.length);
+    final PreparedCalibration calibration = _curveBuilder.prepareCalibration(marketCDSs, yieldCurve);
+    final int n = calibration.getNumberOfCDSs();
+    final double[][] res = new double[nIssuers][];
+    if (nIssuers > 0) {
+      _pool.invoke(new IssuerTask(new IssuerCalculation() {
+        @Override
+        public void compute(final int issuer) {
+          final double[] spreads = marketParSpreads[issuer];
+          ArgumentChecker.isTrue(n == spreads.length, "spreads length does not match curvePoints");
+          final double[] pointsUpfront = new double[n];
+          final ISDACompliantCreditCurve baseCurve = _curveBuilder.calibrateCreditCurve(calibration, spreads, pointsUpfront);
+          final double basePrice = _pricer.pv(cds[issuer], yieldCurve, baseCurve, cdsCoupons[issuer], PriceType.DIRTY);
+          final double[] cs01 = new double[n];
+          final double[] bumped = spreads.clone();
+          for (int i = 0; i < n; i++) {
+            bumped[i] = bump(spreads[i], fracBumpAmount, bumpType);
+            final ISDACompliantCreditCurve bumpedCurve = _curveBuilder.calibrateCreditCurve(calibration, bumped, pointsUpfront, baseCurve, i);
+            final double price = _pricer.pv(cds[issuer], yieldCurve, bumpedCurve, cdsCoupons[issuer], PriceType.DIRTY);
+            cs01[i] = (price - basePrice) / fracBumpAmount;
+            bumped[i] = spreads[i];
+          }
+          res[issuer] = cs01;
+        }
+      }, 0, nIssuers));
+    }
+    return res;
+  }
+
+  private static double bump(final double spread, final double amount, final BumpType bumpType) {
+    switch (bumpType) {
+      case ADDITIVE:
+        return spread + amount;
+      case MULTIPLICATIVE:
+        return spread + spread * amount;
+      default:
+        throw new IllegalArgumentException("BumpType " + bumpType + " is not supported");
+    }
+  }
+
+  /**
+   * The calculation for one issuer.
+   */
+  private interface IssuerCalculation {
+
+    void compute(int issuer);
+
+  }
+
+  /**
+   * Runs a range of issuers, splitting it in two until a single issuer remains.
+   */
+  private static final class IssuerTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IssuerCalculation _calculation;
+    private final int _from;
+    private final int _to;
+
+    IssuerTask(final IssuerCalculation calculation, final int from, final int to) {
+      _calculation = calculation;
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (_to - _from == 1) {
+        _calculation.compute(_from);
+      } else {
+        final int middle = (_from + _to) >>> 1;
+        invokeAll(new IssuerTask(_calculation, _from, middle), new IssuerTask(_calculation, middle, _to));
+      }
+    }
+
+  }
+
+}
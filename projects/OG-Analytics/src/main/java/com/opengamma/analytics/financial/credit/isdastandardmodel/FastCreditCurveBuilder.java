@@ -10,6 +10,8 @@ import static com.opengamma.analytics.financial.credit.isdastandardmodel.Doubles
 import static com.opengamma.analytics.math.utilities.Epsilon.epsilon;
 import static com.opengamma.analytics.math.utilities.Epsilon.epsilonP;
 
+import java.util.Arrays;
+
 import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.rootfinding.BracketRoot;
@@ -73,26 +75,87 @@ public class FastCreditCurveBuilder extends ISDACompliantCreditCurveBuilder {
     ArgumentChecker.notEmpty(premiums, "empty fractionalSpreads");
     ArgumentChecker.notEmpty(pointsUpfront, "empty pointsUpfront");
     ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
-    final int n = cds.length;
+    return calibrate(new PreparedCalibration(cds, yieldCurve), premiums, pointsUpfront, null, 0);
+  }
+
+  /**
+   * Precomputes the parts of the pricing of a set of calibration CDSs that depend only on the CDSs and the yield curve
+   * (the integration points of the protection and premium legs and the discount factors at them). Calibrating a curve
+   * from the result only has to price the legs against the credit curve, so the same calibration can be reused for
+   * many issuers quoted on the same CDSs and for the bumped spreads of each issuer.
+   * @param cds The calibration CDSs, not null
+   * @param yieldCurve The yield (or discount) curve, not null
+   * @return The prepared calibration, for use with this builder
+   */
+  public PreparedCalibration prepareCalibration(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve) {
+    ArgumentChecker.noNulls(cds, "null CDSs");
+    ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
+    return new PreparedCalibration(cds, yieldCurve);
+  }
+
+  /**
+   * Bootstrapper the credit curve from a prepared calibration. The result is the same as that of
+   * {@link #calibrateCreditCurve(CDSAnalytic[], double[], ISDACompliantYieldCurve, double[])} with the CDSs and yield curve
+   * of the calibration.
+   * @param calibration The calibration CDSs and yield curve, prepared by this builder, not null
+   * @param premiums The premiums (coupons) of the CDSs, not null
+   * @param pointsUpfront The points up-front of the CDSs, not null
+   * @return The credit curve
+   */
+  public ISDACompliantCreditCurve calibrateCreditCurve(final PreparedCalibration calibration, final double[] premiums, final double[] pointsUpfront) {
+    ArgumentChecker.notNull(calibration, "calibration");
+    ArgumentChecker.notEmpty(premiums, "empty fractionalSpreads");
+    ArgumentChecker.notEmpty(pointsUpfront, "empty pointsUpfront");
+    return calibrate(calibration, premiums, pointsUpfront, null, 0);
+  }
+
+  /**
+   * Recalibrates a credit curve after the premiums or points up-front have changed from a given index onwards. As the curve
+   * is bootstrapped, the nodes before that index do not depend on the changed quotes and are taken from the base curve;
+   * only the later nodes are solved for. This gives the curve that a full calibration would give, at a fraction of the
+   * cost for the bucketed spread sensitivities.
+   * @param calibration The calibration CDSs and yield curve, prepared by this builder, not null
+   * @param premiums The premiums (coupons) of the CDSs, not null
+   * @param pointsUpfront The points up-front of the CDSs, not null
+   * @param baseCurve The curve calibrated to quotes equal to these before the index, not null
+   * @param fromIndex The index of the first changed quote
+   * @return The credit curve
+   */
+  public ISDACompliantCreditCurve calibrateCreditCurve(final PreparedCalibration calibration, final double[] premiums, final double[] pointsUpfront,
+      final ISDACompliantCreditCurve baseCurve, final int fromIndex) {
+    ArgumentChecker.notNull(calibration, "calibration");
+    ArgumentChecker.notEmpty(premiums, "empty fractionalSpreads");
+    ArgumentChecker.notEmpty(pointsUpfront, "empty pointsUpfront");
+    ArgumentChecker.notNull(baseCurve, "null baseCurve");
+    ArgumentChecker.isTrue(Arrays.equals(baseCurve.getKnotTimes(), calibration._t), "knots of baseCurve do not match the calibration CDSs");
+    ArgumentChecker.isTrue(fromIndex >= 0 && fromIndex <= calibration._t.length, "fromIndex out of range");
+    return calibrate(calibration, premiums, pointsUpfront, baseCurve, fromIndex);
+  }
+
+  private ISDACompliantCreditCurve calibrate(final PreparedCalibration calibration, final double[] premiums, final double[] pointsUpfront, final ISDACompliantCreditCurve baseCurve,
+      final int fromIndex) {
+    final double[] t = calibration._t;
+    final int n = t.length;
     ArgumentChecker.isTrue(n == premiums.length, "Number of CDSs does not match number of spreads");
     ArgumentChecker.isTrue(n == pointsUpfront.length, "Number of CDSs does not match number of pointsUpfront");
-    final double proStart = cds[0].getEffectiveProtectionStart();
-    for (int i = 1; i < n; i++) {
-      ArgumentChecker.isTrue(proStart == cds[i].getEffectiveProtectionStart(), "all CDSs must has same protection start");
-      ArgumentChecker.isTrue(cds[i].getProtectionEnd() > cds[i - 1].getProtectionEnd(), "protection end must be ascending");
-    }
 
     // use continuous premiums as initial guess
     final double[] guess = new double[n];
-    final double[] t = new double[n];
     for (int i = 0; i < n; i++) {
-      t[i] = cds[i].getProtectionEnd();
-      guess[i] = (premiums[i] + pointsUpfront[i] / t[i]) / cds[i].getLGD();
+      guess[i] = (premiums[i] + pointsUpfront[i] / t[i]) / calibration._lgd[i];
     }
 
-    ISDACompliantCreditCurve creditCurve = new ISDACompliantCreditCurve(t, guess);
-    for (int i = 0; i < n; i++) {
-      final Pricer pricer = new Pricer(cds[i], yieldCurve, t, premiums[i], pointsUpfront[i]);
+    ISDACompliantCreditCurve creditCurve;
+    if (baseCurve == null) {
+      creditCurve = new ISDACompliantCreditCurve(t, guess);
+    } else {
+      creditCurve = new ISDACompliantCreditCurve(baseCurve);
+      for (int i = fromIndex; i < n; i++) {
+        creditCurve = creditCurve.withRate(guess[i], i);
+      }
+    }
+    for (int i = fromIndex; i < n; i++) {
+      final Pricer pricer = new Pricer(calibration._pricers[i], premiums[i], pointsUpfront[i]);
       final Function1D<Double, Double> func = pricer.getPointFunction(i, creditCurve);
 
       switch (getArbHanding()) {
@@ -148,6 +211,52 @@ public class FastCreditCurveBuilder extends ISDACompliantCreditCurveBuilder {
     return creditCurve;
   }
 
+  /**
+   * The calibration CDSs and yield curve with the parts of their pricing that do not depend on the credit curve.
+   * Instances are immutable and may be shared between threads.
+   */
+  public final class PreparedCalibration {
+
+    private final double[] _t;
+    private final double[] _lgd;
+    private final Pricer[] _pricers;
+
+    private PreparedCalibration(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve) {
+      final int n = cds.length;
+      final double proStart = cds[0].getEffectiveProtectionStart();
+      for (int i = 1; i < n; i++) {
+        ArgumentChecker.isTrue(proStart == cds[i].getEffectiveProtectionStart(), "all CDSs must has same protection start");
+        ArgumentChecker.isTrue(cds[i].getProtectionEnd() > cds[i - 1].getProtectionEnd(), "protection end must be ascending");
+      }
+      _t = new double[n];
+      _lgd = new double[n];
+      for (int i = 0; i < n; i++) {
+        _t[i] = cds[i].getProtectionEnd();
+        _lgd[i] = cds[i].getLGD();
+      }
+      _pricers = new Pricer[n];
+      for (int i = 0; i < n; i++) {
+        _pricers[i] = new Pricer(cds[i], yieldCurve, _t, 0.0, 0.0);
+      }
+    }
+
+    /**
+     * Gets the number of calibration CDSs.
+     * @return The number of CDSs
+     */
+    public int getNumberOfCDSs() {
+      return _t.length;
+    }
+
+    /**
+     * Gets the knot times of the calibrated curves, which are the protection end times of the CDSs.
+     * @return The knot times
+     */
+    public double[] getKnotTimes() {
+      return _t.clone();
+    }
+  }
+
   /**
    * Prices the CDS
    */
@@ -249,6 +358,34 @@ public class FastCreditCurveBuilder extends ISDACompliantCreditCurveBuilder {
 
     }
 
+    /**
+     * Creates a pricer for the same CDS, yield curve and credit curve knots as another, with a different premium and points up-front.
+     * The precomputed data are shared, not copied.
+     * @param other The pricer to copy
+     * @param fractionalSpread The premium
+     * @param pointsUpfront The points up-front
+     */
+    public Pricer(final Pricer other, final double fractionalSpread, final double pointsUpfront) {
+      _cds = other._cds;
+      _lgdDF = other._lgdDF;
+      _valuationDF = other._valuationDF;
+      _fracSpread = fractionalSpread;
+      _pointsUpfront = pointsUpfront;
+      _ccKnotTimes = other._ccKnotTimes;
+      _nProPoints = other._nProPoints;
+      _proLegIntPoints = other._proLegIntPoints;
+      _proYieldCurveRT = other._proYieldCurveRT;
+      _proDF = other._proDF;
+      _nPayments = other._nPayments;
+      _paymentDF = other._paymentDF;
+      _premLegIntPoints = other._premLegIntPoints;
+      _premDF = other._premDF;
+      _rt = other._rt;
+      _premDt = other._premDt;
+      _accRate = other._accRate;
+      _offsetAccStart = other._offsetAccStart;
+    }
+
     //    public Function1D<Double, Double> getPointFunction(final int index, final double[] zeroHazardRates) {
     //      final ISDACompliantCreditCurve creditCurve = new ISDACompliantCreditCurve(_ccKnotTimes, zeroHazardRates);
     //      return getPointFunction(index, creditCurve);
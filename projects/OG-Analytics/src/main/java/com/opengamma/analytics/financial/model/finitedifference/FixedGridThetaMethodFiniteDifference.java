@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A theta method solver for repeated solves on one grid, such as the many solves of a local volatility calibration or the
+ * pricing of a book of barrier options with the same expiry.
+ * <p>
+ * The scheme is that of {@link ThetaMethodFiniteDifference} and gives the same results to the last bit, but the finite
+ * difference coefficients of the grid are computed once, when the solver is created, and the work arrays of the tridiagonal
+ * systems are kept between solves (one set per thread, so an instance can be shared by several threads). Several initial
+ * conditions (payoffs) with the same PDE coefficients can be solved together, in which case each tridiagonal system is
+ * factorised once per time step and applied to all of them.
+ * <p>
+ * PDEs with a free boundary or with {@link ConvectionDiffusionPDE1DFullCoefficients} are passed to a
+ * {@link ThetaMethodFiniteDifference}.
+ */
+public class FixedGridThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver {
+
+  private final double _theta;
+  private final boolean _showFullResults;
+  private final PDEGrid1D _grid;
+
+  // grid
+  private final int _nNodesX;
+  private final int _nNodesT;
+  private final double[] _xNodes;
+  private final double[] _tNodes;
+  private final double[] _dt;
+  private final double[][] _x1st;
+  private final double[][] _x2nd;
+
+  private final ThetaMethodFiniteDifference _fallback;
+  private final ThreadLocal<Workspace> _workspaces = new ThreadLocal<>();
+
+  /**
+   * Sets up a standard Crank-Nicolson scheme on a grid
+   * @param grid The grid, not null
+   */
+  public FixedGridThetaMethodFiniteDifference(final PDEGrid1D grid) {
+    this(0.5, false, grid);
+  }
+
+  /**
+   * Sets up a scheme that is the weighted average of an explicit and an implicit scheme on a grid
+   * @param theta The weight. theta = 0 - fully explicit, theta = 0.5 - Crank-Nicolson, theta = 1.0 - fully implicit
+   * @param showFullResults Show the full results
+   * @param grid The grid, not null
+   */
+  public FixedGridThetaMethodFiniteDifference(final double theta, final boolean showFullResults, final PDEGrid1D grid) {
+    ArgumentChecker.isTrue(theta >= 0 && theta <= 1.0, "theta must be in the range 0 to 1");
+    ArgumentChecker.notNull(grid, "grid");
+    _theta = theta;
+    _showFullResults = showFullResults;
+    _grid = grid;
+    _fallback = new ThetaMethodFiniteDifference(theta, showFullResults);
+
+    _nNodesX = grid.getNumSpaceNodes();
+    _nNodesT = grid.getNumTimeNodes();
+    _xNodes = Arrays.copyOf(grid.getSpaceNodes(), _nNodesX);
+    _tNodes = Arrays.copyOf(grid.getTimeNodes(), _nNodesT);
+    _x1st = new double[_nNodesX - 2][];
+    _x2nd = new double[_nNodesX - 2][];
+    for (int ii = 0; ii < _nNodesX - 2; ii++) {
+      _x1st[ii] = grid.getFirstDerivativeCoefficients(ii + 1);
+      _x2nd[ii] = grid.getSecondDerivativeCoefficients(ii + 1);
+    }
+    _dt = new double[_nNodesT - 1];
+    for (int jj = 0; jj < _nNodesT - 1; jj++) {
+      _dt[jj] = grid.getTimeStep(jj);
+    }
+  }
+
+  public double getTheta() {
+    return _theta;
+  }
+
+  /**
+   * Gets the grid.
+   * @return The grid
+   */
+  public PDEGrid1D getGrid() {
+    return _grid;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The grid of the PDE data must have the same nodes as the grid of this solver.
+   */
+  @Override
+  public PDEResults1D solve(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData) {
+    ArgumentChecker.notNull(pdeData, "pde data");
+    checkGrid(pdeData.getGrid());
+    final ConvectionDiffusionPDE1DCoefficients coeff = pdeData.getCoefficients();
+    if (pdeData.getFreeBoundary() != null || !(coeff instanceof ConvectionDiffusionPDE1DStandardCoefficients)) {
+      return _fallback.solve(pdeData);
+    }
+    return solve((ConvectionDiffusionPDE1DStandardCoefficients) coeff, new double[][] {pdeData.getInitialCondition() }, new BoundaryCondition[] {pdeData.getLowerBoundary() },
+        new BoundaryCondition[] {pdeData.getUpperBoundary() })[0];
+  }
+
+  /**
+   * Solves a PDE for several initial conditions with the same boundary conditions.
+   * @param coeff The PDE coefficients, not null
+   * @param initialConditions The initial conditions (payoff/space node), not null
+   * @param lowerBoundary The lower boundary condition, not null
+   * @param upperBoundary The upper boundary condition, not null
+   * @return The results for each initial condition
+   */
+  public PDEResults1D[] solve(final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double[][] initialConditions, final BoundaryCondition lowerBoundary,
+      final BoundaryCondition upperBoundary) {
+    ArgumentChecker.notNull(initialConditions, "initialConditions");
+    final BoundaryCondition[] lower = new BoundaryCondition[initialConditions.length];
+    final BoundaryCondition[] upper = new BoundaryCondition[initialConditions.length];
+    Arrays.fill(lower, lowerBoundary);
+    Arrays.fill(upper, upperBoundary);
+    return solve(coeff, initialConditions, lower, upper);
+  }
+
+  /**
+   * Solves a PDE for several initial conditions, each with its own boundary conditions. The boundary conditions may differ in their
+   * constants (e.g. the rebate of a barrier option, or the value of a call and a put at a boundary), but must give the same rows of
+   * the system matrix, so that the system can be factorised once for all the initial conditions.
+   * @param coeff The PDE coefficients, not null
+   * @param initialConditions The initial conditions (payoff/space node), not null
+   * @param lowerBoundaries The lower boundary condition of each initial condition, not null
+   * @param upperBoundaries The upper boundary condition of each initial condition, not null
+   * @return The results for each initial condition
+   */
+  public PDEResults1D[] solve(final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double[][] initialConditions, final BoundaryCondition[] lowerBoundaries,
+      final BoundaryCondition[] upperBoundaries) {
+    ArgumentChecker.notNull(coeff, "coefficients");
+    ArgumentChecker.noNulls(initialConditions, "initialConditions");
+    ArgumentChecker.noNulls(lowerBoundaries, "lowerBoundaries");
+    ArgumentChecker.noNulls(upperBoundaries, "upperBoundaries");
+    final int nPayoffs = initialConditions.length;
+    ArgumentChecker.isTrue(nPayoffs > 0, "no initial conditions");
+    ArgumentChecker.isTrue(lowerBoundaries.length == nPayoffs, "Have {} initial conditions but {} lower boundaries", nPayoffs, lowerBoundaries.length);
+    ArgumentChecker.isTrue(upperBoundaries.length == nPayoffs, "Have {} initial conditions but {} upper boundaries", nPayoffs, upperBoundaries.length);
+    for (int k = 0; k < nPayoffs; k++) {
+      ArgumentChecker.isTrue(initialConditions[k].length == _nNodesX, "initial condition {} has length {}, but grid has {} space nodes", k, initialConditions[k].length, _nNodesX);
+    }
+
+    final Workspace ws = getWorkspace();
+    final double[] cDag = ws._cDag;
+    final double[] lDag = ws._lDag;
+    final double[] uDag = ws._uDag;
+    final double[] d = ws._d;
+    final double[] u = ws._u;
+    final double[] l = ws._l;
+    final double[] m = ws._m;
+
+    double[][] h = new double[nPayoffs][];
+    double[][] hNext = new double[nPayoffs][];
+    double[][][] full = null;
+    for (int k = 0; k < nPayoffs; k++) {
+      h[k] = Arrays.copyOf(initialConditions[k], _nNodesX);
+      hNext[k] = new double[_nNodesX];
+    }
+    if (_showFullResults) {
+      full = new double[nPayoffs][_nNodesT][];
+      for (int k = 0; k < nPayoffs; k++) {
+        full[k][0] = initialConditions[k];
+      }
+    }
+
+    double t = _tNodes[0];
+    updateCoefficients(coeff, t, cDag, lDag, uDag);
+
+    for (int jj = 0; jj < _nNodesT - 1; jj++) {
+      final double dt = _dt[jj];
+      //RHS of system, held in the next values
+      for (int k = 0; k < nPayoffs; k++) {
+        final double[] y = hNext[k];
+        final double[] hk = h[k];
+        for (int ii = 1; ii < _nNodesX - 1; ii++) {
+          y[ii] = (1 - (1 - _theta) * dt * cDag[ii - 1]) * hk[ii] - (1 - _theta) * dt * (lDag[ii - 1] * hk[ii - 1] + +uDag[ii - 1] * hk[ii + 1]);
+        }
+      }
+
+      t = _tNodes[jj + 1];
+      for (int k = 0; k < nPayoffs; k++) {
+        hNext[k][0] = lowerBoundaries[k].getConstant(coeff, t);
+        hNext[k][_nNodesX - 1] = upperBoundaries[k].getConstant(coeff, t);
+      }
+
+      //LHS of system in tri-diagonal form
+      final double[] topRow = getLeftMatrixCondition(lowerBoundaries, coeff, t);
+      final int p2 = topRow.length;
+      d[0] = topRow[0];
+      u[0] = 0.0;
+      if (p2 > 1) {
+        u[0] = topRow[1];
+        ArgumentChecker.isFalse(p2 > 2, "Boundary condition means that system is not tri-diagonal");
+      }
+      final double[] bottomRow = getLeftMatrixCondition(upperBoundaries, coeff, t);
+      final int q2 = bottomRow.length;
+      d[_nNodesX - 1] = bottomRow[q2 - 1];
+      l[_nNodesX - 2] = 0.0;
+      if (q2 > 1) {
+        l[_nNodesX - 2] = bottomRow[q2 - 2];
+        ArgumentChecker.isFalse(q2 > 2, "Boundary condition means that system is not tri-diagonal");
+      }
+
+      updateCoefficients(coeff, t, cDag, lDag, uDag);
+      for (int ii = 1; ii < _nNodesX - 1; ii++) {
+        d[ii] = 1 + _theta * dt * cDag[ii - 1];
+        u[ii] = _theta * dt * uDag[ii - 1];
+        l[ii - 1] = _theta * dt * lDag[ii - 1];
+      }
+
+      //factorise the system once (as TridiagonalSolver), then solve for each initial condition
+      for (int ii = 1; ii < _nNodesX; ii++) {
+        m[ii] = l[ii - 1] / d[ii - 1];
+        d[ii] = d[ii] - m[ii] * u[ii - 1];
+      }
+      for (int k = 0; k < nPayoffs; k++) {
+        final double[] y = hNext[k];
+        for (int ii = 1; ii < _nNodesX; ii++) {
+          y[ii] = y[ii] - m[ii] * y[ii - 1];
+        }
+        y[_nNodesX - 1] = y[_nNodesX - 1] / d[_nNodesX - 1];
+        for (int ii = _nNodesX - 2; ii >= 0; ii--) {
+          y[ii] = (y[ii] - u[ii] * y[ii + 1]) / d[ii];
+        }
+        if (full != null) {
+          full[k][jj + 1] = Arrays.copyOf(y, _nNodesX);
+        }
+      }
+      final double[][] temp = h;
+      h = hNext;
+      hNext = temp;
+    }
+
+    final PDEResults1D[] res = new PDEResults1D[nPayoffs];
+    for (int k = 0; k < nPayoffs; k++) {
+      if (full != null) {
+        res[k] = new PDEFullResults1D(_grid, full[k]);
+      } else {
+        res[k] = new PDETerminalResults1D(_grid, h[k]);
+      }
+    }
+    return res;
+  }
+
+  private void updateCoefficients(final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double t, final double[] cDag, final double[] lDag, final double[] uDag) {
+    for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
+      final double x = _xNodes[ii + 1];
+      final double a = coeff.getA(t, x);
+      final double b = coeff.getB(t, x);
+      final double c = coeff.getC(t, x);
+      cDag[ii] = _x2nd[ii][1] * a + _x1st[ii][1] * b + c;
+      lDag[ii] = _x2nd[ii][0] * a + _x1st[ii][0] * b;
+      uDag[ii] = _x2nd[ii][2] * a + _x1st[ii][2] * b;
+    }
+  }
+
+  private double[] getLeftMatrixCondition(final BoundaryCondition[] boundaries, final ConvectionDiffusionPDE1DStandardCoefficients coeff, final double t) {
+    final double[] row = boundaries[0].getLeftMatrixCondition(coeff, _grid, t);
+    for (int k = 1; k < boundaries.length; k++) {
+      if (boundaries[k] != boundaries[0]) {
+        ArgumentChecker.isTrue(Arrays.equals(row, boundaries[k].getLeftMatrixCondition(coeff, _grid, t)), "boundary conditions must give the same system matrix for all the initial conditions");
+      }
+    }
+    return row;
+  }
+
+  private void checkGrid(final PDEGrid1D grid) {
+    ArgumentChecker.notNull(grid, "grid");
+    if (grid != _grid) {
+      ArgumentChecker.isTrue(Arrays.equals(grid.getSpaceNodes(), _xNodes) && Arrays.equals(grid.getTimeNodes(), _tNodes), "grid of PDE data does not match that of the solver");
+    }
+  }
+
+  private Workspace getWorkspace() {
+    Workspace ws = _workspaces.get();
+    if (ws == null) {
+      ws = new Workspace(_nNodesX);
+      _workspaces.set(ws);
+    }
+    return ws;
+  }
+
+  /**
+   * The work arrays of one thread.
+   */
+  private static final class Workspace {
+    private final double[] _cDag;
+    private final double[] _lDag;
+    private final double[] _uDag;
+    private final double[] _d;
+    private final double[] _u;
+    private final double[] _l;
+    private final double[] _m;
+
+    Workspace(final int nNodesX) {
+      _cDag = new double[nNodesX - 2];
+      _lDag = new double[nNodesX - 2];
+      _uDag = new double[nNodesX - 2];
+      _d = new double[nNodesX];
+      _u = new double[nNodesX - 1];
+      _l = new double[nNodesX - 1];
+      _m = new double[nNodesX];
+    }
+  }
+
+}
@@ -5,6 +5,10 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import org.apache.commons.lang.Validate;
 
 import com.opengamma.analytics.math.cube.Cube;
@@ -19,6 +23,27 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
   //private static final Decomposition<?> DCOMP = new LUDecompositionCommons();
   // Theta = 0 - explicit
   // private static final double THETA = 0.5;
+  /** The minimum number of lines of a sweep given to one task */
+  private static final int LINES_PER_TASK = 8;
+
+  private final ForkJoinPool _pool;
+
+  /**
+   * Sets up a solver that does all the work in the calling thread
+   */
+  public PeacemanRachfordFiniteDifference2D() {
+    _pool = null;
+  }
+
+  /**
+   * Sets up a solver that solves the independent lines of each half step in parallel. The results are the same as those of the
+   * single threaded solver. The PDE data and boundary conditions are then read from several threads.
+   * @param pool The pool running the sweeps, not null
+   */
+  public PeacemanRachfordFiniteDifference2D(final ForkJoinPool pool) {
+    Validate.notNull(pool, "null pool");
+    _pool = pool;
+  }
 
   @Override
   public double[][] solve(final ConvectionDiffusion2DPDEDataBundle pdeData, final int tSteps, final int xSteps, final int ySteps, final double tMax, final BoundaryCondition2D xLowerBoundary,
@@ -45,11 +70,6 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
     final double[] x = new double[xSteps + 1];
     final double[] y = new double[ySteps + 1];
 
-    final double[] q = new double[xSteps + 1];
-    final double[] r = new double[ySteps + 1];
-    final double[][] mx = new double[xSteps + 1][xSteps + 1];
-    final double[][] my = new double[ySteps + 1][ySteps + 1];
-
     double currentX = 0;
     double currentY = 0;
 
@@ -66,91 +86,74 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
     }
 
     double t = 0.0;
-    double a, b, c, d, f;
 
     for (int n = 0; n < tSteps; n++) {
       // t += dt / 2;
 
       // stag 1 Explicit in y, implicit in x
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
-          vRight[i][j] -= 0.5 * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
-          vRight[i][j] -= 0.25 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+      final double tStart = t;
+      sweep(1, xSteps, new LineSweep() {
+        @Override
+        public void sweep(final int from, final int to) {
+          for (int i = from; i < to; i++) {
+            for (int j = 1; j < ySteps; j++) {
+              final double c = pdeData.getC(tStart, x[i], y[j]);
+              final double d = pdeData.getD(tStart, x[i], y[j]);
+              final double f = pdeData.getF(tStart, x[i], y[j]);
+
+              vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
+              vRight[i][j] -= 0.5 * dtdy2 * d * (v[i][j + 1] + v[i][j - 1] - 2 * v[i][j]);
+              vRight[i][j] -= 0.25 * dtdy * f * (v[i][j + 1] - v[i][j - 1]);
+            }
+          }
         }
-      }
+      });
 
       t += dt / 2;
 
-      for (int j = 1; j < ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          mx[i][i - 1] = 0.5 * (dtdx2 * a - 0.5 * dtdx * b);
-          mx[i][i] = 1 + 0.5 * (-2 * dtdx2 * a + 0.5 * dt * c);
-          mx[i][i + 1] = 0.5 * (dtdx2 * a + 0.5 * dtdx * b);
-
-          q[i] = vRight[i][j];
-        }
-
-        double[] temp = xLowerBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[0][k] = temp[k];
-        }
-        temp = xUpperBoundary.getLeftMatrixCondition(t, y[j]);
-        for (int k = 0; k < temp.length; k++) {
-          mx[xSteps][xSteps - k] = temp[k];
-        }
+      final double tHalf = t;
+      sweep(1, ySteps, new LineSweep() {
+        @Override
+        public void sweep(final int from, final int to) {
+          final TridiagonalLine line = new TridiagonalLine(xSteps);
+          for (int j = from; j < to; j++) {
+            for (int i = 1; i < xSteps; i++) {
+              final double a = pdeData.getA(tHalf, x[i], y[j]);
+              final double b = pdeData.getB(tHalf, x[i], y[j]);
+              final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+              line._lower[i] = 0.5 * (dtdx2 * a - 0.5 * dtdx * b);
+              line._diag[i] = 1 + 0.5 * (-2 * dtdx2 * a + 0.5 * dt * c);
+              line._upper[i] = 0.5 * (dtdx2 * a + 0.5 * dtdx * b);
+
+              line._q[i] = vRight[i][j];
+            }
+            line.setBoundaryRows(xLowerBoundary.getLeftMatrixCondition(tHalf, y[j]), xUpperBoundary.getLeftMatrixCondition(tHalf, y[j]));
 
-        temp = xLowerBoundary.getRightMatrixCondition(t, y[j]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[k][j];
-        }
-        q[0] = sum + xLowerBoundary.getConstant(t, y[j], dx);
+            for (int i = 0; i <= xSteps; i++) {
+              line._v[i] = v[i][j];
+            }
+            double[] temp = xLowerBoundary.getRightMatrixCondition(tHalf, y[j]);
+            double sum = 0;
+            for (int k = 0; k < temp.length; k++) {
+              sum += temp[k] * line._v[k];
+            }
+            line._q[0] = sum + xLowerBoundary.getConstant(tHalf, y[j], dx);
 
-        temp = xUpperBoundary.getRightMatrixCondition(t, y[j]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[xSteps - k][j];
-        }
-        q[xSteps] = sum + xUpperBoundary.getConstant(t, y[j], dx);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int min, max;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          for (int l = 0; l <= xSteps; l++) {
-            min = (l == xSteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? xSteps : Math.min(xSteps, l + 1));
+            temp = xUpperBoundary.getRightMatrixCondition(tHalf, y[j]);
             sum = 0;
-            // for (int k = 0; k <= xSteps; k++) {
-            for (int k = min; k <= max; k++) { // mx is tri-diagonal so only need 3 steps here
-              sum += mx[l][k] * v[k][j];
+            for (int k = 0; k < temp.length; k++) {
+              sum += temp[k] * line._v[xSteps - k];
+            }
+            line._q[xSteps] = sum + xUpperBoundary.getConstant(tHalf, y[j], dx);
+
+            line.solveSOR();
+            for (int i = 0; i <= xSteps; i++) {
+              v[i][j] = line._v[i];
             }
-            final double correction = omega / mx[l][l] * (q[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[l][j] += correction;
-            scale += v[l][j] * v[l][j];
           }
-          count++;
         }
-        Validate.isTrue(count < 1000, "SOR exceeded max interations");
-      }
+      });
 
       // get the y = 0 and y = yStep boundaries
       for (int i = 0; i <= xSteps; i++) {
@@ -189,87 +192,65 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
       // }
 
       // stag 2 explicit in x, implicit in y
-      for (int j = 1; j < ySteps; j++) {
-        for (int i = 1; i < xSteps; i++) {
-
-          a = pdeData.getA(t, x[i], y[j]);
-          b = pdeData.getB(t, x[i], y[j]);
-          c = pdeData.getC(t, x[i], y[j]);
-
-          vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
-          vRight[i][j] -= 0.5 * dtdx2 * a * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
-          vRight[i][j] -= 0.25 * dtdx * b * (v[i + 1][j] - v[i - 1][j]);
+      sweep(1, ySteps, new LineSweep() {
+        @Override
+        public void sweep(final int from, final int to) {
+          for (int j = from; j < to; j++) {
+            for (int i = 1; i < xSteps; i++) {
+              final double a = pdeData.getA(tHalf, x[i], y[j]);
+              final double b = pdeData.getB(tHalf, x[i], y[j]);
+              final double c = pdeData.getC(tHalf, x[i], y[j]);
+
+              vRight[i][j] = (1 - 0.25 * dt * c) * v[i][j];
+              vRight[i][j] -= 0.5 * dtdx2 * a * (v[i + 1][j] + v[i - 1][j] - 2 * v[i][j]);
+              vRight[i][j] -= 0.25 * dtdx * b * (v[i + 1][j] - v[i - 1][j]);
+            }
+          }
         }
-      }
+      });
 
       t += dt / 2;
 
-      for (int i = 1; i < xSteps; i++) {
-        for (int j = 1; j < ySteps; j++) {
-
-          c = pdeData.getC(t, x[i], y[j]);
-          d = pdeData.getD(t, x[i], y[j]);
-          f = pdeData.getF(t, x[i], y[j]);
-
-          my[j][j - 1] = 0.5 * (dtdy2 * d - 0.5 * dtdy * f);
-          my[j][j] = 1 + 0.5 * (-2 * dtdy2 * d + 0.5 * dt * c);
-          my[j][j + 1] = 0.5 * (dtdy2 * d + 0.5 * dtdy * f);
-
-          r[j] = vRight[i][j];
-        }
-
-        double[] temp = yLowerBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[0][k] = temp[k];
-        }
-        temp = yUpperBoundary.getLeftMatrixCondition(t, x[i]);
-        for (int k = 0; k < temp.length; k++) {
-          my[ySteps][ySteps - k] = temp[k];
-        }
+      final double tEnd = t;
+      sweep(1, xSteps, new LineSweep() {
+        @Override
+        public void sweep(final int from, final int to) {
+          final TridiagonalLine line = new TridiagonalLine(ySteps);
+          for (int i = from; i < to; i++) {
+            final double[] vi = v[i];
+            for (int j = 1; j < ySteps; j++) {
+              final double c = pdeData.getC(tEnd, x[i], y[j]);
+              final double d = pdeData.getD(tEnd, x[i], y[j]);
+              final double f = pdeData.getF(tEnd, x[i], y[j]);
+
+              line._lower[j] = 0.5 * (dtdy2 * d - 0.5 * dtdy * f);
+              line._diag[j] = 1 + 0.5 * (-2 * dtdy2 * d + 0.5 * dt * c);
+              line._upper[j] = 0.5 * (dtdy2 * d + 0.5 * dtdy * f);
+
+              line._q[j] = vRight[i][j];
+            }
+            line.setBoundaryRows(yLowerBoundary.getLeftMatrixCondition(tEnd, x[i]), yUpperBoundary.getLeftMatrixCondition(tEnd, x[i]));
 
-        temp = yLowerBoundary.getRightMatrixCondition(t, x[i]);
-        double sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][k];
-        }
-        r[0] = sum + yLowerBoundary.getConstant(t, x[i], dy);
+            System.arraycopy(vi, 0, line._v, 0, ySteps + 1);
+            double[] temp = yLowerBoundary.getRightMatrixCondition(tEnd, x[i]);
+            double sum = 0;
+            for (int k = 0; k < temp.length; k++) {
+              sum += temp[k] * line._v[k];
+            }
+            line._q[0] = sum + yLowerBoundary.getConstant(tEnd, x[i], dy);
 
-        temp = yUpperBoundary.getRightMatrixCondition(t, x[i]);
-        sum = 0;
-        for (int k = 0; k < temp.length; k++) {
-          sum += temp[k] * v[i][ySteps - k];
-        }
-        r[ySteps] = sum + yUpperBoundary.getConstant(t, x[i], dy);
-
-        // SOR
-        final double omega = 1.5;
-        double scale = 1.0;
-        double errorSqr = Double.POSITIVE_INFINITY;
-        int count = 0;
-        while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
-          errorSqr = 0.0;
-          scale = 0.0;
-          int min, max;
-          for (int l = 0; l <= ySteps; l++) {
-            min = (l == ySteps ? 0 : Math.max(0, l - 1));
-            max = (l == 0 ? ySteps : Math.min(ySteps, l + 1));
+            temp = yUpperBoundary.getRightMatrixCondition(tEnd, x[i]);
             sum = 0;
-            // for (int k = 0; k <= ySteps; k++) {
-            for (int k = min; k <= max; k++) {
-              sum += my[l][k] * v[i][k];
+            for (int k = 0; k < temp.length; k++) {
+              sum += temp[k] * line._v[ySteps - k];
             }
-            final double correction = omega / my[l][l] * (r[l] - sum);
-            // if (freeBoundary != null) {
-            // correction = Math.max(correction, freeBoundary.getZValue(t, x[j]) - f[j]);
-            // }
-            errorSqr += correction * correction;
-            v[i][l] += correction;
-            scale += v[i][l] * v[i][l];
+            line._q[ySteps] = sum + yUpperBoundary.getConstant(tEnd, x[i], dy);
+
+            line.solveSOR();
+            System.arraycopy(line._v, 0, vi, 0, ySteps + 1);
           }
-          count++;
         }
-        Validate.isTrue(count < 1000, "SOR exceeded max interations");
-      }
+      });
 
       // still have to handle the i = 0 and i = xSteps boundary
       for (int j = 0; j <= ySteps; j++) {
@@ -306,5 +287,124 @@ public class PeacemanRachfordFiniteDifference2D implements ConvectionDiffusionPD
 
   }
 
+  private void sweep(final int from, final int to, final LineSweep lineSweep) {
+    if (_pool == null || to - from <= LINES_PER_TASK) {
+      lineSweep.sweep(from, to);
+    } else {
+      _pool.invoke(new SweepTask(lineSweep, from, to));
+    }
+  }
+
+  /**
+   * The computation on a range of lines of the grid.
+   */
+  private interface LineSweep {
+
+    void sweep(int from, int to);
+
+  }
+
+  /**
+   * Runs a range of lines, splitting it in two until few lines remain.
+   */
+  private static final class SweepTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LineSweep _lineSweep;
+    private final int _from;
+    private final int _to;
+
+    SweepTask(final LineSweep lineSweep, final int from, final int to) {
+      _lineSweep = lineSweep;
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (_to - _from <= LINES_PER_TASK) {
+        _lineSweep.sweep(_from, _to);
+      } else {
+        final int middle = (_from + _to) >>> 1;
+        invokeAll(new SweepTask(_lineSweep, _from, middle), new SweepTask(_lineSweep, middle, _to));
+      }
+    }
+
+  }
+
+  /**
+   * The system for one line of the grid in the implicit direction: tri-diagonal inside, with boundary condition rows at the ends,
+   * solved by SOR. The buffers are reused for all the lines of a sweep.
+   */
+  private static final class TridiagonalLine {
+
+    private final int _steps;
+    private final double[] _lower;
+    private final double[] _diag;
+    private final double[] _upper;
+    private final double[] _firstRow;
+    private final double[] _lastRow;
+    private final double[] _q;
+    private final double[] _v;
+
+    TridiagonalLine(final int steps) {
+      _steps = steps;
+      _lower = new double[steps + 1];
+      _diag = new double[steps + 1];
+      _upper = new double[steps + 1];
+      _firstRow = new double[steps + 1];
+      _lastRow = new double[steps + 1];
+      _q = new double[steps + 1];
+      _v = new double[steps + 1];
+    }
+
+    void setBoundaryRows(final double[] lowerCondition, final double[] upperCondition) {
+      Arrays.fill(_firstRow, 0.0);
+      Arrays.fill(_lastRow, 0.0);
+      for (int k = 0; k < lowerCondition.length; k++) {
+        _firstRow[k] = lowerCondition[k];
+      }
+      for (int k = 0; k < upperCondition.length; k++) {
+        _lastRow[_steps - k] = upperCondition[k];
+      }
+    }
+
+    void solveSOR() {
+      final double omega = 1.5;
+      double scale = 1.0;
+      double errorSqr = Double.POSITIVE_INFINITY;
+      int count = 0;
+      while (errorSqr / (scale + 1e-10) > 1e-18 && count < 1000) {
+        errorSqr = 0.0;
+        scale = 0.0;
+        for (int l = 0; l <= _steps; l++) {
+          double sum = 0;
+          final double diag;
+          if (l == 0 || l == _steps) {
+            final double[] row = l == 0 ? _firstRow : _lastRow;
+            for (int k = 0; k <= _steps; k++) {
+              sum += row[k] * _v[k];
+            }
+            diag = row[l];
+          } else {
+            // the system is tri-diagonal so only need 3 steps here
+            sum += _lower[l] * _v[l - 1];
+            sum += _diag[l] * _v[l];
+            sum += _upper[l] * _v[l + 1];
+            diag = _diag[l];
+          }
+          final double correction = omega / diag * (_q[l] - sum);
+          errorSqr += correction * correction;
+          _v[l] += correction;
+          scale += _v[l] * _v[l];
+        }
+        count++;
+      }
+      Validate.isTrue(count < 1000, "SOR exceeded max interations");
+    }
+
+  }
+
   // private double[][] solveSOR(double[][] m, double[][] v)
 }
@@ -57,6 +57,20 @@ public abstract class YieldAndDiscountCurve implements InterestRateModel<Double>
     return Math.exp(-t * getInterestRate(t));
   }
 
+  /**
+   * Returns the discount factors at an array of times.
+   * @param t The times, not null
+   * @return The discount factors for times to maturity <i>t</i>.
+   */
+  public double[] getDiscountFactors(final double[] t) {
+    ArgumentChecker.notNull(t, "t");
+    final double[] result = new double[t.length];
+    for (int loopt = 0; loopt < t.length; loopt++) {
+      result[loopt] = getDiscountFactor(t[loopt]);
+    }
+    return result;
+  }
+
   /**
    * Gets the forward rate at a given time.
    * @param t The time
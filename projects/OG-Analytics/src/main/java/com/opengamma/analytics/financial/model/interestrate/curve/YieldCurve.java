@@ -70,6 +70,29 @@ public class YieldCurve extends YieldAndDiscountCurve {
     return getCurve().getYValue(t);
   }
 
+  /**
+   * {@inheritDoc}
+   * When the underlying curve is interpolated, the rates are interpolated together, which is faster for times in increasing order.
+   */
+  @Override
+  public double[] getDiscountFactors(final double[] t) {
+    if (!(_curve instanceof InterpolatedDoublesCurve)) {
+      return super.getDiscountFactors(t);
+    }
+    ArgumentChecker.notNull(t, "t");
+    for (final double time : t) {
+      if (time == 0) { // the rate is not looked up at time 0
+        return super.getDiscountFactors(t);
+      }
+    }
+    final double[] rates = ((InterpolatedDoublesCurve) _curve).getYValues(t);
+    final double[] result = new double[t.length];
+    for (int loopt = 0; loopt < t.length; loopt++) {
+      result[loopt] = Math.exp(-t[loopt] * rates[loopt]);
+    }
+    return result;
+  }
+
   @Override
   public double getForwardRate(final double t) {
     final DoublesCurve curve = getCurve();
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Antithetic variates: the paths of each range are split in two halves, the second half using the opposite of the
+ * variables of the first. Only half of the variables are drawn from the underlying streams.
+ * <p>
+ * Ranges must start at an even path, so that each pair lies within one range; the block size of the
+ * {@link MonteCarloPathEngine} must therefore be even.
+ */
+public class AntitheticRandomStreams implements MonteCarloRandomStreams {
+
+  /**
+   * The streams providing the first half of the variables.
+   */
+  private final MonteCarloRandomStreams _underlying;
+
+  /**
+   * Constructor.
+   * @param underlying The streams providing the first half of the variables, not null.
+   */
+  public AntitheticRandomStreams(final MonteCarloRandomStreams underlying) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+  }
+
+  /**
+   * Gets the underlying streams.
+   * @return The streams.
+   */
+  public MonteCarloRandomStreams getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public void fillNormals(final long firstPath, final double[][] normals, final int nbPath) {
+    ArgumentChecker.isTrue(firstPath % 2 == 0, "Antithetic ranges must start at an even path");
+    final int nbHalf = (nbPath + 1) / 2;
+    _underlying.fillNormals(firstPath / 2, normals, nbHalf);
+    for (int loopdim = 0; loopdim < normals.length; loopdim++) {
+      final double[] row = normals[loopdim];
+      for (int looppath = nbHalf; looppath < nbPath; looppath++) {
+        row[looppath] = -row[looppath - nbHalf];
+      }
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return _underlying.hashCode() * 31 + 1;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof AntitheticRandomStreams)) {
+      return false;
+    }
+    return _underlying.equals(((AntitheticRandomStreams) obj)._underlying);
+  }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Runs the paths of a Monte Carlo simulation in parallel on a fork-join pool.
+ * <p>
+ * The paths are divided in blocks of a fixed size. Each block draws its normal variables from
+ * {@link MonteCarloRandomStreams} at its own path index, into a buffer that is owned by the worker thread and reused from
+ * one block to the next, and passes them to a {@link PathBlockFunction} which returns the sums over the block of the
+ * quantities being estimated. The block sums are added together in block order once all the blocks have completed.
+ * Because the block boundaries, the variables of each block and the order of the final summation do not depend on
+ * the number of threads or on the scheduling, the result is identical whatever the parallelism of the pool.
+ */
+public class MonteCarloPathEngine {
+
+  /**
+   * The default number of paths in one block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1000;
+  /**
+   * The pool shared by the engines created without one.
+   */
+  private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+  /**
+   * The pool running the blocks.
+   */
+  private final ForkJoinPool _pool;
+  /**
+   * The number of paths in one block.
+   */
+  private final int _blockSize;
+  /**
+   * The normal variable buffer of each thread.
+   */
+  private final ThreadLocal<double[][]> _buffers = new ThreadLocal<>();
+
+  /**
+   * The computation on the paths of one block.
+   * <p>
+   * Implementations are called concurrently from several threads and must not keep state between calls.
+   */
+  public interface PathBlockFunction {
+
+    /**
+     * Gets the number of quantities estimated.
+     * @return The number of quantities.
+     */
+    int getResultSize();
+
+    /**
+     * Computes the sums over the paths of a block of the quantities estimated.
+     * @param normals The standard normal variables of the block (dimension/path). Only the first {@code nbPath} entries of each row are valid.
+     * The buffer belongs to the engine and may be overwritten by the function.
+     * @param nbPath The number of paths in the block.
+     * @param result The array to receive the sums, of length {@link #getResultSize()}, initially zero.
+     */
+    void evaluate(double[][] normals, int nbPath, double[] result);
+
+  }
+
+  /**
+   * Creates an engine using a shared pool with the default block size.
+   */
+  public MonteCarloPathEngine() {
+    this(DEFAULT_POOL, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Constructor.
+   * @param pool The pool running the blocks, not null.
+   * @param blockSize The number of paths in one block. It must be even to use {@link AntitheticRandomStreams}.
+   */
+  public MonteCarloPathEngine(final ForkJoinPool pool, final int blockSize) {
+    ArgumentChecker.notNull(pool, "pool");
+    ArgumentChecker.notNegativeOrZero(blockSize, "blockSize");
+    _pool = pool;
+    _blockSize = blockSize;
+  }
+
+  /**
+   * Gets the number of paths in one block.
+   * @return The block size.
+   */
+  public int getBlockSize() {
+    return _blockSize;
+  }
+
+  /**
+   * Runs the simulation.
+   * @param streams The source of the normal variables, not null.
+   * @param dimension The number of normal variables in each path.
+   * @param nbPath The number of paths, greater than zero.
+   * @param function The computation on each block of paths, not null.
+   * @return The sums over all the paths of the quantities estimated. The averages are obtained by dividing by the number of paths.
+   */
+  public double[] evaluate(final MonteCarloRandomStreams streams, final int dimension, final int nbPath, final PathBlockFunction function) {
+    ArgumentChecker.notNull(streams, "streams");
+    ArgumentChecker.notNull(function, "function");
+    ArgumentChecker.notNegative(dimension, "dimension");
+    ArgumentChecker.notNegativeOrZero(nbPath, "nbPath");
+    final int nbBlock = (nbPath + _blockSize - 1) / _blockSize;
+    final double[][] blockResults = new double[nbBlock][function.getResultSize()];
+    _pool.invoke(new BlockTask(streams, dimension, nbPath, function, blockResults, 0, nbBlock));
+    final double[] result = new double[function.getResultSize()];
+    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] += blockResults[loopblock][i];
+      }
+    }
+    return result;
+  }
+
+  private double[][] getBuffer(final int dimension) {
+    double[][] buffer = _buffers.get();
+    if (buffer == null || buffer.length != dimension) {
+      buffer = new double[dimension][_blockSize];
+      _buffers.set(buffer);
+    }
+    return buffer;
+  }
+
+  /**
+   * Runs a range of blocks, splitting it in two until a single block remains.
+   */
+  private final class BlockTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MonteCarloRandomStreams _streams;
+    private final int _dimension;
+    private final int _nbPath;
+    private final PathBlockFunction _function;
+    private final double[][] _blockResults;
+    private final int _fromBlock;
+    private final int _toBlock;
+
+    BlockTask(final MonteCarloRandomStreams streams, final int dimension, final int nbPath, final PathBlockFunction function, final double[][] blockResults,
+        final int fromBlock, final int toBlock) {
+      _streams = streams;
+      _dimension = dimension;
+      _nbPath = nbPath;
+      _function = function;
+      _blockResults = blockResults;
+      _fromBlock = fromBlock;
+      _toBlock = toBlock;
+    }
+
+    @Override
+    protected void compute() {
+      if (_toBlock - _fromBlock == 1) {
+        final long firstPath = (long) _fromBlock * _blockSize;
+        final int nbPath = (int) Math.min(_blockSize, _nbPath - firstPath);
+        final double[][] normals = getBuffer(_dimension);
+        _streams.fillNormals(firstPath, normals, nbPath);
+        _function.evaluate(normals, nbPath, _blockResults[_fromBlock]);
+      } else {
+        final int middle = (_fromBlock + _toBlock) >>> 1;
+        invokeAll(new BlockTask(_streams, _dimension, _nbPath, _function, _blockResults, _fromBlock, middle),
+            new BlockTask(_streams, _dimension, _nbPath, _function, _blockResults, middle, _toBlock));
+      }
+    }
+
+  }
+
+}
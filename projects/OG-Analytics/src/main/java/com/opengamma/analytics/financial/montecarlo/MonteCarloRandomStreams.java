@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+/**
+ * Source of the standard normal variables driving the paths of a Monte Carlo simulation.
+ * <p>
+ * The variables are addressed by path index rather than drawn in sequence, so that any range of paths can be generated
+ * independently of the others. The same range of paths always gives the same variables, whichever thread asks for it
+ * and in whatever order, which is what allows {@link MonteCarloPathEngine} to split the paths between threads and
+ * still return reproducible results. Implementations must be thread-safe.
+ */
+public interface MonteCarloRandomStreams {
+
+  /**
+   * Fills a buffer with the standard normal variables of a range of paths.
+   * @param firstPath The index of the first path in the range, not negative
+   * @param normals The buffer to fill. The dimensions are dimension/path; the first {@code nbPath} entries of each row are filled.
+   * @param nbPath The number of paths in the range
+   */
+  void fillNormals(long firstPath, double[][] normals, int nbPath);
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import cern.jet.random.Normal;
+import cern.jet.random.engine.MersenneTwister64;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Pseudo-random normal variables from independent Mersenne Twister streams.
+ * <p>
+ * Each range of paths is generated by a generator seeded from the base seed and the index of the first path in the
+ * range, so the variables for a given range depend only on the seed and the range. Ranges starting at different paths
+ * use unrelated streams; ranges should therefore be requested consistently, as {@link MonteCarloPathEngine} does by
+ * always using the same block boundaries.
+ */
+public class PseudoRandomStreams implements MonteCarloRandomStreams {
+
+  /**
+   * The base seed.
+   */
+  private final long _seed;
+
+  /**
+   * Constructor.
+   * @param seed The base seed.
+   */
+  public PseudoRandomStreams(final long seed) {
+    _seed = seed;
+  }
+
+  /**
+   * Gets the base seed.
+   * @return The seed.
+   */
+  public long getSeed() {
+    return _seed;
+  }
+
+  @Override
+  public void fillNormals(final long firstPath, final double[][] normals, final int nbPath) {
+    fillNormals(firstPath, normals, 0, nbPath);
+  }
+
+  /**
+   * Fills the rows of a buffer from a given dimension onwards.
+   * @param firstPath The index of the first path in the range.
+   * @param normals The buffer to fill (dimension/path).
+   * @param firstDimension The first row to fill.
+   * @param nbPath The number of paths in the range.
+   */
+  void fillNormals(final long firstPath, final double[][] normals, final int firstDimension, final int nbPath) {
+    ArgumentChecker.isTrue(firstPath >= 0, "firstPath must not be negative");
+    final Normal normal = new Normal(0.0, 1.0, new MersenneTwister64(streamSeed(_seed, firstPath)));
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      for (int loopdim = firstDimension; loopdim < normals.length; loopdim++) {
+        normals[loopdim][looppath] = normal.nextDouble();
+      }
+    }
+  }
+
+  /**
+   * Derives the seed of the stream for a range of paths, scrambling the bits so that neighbouring ranges get unrelated seeds.
+   * @param seed The base seed.
+   * @param firstPath The index of the first path in the range.
+   * @return The stream seed.
+   */
+  private static int streamSeed(final long seed, final long firstPath) {
+    long z = seed + (firstPath + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) (z ^ (z >>> 32));
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (_seed ^ (_seed >>> 32));
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PseudoRandomStreams)) {
+      return false;
+    }
+    return _seed == ((PseudoRandomStreams) obj)._seed;
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import cern.jet.stat.Probability;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Quasi-random normal variables from a Sobol sequence, transformed by the inverse normal cumulative distribution.
+ * <p>
+ * Path {@code i} uses point {@code i + 1} of the sequence (the first point, at the origin, is skipped). The point at the
+ * start of a range is computed directly from its Gray code and the following ones incrementally, so a range of paths
+ * costs the same wherever it starts. The direction numbers are those of Joe and Kuo for the first
+ * {@link #MAX_DIMENSION} dimensions; further dimensions are filled with pseudo-random variables from
+ * {@link PseudoRandomStreams}, so the most important factors (the first ones) should be placed first.
+ */
+public class SobolRandomStreams implements MonteCarloRandomStreams {
+
+  /**
+   * The number of dimensions with quasi-random variables.
+   */
+  public static final int MAX_DIMENSION = 16;
+  /**
+   * The number of bits in each coordinate.
+   */
+  private static final int BITS = 32;
+  /**
+   * The scaling from the integer coordinates to (0,1).
+   */
+  private static final double SCALE = 1.0 / (1L << BITS);
+  /**
+   * The degree, the polynomial coefficients and the initial direction numbers of dimensions 2 and above (Joe and Kuo).
+   */
+  private static final int[][] PRIMITIVE = new int[][] {
+    {1, 0, 1 }, {2, 1, 1, 3 }, {3, 1, 1, 3, 1 }, {3, 2, 1, 1, 1 }, {4, 1, 1, 1, 3, 3 }, {4, 4, 1, 3, 5, 13 }, {5, 2, 1, 1, 5, 5, 17 },
+    {5, 4, 1, 1, 5, 5, 5 }, {5, 7, 1, 1, 7, 11, 19 }, {5, 11, 1, 1, 5, 1, 1 }, {5, 13, 1, 1, 1, 3, 11 }, {5, 14, 1, 3, 5, 5, 31 },
+    {6, 1, 1, 3, 3, 9, 7, 49 }, {6, 13, 1, 1, 1, 15, 21, 21 }, {6, 16, 1, 3, 1, 13, 27, 49 } };
+  /**
+   * The direction numbers. The dimensions are dimension/bit.
+   */
+  private static final long[][] DIRECTION = directionNumbers();
+
+  /**
+   * The streams for the dimensions above {@link #MAX_DIMENSION}.
+   */
+  private final PseudoRandomStreams _padding;
+
+  /**
+   * Constructor.
+   * @param seed The seed of the pseudo-random variables used for the dimensions above {@link #MAX_DIMENSION}.
+   */
+  public SobolRandomStreams(final long seed) {
+    _padding = new PseudoRandomStreams(seed);
+  }
+
+  private static long[][] directionNumbers() {
+    final long[][] v = new long[MAX_DIMENSION][BITS];
+    for (int k = 0; k < BITS; k++) {
+      v[0][k] = 1L << (BITS - 1 - k);
+    }
+    for (int loopdim = 1; loopdim < MAX_DIMENSION; loopdim++) {
+      final int[] p = PRIMITIVE[loopdim - 1];
+      final int s = p[0];
+      final int a = p[1];
+      for (int k = 0; k < s; k++) {
+        v[loopdim][k] = ((long) p[2 + k]) << (BITS - 1 - k);
+      }
+      for (int k = s; k < BITS; k++) {
+        long value = v[loopdim][k - s] ^ (v[loopdim][k - s] >>> s);
+        for (int j = 1; j < s; j++) {
+          if (((a >>> (s - 1 - j)) & 1) != 0) {
+            value ^= v[loopdim][k - j];
+          }
+        }
+        v[loopdim][k] = value;
+      }
+    }
+    return v;
+  }
+
+  @Override
+  public void fillNormals(final long firstPath, final double[][] normals, final int nbPath) {
+    ArgumentChecker.isTrue(firstPath >= 0, "firstPath must not be negative");
+    ArgumentChecker.isTrue(firstPath + nbPath < (1L << BITS), "Sobol sequence limited to {} points", (1L << BITS) - 1);
+    final int nbSobol = Math.min(normals.length, MAX_DIMENSION);
+    final long[] x = new long[nbSobol];
+    long index = firstPath + 1;
+    final long gray = index ^ (index >>> 1);
+    for (int loopdim = 0; loopdim < nbSobol; loopdim++) {
+      long value = 0;
+      for (int k = 0; k < BITS; k++) {
+        if (((gray >>> k) & 1) != 0) {
+          value ^= DIRECTION[loopdim][k];
+        }
+      }
+      x[loopdim] = value;
+    }
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      if (looppath > 0) {
+        // Gray code order: the next point differs from the current one by the direction number of the lowest zero bit of the index
+        final int c = Long.numberOfTrailingZeros(~index);
+        for (int loopdim = 0; loopdim < nbSobol; loopdim++) {
+          x[loopdim] ^= DIRECTION[loopdim][c];
+        }
+        index++;
+      }
+      for (int loopdim = 0; loopdim < nbSobol; loopdim++) {
+        normals[loopdim][looppath] = Probability.normalInverse(x[loopdim] * SCALE);
+      }
+    }
+    if (normals.length > nbSobol) {
+      _padding.fillNormals(firstPath, normals, nbSobol, nbPath);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return _padding.hashCode() + 31;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SobolRandomStreams)) {
+      return false;
+    }
+    return _padding.equals(((SobolRandomStreams) obj)._padding);
+  }
+
+}
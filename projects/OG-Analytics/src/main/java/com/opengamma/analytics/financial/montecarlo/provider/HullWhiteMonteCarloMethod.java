@@ -18,6 +18,9 @@ import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorCalc
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDataBundle;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeDataBundle;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathEngine;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathEngine.PathBlockFunction;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloRandomStreams;
 import com.opengamma.analytics.financial.provider.description.interestrate.HullWhiteOneFactorProviderInterface;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
@@ -69,10 +72,21 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     super(numberGenerator, nbPath);
   }
 
+  /**
+   * Constructor for a method running the paths in parallel. The results are reproducible for given random streams,
+   * whatever the number of threads used by the engine.
+   * @param pathEngine The engine running the paths.
+   * @param randomStreams The random streams.
+   * @param nbPath The number of paths.
+   */
+  public HullWhiteMonteCarloMethod(final MonteCarloPathEngine pathEngine, final MonteCarloRandomStreams randomStreams, final int nbPath) {
+    super(pathEngine, randomStreams, nbPath);
+  }
+
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price.
+   * block price is the total price. When a path engine is used, the blocks are those of the engine and are run in parallel.
    * @param instrument The swaption.
    * @param ccy The currency.
    * @param hwData The Hull-White data (curves and Hull-White parameters).
@@ -85,56 +99,18 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     final DecisionSchedule decision = instrument.accept(DC, multicurves);
     final double[] decisionTime = decision.getDecisionTime();
     final double[][] impactTime = decision.getImpactTime();
-    final int nbJump = decisionTime.length;
-    final double numeraireTime = decisionTime[nbJump - 1];
-    final double pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    final double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / pDN;
-      }
-    }
-    final double[] gamma = new double[nbJump];
-    final double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    final double[][] h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
-    final double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    final double[][] covCD2 = cdr2.getL().toArray();
-    final double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
+    final PathData data = new PathData(decisionTime, impactTime, ccy, multicurves, parameters);
+    final int nbJump = data._nbJump;
+    final double pDN = data._pDN;
+    final double[][] pDI = data._pDI;
+    final double[] gamma = data._gamma;
+    final double[][] h = data._h;
+    final double[][] h2 = data._h2;
+    final double[][] covCD = data._covCD;
+    final double[][] impactAmount = decision.getImpactAmount();
+    if (getPathEngine() != null) {
+      final double pv = getPathEngine().evaluate(getRandomStreams(), nbJump, getNbPath(), new PresentValueBlockFunction(instrument, data, impactAmount))[0];
+      return MultipleCurrencyAmount.of(ccy, pv * pDN / getNbPath());
     }
     final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     final int[] nbPath2 = new int[nbBlock];
@@ -142,7 +118,6 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
       nbPath2[i] = BLOCK_SIZE;
     }
     nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
-    final double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
       final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
@@ -154,7 +129,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
           }
         }
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma, nbPath2[loopblock]);
       pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
     }
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
@@ -177,57 +152,15 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     final DecisionScheduleDerivative decision = instrument.accept(DDC, multicurves);
     final double[] decisionTime = decision.getDecisionTime();
     final double[][] impactTime = decision.getImpactTime();
-    final int nbJump = decisionTime.length;
-    final double numeraireTime = decisionTime[nbJump - 1];
-    final double pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    final double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / pDN;
-      }
-    }
-    final double[] gamma = new double[nbJump];
-    final double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    final double[][] h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
-    final double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    final double[][] covCD2 = cdr2.getL().toArray();
-    final double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
-    }
+    final PathData data = new PathData(decisionTime, impactTime, ccy, multicurves, parameters);
+    final int nbJump = data._nbJump;
+    final double numeraireTime = data._numeraireTime;
+    final double pDN = data._pDN;
+    final double[][] pDI = data._pDI;
+    final double[] gamma = data._gamma;
+    final double[][] h = data._h;
+    final double[][] h2 = data._h2;
+    final double[][] covCD = data._covCD;
     final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     final int[] nbPath2 = new int[nbBlock];
     for (int i = 0; i < nbBlock - 1; i++) {
@@ -252,39 +185,56 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
     }
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
+    if (getPathEngine() != null) {
+      // The block adjoints are computed for a unit block weight; the weight pDN / nbPath * pvBar is the same for all blocks and applied after summation
+      final double[] sums = getPathEngine().evaluate(getRandomStreams(), nbJump, getNbPath(), new CurveSensitivityBlockFunction(instrument, data, impactAmount));
+      pv = sums[0];
+      int index = 1;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+          impactAmountBar[loopjump][loopimp] = sums[index++] * pvBlockBar[0];
         }
       }
-      final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
-      final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
-      pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
-      pv += pvBlock[loopblock];
-      // Backward sweep (in block loop)
       for (int loopjump = 0; loopjump < nbJump; loopjump++) {
         for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+          pDIBar[loopjump][loopimp] = sums[index++] * pvBlockBar[0];
         }
       }
-      final Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+    } else {
+      for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
+        final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
+        final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
+        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+          for (int i = 0; i < nbJump; i++) {
+            for (int j = 0; j < nbJump; j++) {
+              y[i][looppath] += x[j][looppath] * covCD[i][j];
+            }
+          }
+        }
+        final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma, nbPath2[loopblock]);
+        final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
+        pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
+        pv += pvBlock[loopblock];
+        // Backward sweep (in block loop)
         for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-          pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
           for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-            pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+            impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
           }
         }
-      }
-      final double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar);
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
+        final Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
+        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+          for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+            pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
+            for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+              pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+            }
+          }
+        }
+        final double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar, nbPath2[loopblock]);
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+            pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
+          }
         }
       }
     }
@@ -334,6 +284,26 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     return result;
   }
 
+  /**
+   * Correlates independent normal variables in place: y = L x, with L the lower triangular Cholesky matrix.
+   * The jumps are processed from the last to the first so that each x is read before it is overwritten.
+   * @param x The independent variables, replaced by the correlated ones (jump/path).
+   * @param covCD The Cholesky decomposition of the covariance matrix.
+   * @param nbPath The number of paths.
+   */
+  private static void correlate(final double[][] x, final double[][] covCD, final int nbPath) {
+    final int nbJump = covCD.length;
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      for (int i = nbJump - 1; i >= 0; i--) {
+        double y = 0;
+        for (int j = 0; j <= i; j++) {
+          y += x[j][looppath] * covCD[i][j];
+        }
+        x[i][looppath] = y;
+      }
+    }
+  }
+
   /**
    * Construct the discount factors on the simulated paths from the random variables and the model constants.
    * @param initDiscountFactor The initial discount factors.
@@ -341,11 +311,12 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
    * @param h The H parameters. jump/cf
    * @param h2 The H^2 parameters.
    * @param gamma The gamma parameters.
+   * @param nbPath The number of paths.
    * @return The discount factor paths (path/jump/cf).
    */
-  private Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma) {
+  private static Double[][][] pathGeneratorDiscount(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma,
+      final int nbPath) {
     final int nbJump = y.length;
-    final int nbPath = y[0].length;
     final Double[][][] pD = new Double[nbPath][nbJump][];
     double[] h2gamma;
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
@@ -372,11 +343,12 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
    * @param h2 The H^2 parameters.
    * @param gamma The gamma parameters.
    * @param pDBar The simulated discount factor adjoints (path/jump/cf).
+   * @param nbPath The number of paths.
    * @return The initial discount factor adjoints (jump/cf).
    */
-  private double[][] pathGeneratorDiscountAdjointIDF(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma, final Double[][][] pDBar) {
+  private static double[][] pathGeneratorDiscountAdjointIDF(final double[][] initDiscountFactor, final double[][] y, final double[][] h, final double[][] h2, final double[] gamma,
+      final Double[][][] pDBar, final int nbPath) {
     final int nbJump = y.length;
-    final int nbPath = y[0].length;
     double[] h2gamma;
     final double[][] initDiscountFactorBar = new double[nbJump][];
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
@@ -464,4 +436,168 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   //    return gammaBar;
   //  }
 
+  /**
+   * The model quantities used to generate the discount factors on the paths.
+   */
+  private static final class PathData {
+    private final int _nbJump;
+    private final double _numeraireTime;
+    /** Discount factor to numeraire date for rebasing. */
+    private final double _pDN;
+    /** Initial discount factors to each impact date. */
+    private final double[][] _pDI;
+    private final double[] _gamma;
+    /** jump/cf */
+    private final double[][] _h;
+    private final double[][] _h2;
+    /** The Cholesky decomposition of the covariance, lower triangular. */
+    private final double[][] _covCD;
+
+    PathData(final double[] decisionTime, final double[][] impactTime, final Currency ccy, final MulticurveProviderInterface multicurves,
+        final HullWhiteOneFactorPiecewiseConstantParameters parameters) {
+      final int nbJump = decisionTime.length;
+      final double numeraireTime = decisionTime[nbJump - 1];
+      final double pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
+      final double[][] pDI = new double[nbJump][];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        pDI[loopjump] = new double[impactTime[loopjump].length];
+        for (int i = 0; i < impactTime[loopjump].length; i++) {
+          pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / pDN;
+        }
+      }
+      final double[] gamma = new double[nbJump];
+      final double[][] cov = new double[nbJump][nbJump];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
+        gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
+        cov[loopjump][loopjump] = gamma[loopjump];
+        for (int j = loopjump + 1; j < nbJump; j++) {
+          cov[j][loopjump] = gamma[loopjump];
+          cov[loopjump][j] = gamma[loopjump];
+        }
+      }
+      final double[][] h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
+      final double[][] h2 = new double[nbJump][];
+      for (int i = 0; i < nbJump; i++) {
+        h2[i] = new double[h[i].length];
+        for (int j = 0; j < h[i].length; j++) {
+          h2[i][j] = h[i][j] * h[i][j] / 2;
+        }
+      }
+      // To remove the 0 (fixed coupons)
+      int nbZero = 0;
+      while (cov[nbZero][nbZero] < 1.0E-12) {
+        nbZero++;
+      }
+      final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
+      for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
+          cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
+        }
+      }
+      final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
+      final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
+      final double[][] covCD2 = cdr2.getL().toArray();
+      final double[][] covCD = new double[nbJump][nbJump];
+      for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
+          covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
+        }
+      }
+      _nbJump = nbJump;
+      _numeraireTime = numeraireTime;
+      _pDN = pDN;
+      _pDI = pDI;
+      _gamma = gamma;
+      _h = h;
+      _h2 = h2;
+      _covCD = covCD;
+    }
+  }
+
+  /**
+   * The present value on a block of paths run by the path engine. The result is the block price multiplied by the number of paths, not rebased by the numeraire.
+   */
+  private static final class PresentValueBlockFunction implements PathBlockFunction {
+    private final InstrumentDerivative _instrument;
+    private final PathData _data;
+    private final double[][] _impactAmount;
+
+    PresentValueBlockFunction(final InstrumentDerivative instrument, final PathData data, final double[][] impactAmount) {
+      _instrument = instrument;
+      _data = data;
+      _impactAmount = impactAmount;
+    }
+
+    @Override
+    public int getResultSize() {
+      return 1;
+    }
+
+    @Override
+    public void evaluate(final double[][] normals, final int nbPath, final double[] result) {
+      correlate(normals, _data._covCD, nbPath);
+      final Double[][][] pD = pathGeneratorDiscount(_data._pDI, normals, _data._h, _data._h2, _data._gamma, nbPath);
+      result[0] = _instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, _impactAmount)) * nbPath;
+    }
+  }
+
+  /**
+   * The present value and its adjoints with respect to the impact amounts and the initial discount factors on a block of paths run by the path engine.
+   * The result is the block price multiplied by the number of paths, followed by the impact amount adjoints and the initial discount factor adjoints
+   * (jump/cf, flattened), all for a unit block weight.
+   */
+  private static final class CurveSensitivityBlockFunction implements PathBlockFunction {
+    private final InstrumentDerivative _instrument;
+    private final PathData _data;
+    private final double[][] _impactAmount;
+    private final int _nbImpact;
+
+    CurveSensitivityBlockFunction(final InstrumentDerivative instrument, final PathData data, final double[][] impactAmount) {
+      _instrument = instrument;
+      _data = data;
+      _impactAmount = impactAmount;
+      int nbImpact = 0;
+      for (final double[] amounts : impactAmount) {
+        nbImpact += amounts.length;
+      }
+      _nbImpact = nbImpact;
+    }
+
+    @Override
+    public int getResultSize() {
+      return 1 + 2 * _nbImpact;
+    }
+
+    @Override
+    public void evaluate(final double[][] normals, final int nbPath, final double[] result) {
+      final int nbJump = _data._nbJump;
+      correlate(normals, _data._covCD, nbPath);
+      final Double[][][] pD = pathGeneratorDiscount(_data._pDI, normals, _data._h, _data._h2, _data._gamma, nbPath);
+      final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, _impactAmount);
+      result[0] = _instrument.accept(MCDC, mcdDB) * nbPath;
+      int index = 1;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        for (int loopimp = 0; loopimp < _impactAmount[loopjump].length; loopimp++) {
+          result[index++] = mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath;
+        }
+      }
+      final Double[][][] pDBar = new Double[nbPath][nbJump][];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          pDBar[looppath][loopjump] = new Double[_impactAmount[loopjump].length];
+          for (int loopimp = 0; loopimp < _impactAmount[loopjump].length; loopimp++) {
+            pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath;
+          }
+        }
+      }
+      final double[][] pDIBar = pathGeneratorDiscountAdjointIDF(_data._pDI, normals, _data._h, _data._h2, _data._gamma, pDBar, nbPath);
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        for (int loopimp = 0; loopimp < _impactAmount[loopjump].length; loopimp++) {
+          result[index++] = pDIBar[loopjump][loopimp];
+        }
+      }
+    }
+  }
+
 }
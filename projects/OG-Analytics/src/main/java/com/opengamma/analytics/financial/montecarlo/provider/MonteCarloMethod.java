@@ -5,7 +5,10 @@
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathEngine;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloRandomStreams;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.util.ArgumentChecker;
 
 /**
  * Generic Monte-Carlo pricing method.
@@ -20,6 +23,14 @@ public abstract class MonteCarloMethod {
    * The number of paths.
    */
   private final int _nbPath;
+  /**
+   * The engine running the paths in parallel. Null when the paths are run sequentially with the number generator.
+   */
+  private final MonteCarloPathEngine _pathEngine;
+  /**
+   * The random streams used by the path engine. Null when the paths are run sequentially with the number generator.
+   */
+  private final MonteCarloRandomStreams _randomStreams;
 
   /**
    * Constructor.
@@ -29,6 +40,23 @@ public abstract class MonteCarloMethod {
   public MonteCarloMethod(RandomNumberGenerator numberGenerator, int nbPath) {
     _numberGenerator = numberGenerator;
     _nbPath = nbPath;
+    _pathEngine = null;
+    _randomStreams = null;
+  }
+
+  /**
+   * Constructor for a method running the paths in parallel.
+   * @param pathEngine The engine running the paths, not null.
+   * @param randomStreams The random streams, not null.
+   * @param nbPath The number of paths.
+   */
+  public MonteCarloMethod(MonteCarloPathEngine pathEngine, MonteCarloRandomStreams randomStreams, int nbPath) {
+    ArgumentChecker.notNull(pathEngine, "pathEngine");
+    ArgumentChecker.notNull(randomStreams, "randomStreams");
+    _numberGenerator = null;
+    _nbPath = nbPath;
+    _pathEngine = pathEngine;
+    _randomStreams = randomStreams;
   }
 
   /**
@@ -47,4 +75,20 @@ public abstract class MonteCarloMethod {
     return _nbPath;
   }
 
+  /**
+   * Gets the path engine.
+   * @return The path engine, null if the paths are run sequentially with the number generator.
+   */
+  public MonteCarloPathEngine getPathEngine() {
+    return _pathEngine;
+  }
+
+  /**
+   * Gets the random streams used by the path engine.
+   * @return The random streams, null if the paths are run sequentially with the number generator.
+   */
+  public MonteCarloRandomStreams getRandomStreams() {
+    return _randomStreams;
+  }
+
 }
@@ -30,12 +30,17 @@ import com.opengamma.analytics.financial.provider.description.interestrate.Param
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ParameterSensitivityMulticurveUnderlyingMatrixCalculator;
 import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.analytics.math.linearalgebra.Decomposition;
 import com.opengamma.analytics.math.linearalgebra.DecompositionFactory;
 import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
 import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
 import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.rootfinding.newton.BroydenMatrixUpdateFunction;
 import com.opengamma.analytics.math.rootfinding.newton.BroydenVectorRootFinder;
+import com.opengamma.analytics.math.rootfinding.newton.JacobianDirectionFunction;
+import com.opengamma.analytics.math.rootfinding.newton.NewtonVectorRootFinder;
+import com.opengamma.analytics.math.rootfinding.newton.SeededJacobianInitializationFunction;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.tuple.ObjectsPair;
@@ -60,6 +65,10 @@ public class MulticurveDiscountBuildingRepository {
    * The maximum number of steps for the root finder.
    */
   private final int _stepMaximum;
+  /**
+   * The decomposition used by the root finder.
+   */
+  private final Decomposition<?> _decomposition;
   /**
    * The root finder used for curve calibration.
    */
@@ -79,38 +88,52 @@ public class MulticurveDiscountBuildingRepository {
     _toleranceAbs = toleranceAbs;
     _toleranceRel = toleranceRel;
     _stepMaximum = stepMaximum;
-    _rootFinder = new BroydenVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME));
+    _decomposition = DecompositionFactory.getDecomposition(DecompositionFactory.SV_COLT_NAME);
+    _rootFinder = new BroydenVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, _decomposition);
     // TODO: [PLAT-5761] make the root finder flexible.
     // TODO: create a way to select the SensitivityMatrixMulticurve calculator (with underlying curve or not)
   }
 
   /**
    * Build a unit of curves.
-   * @param instruments The instruments used for the unit calibration.
+   * @param data The data required for the unit calibration.
    * @param initGuess The initial parameters guess.
-   * @param knownData The known data (fx rates, other curves, model parameters, ...)
-   * @param discountingMap The discounting curves names map.
-   * @param forwardIborMap The forward curves names map.
-   * @param forwardONMap The forward curves names map.
-   * @param generatorsMap The generators map.
+   * @param jacobianSeed The Jacobian to use at the first step, instead of computing it; null to compute it.
    * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
    * @param sensitivityCalculator The parameter sensitivity calculator.
-   * @return The new curves and the calibrated parameters.
+   * @return The calibrated parameters.
    */
-  private MulticurveProviderDiscount makeUnit(final InstrumentDerivative[] instruments, final double[] initGuess, 
-      final MulticurveProviderDiscount knownData,
-      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, 
-      final LinkedHashMap<String, IndexON[]> forwardONMap,
-      final LinkedHashMap<String, GeneratorYDCurve> generatorsMap, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+  private double[] makeUnit(final MulticurveDiscountBuildingData data, final double[] initGuess, final DoubleMatrix2D jacobianSeed,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
-    final GeneratorMulticurveProviderDiscount generator = new GeneratorMulticurveProviderDiscount(knownData, discountingMap, forwardIborMap, forwardONMap, generatorsMap);
-    final MulticurveDiscountBuildingData data = new MulticurveDiscountBuildingData(instruments, generator);
     final Function1D<DoubleMatrix1D, DoubleMatrix1D> curveCalculator = new MulticurveDiscountFinderFunction(calculator, data);
     final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianCalculator = new MulticurveDiscountFinderJacobian(
         new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator), data);
-    final double[] parameters = _rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
-    final MulticurveProviderDiscount newCurves = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
-    return newCurves;
+    final NewtonVectorRootFinder rootFinder;
+    if (jacobianSeed == null) {
+      rootFinder = _rootFinder;
+    } else {
+      rootFinder = new NewtonVectorRootFinder(_toleranceAbs, _toleranceRel, _stepMaximum, new JacobianDirectionFunction(_decomposition),
+          new SeededJacobianInitializationFunction(jacobianSeed), new BroydenMatrixUpdateFunction());
+    }
+    return rootFinder.getRoot(curveCalculator, jacobianCalculator, new DoubleMatrix1D(initGuess)).getData();
+  }
+
+  /**
+   * Checks whether parameters still match the market quotes of a unit, to the tolerance of the root finder.
+   * @param data The data required for the unit calibration.
+   * @param parameters The parameters.
+   * @param calculator The calculator of the value on which the calibration is done.
+   * @return True if the parameters are a root.
+   */
+  private boolean isRoot(final MulticurveDiscountBuildingData data, final double[] parameters,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator) {
+    final double[] values = new MulticurveDiscountFinderFunction(calculator, data).evaluate(new DoubleMatrix1D(parameters)).getData();
+    double sum = 0.0;
+    for (final double value : values) {
+      sum += value * value;
+    }
+    return Math.sqrt(sum) < _toleranceAbs;
   }
 
   /**
@@ -121,10 +144,9 @@ public class MulticurveDiscountBuildingRepository {
    * @param blockBundle
    * @param sensitivityCalculator The parameter sensitivity calculator for the value on which the calibration is done
   (usually ParSpreadMarketQuoteDiscountingProviderCalculator (recommended) or converted present value).
-   * @return The part of the inverse Jacobian matrix associated to each curve. Only the part for the curve in the current unit (not the previous units).
-   * The Jacobian matrix is the transition matrix between the curve parameters and the par spread.
+   * @return The Jacobian of the market quotes with respect to the parameters of the current unit.
    */
-  private void updateBlockBundle(final InstrumentDerivative[] instruments, final MulticurveProviderDiscount multicurves, final List<String> currentCurvesList,
+  private DoubleMatrix2D updateBlockBundle(final InstrumentDerivative[] instruments, final MulticurveProviderDiscount multicurves, final List<String> currentCurvesList,
       final CurveBuildingBlockBundle blockBundle, final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
     // Sensitivity calculator
     final ParameterSensitivityMulticurveUnderlyingMatrixCalculator parameterSensitivityCalculator = new ParameterSensitivityMulticurveUnderlyingMatrixCalculator(sensitivityCalculator);
@@ -176,7 +198,8 @@ public class MulticurveDiscountBuildingRepository {
     for (int loopp = 0; loopp < nbIns; loopp++) {
       System.arraycopy(res[loopp], nbParametersBeforeTotal, direct[loopp], 0, nbParametersCurrentTotal);
     }
-    final DoubleMatrix2D pDmCurrentMatrix = MATRIX_ALGEBRA.getInverse(new DoubleMatrix2D(direct));
+    final DoubleMatrix2D directMatrix = new DoubleMatrix2D(direct);
+    final DoubleMatrix2D pDmCurrentMatrix = MATRIX_ALGEBRA.getInverse(directMatrix);
     // Jacobian indirect: when nbBefor
     double[][] pDmBeforeArray = new double[0][0];
     if (nbParametersBeforeTotal > 0) {
@@ -250,6 +273,7 @@ public class MulticurveDiscountBuildingRepository {
       blockBundle.add(name, blockOut, pDmCurveMatrix);
       loopc++;
     }
+    return directMatrix;
   }
 
   /**
@@ -341,6 +365,36 @@ public class MulticurveDiscountBuildingRepository {
       final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator) {
+    final MulticurveDiscountWarmStart result = makeCurvesFromDerivativesWarmStart(curveBundles, knownData, knownBlockBundle, discountingMap, forwardIborMap,
+        forwardONMap, calculator, sensitivityCalculator, null);
+    return ObjectsPair.of(result.getMulticurves(), result.getBlockBundle());
+  }
+
+  /**
+   * Build a block of curves with a known CurveBuildingBlockBundle, starting from a previous calibration of the same curves.
+   * <p>
+   * For each unit that has the same curves and number of instruments as in the previous calibration, the root finder
+   * starts from the previous parameters and uses the previous Jacobian as the seed of its Broyden updates. If the
+   * previous parameters still match the market quotes of the unit, to the absolute tolerance, the unit is not solved
+   * again; only its building block is recomputed. When only a few quotes have changed since the last calibration, most
+   * units are reused and the others converge in a few steps.
+   * @param curveBundles The bundles of curve data used in construction.
+   * @param knownData The known data (fx rates, other curves, model parameters, ...)
+   * @param knownBlockBundle The already build CurveBuildingBlockBundle.
+   * @param discountingMap The discounting curves names map.
+   * @param forwardIborMap The forward curves names map.
+   * @param forwardONMap The forward curves names map.
+   * @param calculator The calculator of the value on which the calibration is done (usually ParSpreadMarketQuoteCalculator (recommended) or converted present value).
+   * @param sensitivityCalculator The parameter sensitivity calculator.
+   * @param previous The result of the previous calibration, null to start from the starting points of the curve bundles.
+   * @return The calibrated yield curve bundle (including the known data), the CurveBuildingBlockBundle with the relevant inverse Jacobian Matrix
+   * and the data used to warm start the next calibration.
+   */
+  public MulticurveDiscountWarmStart makeCurvesFromDerivativesWarmStart(final MultiCurveBundle<GeneratorYDCurve>[] curveBundles,
+      final MulticurveProviderDiscount knownData, final CurveBuildingBlockBundle knownBlockBundle,
+      final LinkedHashMap<String, Currency> discountingMap, final LinkedHashMap<String, IborIndex[]> forwardIborMap, final LinkedHashMap<String, IndexON[]> forwardONMap,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
+      final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final MulticurveDiscountWarmStart previous) {
     ArgumentChecker.notNull(curveBundles, "curve bundles");
     ArgumentChecker.notNull(knownData, "known data");
     ArgumentChecker.notNull(discountingMap, "discounting map");
@@ -356,6 +410,10 @@ public class MulticurveDiscountBuildingRepository {
     final List<InstrumentDerivative> instrumentsSoFar = new ArrayList<>();
     final LinkedHashMap<String, GeneratorYDCurve> generatorsSoFar = new LinkedHashMap<>();
     final LinkedHashMap<String, Pair<Integer, Integer>> unitMap = new LinkedHashMap<>();
+    final List<List<String>> unitNames = new ArrayList<>();
+    final List<double[]> unitParameters = new ArrayList<>();
+    final List<DoubleMatrix2D> unitJacobians = new ArrayList<>();
+    final List<Boolean> unitReused = new ArrayList<>();
     int startUnit = 0;
     for (int iUnits = 0; iUnits < nbUnits; iUnits++) {
       final MultiCurveBundle<GeneratorYDCurve> curveBundle = curveBundles[iUnits];
@@ -384,12 +442,28 @@ public class MulticurveDiscountBuildingRepository {
         generatorsSoFar.put(curveName, tmp);
         unitMap.put(curveName, Pairs.of(startUnit + startCurve[iCurve], nbIns[iCurve]));
       }
-      knownSoFarData = makeUnit(instrumentsUnit, parametersGuess, knownSoFarData,
-          discountingMap, forwardIborMap, forwardONMap, gen, calculator, sensitivityCalculator);
-      updateBlockBundle(instrumentsUnit, knownSoFarData, curveBundle.getNames(), totalBundle, sensitivityCalculator);
+      final GeneratorMulticurveProviderDiscount generator = new GeneratorMulticurveProviderDiscount(knownSoFarData, discountingMap, forwardIborMap, forwardONMap, gen);
+      final MulticurveDiscountBuildingData data = new MulticurveDiscountBuildingData(instrumentsUnit, generator);
+      final double[] previousParameters = previous == null ? null : previous.getParameters(iUnits, curveBundle.getNames(), nbInsUnit);
+      final double[] parameters;
+      boolean reused = false;
+      if (previousParameters == null) {
+        parameters = makeUnit(data, parametersGuess, null, calculator, sensitivityCalculator);
+      } else if (isRoot(data, previousParameters, calculator)) {
+        parameters = previousParameters;
+        reused = true;
+      } else {
+        parameters = makeUnit(data, previousParameters, previous.getJacobian(iUnits), calculator, sensitivityCalculator);
+      }
+      knownSoFarData = data.getGeneratorMarket().evaluate(new DoubleMatrix1D(parameters));
+      final DoubleMatrix2D jacobian = updateBlockBundle(instrumentsUnit, knownSoFarData, curveBundle.getNames(), totalBundle, sensitivityCalculator);
+      unitNames.add(curveBundle.getNames());
+      unitParameters.add(parameters);
+      unitJacobians.add(jacobian);
+      unitReused.add(reused);
       startUnit = startUnit + nbInsUnit;
     }
-    return ObjectsPair.of(knownSoFarData, totalBundle);
+    return new MulticurveDiscountWarmStart(knownSoFarData, totalBundle, unitNames, unitParameters, unitJacobians, unitReused);
   }
 
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.curve.multicurve;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.analytics.financial.provider.curve.CurveBuildingBlockBundle;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The result of a curve calibration by {@link MulticurveDiscountBuildingRepository} together with what is needed to
+ * start the next calibration of the same curves from it: for each unit, the calibrated parameters and the Jacobian of
+ * the market quotes with respect to those parameters at the root.
+ */
+public class MulticurveDiscountWarmStart {
+
+  /**
+   * The calibrated curves, including the known data.
+   */
+  private final MulticurveProviderDiscount _multicurves;
+  /**
+   * The building blocks with the inverse Jacobian matrices.
+   */
+  private final CurveBuildingBlockBundle _blockBundle;
+  /**
+   * The names of the curves of each unit.
+   */
+  private final List<List<String>> _unitNames;
+  /**
+   * The calibrated parameters of each unit.
+   */
+  private final List<double[]> _unitParameters;
+  /**
+   * The Jacobian of the market quotes with respect to the parameters of each unit, at the root.
+   */
+  private final List<DoubleMatrix2D> _unitJacobians;
+  /**
+   * Whether each unit was taken from the previous calibration without solving.
+   */
+  private final List<Boolean> _unitReused;
+
+  /**
+   * Constructor.
+   * @param multicurves The calibrated curves, not null.
+   * @param blockBundle The building blocks, not null.
+   * @param unitNames The names of the curves of each unit, not null.
+   * @param unitParameters The calibrated parameters of each unit, not null.
+   * @param unitJacobians The Jacobian at the root of each unit, not null.
+   * @param unitReused Whether each unit was reused without solving, not null.
+   */
+  MulticurveDiscountWarmStart(final MulticurveProviderDiscount multicurves, final CurveBuildingBlockBundle blockBundle, final List<List<String>> unitNames,
+      final List<double[]> unitParameters, final List<DoubleMatrix2D> unitJacobians, final List<Boolean> unitReused) {
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    ArgumentChecker.notNull(blockBundle, "block bundle");
+    ArgumentChecker.notNull(unitNames, "unit names");
+    ArgumentChecker.notNull(unitParameters, "unit parameters");
+    ArgumentChecker.notNull(unitJacobians, "unit Jacobians");
+    ArgumentChecker.notNull(unitReused, "unit reused");
+    final int nbUnits = unitNames.size();
+    ArgumentChecker.isTrue(unitParameters.size() == nbUnits && unitJacobians.size() == nbUnits && unitReused.size() == nbUnits, "Unit data of different sizes");
+    _multicurves = multicurves;
+    _blockBundle = blockBundle;
+    _unitNames = new ArrayList<>(unitNames);
+    _unitParameters = new ArrayList<>(unitParameters);
+    _unitJacobians = new ArrayList<>(unitJacobians);
+    _unitReused = new ArrayList<>(unitReused);
+  }
+
+  /**
+   * Gets the calibrated parameters of a unit if the unit has the given curves and number of parameters.
+   * @param unit The unit index.
+   * @param names The curve names of the unit.
+   * @param nbParameters The number of parameters of the unit.
+   * @return The parameters, null if the unit does not match.
+   */
+  double[] getParameters(final int unit, final List<String> names, final int nbParameters) {
+    if (unit >= _unitNames.size() || !_unitNames.get(unit).equals(names) || _unitParameters.get(unit).length != nbParameters) {
+      return null;
+    }
+    return _unitParameters.get(unit);
+  }
+
+  /**
+   * Gets the Jacobian at the root of a unit.
+   * @param unit The unit index, which must be a unit for which {@link #getParameters} is not null.
+   * @return The Jacobian.
+   */
+  DoubleMatrix2D getJacobian(final int unit) {
+    return _unitJacobians.get(unit);
+  }
+
+  /**
+   * Gets the calibrated curves.
+   * @return The curves, including the known data.
+   */
+  public MulticurveProviderDiscount getMulticurves() {
+    return _multicurves;
+  }
+
+  /**
+   * Gets the building blocks.
+   * @return The building blocks with the inverse Jacobian matrices.
+   */
+  public CurveBuildingBlockBundle getBlockBundle() {
+    return _blockBundle;
+  }
+
+  /**
+   * Gets the number of units calibrated.
+   * @return The number of units.
+   */
+  public int getNumberOfUnits() {
+    return _unitNames.size();
+  }
+
+  /**
+   * Returns whether a unit was taken from the previous calibration because its market quotes were still matched.
+   * @param unit The unit index.
+   * @return True if the unit was not solved again.
+   */
+  public boolean isReused(final int unit) {
+    return _unitReused.get(unit);
+  }
+
+}
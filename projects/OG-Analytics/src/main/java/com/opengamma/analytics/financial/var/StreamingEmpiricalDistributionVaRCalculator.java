@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var;
+
+import java.util.Arrays;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streaming form of {@link EmpiricalDistributionVaRCalculator} over a rolling window of returns.
+ * <p>
+ * The returns in the window are held both in arrival order and in sorted order. Adding a return finds the positions
+ * of the new and dropped values by binary search and shifts the sorted values between them with a single array copy,
+ * so the percentile can be read directly without sorting the window each time. The VaR is the same as that given by
+ * {@link EmpiricalDistributionVaRCalculator} for the return series in the window.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class StreamingEmpiricalDistributionVaRCalculator {
+  /** The VaR parameters */
+  private final EmpiricalDistributionVaRParameters _parameters;
+  /** The returns in the window in arrival order, as a ring buffer */
+  private final double[] _returns;
+  /** The returns in the window in ascending order */
+  private final double[] _sorted;
+  /** The index of the oldest return */
+  private int _start;
+  /** The number of returns in the window */
+  private int _count;
+
+  /**
+   * @param parameters The VaR parameters, not null
+   * @param window The maximum number of returns used, greater than zero
+   */
+  public StreamingEmpiricalDistributionVaRCalculator(final EmpiricalDistributionVaRParameters parameters, final int window) {
+    ArgumentChecker.notNull(parameters, "parameters");
+    ArgumentChecker.isTrue(window > 0, "window must be greater than zero");
+    _parameters = parameters;
+    _returns = new double[window];
+    _sorted = new double[window];
+  }
+
+  /**
+   * Replaces the state with the last values from a return series.
+   * @param returns The return series, not null
+   */
+  public void seed(final DoubleTimeSeries<?> returns) {
+    ArgumentChecker.notNull(returns, "returns");
+    final double[] values = returns.valuesArrayFast();
+    final int count = Math.min(values.length, _returns.length);
+    System.arraycopy(values, values.length - count, _returns, 0, count);
+    System.arraycopy(values, values.length - count, _sorted, 0, count);
+    Arrays.sort(_sorted, 0, count);
+    _start = 0;
+    _count = count;
+  }
+
+  /**
+   * Adds a return, dropping the oldest if the window is full.
+   * @param returnValue The return
+   */
+  public void add(final double returnValue) {
+    final int window = _returns.length;
+    if (_count == window) {
+      final double oldest = _returns[_start];
+      _returns[_start] = returnValue;
+      _start = (_start + 1) % window;
+      final int remove = find(oldest);
+      final int insert = insertionPoint(returnValue);
+      if (insert <= remove) {
+        // Shift the values from the insertion point up to the removed one along by one
+        System.arraycopy(_sorted, insert, _sorted, insert + 1, remove - insert);
+        _sorted[insert] = returnValue;
+      } else {
+        // Shift the values after the removed one down to the insertion point back by one
+        System.arraycopy(_sorted, remove + 1, _sorted, remove, insert - remove - 1);
+        _sorted[insert - 1] = returnValue;
+      }
+    } else {
+      _returns[(_start + _count) % window] = returnValue;
+      final int insert = insertionPoint(returnValue);
+      System.arraycopy(_sorted, insert, _sorted, insert + 1, _count - insert);
+      _sorted[insert] = returnValue;
+      _count++;
+    }
+  }
+
+  private int find(final double value) {
+    final int index = Arrays.binarySearch(_sorted, 0, _count, value);
+    if (index < 0) {
+      throw new IllegalStateException("Value " + value + " not in window");
+    }
+    return index;
+  }
+
+  private int insertionPoint(final double value) {
+    final int index = Arrays.binarySearch(_sorted, 0, _count, value);
+    return (index >= 0) ? index : -(index + 1);
+  }
+
+  /**
+   * @return The number of returns in the window
+   */
+  public int getCount() {
+    return _count;
+  }
+
+  /**
+   * @return The VaR of the returns in the window
+   * @throws IllegalStateException If there are no returns
+   */
+  public VaRCalculationResult getVaR() {
+    if (_count == 0) {
+      throw new IllegalStateException("No return series data");
+    }
+    final double result = -_parameters.getMult() * _parameters.getPercentileCalculator().evaluateSorted(_sorted, _count);
+    return new VaRCalculationResult(result, null);
+  }
+
+}
@@ -23,6 +23,7 @@ import org.joda.beans.impl.direct.DirectBeanBuilder;
 import org.joda.beans.impl.direct.DirectMetaProperty;
 import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 
+import com.opengamma.analytics.math.interpolation.CompiledInterpolant1D;
 import com.opengamma.analytics.math.interpolation.Interpolator1D;
 import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
 import com.opengamma.util.ArgumentChecker;
@@ -45,6 +46,10 @@ public class InterpolatedDoublesCurve extends ArraysDoublesCurve implements Seri
    */
   @PropertyDefinition(validate = "notNull", get = "manual", set = "private")
   private Interpolator1D _interpolator;
+  /**
+   * The compiled interpolant, created on first use.
+   */
+  private transient volatile CompiledInterpolant1D _compiled;
 
   //-------------------------------------------------------------------------
   /**
@@ -538,13 +543,24 @@ public class InterpolatedDoublesCurve extends ArraysDoublesCurve implements Seri
   @Override
   public Double getYValue(final Double x) {
     ArgumentChecker.notNull(x, "x");
-    return _interpolator.interpolate(_dataBundle, x);
+    return getCompiled().interpolate(x);
+  }
+
+  /**
+   * Computes the <i>y</i> values of an array of <i>x</i> values. The lookup of the interval containing each <i>x</i>
+   * starts from that of the previous one, so sorting the <i>x</i> values in increasing order makes it faster.
+   * @param x The <i>x</i> values, not null
+   * @return The <i>y</i> values
+   */
+  public double[] getYValues(final double[] x) {
+    ArgumentChecker.notNull(x, "x");
+    return getCompiled().interpolate(x);
   }
 
   @Override
   public Double[] getYValueParameterSensitivity(final Double x) {
     ArgumentChecker.notNull(x, "x");
-    return ArrayUtils.toObject(_interpolator.getNodeSensitivitiesForValue(_dataBundle, x));
+    return ArrayUtils.toObject(getCompiled().getNodeSensitivitiesForValue(x));
   }
 
   public Interpolator1D getInterpolator() {
@@ -555,9 +571,22 @@ public class InterpolatedDoublesCurve extends ArraysDoublesCurve implements Seri
     return _dataBundle;
   }
 
+  /**
+   * Gets the interpolant of the data bundle and interpolator, compiled on first use.
+   * @return The compiled interpolant
+   */
+  public CompiledInterpolant1D getCompiled() {
+    CompiledInterpolant1D compiled = _compiled;
+    if (compiled == null || compiled.getDataBundle() != _dataBundle || compiled.getInterpolator() != _interpolator) {
+      compiled = _interpolator.compile(_dataBundle);
+      _compiled = compiled;
+    }
+    return compiled;
+  }
+
   @Override
   public double getDyDx(final double x) {
-    return _interpolator.firstDerivative(_dataBundle, x);
+    return getCompiled().firstDerivative(x);
   }
 
   //-------------------------------------------------------------------------
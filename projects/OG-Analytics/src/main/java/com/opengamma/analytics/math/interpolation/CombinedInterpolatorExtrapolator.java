@@ -113,6 +113,11 @@ public class CombinedInterpolatorExtrapolator extends Interpolator1D {
     return _interpolator.getNodeSensitivitiesForValue(data, value);
   }
 
+  @Override
+  protected CompiledInterpolant1D compile(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return _interpolator.compile(data, outside);
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("Interpolator[interpolator=");
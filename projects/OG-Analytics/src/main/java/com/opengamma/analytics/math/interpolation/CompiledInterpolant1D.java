@@ -0,0 +1,592 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.interpolation;
+
+import java.util.Arrays;
+
+import com.opengamma.analytics.math.FunctionUtils;
+import com.opengamma.analytics.math.MathException;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DCubicSplineDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DLogPiecewisePoynomialDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DPiecewisePoynomialDataBundle;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The interpolant given by an {@link Interpolator1D} and a data bundle, with the per-interval data held in flat arrays.
+ * <p>
+ * An interpolator looks up the interval containing a value by binary search on every call and, for the splines, goes
+ * through matrix objects to reach the coefficients of that interval. A compiled interpolant does this work once: the
+ * coefficients, and the node sensitivities where they are available, are copied into arrays indexed by interval, and
+ * the interval is found from a uniform bucketing of the range of the knots in constant time for reasonably spaced knots.
+ * Values given in increasing order to {@link #interpolate(double[], double[])} move a cursor forward from one interval
+ * to the next instead of searching again.
+ * <p>
+ * Between the first and last knots the arithmetic is that of the interpolator, so the results are identical to those of
+ * {@link Interpolator1D#interpolate}, {@link Interpolator1D#firstDerivative} and
+ * {@link Interpolator1D#getNodeSensitivitiesForValue}. Outside the knots the calls are passed to the interpolator,
+ * which is where the extrapolators of a {@link CombinedInterpolatorExtrapolator} are applied. Interpolators without a
+ * compiled form are called for every value.
+ * <p>
+ * The interpolant reflects the data bundle at the time it was compiled. Instances are immutable and thread-safe.
+ */
+public abstract class CompiledInterpolant1D {
+  /** The number of buckets per interval between knots */
+  private static final int BUCKETS_PER_INTERVAL = 4;
+  /** The number of knots in a bucket above which the lookup reverts to binary search */
+  private static final int MAX_SCAN = 8;
+
+  /** The interpolator used outside the knots */
+  private final Interpolator1D _outside;
+  /** The data bundle */
+  private final Interpolator1DDataBundle _data;
+  /** The knots */
+  private final double[] _knots;
+  /** The number of knots */
+  private final int _n;
+  /** The first knot */
+  private final double _first;
+  /** The last knot */
+  private final double _last;
+  /** The number of buckets */
+  private final int _nbBuckets;
+  /** The number of buckets per unit of x */
+  private final double _bucketScale;
+  /** The lower bound index of the start of each bucket, with the last knot index appended */
+  private final int[] _bucketStart;
+
+  /**
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   */
+  CompiledInterpolant1D(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    ArgumentChecker.notNull(data, "data");
+    ArgumentChecker.notNull(outside, "outside");
+    _data = data;
+    _outside = outside;
+    _knots = Arrays.copyOf(data.getKeys(), data.getKeys().length);
+    _n = _knots.length;
+    _first = _knots[0];
+    _last = _knots[_n - 1];
+    _nbBuckets = (_n - 1) * BUCKETS_PER_INTERVAL;
+    _bucketScale = _nbBuckets == 0 ? 0 : _nbBuckets / (_last - _first);
+    _bucketStart = new int[_nbBuckets + 1];
+    for (int i = 0; i < _nbBuckets; i++) {
+      _bucketStart[i] = FunctionUtils.getLowerBoundIndex(_knots, _first + i / _bucketScale);
+    }
+    _bucketStart[_nbBuckets] = _n - 1;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Creates an interpolant which calls the interpolator for every value.
+   * @param interpolator The interpolator used between the knots, not null
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   * @return The interpolant
+   */
+  static CompiledInterpolant1D delegating(final Interpolator1D interpolator, final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return new Delegating(interpolator, data, outside);
+  }
+
+  /**
+   * Creates the interpolant of {@link LinearInterpolator1D}.
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   * @return The interpolant
+   */
+  static CompiledInterpolant1D linear(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return new Linear(data, outside);
+  }
+
+  /**
+   * Creates the interpolant of {@link NaturalCubicSplineInterpolator1D}.
+   * @param interpolator The interpolator, not null
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   * @param eps The minimum distance between knots
+   * @return The interpolant
+   */
+  static CompiledInterpolant1D naturalCubicSpline(final NaturalCubicSplineInterpolator1D interpolator, final Interpolator1DDataBundle data,
+      final Interpolator1D outside, final double eps) {
+    if (!(data instanceof Interpolator1DCubicSplineDataBundle)) {
+      return new Delegating(interpolator, data, outside);
+    }
+    return new NaturalCubicSpline((Interpolator1DCubicSplineDataBundle) data, outside, eps);
+  }
+
+  /**
+   * Creates the interpolant of a {@link PiecewisePolynomialInterpolator1D} which evaluates the piecewise polynomial directly.
+   * @param interpolator The interpolator, not null
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   * @return The interpolant
+   */
+  static CompiledInterpolant1D piecewisePolynomial(final PiecewisePolynomialInterpolator1D interpolator, final Interpolator1DDataBundle data,
+      final Interpolator1D outside) {
+    if (!(data instanceof Interpolator1DPiecewisePoynomialDataBundle) || data instanceof Interpolator1DLogPiecewisePoynomialDataBundle) {
+      return new Delegating(interpolator, data, outside);
+    }
+    final PiecewisePolynomialResultsWithSensitivity pp = ((Interpolator1DPiecewisePoynomialDataBundle) data).getPiecewisePolynomialResultsWithSensitivity();
+    if (pp.getDimensions() != 1 || !Arrays.equals(pp.getKnots().getData(), data.getKeys())) {
+      return new Delegating(interpolator, data, outside);
+    }
+    return new PiecewisePolynomial(data, outside, pp, false);
+  }
+
+  /**
+   * Creates the interpolant of a {@link PiecewisePolynomialInterpolator1D} which interpolates the logarithm of the values.
+   * @param interpolator The interpolator, not null
+   * @param data The data bundle, not null
+   * @param outside The interpolator used outside the knots, not null
+   * @return The interpolant
+   */
+  static CompiledInterpolant1D logPiecewisePolynomial(final PiecewisePolynomialInterpolator1D interpolator, final Interpolator1DDataBundle data,
+      final Interpolator1D outside) {
+    if (!(data instanceof Interpolator1DLogPiecewisePoynomialDataBundle)) {
+      return new Delegating(interpolator, data, outside);
+    }
+    final PiecewisePolynomialResultsWithSensitivity pp = ((Interpolator1DPiecewisePoynomialDataBundle) data).getPiecewisePolynomialResultsWithSensitivity();
+    if (pp.getDimensions() != 1 || !Arrays.equals(pp.getKnots().getData(), data.getKeys())) {
+      return new Delegating(interpolator, data, outside);
+    }
+    return new PiecewisePolynomial(data, outside, pp, true);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the data bundle that was compiled.
+   * @return The data bundle
+   */
+  public Interpolator1DDataBundle getDataBundle() {
+    return _data;
+  }
+
+  /**
+   * Gets the interpolator used outside the knots.
+   * @return The interpolator
+   */
+  public Interpolator1D getInterpolator() {
+    return _outside;
+  }
+
+  /**
+   * Computes the interpolated value.
+   * @param value The value for which the interpolation is computed
+   * @return The interpolated value
+   */
+  public double interpolate(final double value) {
+    if (value >= _first && value <= _last) {
+      return interpolate(getLowerBoundIndex(value), value);
+    }
+    return _outside.interpolate(_data, value);
+  }
+
+  /**
+   * Computes the interpolated values of an array of values. The interval found for each value is the starting point of
+   * the search for the next, so values in increasing order are looked up in constant time.
+   * @param values The values for which the interpolation is computed, not null
+   * @param result The array to receive the interpolated values, not null, of the same length as the values
+   */
+  public void interpolate(final double[] values, final double[] result) {
+    ArgumentChecker.notNull(values, "values");
+    ArgumentChecker.notNull(result, "result");
+    ArgumentChecker.isTrue(values.length == result.length, "values and result must be same length");
+    int index = 0;
+    for (int i = 0; i < values.length; i++) {
+      final double value = values[i];
+      if (value >= _first && value <= _last) {
+        index = getLowerBoundIndex(index, value);
+        result[i] = interpolate(index, value);
+      } else {
+        result[i] = _outside.interpolate(_data, value);
+      }
+    }
+  }
+
+  /**
+   * Computes the interpolated values of an array of values.
+   * @param values The values for which the interpolation is computed, not null
+   * @return The interpolated values
+   */
+  public double[] interpolate(final double[] values) {
+    ArgumentChecker.notNull(values, "values");
+    final double[] result = new double[values.length];
+    interpolate(values, result);
+    return result;
+  }
+
+  /**
+   * Computes the gradient of the interpolant.
+   * @param value The value for which the gradient is computed
+   * @return The gradient
+   */
+  public double firstDerivative(final double value) {
+    if (value >= _first && value <= _last) {
+      return firstDerivative(getLowerBoundIndex(value), value);
+    }
+    return _outside.firstDerivative(_data, value);
+  }
+
+  /**
+   * Computes the sensitivities of the interpolated value to the values at the knots.
+   * @param value The value for which the interpolation is computed
+   * @return The sensitivities
+   */
+  public double[] getNodeSensitivitiesForValue(final double value) {
+    if (value >= _first && value <= _last) {
+      return getNodeSensitivitiesForValue(getLowerBoundIndex(value), value);
+    }
+    return _outside.getNodeSensitivitiesForValue(_data, value);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the interpolated value between the knots.
+   * @param index The index of the largest knot not greater than the value
+   * @param value The value
+   * @return The interpolated value
+   */
+  protected abstract double interpolate(int index, double value);
+
+  /**
+   * Computes the gradient of the interpolant between the knots.
+   * @param index The index of the largest knot not greater than the value
+   * @param value The value
+   * @return The gradient
+   */
+  protected abstract double firstDerivative(int index, double value);
+
+  /**
+   * Computes the node sensitivities between the knots.
+   * @param index The index of the largest knot not greater than the value
+   * @param value The value
+   * @return The sensitivities
+   */
+  protected abstract double[] getNodeSensitivitiesForValue(int index, double value);
+
+  /**
+   * Gets the index of the largest knot not greater than a value between the first and last knots.
+   * @param value The value
+   * @return The index
+   */
+  protected int getLowerBoundIndex(final double value) {
+    if (_nbBuckets == 0) {
+      return 0;
+    }
+    final int bucket = Math.min((int) ((value - _first) * _bucketScale), _nbBuckets - 1);
+    int index = _bucketStart[bucket];
+    if (_bucketStart[bucket + 1] - index > MAX_SCAN) {
+      return FunctionUtils.getLowerBoundIndex(_knots, value);
+    }
+    // The bucket can be off by one when the value is on the edge of a bucket
+    while (index > 0 && _knots[index] > value) {
+      index--;
+    }
+    while (index < _n - 1 && _knots[index + 1] <= value) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Gets the index of the largest knot not greater than a value between the first and last knots, starting from the
+   * index found for the previous value.
+   * @param previous The index found for the previous value
+   * @param value The value
+   * @return The index
+   */
+  protected int getLowerBoundIndex(final int previous, final double value) {
+    if (_knots[previous] > value) {
+      return getLowerBoundIndex(value);
+    }
+    int index = previous;
+    while (index < _n - 1 && _knots[index + 1] <= value) {
+      if (index - previous == MAX_SCAN) {
+        return getLowerBoundIndex(value);
+      }
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * Gets the knots.
+   * @return The knots, not to be modified
+   */
+  protected double[] getKnots() {
+    return _knots;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calls the interpolator for every value.
+   */
+  static final class Delegating extends CompiledInterpolant1D {
+    private final Interpolator1D _interpolator;
+    private final Interpolator1DDataBundle _bundle;
+
+    Delegating(final Interpolator1D interpolator, final Interpolator1DDataBundle data, final Interpolator1D outside) {
+      super(data, outside);
+      ArgumentChecker.notNull(interpolator, "interpolator");
+      _interpolator = interpolator;
+      _bundle = data;
+    }
+
+    @Override
+    protected int getLowerBoundIndex(final double value) {
+      return 0;
+    }
+
+    @Override
+    protected int getLowerBoundIndex(final int previous, final double value) {
+      return 0;
+    }
+
+    @Override
+    protected double interpolate(final int index, final double value) {
+      return _interpolator.interpolate(_bundle, value);
+    }
+
+    @Override
+    protected double firstDerivative(final int index, final double value) {
+      return _interpolator.firstDerivative(_bundle, value);
+    }
+
+    @Override
+    protected double[] getNodeSensitivitiesForValue(final int index, final double value) {
+      return _interpolator.getNodeSensitivitiesForValue(_bundle, value);
+    }
+  }
+
+  /**
+   * The interpolant of {@link LinearInterpolator1D}.
+   */
+  static final class Linear extends CompiledInterpolant1D {
+    private final double[] _values;
+    private final double[] _dx;
+    private final double[] _dy;
+
+    Linear(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+      super(data, outside);
+      final double[] x = getKnots();
+      _values = Arrays.copyOf(data.getValues(), x.length);
+      final int nbInterval = x.length - 1;
+      _dx = new double[nbInterval];
+      _dy = new double[nbInterval];
+      for (int i = 0; i < nbInterval; i++) {
+        _dx[i] = x[i + 1] - x[i];
+        _dy[i] = _values[i + 1] - _values[i];
+      }
+    }
+
+    @Override
+    protected double interpolate(final int index, final double value) {
+      if (index == _dx.length) {
+        return _values[index];
+      }
+      return _values[index] + (value - getKnots()[index]) / _dx[index] * _dy[index];
+    }
+
+    @Override
+    protected double firstDerivative(final int index, final double value) {
+      if (index == _dx.length) {
+        return index == 0 ? 0.0 : _dy[index - 1] / _dx[index - 1];
+      }
+      return _dy[index] / _dx[index];
+    }
+
+    @Override
+    protected double[] getNodeSensitivitiesForValue(final int index, final double value) {
+      final double[] result = new double[_values.length];
+      if (index == _dx.length) {
+        result[index] = 1.0;
+        return result;
+      }
+      final double a = (getKnots()[index + 1] - value) / _dx[index];
+      result[index] = a;
+      result[index + 1] = 1 - a;
+      return result;
+    }
+  }
+
+  /**
+   * The interpolant of {@link NaturalCubicSplineInterpolator1D}.
+   */
+  static final class NaturalCubicSpline extends CompiledInterpolant1D {
+    private final double _eps;
+    private final double[] _values;
+    private final double[] _delta;
+    private final double[] _secondDerivatives;
+    /** The sensitivities of the second derivatives to the values, by knot then value */
+    private final double[] _secondDerivativesSensitivities;
+
+    NaturalCubicSpline(final Interpolator1DCubicSplineDataBundle data, final Interpolator1D outside, final double eps) {
+      super(data, outside);
+      _eps = eps;
+      final double[] x = getKnots();
+      final int n = x.length;
+      _values = Arrays.copyOf(data.getValues(), n);
+      _delta = new double[n - 1];
+      for (int i = 0; i < n - 1; i++) {
+        _delta[i] = x[i + 1] - x[i];
+      }
+      _secondDerivatives = Arrays.copyOf(data.getSecondDerivatives(), n);
+      final double[][] sensitivities = data.getSecondDerivativesSensitivities();
+      _secondDerivativesSensitivities = new double[n * n];
+      for (int i = 0; i < n; i++) {
+        System.arraycopy(sensitivities[i], 0, _secondDerivativesSensitivities, i * n, n);
+      }
+    }
+
+    @Override
+    protected double interpolate(final int index, final double value) {
+      if (index == _delta.length) {
+        return _values[index];
+      }
+      final double delta = _delta[index];
+      if (Math.abs(delta) < _eps) {
+        throw new MathException("x data points were not distinct");
+      }
+      final double[] x = getKnots();
+      final double a = (x[index + 1] - value) / delta;
+      final double b = (value - x[index]) / delta;
+      return a * _values[index] + b * _values[index + 1] + (a * (a * a - 1) * _secondDerivatives[index] + b * (b * b - 1) * _secondDerivatives[index + 1]) * delta * delta / 6.;
+    }
+
+    @Override
+    protected double firstDerivative(final int index, final double value) {
+      final int low = index == _delta.length ? index - 1 : index;
+      final double delta = _delta[low];
+      if (Math.abs(delta) < _eps) {
+        throw new MathException("x data points were not distinct");
+      }
+      final double[] x = getKnots();
+      final double a = (x[low + 1] - value) / delta;
+      final double b = (value - x[low]) / delta;
+      return (_values[low + 1] - _values[low]) / delta + ((-3. * a * a + 1.) * _secondDerivatives[low] + (3. * b * b - 1.) * _secondDerivatives[low + 1]) * delta / 6.;
+    }
+
+    @Override
+    protected double[] getNodeSensitivitiesForValue(final int index, final double value) {
+      final int n = _values.length;
+      final double[] result = new double[n];
+      if (index == n - 1) {
+        result[n - 1] = 1.0;
+        return result;
+      }
+      final double[] x = getKnots();
+      final double delta = _delta[index];
+      final double a = (x[index + 1] - value) / delta;
+      final double b = (value - x[index]) / delta;
+      final double c = a * (a * a - 1) * delta * delta / 6.;
+      final double d = b * (b * b - 1) * delta * delta / 6.;
+      final int low = index * n;
+      final int high = low + n;
+      for (int i = 0; i < n; i++) {
+        result[i] = c * _secondDerivativesSensitivities[low + i] + d * _secondDerivativesSensitivities[high + i];
+      }
+      result[index] += a;
+      result[index + 1] += b;
+      return result;
+    }
+  }
+
+  /**
+   * The interpolant of a {@link PiecewisePolynomialInterpolator1D}, optionally on the logarithm of the values.
+   */
+  static final class PiecewisePolynomial extends CompiledInterpolant1D {
+    private final boolean _log;
+    private final int _order;
+    private final int _nbData;
+    /** The coefficients, by interval then power in decreasing order */
+    private final double[] _coefficients;
+    /** The coefficients of the derivative, by interval then power in decreasing order */
+    private final double[] _derivativeCoefficients;
+    /** The sensitivities of the coefficients to the values, by interval, power in decreasing order then value */
+    private final double[] _sensitivities;
+    /** The values at the knots, used by the sensitivities of the logarithmic interpolant */
+    private final double[] _values;
+
+    PiecewisePolynomial(final Interpolator1DDataBundle data, final Interpolator1D outside, final PiecewisePolynomialResultsWithSensitivity pp, final boolean log) {
+      super(data, outside);
+      _log = log;
+      _order = pp.getOrder();
+      final int nbInterval = pp.getNumberOfIntervals();
+      final double[][] coefficients = pp.getCoefMatrix().getData();
+      _coefficients = new double[nbInterval * _order];
+      _derivativeCoefficients = new double[nbInterval * Math.max(_order - 1, 0)];
+      for (int i = 0; i < nbInterval; i++) {
+        System.arraycopy(coefficients[i], 0, _coefficients, i * _order, _order);
+        for (int j = 0; j < _order - 1; j++) {
+          _derivativeCoefficients[i * (_order - 1) + j] = coefficients[i][j] * (_order - j - 1);
+        }
+      }
+      _nbData = pp.getCoefficientSensitivity(0).getNumberOfColumns();
+      _sensitivities = new double[nbInterval * _order * _nbData];
+      for (int i = 0; i < nbInterval; i++) {
+        final double[][] sensitivity = pp.getCoefficientSensitivity(i).getData();
+        for (int j = 0; j < _order; j++) {
+          System.arraycopy(sensitivity[j], 0, _sensitivities, (i * _order + j) * _nbData, _nbData);
+        }
+      }
+      _values = log ? Arrays.copyOf(data.getValues(), data.size()) : null;
+    }
+
+    private int getInterval(final int index) {
+      return index == getKnots().length - 1 ? index - 1 : index;
+    }
+
+    private double evaluate(final double[] coefficients, final int order, final int interval, final double value) {
+      final double s = value - getKnots()[interval];
+      final int start = interval * order;
+      double res = coefficients[start];
+      for (int i = 1; i < order; i++) {
+        res *= s;
+        res += coefficients[start + i];
+      }
+      ArgumentChecker.isFalse(Double.isInfinite(res), "Too large input");
+      ArgumentChecker.isFalse(Double.isNaN(res), "Too large input");
+      return res;
+    }
+
+    @Override
+    protected double interpolate(final int index, final double value) {
+      final double res = evaluate(_coefficients, _order, getInterval(index), value);
+      return _log ? Math.exp(res) : res;
+    }
+
+    @Override
+    protected double firstDerivative(final int index, final double value) {
+      ArgumentChecker.isFalse(_order < 2, "polynomial degree < 1");
+      final int interval = getInterval(index);
+      final double res = evaluate(_derivativeCoefficients, _order - 1, interval, value);
+      return _log ? Math.exp(evaluate(_coefficients, _order, interval, value)) * res : res;
+    }
+
+    @Override
+    protected double[] getNodeSensitivitiesForValue(final int index, final double value) {
+      final int interval = getInterval(index);
+      final double s = value - getKnots()[interval];
+      final int start = interval * _order * _nbData;
+      final double[] res = Arrays.copyOfRange(_sensitivities, start, start + _nbData);
+      for (int i = 1; i < _order; i++) {
+        final int row = start + i * _nbData;
+        for (int k = 0; k < _nbData; k++) {
+          res[k] = res[k] * s + _sensitivities[row + k];
+        }
+      }
+      if (_log) {
+        final double resValue = Math.exp(evaluate(_coefficients, _order, interval, value));
+        for (int k = 0; k < _nbData; k++) {
+          res[k] = res[k] * resValue / _values[k];
+        }
+      }
+      return res;
+    }
+  }
+
+}
@@ -133,6 +133,27 @@ public abstract class Interpolator1D implements Interpolator<Interpolator1DDataB
     return result;
   }
 
+  /**
+   * Precomputes the interpolant given by this interpolator and a data bundle, for repeated evaluation.
+   * @param data The interpolation data, not null
+   * @return The compiled interpolant, which gives the same results as this interpolator
+   */
+  public CompiledInterpolant1D compile(final Interpolator1DDataBundle data) {
+    Validate.notNull(data, "data");
+    return compile(data, this);
+  }
+
+  /**
+   * Precomputes the interpolant given by this interpolator and a data bundle. Interpolators with a compiled form override
+   * this method; the default calls the interpolator for every value.
+   * @param data The interpolation data, not null
+   * @param outside The interpolator used for values outside the knots, not null
+   * @return The compiled interpolant
+   */
+  protected CompiledInterpolant1D compile(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return CompiledInterpolant1D.delegating(this, data, outside);
+  }
+
   /**
    * Construct Interpolator1DDataBundle from unsorted arrays
    * @param x X values of data
@@ -79,6 +79,11 @@ public class LinearInterpolator1D extends Interpolator1D {
     return result;
   }
 
+  @Override
+  protected CompiledInterpolant1D compile(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return CompiledInterpolant1D.linear(data, outside);
+  }
+
   @Override
   public Interpolator1DDataBundle getDataBundle(final double[] x, final double[] y) {
     return new ArrayInterpolator1DDataBundle(x, y);
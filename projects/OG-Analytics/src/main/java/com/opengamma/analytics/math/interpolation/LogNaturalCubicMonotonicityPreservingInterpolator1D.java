@@ -73,6 +73,11 @@ public class LogNaturalCubicMonotonicityPreservingInterpolator1D extends Piecewi
     return res;
   }
 
+  @Override
+  protected CompiledInterpolant1D compile(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return CompiledInterpolant1D.logPiecewisePolynomial(this, data, outside);
+  }
+
   @Override
   public Interpolator1DDataBundle getDataBundle(final double[] x, final double[] y) {
     Validate.notNull(y, "y");
@@ -107,6 +107,11 @@ public class NaturalCubicSplineInterpolator1D extends Interpolator1D {
     return result;
   }
 
+  @Override
+  protected CompiledInterpolant1D compile(final Interpolator1DDataBundle data, final Interpolator1D outside) {
+    return CompiledInterpolant1D.naturalCubicSpline(this, data, outside, _eps);
+  }
+
   @Override
   public Interpolator1DDataBundle getDataBundle(final double[] x, final double[] y) {
     return new Interpolator1DCubicSplineDataBundle(new ArrayInterpolator1DDataBundle(x, y));
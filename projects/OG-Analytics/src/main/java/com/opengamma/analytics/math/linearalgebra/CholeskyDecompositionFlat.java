@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatMatrixKernels;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Cholesky decomposition on a {@link FlatDoubleMatrix2D}, using {@link FlatMatrixKernels#choleskyDecompose}.
+ * <p>
+ * The results are those of {@link CholeskyDecompositionOpenGamma}, with the same symmetry and positivity checks, but
+ * the decomposition and the solves work on single arrays in row-major order, which is considerably faster for
+ * matrices of more than a few hundred rows.
+ */
+public class CholeskyDecompositionFlat extends Decomposition<CholeskyDecompositionResult> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CholeskyDecompositionResult evaluate(final DoubleMatrix2D x) {
+    ArgumentChecker.notNull(x, "x");
+    return evaluate(new FlatDoubleMatrix2D(x));
+  }
+
+  /**
+   * Performs the decomposition with the default thresholds of {@link CholeskyDecompositionOpenGamma}.
+   * @param x The matrix to decompose, not null
+   * @return The Cholesky decomposition
+   */
+  public CholeskyDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x) {
+    return evaluate(x, CholeskyDecompositionOpenGamma.DEFAULT_SYMMETRY_THRESHOLD, CholeskyDecompositionOpenGamma.DEFAULT_POSITIVITY_THRESHOLD);
+  }
+
+  /**
+   * Performs the decomposition with a given symmetry and positivity threshold.
+   * @param x The matrix to decompose, not null
+   * @param symmetryThreshold The symmetry threshold
+   * @param positivityThreshold The positivity threshold
+   * @return The Cholesky decomposition
+   */
+  public CholeskyDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x, final double symmetryThreshold, final double positivityThreshold) {
+    ArgumentChecker.notNull(x, "x");
+    return new CholeskyDecompositionFlatResult(FlatMatrixKernels.choleskyDecompose(x, symmetryThreshold, positivityThreshold));
+  }
+
+}
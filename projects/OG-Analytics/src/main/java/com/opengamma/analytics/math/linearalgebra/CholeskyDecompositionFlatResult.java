@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatMatrixKernels;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Result of the {@link CholeskyDecompositionFlat}.
+ */
+public class CholeskyDecompositionFlatResult implements CholeskyDecompositionResult {
+
+  /**
+   * The matrix L, in row-major order.
+   */
+  private final double[] _l;
+  /**
+   * The size of the matrix.
+   */
+  private final int _n;
+  /**
+   * The determinant of the original matrix.
+   */
+  private final double _determinant;
+
+  /**
+   * @param l The lower triangular matrix L, not null
+   */
+  public CholeskyDecompositionFlatResult(final FlatDoubleMatrix2D l) {
+    ArgumentChecker.notNull(l, "l");
+    _n = l.getNumberOfRows();
+    ArgumentChecker.isTrue(_n == l.getNumberOfColumns(), "Matrix not square");
+    _l = l.getStride() == _n ? l.getData() : flatten(l);
+    double determinant = 1.0;
+    for (int i = 0; i < _n; i++) {
+      final double lii = _l[i * _n + i];
+      determinant *= lii * lii;
+    }
+    _determinant = determinant;
+  }
+
+  private static double[] flatten(final FlatDoubleMatrix2D m) {
+    final int n = m.getNumberOfRows();
+    final double[] result = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(m.getData(), i * m.getStride(), result, i * n, n);
+    }
+    return result;
+  }
+
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    ArgumentChecker.notNull(b, "b");
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  @Override
+  public double[] solve(final double[] b) {
+    ArgumentChecker.notNull(b, "b");
+    ArgumentChecker.isTrue(b.length == _n, "b array of incorrect size");
+    final double[] x = b.clone();
+    // L y = b (y stored in x array)
+    for (int i = 0; i < _n; i++) {
+      final int iRow = i * _n;
+      double sum = x[i];
+      for (int k = 0; k < i; k++) {
+        sum -= _l[iRow + k] * x[k];
+      }
+      x[i] = sum / _l[iRow + i];
+    }
+    // L^T x = y
+    for (int i = _n - 1; i >= 0; i--) {
+      final int iRow = i * _n;
+      x[i] /= _l[iRow + i];
+      final double xi = x[i];
+      for (int k = 0; k < i; k++) {
+        x[k] -= xi * _l[iRow + k];
+      }
+    }
+    return x;
+  }
+
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    ArgumentChecker.notNull(b, "b");
+    return solve(new FlatDoubleMatrix2D(b)).toDoubleMatrix2D();
+  }
+
+  /**
+   * Solves $\mathbf{A}\mathbf{X} = \mathbf{B}$, working on whole rows of $\mathbf{B}$ at a time.
+   * @param b The matrix B, not null
+   * @return The matrix X
+   */
+  public FlatDoubleMatrix2D solve(final FlatDoubleMatrix2D b) {
+    ArgumentChecker.notNull(b, "b");
+    ArgumentChecker.isTrue(b.getNumberOfRows() == _n, "b array of incorrect size");
+    final int m = b.getNumberOfColumns();
+    final double[] x = new double[_n * m];
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(b.getData(), i * b.getStride(), x, i * m, m);
+    }
+    // L Y = B (Y stored in x array)
+    for (int i = 0; i < _n; i++) {
+      final int iRow = i * _n;
+      final int xRow = i * m;
+      for (int k = 0; k < i; k++) {
+        final double lik = _l[iRow + k];
+        if (lik != 0.0) {
+          final int kRow = k * m;
+          for (int j = 0; j < m; j++) {
+            x[xRow + j] -= lik * x[kRow + j];
+          }
+        }
+      }
+      final double inverse = 1.0 / _l[iRow + i];
+      for (int j = 0; j < m; j++) {
+        x[xRow + j] *= inverse;
+      }
+    }
+    // L^T X = Y
+    for (int i = _n - 1; i >= 0; i--) {
+      final int iRow = i * _n;
+      final int xRow = i * m;
+      final double inverse = 1.0 / _l[iRow + i];
+      for (int j = 0; j < m; j++) {
+        x[xRow + j] *= inverse;
+      }
+      for (int k = 0; k < i; k++) {
+        final double lik = _l[iRow + k];
+        if (lik != 0.0) {
+          final int kRow = k * m;
+          for (int j = 0; j < m; j++) {
+            x[kRow + j] -= lik * x[xRow + j];
+          }
+        }
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(x, _n, m);
+  }
+
+  /**
+   * @return The matrix L in row-major order
+   */
+  public FlatDoubleMatrix2D getFlatL() {
+    return FlatDoubleMatrix2D.noCopy(_l.clone(), _n, _n);
+  }
+
+  @Override
+  public DoubleMatrix2D getL() {
+    return FlatDoubleMatrix2D.noCopy(_l, _n, _n).toDoubleMatrix2D();
+  }
+
+  @Override
+  public DoubleMatrix2D getLT() {
+    return FlatMatrixKernels.transpose(FlatDoubleMatrix2D.noCopy(_l, _n, _n)).toDoubleMatrix2D();
+  }
+
+  @Override
+  public double getDeterminant() {
+    return _determinant;
+  }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatMatrixKernels;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * LU decomposition with partial pivoting on a {@link FlatDoubleMatrix2D}, using {@link FlatMatrixKernels#luDecompose}.
+ * <p>
+ * The pivoting strategy is that of {@link LUDecompositionCommons} (the largest element of the column), so the
+ * factors are the same, but the elimination works on a single array in row-major order.
+ */
+public class LUDecompositionFlat extends Decomposition<LUDecompositionResult> {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public LUDecompositionResult evaluate(final DoubleMatrix2D x) {
+    ArgumentChecker.notNull(x, "x");
+    return decompose(new FlatDoubleMatrix2D(x));
+  }
+
+  /**
+   * Performs the decomposition. The matrix is not changed.
+   * @param x The matrix to decompose, not null
+   * @return The LU decomposition
+   */
+  public LUDecompositionFlatResult evaluate(final FlatDoubleMatrix2D x) {
+    ArgumentChecker.notNull(x, "x");
+    final int n = x.getNumberOfRows();
+    final double[] copy = new double[n * x.getNumberOfColumns()];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(x.getData(), i * x.getStride(), copy, i * x.getNumberOfColumns(), x.getNumberOfColumns());
+    }
+    return decompose(FlatDoubleMatrix2D.noCopy(copy, n, x.getNumberOfColumns()));
+  }
+
+  private static LUDecompositionFlatResult decompose(final FlatDoubleMatrix2D lu) {
+    final int[] pivot = new int[lu.getNumberOfRows()];
+    final int sign = FlatMatrixKernels.luDecompose(lu, pivot);
+    return new LUDecompositionFlatResult(lu, pivot, sign);
+  }
+
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Result of the {@link LUDecompositionFlat}.
+ */
+public class LUDecompositionFlatResult implements LUDecompositionResult {
+
+  /**
+   * L (strict lower triangle, unit diagonal implied) and U (upper triangle), in row-major order.
+   */
+  private final double[] _lu;
+  /**
+   * The size of the matrix.
+   */
+  private final int _n;
+  /**
+   * The row permutation.
+   */
+  private final int[] _pivot;
+  /**
+   * The sign of the permutation, zero if the matrix is singular.
+   */
+  private final int _sign;
+
+  /**
+   * @param lu The combined L and U factors as produced by {@link com.opengamma.analytics.math.matrix.FlatMatrixKernels#luDecompose}, not null
+   * @param pivot The row permutation, not null
+   * @param sign The sign of the permutation, zero if the matrix is singular
+   */
+  public LUDecompositionFlatResult(final FlatDoubleMatrix2D lu, final int[] pivot, final int sign) {
+    ArgumentChecker.notNull(lu, "lu");
+    ArgumentChecker.notNull(pivot, "pivot");
+    ArgumentChecker.isTrue(lu.getStride() == lu.getNumberOfColumns(), "Factors must not have padding between rows");
+    _lu = lu.getData();
+    _n = lu.getNumberOfRows();
+    _pivot = pivot;
+    _sign = sign;
+  }
+
+  /**
+   * @return Whether the matrix is singular
+   */
+  public boolean isSingular() {
+    return _sign == 0;
+  }
+
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    ArgumentChecker.notNull(b, "b");
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  @Override
+  public double[] solve(final double[] b) {
+    ArgumentChecker.notNull(b, "b");
+    ArgumentChecker.isTrue(b.length == _n, "b array of incorrect size");
+    ArgumentChecker.isFalse(isSingular(), "Matrix is singular");
+    final double[] x = new double[_n];
+    for (int i = 0; i < _n; i++) {
+      x[i] = b[_pivot[i]];
+    }
+    // L y = Pb
+    for (int i = 0; i < _n; i++) {
+      final int iRow = i * _n;
+      double sum = x[i];
+      for (int k = 0; k < i; k++) {
+        sum -= _lu[iRow + k] * x[k];
+      }
+      x[i] = sum;
+    }
+    // U x = y
+    for (int i = _n - 1; i >= 0; i--) {
+      final int iRow = i * _n;
+      double sum = x[i];
+      for (int k = i + 1; k < _n; k++) {
+        sum -= _lu[iRow + k] * x[k];
+      }
+      x[i] = sum / _lu[iRow + i];
+    }
+    return x;
+  }
+
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    ArgumentChecker.notNull(b, "b");
+    return solve(new FlatDoubleMatrix2D(b)).toDoubleMatrix2D();
+  }
+
+  /**
+   * Solves $\mathbf{A}\mathbf{X} = \mathbf{B}$, working on whole rows of $\mathbf{B}$ at a time.
+   * @param b The matrix B, not null
+   * @return The matrix X
+   */
+  public FlatDoubleMatrix2D solve(final FlatDoubleMatrix2D b) {
+    ArgumentChecker.notNull(b, "b");
+    ArgumentChecker.isTrue(b.getNumberOfRows() == _n, "b array of incorrect size");
+    ArgumentChecker.isFalse(isSingular(), "Matrix is singular");
+    final int m = b.getNumberOfColumns();
+    final double[] x = new double[_n * m];
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(b.getData(), _pivot[i] * b.getStride(), x, i * m, m);
+    }
+    // L Y = PB
+    for (int i = 0; i < _n; i++) {
+      final int iRow = i * _n;
+      final int xRow = i * m;
+      for (int k = 0; k < i; k++) {
+        final double lik = _lu[iRow + k];
+        if (lik != 0.0) {
+          final int kRow = k * m;
+          for (int j = 0; j < m; j++) {
+            x[xRow + j] -= lik * x[kRow + j];
+          }
+        }
+      }
+    }
+    // U X = Y
+    for (int i = _n - 1; i >= 0; i--) {
+      final int iRow = i * _n;
+      final int xRow = i * m;
+      for (int k = i + 1; k < _n; k++) {
+        final double uik = _lu[iRow + k];
+        if (uik != 0.0) {
+          final int kRow = k * m;
+          for (int j = 0; j < m; j++) {
+            x[xRow + j] -= uik * x[kRow + j];
+          }
+        }
+      }
+      final double inverse = 1.0 / _lu[iRow + i];
+      for (int j = 0; j < m; j++) {
+        x[xRow + j] *= inverse;
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(x, _n, m);
+  }
+
+  /**
+   * Computes the inverse of the matrix.
+   * @return The inverse
+   */
+  public FlatDoubleMatrix2D getInverse() {
+    final FlatDoubleMatrix2D identity = new FlatDoubleMatrix2D(_n, _n);
+    for (int i = 0; i < _n; i++) {
+      identity.set(i, i, 1.0);
+    }
+    return solve(identity);
+  }
+
+  @Override
+  public DoubleMatrix2D getL() {
+    final double[][] l = new double[_n][_n];
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_lu, i * _n, l[i], 0, i);
+      l[i][i] = 1.0;
+    }
+    return new DoubleMatrix2D(l);
+  }
+
+  @Override
+  public DoubleMatrix2D getU() {
+    final double[][] u = new double[_n][_n];
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_lu, i * _n + i, u[i], i, _n - i);
+    }
+    return new DoubleMatrix2D(u);
+  }
+
+  @Override
+  public DoubleMatrix2D getP() {
+    final double[][] p = new double[_n][_n];
+    for (int i = 0; i < _n; i++) {
+      p[i][_pivot[i]] = 1.0;
+    }
+    return new DoubleMatrix2D(p);
+  }
+
+  @Override
+  public int[] getPivot() {
+    return _pivot.clone();
+  }
+
+  @Override
+  public double getDeterminant() {
+    if (_sign == 0) {
+      return 0.0;
+    }
+    double determinant = _sign;
+    for (int i = 0; i < _n; i++) {
+      determinant *= _lu[i * _n + i];
+    }
+    return determinant;
+  }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import java.io.Serializable;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A 2D matrix of doubles held in a single array in row-major order.
+ * <p>
+ * Element $(i, j)$ is at index {@code i * stride + j} of the data array. The stride is normally the number of columns;
+ * a larger stride allows a matrix to be a view of the leading rows and columns of a larger buffer. Keeping the whole
+ * matrix in one array gives much better locality than the array of rows of {@link DoubleMatrix2D} for the kernels in
+ * {@link FlatMatrixKernels}. The two types convert to each other with a single copy.
+ */
+public class FlatDoubleMatrix2D implements Matrix<Double>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final double[] _data;
+  private final int _rows;
+  private final int _columns;
+  private final int _stride;
+
+  /**
+   * Sets up a matrix of zeros.
+   * @param rows Number of rows, not negative
+   * @param columns Number of columns, not negative
+   */
+  public FlatDoubleMatrix2D(final int rows, final int columns) {
+    ArgumentChecker.notNegative(rows, "rows");
+    ArgumentChecker.notNegative(columns, "columns");
+    _rows = rows;
+    _columns = columns;
+    _stride = columns;
+    _data = new double[rows * columns];
+  }
+
+  /**
+   * @param data The data in row-column form, not null. The data is copied.
+   * @throws IllegalArgumentException If the matrix is not rectangular
+   */
+  public FlatDoubleMatrix2D(final double[][] data) {
+    ArgumentChecker.notNull(data, "data");
+    _rows = data.length;
+    _columns = _rows == 0 ? 0 : data[0].length;
+    _stride = _columns;
+    _data = new double[_rows * _columns];
+    for (int i = 0; i < _rows; i++) {
+      ArgumentChecker.isTrue(data[i].length == _columns, "Number of columns in row {} did not match that in first row", i);
+      System.arraycopy(data[i], 0, _data, i * _columns, _columns);
+    }
+  }
+
+  /**
+   * @param matrix The matrix to copy, not null
+   */
+  public FlatDoubleMatrix2D(final DoubleMatrix2D matrix) {
+    this(ArgumentChecker.notNull(matrix, "matrix").getData());
+  }
+
+  private FlatDoubleMatrix2D(final double[] data, final int rows, final int columns, final int stride) {
+    _data = data;
+    _rows = rows;
+    _columns = columns;
+    _stride = stride;
+  }
+
+  /**
+   * Wraps an array in row-major order without copying it.
+   * @param data The data, not null
+   * @param rows Number of rows, not negative
+   * @param columns Number of columns, not negative
+   * @return The matrix, backed by the array
+   */
+  public static FlatDoubleMatrix2D noCopy(final double[] data, final int rows, final int columns) {
+    return noCopy(data, rows, columns, columns);
+  }
+
+  /**
+   * Wraps an array in row-major order without copying it.
+   * @param data The data, not null
+   * @param rows Number of rows, not negative
+   * @param columns Number of columns, not negative
+   * @param stride The distance in the array between the starts of consecutive rows, not less than the number of columns
+   * @return The matrix, backed by the array
+   */
+  public static FlatDoubleMatrix2D noCopy(final double[] data, final int rows, final int columns, final int stride) {
+    ArgumentChecker.notNull(data, "data");
+    ArgumentChecker.notNegative(rows, "rows");
+    ArgumentChecker.notNegative(columns, "columns");
+    ArgumentChecker.isTrue(stride >= columns, "stride {} less than number of columns {}", stride, columns);
+    ArgumentChecker.isTrue(rows == 0 || data.length >= (rows - 1) * stride + columns, "data array too small");
+    return new FlatDoubleMatrix2D(data, rows, columns, stride);
+  }
+
+  /**
+   * Returns the backing array. Changes to the array are visible in the matrix.
+   * @return The data in row-major order, with rows {@link #getStride()} apart
+   */
+  public double[] getData() {
+    return _data;
+  }
+
+  /**
+   * @return The distance in the data array between the starts of consecutive rows
+   */
+  public int getStride() {
+    return _stride;
+  }
+
+  /**
+   * @param row The row index
+   * @param column The column index
+   * @return The element
+   */
+  public double get(final int row, final int column) {
+    return _data[row * _stride + column];
+  }
+
+  /**
+   * @param row The row index
+   * @param column The column index
+   * @param value The new value of the element
+   */
+  public void set(final int row, final int column, final double value) {
+    _data[row * _stride + column] = value;
+  }
+
+  @Override
+  public Double getEntry(final int... index) {
+    return get(index[0], index[1]);
+  }
+
+  @Override
+  public int getNumberOfElements() {
+    return _rows * _columns;
+  }
+
+  /**
+   * @return The number of rows
+   */
+  public int getNumberOfRows() {
+    return _rows;
+  }
+
+  /**
+   * @return The number of columns
+   */
+  public int getNumberOfColumns() {
+    return _columns;
+  }
+
+  /**
+   * @return A copy of the data in row-column form
+   */
+  public double[][] toArray() {
+    final double[][] result = new double[_rows][];
+    for (int i = 0; i < _rows; i++) {
+      final int start = i * _stride;
+      result[i] = new double[_columns];
+      System.arraycopy(_data, start, result[i], 0, _columns);
+    }
+    return result;
+  }
+
+  /**
+   * @return A copy of the matrix as a {@link DoubleMatrix2D}
+   */
+  public DoubleMatrix2D toDoubleMatrix2D() {
+    if (_rows == 0) {
+      return DoubleMatrix2D.EMPTY_MATRIX;
+    }
+    return new DoubleMatrix2D(toArray());
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + _columns;
+    result = prime * result + _rows;
+    final int n = Math.min(_rows * _columns, 10);
+    for (int k = 0; k < n; k++) {
+      result = prime * result + Double.valueOf(get(k / _columns, k % _columns)).hashCode();
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final FlatDoubleMatrix2D other = (FlatDoubleMatrix2D) obj;
+    if (_columns != other._columns) {
+      return false;
+    }
+    if (_rows != other._rows) {
+      return false;
+    }
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        if (Double.doubleToLongBits(get(i, j)) != Double.doubleToLongBits(other.get(i, j))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < _rows; i++) {
+      for (int j = 0; j < _columns; j++) {
+        sb.append(get(i, j));
+        sb.append(j == _columns - 1 ? "\n" : "\t");
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionFlat;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionFlatResult;
+
+/**
+ * Extends {@link OGMatrixAlgebra} with the flat row-major kernels of {@link FlatMatrixKernels}.
+ * <p>
+ * Products of two {@link DoubleMatrix2D} are copied into {@link FlatDoubleMatrix2D} and multiplied with the blocked
+ * kernel; for anything but small matrices the better locality more than pays for the copies. Each element is summed in
+ * the same order as in {@link OGMatrixAlgebra}, so the results are identical. The inverse and the determinant, which
+ * {@link OGMatrixAlgebra} does not provide, come from {@link LUDecompositionFlat}. All the other operations are those of
+ * {@link OGMatrixAlgebra}.
+ */
+public class FlatMatrixAlgebra extends OGMatrixAlgebra {
+
+  private static final LUDecompositionFlat LU = new LUDecompositionFlat();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDeterminant(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    return decompose(m).getDeterminant();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getInverse(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    return decompose(m).getInverse().toDoubleMatrix2D();
+  }
+
+  /**
+   * {@inheritDoc}
+   * In addition to the cases of {@link OGMatrixAlgebra}, either argument may be a {@link FlatDoubleMatrix2D}; the
+   * product of two {@link FlatDoubleMatrix2D} is a {@link FlatDoubleMatrix2D}.
+   */
+  @Override
+  public Matrix<?> multiply(final Matrix<?> m1, final Matrix<?> m2) {
+    Validate.notNull(m1, "m1");
+    Validate.notNull(m2, "m2");
+    if (m1 instanceof FlatDoubleMatrix2D) {
+      final FlatDoubleMatrix2D a = (FlatDoubleMatrix2D) m1;
+      if (m2 instanceof FlatDoubleMatrix2D) {
+        return FlatMatrixKernels.multiply(a, (FlatDoubleMatrix2D) m2);
+      } else if (m2 instanceof DoubleMatrix1D) {
+        return new DoubleMatrix1D(FlatMatrixKernels.multiply(a, ((DoubleMatrix1D) m2).getData()));
+      } else if (m2 instanceof DoubleMatrix2D && !(m2 instanceof IdentityMatrix)) {
+        return FlatMatrixKernels.multiply(a, new FlatDoubleMatrix2D((DoubleMatrix2D) m2)).toDoubleMatrix2D();
+      }
+      throw new IllegalArgumentException("Can only multiply a FlatDoubleMatrix2D by a FlatDoubleMatrix2D, a DoubleMatrix2D or a DoubleMatrix1D; have " +
+          m2.getClass());
+    }
+    if (m2 instanceof FlatDoubleMatrix2D) {
+      if (m1 instanceof DoubleMatrix2D && !(m1 instanceof IdentityMatrix)) {
+        return FlatMatrixKernels.multiply(new FlatDoubleMatrix2D((DoubleMatrix2D) m1), (FlatDoubleMatrix2D) m2).toDoubleMatrix2D();
+      }
+      throw new IllegalArgumentException("Can only multiply a DoubleMatrix2D by a FlatDoubleMatrix2D; have " + m1.getClass());
+    }
+    if (isDense(m1) && isDense(m2)) {
+      final DoubleMatrix2D a = (DoubleMatrix2D) m1;
+      final DoubleMatrix2D b = (DoubleMatrix2D) m2;
+      Validate.isTrue(a.getNumberOfColumns() == b.getNumberOfRows(), "Matrix size mismatch. m1 is " + a.getNumberOfRows() + " by " + a.getNumberOfColumns() +
+          ", but m2 is " + b.getNumberOfRows() + " by " + b.getNumberOfColumns());
+      return FlatMatrixKernels.multiply(new FlatDoubleMatrix2D(a), new FlatDoubleMatrix2D(b)).toDoubleMatrix2D();
+    }
+    return super.multiply(m1, m2);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D matrixTransposeMultiplyMatrix(final DoubleMatrix2D a) {
+    Validate.notNull(a, "a");
+    return FlatMatrixKernels.transposeMultiplySelf(new FlatDoubleMatrix2D(a)).toDoubleMatrix2D();
+  }
+
+  private static boolean isDense(final Matrix<?> m) {
+    return m instanceof DoubleMatrix2D && !(m instanceof IdentityMatrix) && ((DoubleMatrix2D) m).getNumberOfRows() > 0;
+  }
+
+  private static LUDecompositionFlatResult decompose(final Matrix<?> m) {
+    final LUDecompositionFlatResult result;
+    if (m instanceof FlatDoubleMatrix2D) {
+      result = LU.evaluate((FlatDoubleMatrix2D) m);
+    } else if (m instanceof DoubleMatrix2D) {
+      result = LU.evaluate(new FlatDoubleMatrix2D((DoubleMatrix2D) m));
+    } else {
+      throw new IllegalArgumentException("Can only decompose a DoubleMatrix2D or a FlatDoubleMatrix2D; have " + m.getClass());
+    }
+    return result;
+  }
+
+}
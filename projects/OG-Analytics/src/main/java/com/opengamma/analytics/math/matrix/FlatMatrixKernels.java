@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Dense linear algebra kernels on {@link FlatDoubleMatrix2D}.
+ * <p>
+ * The products are computed tile by tile, with tiles of {@link #BLOCK_SIZE} rows and columns, so that the parts of the
+ * operands in use stay in cache, and the innermost loops always run along a row with unit stride. Each element of a
+ * product is still accumulated in increasing order of the inner index, so the results are identical to those of the
+ * straightforward triple loops in {@link OGMatrixAlgebra} and {@link MatrixAlgebra#matrixTransposeMultiplyMatrix}.
+ * The decompositions are arranged so that their inner loops are also along rows.
+ */
+public final class FlatMatrixKernels {
+
+  /**
+   * The number of rows and columns in a tile.
+   */
+  public static final int BLOCK_SIZE = 64;
+
+  private FlatMatrixKernels() {
+  }
+
+  /**
+   * Computes $\mathbf{AB}$.
+   * @param a The first matrix, not null
+   * @param b The second matrix, not null
+   * @return The product
+   */
+  public static FlatDoubleMatrix2D multiply(final FlatDoubleMatrix2D a, final FlatDoubleMatrix2D b) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(b, "b");
+    final int m = a.getNumberOfRows();
+    final int p = a.getNumberOfColumns();
+    final int n = b.getNumberOfColumns();
+    ArgumentChecker.isTrue(b.getNumberOfRows() == p, "Matrix size mismatch. a is {} by {}, but b is {} by {}", m, p, b.getNumberOfRows(), n);
+    final double[] ad = a.getData();
+    final double[] bd = b.getData();
+    final int sa = a.getStride();
+    final int sb = b.getStride();
+    final double[] c = new double[m * n];
+    for (int ii = 0; ii < m; ii += BLOCK_SIZE) {
+      final int iMax = Math.min(ii + BLOCK_SIZE, m);
+      for (int kk = 0; kk < p; kk += BLOCK_SIZE) {
+        final int kMax = Math.min(kk + BLOCK_SIZE, p);
+        for (int jj = 0; jj < n; jj += BLOCK_SIZE) {
+          final int jMax = Math.min(jj + BLOCK_SIZE, n);
+          for (int i = ii; i < iMax; i++) {
+            final int aRow = i * sa;
+            final int cRow = i * n;
+            for (int k = kk; k < kMax; k++) {
+              final double aik = ad[aRow + k];
+              final int bRow = k * sb;
+              for (int j = jj; j < jMax; j++) {
+                c[cRow + j] += aik * bd[bRow + j];
+              }
+            }
+          }
+        }
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(c, m, n);
+  }
+
+  /**
+   * Computes $\mathbf{A}x$.
+   * @param a The matrix, not null
+   * @param x The vector, not null
+   * @return The product
+   */
+  public static double[] multiply(final FlatDoubleMatrix2D a, final double[] x) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(x, "x");
+    final int m = a.getNumberOfRows();
+    final int n = a.getNumberOfColumns();
+    ArgumentChecker.isTrue(x.length == n, "Matrix/vector size mismatch");
+    final double[] ad = a.getData();
+    final int sa = a.getStride();
+    final double[] result = new double[m];
+    for (int i = 0; i < m; i++) {
+      final int aRow = i * sa;
+      double sum = 0.0;
+      for (int j = 0; j < n; j++) {
+        sum += ad[aRow + j] * x[j];
+      }
+      result[i] = sum;
+    }
+    return result;
+  }
+
+  /**
+   * Computes $\mathbf{A}^T\mathbf{B}$ without forming the transpose.
+   * @param a The first matrix, not null
+   * @param b The second matrix, not null
+   * @return The product
+   */
+  public static FlatDoubleMatrix2D transposeMultiply(final FlatDoubleMatrix2D a, final FlatDoubleMatrix2D b) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(b, "b");
+    final int p = a.getNumberOfRows();
+    final int m = a.getNumberOfColumns();
+    final int n = b.getNumberOfColumns();
+    ArgumentChecker.isTrue(b.getNumberOfRows() == p, "Matrix size mismatch. a is {} by {}, but b is {} by {}", p, m, b.getNumberOfRows(), n);
+    final double[] c = new double[m * n];
+    transposeMultiply(a, b, c, false);
+    return FlatDoubleMatrix2D.noCopy(c, m, n);
+  }
+
+  /**
+   * Computes $\mathbf{A}^T\mathbf{A}$. Only one triangle of the symmetric result is computed.
+   * @param a The matrix, not null
+   * @return The product
+   */
+  public static FlatDoubleMatrix2D transposeMultiplySelf(final FlatDoubleMatrix2D a) {
+    ArgumentChecker.notNull(a, "a");
+    final int m = a.getNumberOfColumns();
+    final double[] c = new double[m * m];
+    transposeMultiply(a, a, c, true);
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < i; j++) {
+        c[i * m + j] = c[j * m + i];
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(c, m, m);
+  }
+
+  /**
+   * Accumulates $\mathbf{A}^T\mathbf{B}$ as a sum of rank-one updates, one for each row of the operands.
+   * @param upper Whether only the upper triangle is needed
+   */
+  private static void transposeMultiply(final FlatDoubleMatrix2D a, final FlatDoubleMatrix2D b, final double[] c, final boolean upper) {
+    final int p = a.getNumberOfRows();
+    final int m = a.getNumberOfColumns();
+    final int n = b.getNumberOfColumns();
+    final double[] ad = a.getData();
+    final double[] bd = b.getData();
+    final int sa = a.getStride();
+    final int sb = b.getStride();
+    for (int ii = 0; ii < m; ii += BLOCK_SIZE) {
+      final int iMax = Math.min(ii + BLOCK_SIZE, m);
+      for (int kk = 0; kk < p; kk += BLOCK_SIZE) {
+        final int kMax = Math.min(kk + BLOCK_SIZE, p);
+        for (int jj = upper ? ii : 0; jj < n; jj += BLOCK_SIZE) {
+          final int jMax = Math.min(jj + BLOCK_SIZE, n);
+          for (int k = kk; k < kMax; k++) {
+            final int aRow = k * sa;
+            final int bRow = k * sb;
+            for (int i = ii; i < iMax; i++) {
+              final double aki = ad[aRow + i];
+              final int cRow = i * n;
+              for (int j = upper ? Math.max(jj, i) : jj; j < jMax; j++) {
+                c[cRow + j] += aki * bd[bRow + j];
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes $\mathbf{A}^T$, tile by tile.
+   * @param a The matrix, not null
+   * @return The transpose
+   */
+  public static FlatDoubleMatrix2D transpose(final FlatDoubleMatrix2D a) {
+    ArgumentChecker.notNull(a, "a");
+    final int m = a.getNumberOfRows();
+    final int n = a.getNumberOfColumns();
+    final double[] ad = a.getData();
+    final int sa = a.getStride();
+    final double[] t = new double[m * n];
+    for (int ii = 0; ii < m; ii += BLOCK_SIZE) {
+      final int iMax = Math.min(ii + BLOCK_SIZE, m);
+      for (int jj = 0; jj < n; jj += BLOCK_SIZE) {
+        final int jMax = Math.min(jj + BLOCK_SIZE, n);
+        for (int i = ii; i < iMax; i++) {
+          for (int j = jj; j < jMax; j++) {
+            t[j * m + i] = ad[i * sa + j];
+          }
+        }
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(t, n, m);
+  }
+
+  /**
+   * Computes the Cholesky decomposition $\mathbf{A} = \mathbf{LL}^T$ of a symmetric positive definite matrix.
+   * <p>
+   * The rows of $\mathbf{L}$ are computed in turn; each element is the inner product of two rows already computed, so
+   * the inner loop runs along rows. The symmetry and positivity checks are those of
+   * {@link com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionOpenGamma}.
+   * @param a The matrix, not null. Only its lower triangle is used for the decomposition.
+   * @param symmetryThreshold The relative tolerance of the symmetry check
+   * @param positivityThreshold The smallest acceptable square of a diagonal element of $\mathbf{L}$
+   * @return $\mathbf{L}$, with zeros above the diagonal
+   * @throws IllegalArgumentException If the matrix is not square, not symmetric or not positive
+   */
+  public static FlatDoubleMatrix2D choleskyDecompose(final FlatDoubleMatrix2D a, final double symmetryThreshold, final double positivityThreshold) {
+    ArgumentChecker.notNull(a, "a");
+    final int n = a.getNumberOfRows();
+    ArgumentChecker.isTrue(n == a.getNumberOfColumns(), "Matrix not square");
+    final double[] ad = a.getData();
+    final int sa = a.getStride();
+    final double[] l = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      final int iRow = i * n;
+      for (int j = 0; j <= i; j++) {
+        final double aij = ad[i * sa + j];
+        final double aji = ad[j * sa + i];
+        ArgumentChecker.isTrue(Math.abs(aij - aji) <= Math.max(Math.abs(aij), Math.abs(aji)) * symmetryThreshold, "Matrix not symmetrical");
+        final int jRow = j * n;
+        double sum = aij;
+        for (int k = 0; k < j; k++) {
+          sum -= l[iRow + k] * l[jRow + k];
+        }
+        if (i == j) {
+          ArgumentChecker.isTrue(sum > positivityThreshold, "Matrix not positive");
+          l[iRow + i] = Math.sqrt(sum);
+        } else {
+          l[iRow + j] = sum / l[jRow + j];
+        }
+      }
+    }
+    return FlatDoubleMatrix2D.noCopy(l, n, n);
+  }
+
+  /**
+   * Computes the LU decomposition with partial pivoting $\mathbf{PA} = \mathbf{LU}$ in place.
+   * <p>
+   * On return the strict lower triangle of the matrix holds $\mathbf{L}$ (whose diagonal is one) and the upper triangle
+   * holds $\mathbf{U}$. The elimination updates whole rows at a time, so the inner loop runs along rows.
+   * @param a The matrix, overwritten by the decomposition, not null
+   * @param pivot The array to receive the row permutation: row {@code i} of $\mathbf{PA}$ is row {@code pivot[i]} of $\mathbf{A}$, not null
+   * @return The sign of the permutation, or zero if the matrix is singular
+   */
+  public static int luDecompose(final FlatDoubleMatrix2D a, final int[] pivot) {
+    ArgumentChecker.notNull(a, "a");
+    ArgumentChecker.notNull(pivot, "pivot");
+    final int n = a.getNumberOfRows();
+    ArgumentChecker.isTrue(n == a.getNumberOfColumns(), "Matrix not square");
+    ArgumentChecker.isTrue(pivot.length == n, "pivot array of incorrect size");
+    final double[] ad = a.getData();
+    final int sa = a.getStride();
+    final double[] swap = new double[n];
+    int sign = 1;
+    for (int i = 0; i < n; i++) {
+      pivot[i] = i;
+    }
+    for (int k = 0; k < n; k++) {
+      int max = k;
+      double maxValue = Math.abs(ad[k * sa + k]);
+      for (int i = k + 1; i < n; i++) {
+        final double value = Math.abs(ad[i * sa + k]);
+        if (value > maxValue) {
+          max = i;
+          maxValue = value;
+        }
+      }
+      if (maxValue == 0.0) {
+        return 0;
+      }
+      if (max != k) {
+        System.arraycopy(ad, k * sa, swap, 0, n);
+        System.arraycopy(ad, max * sa, ad, k * sa, n);
+        System.arraycopy(swap, 0, ad, max * sa, n);
+        final int p = pivot[k];
+        pivot[k] = pivot[max];
+        pivot[max] = p;
+        sign = -sign;
+      }
+      final int kRow = k * sa;
+      final double inverse = 1.0 / ad[kRow + k];
+      for (int i = k + 1; i < n; i++) {
+        final int iRow = i * sa;
+        final double lik = ad[iRow + k] * inverse;
+        ad[iRow + k] = lik;
+        if (lik != 0.0) {
+          for (int j = k + 1; j < n; j++) {
+            ad[iRow + j] -= lik * ad[kRow + j];
+          }
+        }
+      }
+    }
+    return sign;
+  }
+
+}
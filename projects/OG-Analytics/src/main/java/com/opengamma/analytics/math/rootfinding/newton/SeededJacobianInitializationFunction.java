@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.rootfinding.newton;
+
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Returns a known Jacobian, for example the one at the root of a previous, similar problem, the first time it is called
+ * and evaluates the Jacobian function on every later call. Used with {@link BroydenMatrixUpdateFunction} or
+ * {@link ShermanMorrisonMatrixUpdateFunction}, the seed replaces the first full Jacobian evaluation; the root finder
+ * still re-evaluates the Jacobian if the updated estimate stops giving a descent direction.
+ * <p>
+ * An instance holds whether the seed has been used, so a new one is needed for each root search.
+ */
+public class SeededJacobianInitializationFunction implements NewtonRootFinderMatrixInitializationFunction {
+
+  private final DoubleMatrix2D _seed;
+  private boolean _seedUsed;
+
+  /**
+   * @param seed The Jacobian returned by the first call, not null
+   */
+  public SeededJacobianInitializationFunction(final DoubleMatrix2D seed) {
+    ArgumentChecker.notNull(seed, "seed");
+    _seed = seed;
+  }
+
+  @Override
+  public DoubleMatrix2D getInitializedMatrix(final Function1D<DoubleMatrix1D, DoubleMatrix2D> jacobianFunction, final DoubleMatrix1D x) {
+    ArgumentChecker.notNull(jacobianFunction, "Jacobian Function");
+    ArgumentChecker.notNull(x, "x");
+    if (!_seedUsed && _seed.getNumberOfRows() == x.getNumberOfElements()) {
+      _seedUsed = true;
+      return _seed;
+    }
+    _seedUsed = true;
+    return jacobianFunction.evaluate(x);
+  }
+
+}
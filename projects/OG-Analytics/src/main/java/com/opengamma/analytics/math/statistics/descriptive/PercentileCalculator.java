@@ -45,15 +45,27 @@ public class PercentileCalculator extends Function1D<double[], Double> {
     final int length = x.length;
     final double[] copy = Arrays.copyOf(x, length);
     Arrays.sort(copy);
+    return evaluateSorted(copy, length);
+  }
+
+  /**
+   * Calculates the percentile of data that is already in ascending order, without copying or sorting it.
+   * @param x The sorted data, not null
+   * @param length The number of values at the start of the array to use, greater than zero
+   * @return The percentile
+   */
+  public double evaluateSorted(final double[] x, final int length) {
+    Validate.notNull(x, "x");
+    Validate.isTrue(length > 0 && length <= x.length, "length must be between 1 and the size of x");
     final double n = _percentile * (length - 1) + 1;
     if (Math.round(n) == 1) {
-      return copy[0];
+      return x[0];
     }
     if (Math.round(n) == length) {
-      return copy[length - 1];
+      return x[length - 1];
     }
     final double d = n % 1;
     final int k = (int) Math.round(n - d);
-    return copy[k - 1] + d * (copy[k] - copy[k - 1]);
+    return x[k - 1] + d * (x[k] - x[k - 1]);
   }
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculatorTest {
+  private static final double LAMBDA = 0.94;
+  private static final double EPS = 1e-12;
+  private static final LocalDateDoubleTimeSeries CLOSE_TS = HistoricalVolatilityCalculatorTestCase.CLOSE_TS;
+  private static final LocalDateDoubleTimeSeries RETURNS = HistoricalVolatilityCalculatorTestCase.RETURN_CALCULATOR.evaluate(CLOSE_TS);
+  private static final HistoricalVolatilityCalculator BATCH = new ExponentialWeightedMovingAverageHistoricalVolatilityCalculator(LAMBDA,
+      HistoricalVolatilityCalculatorTestCase.RETURN_CALCULATOR);
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeLambda() {
+    new StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(-0.94);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSeed() {
+    new StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(LAMBDA).seed(null);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testNoReturns() {
+    new StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(LAMBDA).getVolatility();
+  }
+
+  @Test
+  public void testSeed() {
+    final StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator calculator = new StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(LAMBDA);
+    calculator.seed(RETURNS);
+    assertEquals(RETURNS.size(), calculator.getCount());
+    assertEquals(BATCH.evaluate(CLOSE_TS), calculator.getVolatility(), EPS);
+  }
+
+  @Test
+  public void testIncremental() {
+    final StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator calculator = new StreamingExponentialWeightedMovingAverageHistoricalVolatilityCalculator(LAMBDA);
+    calculator.seed(RETURNS.head(5));
+    for (int i = 5; i < RETURNS.size(); i++) {
+      calculator.add(RETURNS.getValueAtIndexFast(i));
+      assertEquals(BATCH.evaluate(CLOSE_TS.head(i + 2)), calculator.getVolatility(), EPS);
+    }
+  }
+
+}
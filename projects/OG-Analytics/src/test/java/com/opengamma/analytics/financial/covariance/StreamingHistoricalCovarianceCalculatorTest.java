@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.timeseries.precise.instant.ImmutableInstantDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class StreamingHistoricalCovarianceCalculatorTest {
+  private static final CovarianceCalculator BATCH = new HistoricalCovarianceCalculator();
+  private static final int N = 40;
+  private static final int WINDOW = 15;
+  private static final long[] T = new long[N];
+  private static final double[] X = new double[N];
+  private static final double[] Y = new double[N];
+  private static final double EPS = 1e-12;
+
+  static {
+    for (int i = 0; i < N; i++) {
+      T[i] = i;
+      X[i] = 0.01 * Math.sin(i * 0.7);
+      Y[i] = 0.02 * Math.cos(i * 1.3) + 0.5 * X[i];
+    }
+  }
+
+  private static DoubleTimeSeries<?> ts(final double[] values, final int from, final int to) {
+    return ImmutableInstantDoubleTimeSeries.of(Arrays.copyOfRange(T, from, to), Arrays.copyOfRange(values, from, to));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSmallWindow() {
+    new StreamingHistoricalCovarianceCalculator(1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDifferentSizes() {
+    new StreamingHistoricalCovarianceCalculator(WINDOW).seed(ts(X, 0, 10), ts(Y, 0, 11));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testTooFewObservations() {
+    final StreamingHistoricalCovarianceCalculator calculator = new StreamingHistoricalCovarianceCalculator(WINDOW);
+    calculator.add(1, 2);
+    calculator.getCovariance();
+  }
+
+  @Test
+  public void testSeed() {
+    final StreamingHistoricalCovarianceCalculator calculator = new StreamingHistoricalCovarianceCalculator(WINDOW);
+    calculator.seed(ts(X, 0, 10), ts(Y, 0, 10));
+    assertEquals(10, calculator.getCount());
+    assertEquals(BATCH.evaluate(ts(X, 0, 10), ts(Y, 0, 10)), calculator.getCovariance(), EPS);
+    calculator.seed(ts(X, 0, N), ts(Y, 0, N));
+    assertEquals(WINDOW, calculator.getCount());
+    assertEquals(BATCH.evaluate(ts(X, N - WINDOW, N), ts(Y, N - WINDOW, N)), calculator.getCovariance(), EPS);
+  }
+
+  @Test
+  public void testRollingWindow() {
+    final StreamingHistoricalCovarianceCalculator calculator = new StreamingHistoricalCovarianceCalculator(WINDOW);
+    calculator.seed(ts(X, 0, 5), ts(Y, 0, 5));
+    for (int i = 5; i < N; i++) {
+      calculator.add(X[i], Y[i]);
+      final int from = Math.max(i + 1 - WINDOW, 0);
+      assertEquals(BATCH.evaluate(ts(X, from, i + 1), ts(Y, from, i + 1)), calculator.getCovariance(), EPS);
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.isdastandardmodel;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.model.BumpType;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BulkCreditCurveCalibratorTest extends ISDABaseTest {
+
+  private static final LocalDate TRADE_DATE = LocalDate.of(2013, 6, 4);
+  private static final CDSAnalyticFactory CDS_FACTORY = new CDSAnalyticFactory(RECOVERY_RATE);
+  private static final Period[] TENORS = new Period[] {Period.ofMonths(6), Period.ofYears(1), Period.ofYears(2), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) };
+  private static final CDSAnalytic[] MARKET_CDS = CDS_FACTORY.makeIMMCDS(TRADE_DATE, TENORS);
+  private static final ISDACompliantYieldCurve YIELD_CURVE = new ISDACompliantYieldCurve(new double[] {0.5, 1, 2, 5, 10, 30 }, new double[] {0.002, 0.003, 0.006, 0.012, 0.021, 0.03 });
+  private static final double[] BASE_SPREADS = new double[] {28, 35, 52, 71, 98, 112, 121 };
+  private static final int NUM_ISSUERS = 37;
+  private static final double[][] PAR_SPREADS = new double[NUM_ISSUERS][BASE_SPREADS.length];
+  private static final double[][] PUF = new double[NUM_ISSUERS][BASE_SPREADS.length];
+  private static final double[][] COUPONS = new double[NUM_ISSUERS][BASE_SPREADS.length];
+
+  static {
+    for (int i = 0; i < NUM_ISSUERS; i++) {
+      final double scale = 0.25 + 0.2 * i;
+      for (int j = 0; j < BASE_SPREADS.length; j++) {
+        PAR_SPREADS[i][j] = scale * BASE_SPREADS[j] * ONE_BP;
+        COUPONS[i][j] = scale < 2 ? 100 * ONE_BP : 500 * ONE_BP;
+        PUF[i][j] = 0.002 * scale * (j + 1);
+      }
+    }
+  }
+
+  @Test
+  public void curvesTest() {
+    final BulkCreditCurveCalibrator calibrator = new BulkCreditCurveCalibrator(ORIGINAL_ISDA, new ForkJoinPool(3));
+    final ISDACompliantCreditCurve[] fromSpreads = calibrator.calibrateCreditCurves(MARKET_CDS, PAR_SPREADS, YIELD_CURVE);
+    final ISDACompliantCreditCurve[] fromPUF = calibrator.calibrateCreditCurves(MARKET_CDS, COUPONS, YIELD_CURVE, PUF);
+    assertEquals(NUM_ISSUERS, fromSpreads.length);
+    for (int i = 0; i < NUM_ISSUERS; i++) {
+      assertSameCurve(CREDIT_CURVE_BUILDER.calibrateCreditCurve(MARKET_CDS, PAR_SPREADS[i], YIELD_CURVE), fromSpreads[i]);
+      assertSameCurve(CREDIT_CURVE_BUILDER.calibrateCreditCurve(MARKET_CDS, COUPONS[i], YIELD_CURVE, PUF[i]), fromPUF[i]);
+    }
+  }
+
+  @Test
+  public void incrementalCalibrationTest() {
+    final FastCreditCurveBuilder builder = new FastCreditCurveBuilder();
+    final FastCreditCurveBuilder.PreparedCalibration calibration = builder.prepareCalibration(MARKET_CDS, YIELD_CURVE);
+    final double[] puf = new double[BASE_SPREADS.length];
+    final double[] spreads = PAR_SPREADS[5].clone();
+    final ISDACompliantCreditCurve baseCurve = builder.calibrateCreditCurve(calibration, spreads, puf);
+    assertSameCurve(builder.calibrateCreditCurve(MARKET_CDS, spreads, YIELD_CURVE), baseCurve);
+    for (int i = 0; i <= spreads.length; i++) {
+      final double[] bumped = spreads.clone();
+      for (int j = i; j < spreads.length; j++) {
+        bumped[j] += ONE_BP;
+      }
+      assertSameCurve(builder.calibrateCreditCurve(MARKET_CDS, bumped, YIELD_CURVE), builder.calibrateCreditCurve(calibration, bumped, puf, baseCurve, i));
+    }
+  }
+
+  @Test
+  public void bucketedCS01Test() {
+    final BulkCreditCurveCalibrator calibrator = new BulkCreditCurveCalibrator();
+    final CDSAnalytic[] cds = new CDSAnalytic[NUM_ISSUERS];
+    final double[] coupons = new double[NUM_ISSUERS];
+    for (int i = 0; i < NUM_ISSUERS; i++) {
+      cds[i] = MARKET_CDS[i % MARKET_CDS.length];
+      coupons[i] = COUPONS[i][0];
+    }
+    final BumpType[] bumpTypes = new BumpType[] {BumpType.ADDITIVE, BumpType.MULTIPLICATIVE };
+    for (final BumpType bumpType : bumpTypes) {
+      final double[][] cs01 = calibrator.bucketedCS01FromParSpreads(cds, coupons, YIELD_CURVE, MARKET_CDS, PAR_SPREADS, ONE_BP, bumpType);
+      for (int i = 0; i < NUM_ISSUERS; i++) {
+        final double[] expected = CS01_CAL.bucketedCS01FromParSpreads(cds[i], coupons[i], YIELD_CURVE, MARKET_CDS, PAR_SPREADS[i], ONE_BP, bumpType);
+        assertEquals(expected.length, cs01[i].length);
+        for (int j = 0; j < expected.length; j++) {
+          assertEquals(expected[j], cs01[i][j], 1e-12);
+        }
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mismatchedIssuersTest() {
+    new BulkCreditCurveCalibrator().calibrateCreditCurves(MARKET_CDS, COUPONS, YIELD_CURVE, new double[NUM_ISSUERS - 1][BASE_SPREADS.length]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongKnotsTest() {
+    final FastCreditCurveBuilder builder = new FastCreditCurveBuilder();
+    final FastCreditCurveBuilder.PreparedCalibration calibration = builder.prepareCalibration(MARKET_CDS, YIELD_CURVE);
+    final ISDACompliantCreditCurve curve = new ISDACompliantCreditCurve(new double[] {1, 2 }, new double[] {0.01, 0.02 });
+    builder.calibrateCreditCurve(calibration, PAR_SPREADS[0], new double[BASE_SPREADS.length], curve, 1);
+  }
+
+  private static void assertSameCurve(final ISDACompliantCreditCurve expected, final ISDACompliantCreditCurve actual) {
+    final int n = expected.getNumberOfKnots();
+    assertEquals(n, actual.getNumberOfKnots());
+    for (int i = 0; i < n; i++) {
+      assertEquals(expected.getTimeAtIndex(i), actual.getTimeAtIndex(i), 0);
+      assertEquals(expected.getRTAtIndex(i), actual.getRTAtIndex(i), 1e-15);
+    }
+  }
+
+}
@@ -8,6 +8,7 @@ package com.opengamma.analytics.financial.interestrate.swaption.provider;
 import static org.testng.AssertJUnit.assertEquals;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.Period;
@@ -31,6 +32,10 @@ import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.B
 import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.NormalFunctionData;
 import com.opengamma.analytics.financial.model.volatility.BlackImpliedVolatilityFormula;
 import com.opengamma.analytics.financial.model.volatility.NormalImpliedVolatilityFormula;
+import com.opengamma.analytics.financial.montecarlo.AntitheticRandomStreams;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathEngine;
+import com.opengamma.analytics.financial.montecarlo.PseudoRandomStreams;
+import com.opengamma.analytics.financial.montecarlo.SobolRandomStreams;
 import com.opengamma.analytics.financial.montecarlo.provider.HullWhiteMonteCarloMethod;
 import com.opengamma.analytics.financial.provider.calculator.discounting.CashFlowEquivalentCalculator;
 import com.opengamma.analytics.financial.provider.calculator.discounting.ParRateDiscountingCalculator;
@@ -414,6 +419,41 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - presentValueCurveSensitivity - payer/receiver/swap parity", pvcsExplicit, pvcsMC, toleranceDelta);
   }
 
+  @Test
+  /**
+   * Compare explicit formula with Monte-Carlo run in parallel by the path engine, and check the result does not depend on the number of threads.
+   */
+  public void presentValueMonteCarloPathEngine() {
+    final MonteCarloPathEngine engine1 = new MonteCarloPathEngine(new ForkJoinPool(1), MonteCarloPathEngine.DEFAULT_BLOCK_SIZE);
+    final MonteCarloPathEngine engine4 = new MonteCarloPathEngine(new ForkJoinPool(4), MonteCarloPathEngine.DEFAULT_BLOCK_SIZE);
+    final MultipleCurrencyAmount pvPayerLongExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+    final PseudoRandomStreams pseudo = new PseudoRandomStreams(1234);
+    final MultipleCurrencyAmount pvPseudo1 = new HullWhiteMonteCarloMethod(engine1, pseudo, NB_PATH).presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    final MultipleCurrencyAmount pvPseudo4 = new HullWhiteMonteCarloMethod(engine4, pseudo, NB_PATH).presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo engine - thread count", pvPseudo1.getAmount(EUR), pvPseudo4.getAmount(EUR), 0.0);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo engine", pvPayerLongExplicit.getAmount(EUR), pvPseudo4.getAmount(EUR), 1.0E+4);
+    final MultipleCurrencyAmount pvAntithetic = new HullWhiteMonteCarloMethod(engine4, new AntitheticRandomStreams(pseudo), NB_PATH).presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo engine - antithetic", pvPayerLongExplicit.getAmount(EUR), pvAntithetic.getAmount(EUR), 1.0E+4);
+    final MultipleCurrencyAmount pvSobol = new HullWhiteMonteCarloMethod(engine4, new SobolRandomStreams(1234), NB_PATH).presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Monte Carlo engine - Sobol", pvPayerLongExplicit.getAmount(EUR), pvSobol.getAmount(EUR), 1.0E+4);
+  }
+
+  @Test
+  /**
+   * Tests the curve sensitivity in Monte Carlo approach run in parallel by the path engine.
+   */
+  public void presentValueCurveSensitivityMonteCarloPathEngine() {
+    final double toleranceDelta = 1.0E+6; // 100 USD by bp
+    final MonteCarloPathEngine engine1 = new MonteCarloPathEngine(new ForkJoinPool(1), MonteCarloPathEngine.DEFAULT_BLOCK_SIZE);
+    final MonteCarloPathEngine engine4 = new MonteCarloPathEngine(new ForkJoinPool(4), MonteCarloPathEngine.DEFAULT_BLOCK_SIZE);
+    final PseudoRandomStreams pseudo = new PseudoRandomStreams(1234);
+    final MultipleCurrencyMulticurveSensitivity pvcsExplicit = METHOD_HW.presentValueCurveSensitivity(SWAPTION_LONG_PAYER, HW_MULTICURVES).cleaned(TOLERANCE_PV_DELTA);
+    final MultipleCurrencyMulticurveSensitivity pvcsMC1 = new HullWhiteMonteCarloMethod(engine1, pseudo, NB_PATH).presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    final MultipleCurrencyMulticurveSensitivity pvcsMC4 = new HullWhiteMonteCarloMethod(engine4, pseudo, NB_PATH).presentValueCurveSensitivity(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - presentValueCurveSensitivity - thread count", pvcsMC1, pvcsMC4, 0.0);
+    AssertSensitivityObjects.assertEquals("Swaption physical - Hull-White - presentValueCurveSensitivity - Monte Carlo engine", pvcsExplicit, pvcsMC4.cleaned(TOLERANCE_PV_DELTA), toleranceDelta);
+  }
+
   @Test(enabled = false)
   /**
    * Tests of performance. "enabled = false" for the standard testing.
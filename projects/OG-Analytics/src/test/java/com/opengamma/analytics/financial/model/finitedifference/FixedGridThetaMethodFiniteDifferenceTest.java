@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.finitedifference.applications.InitialConditionsProvider;
+import com.opengamma.analytics.financial.model.finitedifference.applications.PDE1DCoefficientsProvider;
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class FixedGridThetaMethodFiniteDifferenceTest {
+
+  private static final PDE1DCoefficientsProvider PDE_PROVIDER = new PDE1DCoefficientsProvider();
+  private static final InitialConditionsProvider INITIAL_COND_PROVIDER = new InitialConditionsProvider();
+  private static final double SPOT = 100;
+  private static final double T = 1.5;
+  private static final double RATE = 0.03;
+  private static final double[] STRIKES = new double[] {70, 90, 100, 115, 140 };
+  private static final double XMAX = 4 * SPOT;
+  private static final ConvectionDiffusionPDE1DStandardCoefficients PDE = PDE_PROVIDER.getBlackScholes(RATE, RATE, 0.3);
+  private static final PDEGrid1D GRID = new PDEGrid1D(new ExponentialMeshing(0, T, 40, 2.0), new HyperbolicMeshing(0, XMAX, SPOT, 150, 0.1));
+  private static final BoundaryCondition LOWER = new DirichletBoundaryCondition(0.0, 0.0);
+  private static final BoundaryCondition UPPER = new NeumannBoundaryCondition(1.0, XMAX, false);
+
+  private static PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> getData(final double strike, final boolean isCall) {
+    final BoundaryCondition lower;
+    final BoundaryCondition upper;
+    if (isCall) {
+      lower = LOWER;
+      upper = UPPER;
+    } else {
+      lower = new DirichletBoundaryCondition(new Function1D<Double, Double>() {
+        @Override
+        public Double evaluate(final Double tau) {
+          return strike * Math.exp(-RATE * tau);
+        }
+      }, 0.0);
+      upper = new NeumannBoundaryCondition(0.0, XMAX, false);
+    }
+    return new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(PDE, INITIAL_COND_PROVIDER.getEuropeanPayoff(strike, isCall), lower, upper, GRID);
+  }
+
+  private static void assertSameResults(final PDEResults1D expected, final PDEResults1D actual) {
+    final double[] expectedValues = expected.getTerminalResults();
+    final double[] values = actual.getTerminalResults();
+    assertEquals(expectedValues.length, values.length);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(expectedValues[i], values[i], 0);
+    }
+  }
+
+  @Test
+  public void singleSolveTest() {
+    final ThetaMethodFiniteDifference solver = new ThetaMethodFiniteDifference(0.55, false);
+    final FixedGridThetaMethodFiniteDifference fixedGridSolver = new FixedGridThetaMethodFiniteDifference(0.55, false, GRID);
+    for (final double strike : STRIKES) {
+      for (final boolean isCall : new boolean[] {true, false }) {
+        final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> data = getData(strike, isCall);
+        assertSameResults(solver.solve(data), fixedGridSolver.solve(data));
+        //solving again reuses the work arrays
+        assertSameResults(solver.solve(data), fixedGridSolver.solve(data));
+      }
+    }
+  }
+
+  @Test
+  public void batchTest() {
+    final ThetaMethodFiniteDifference solver = new ThetaMethodFiniteDifference();
+    final FixedGridThetaMethodFiniteDifference fixedGridSolver = new FixedGridThetaMethodFiniteDifference(GRID);
+    final int n = STRIKES.length;
+    final double[][] initial = new double[2 * n][];
+    final BoundaryCondition[] lower = new BoundaryCondition[2 * n];
+    final BoundaryCondition[] upper = new BoundaryCondition[2 * n];
+    final PDE1DDataBundle<?>[] data = new PDE1DDataBundle<?>[2 * n];
+    for (int i = 0; i < 2 * n; i++) {
+      data[i] = getData(STRIKES[i % n], i < n);
+      initial[i] = data[i].getInitialCondition();
+      lower[i] = data[i].getLowerBoundary();
+      upper[i] = data[i].getUpperBoundary();
+    }
+    final PDEResults1D[] res = fixedGridSolver.solve(PDE, initial, lower, upper);
+    assertEquals(2 * n, res.length);
+    for (int i = 0; i < 2 * n; i++) {
+      assertSameResults(solver.solve(getData(STRIKES[i % n], i < n)), res[i]);
+    }
+  }
+
+  @Test
+  public void fullResultsTest() {
+    final ThetaMethodFiniteDifference solver = new ThetaMethodFiniteDifference(0.5, true);
+    final FixedGridThetaMethodFiniteDifference fixedGridSolver = new FixedGridThetaMethodFiniteDifference(0.5, true, GRID);
+    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> data = getData(STRIKES[2], true);
+    final PDEFullResults1D expected = (PDEFullResults1D) solver.solve(data);
+    final PDEFullResults1D res = (PDEFullResults1D) fixedGridSolver.solve(data);
+    for (int j = 0; j < GRID.getNumTimeNodes(); j++) {
+      for (int i = 0; i < GRID.getNumSpaceNodes(); i++) {
+        assertEquals(expected.getFunctionValue(i, j), res.getFunctionValue(i, j), 0);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void wrongGridTest() {
+    final FixedGridThetaMethodFiniteDifference fixedGridSolver = new FixedGridThetaMethodFiniteDifference(GRID);
+    fixedGridSolver.solve(getData(STRIKES[0], true).withGrid(new PDEGrid1D(40, 150, T, 0, XMAX)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void differentSystemTest() {
+    final FixedGridThetaMethodFiniteDifference fixedGridSolver = new FixedGridThetaMethodFiniteDifference(GRID);
+    final double[][] initial = new double[][] {getData(STRIKES[0], true).getInitialCondition(), getData(STRIKES[1], true).getInitialCondition() };
+    fixedGridSolver.solve(PDE, initial, new BoundaryCondition[] {LOWER, LOWER }, new BoundaryCondition[] {UPPER, new DirichletBoundaryCondition(0.0, XMAX) });
+  }
+
+}
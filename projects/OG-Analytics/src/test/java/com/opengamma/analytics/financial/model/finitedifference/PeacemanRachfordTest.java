@@ -5,8 +5,15 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.analytics.math.cube.ConstantDoublesCube;
+import com.opengamma.analytics.math.function.Function;
+import com.opengamma.analytics.math.surface.FunctionalDoublesSurface;
 import com.opengamma.util.test.TestGroup;
 
 /**
@@ -42,4 +49,35 @@ public class PeacemanRachfordTest {
     HESTON_TESTER.testCallPrice(SOLVER, timeSteps, xSteps, ySteps, print);
   }
 
+  @Test
+  public void testParallelSweeps() {
+    final Function<Double, Double> payoff = new Function<Double, Double>() {
+      @Override
+      public Double evaluate(final Double... xy) {
+        return Math.max(xy[0] - xy[1], 0);
+      }
+    };
+    final ConvectionDiffusion2DPDEDataBundle data = new ConvectionDiffusion2DPDEDataBundle(ConstantDoublesCube.from(-0.5), ConstantDoublesCube.from(-0.1),
+        ConstantDoublesCube.from(0.05), ConstantDoublesCube.from(-0.4), ConstantDoublesCube.from(0.0), ConstantDoublesCube.from(-0.1), FunctionalDoublesSurface.from(payoff));
+    final BoundaryCondition2D xLower = new DirichletBoundaryCondition2D(0.0, 0.0);
+    final BoundaryCondition2D xUpper = new SecondDerivativeBoundaryCondition2D(0.0, 10.0);
+    final BoundaryCondition2D yLower = new DirichletBoundaryCondition2D(0.0, 0.0);
+    final BoundaryCondition2D yUpper = new SecondDerivativeBoundaryCondition2D(0.0, 10.0);
+    final int xSteps = 60;
+    final int ySteps = 45;
+
+    final double[][] expected = SOLVER.solve(data, 10, xSteps, ySteps, 1.0, xLower, xUpper, yLower, yUpper);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final double[][] res = new PeacemanRachfordFiniteDifference2D(pool).solve(data, 10, xSteps, ySteps, 1.0, xLower, xUpper, yLower, yUpper);
+      for (int i = 0; i <= xSteps; i++) {
+        for (int j = 0; j <= ySteps; j++) {
+          assertEquals(expected[i][j], res[i][j], 0);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
 }
@@ -9261,4 +9261,95 @@ public class BlackFormulaRepositoryTest {
     System.out.println((-d2 * NORMAL.getPDF(d1) / lognormalVol));
 
   }
+
+  /**
+   * The batch price and greeks are identical to the scalar ones, including the limiting cases.
+   */
+  @Test
+  public void batchPriceAndGreeksTest() {
+    final int nStrikes = STRIKES_INPUT.length;
+    final int nVols = VOLS.length;
+    final int n = 2 * nStrikes * nVols + 4;
+    final double[] forwards = new double[n];
+    final double[] strikes = new double[n];
+    final double[] times = new double[n];
+    final double[] vols = new double[n];
+    final boolean[] isCall = new boolean[n];
+    int k = 0;
+    for (int i = 0; i < nStrikes; i++) {
+      for (int j = 0; j < nVols; j++) {
+        for (int c = 0; c < 2; c++) {
+          forwards[k] = FORWARD;
+          strikes[k] = STRIKES_INPUT[i];
+          times[k] = TIME_TO_EXPIRY;
+          vols[k] = VOLS[j];
+          isCall[k++] = c == 0;
+        }
+      }
+    }
+    // At-the-money, zero time, zero volatility and large values
+    final double[][] limits = new double[][] { {FORWARD, FORWARD, TIME_TO_EXPIRY, 0.2 }, {FORWARD, 90., 0., 0.2 }, {FORWARD, 120., 1., 0. }, {1.e14, 2.e14, 1., 0.2 } };
+    for (final double[] limit : limits) {
+      forwards[k] = limit[0];
+      strikes[k] = limit[1];
+      times[k] = limit[2];
+      vols[k] = limit[3];
+      isCall[k++] = true;
+    }
+    final double[] prices = new double[n];
+    final double[] deltas = new double[n];
+    final double[] gammas = new double[n];
+    final double[] vegas = new double[n];
+    BlackFormulaRepository.priceAndGreeks(forwards, strikes, times, vols, isCall, prices, deltas, gammas, vegas);
+    final double[] pricesOnly = new double[n];
+    BlackFormulaRepository.price(forwards, strikes, times, vols, isCall, pricesOnly);
+    for (int i = 0; i < n; i++) {
+      assertEquals(BlackFormulaRepository.price(forwards[i], strikes[i], times[i], vols[i], isCall[i]), prices[i], 0.);
+      assertEquals(prices[i], pricesOnly[i], 0.);
+      assertEquals(BlackFormulaRepository.delta(forwards[i], strikes[i], times[i], vols[i], isCall[i]), deltas[i], 0.);
+      assertEquals(BlackFormulaRepository.gamma(forwards[i], strikes[i], times[i], vols[i]), gammas[i], 0.);
+      assertEquals(BlackFormulaRepository.vega(forwards[i], strikes[i], times[i], vols[i]), vegas[i], 0.);
+    }
+  }
+
+  /**
+   * The batch implied volatilities agree with the scalar ones to the solver tolerance.
+   */
+  @Test
+  public void batchImpliedVolatilityTest() {
+    final int nStrikes = STRIKES_INPUT.length;
+    final int nVols = VOLS.length;
+    final int n = nStrikes * nVols;
+    final double[] forwards = new double[n];
+    final double[] strikes = new double[n];
+    final double[] times = new double[n];
+    final double[] prices = new double[n];
+    final boolean[] isCall = new boolean[n];
+    int k = 0;
+    for (int i = 0; i < nStrikes; i++) {
+      for (int j = 0; j < nVols; j++) {
+        forwards[k] = FORWARD;
+        strikes[k] = STRIKES_INPUT[i];
+        times[k] = TIME_TO_EXPIRY;
+        isCall[k] = STRIKES_INPUT[i] >= FORWARD;
+        prices[k++] = BlackFormulaRepository.price(FORWARD, STRIKES_INPUT[i], TIME_TO_EXPIRY, VOLS[j], STRIKES_INPUT[i] >= FORWARD);
+      }
+    }
+    final double[] impliedVols = new double[n];
+    BlackFormulaRepository.impliedVolatility(prices, forwards, strikes, times, isCall, impliedVols);
+    for (int i = 0; i < n; i++) {
+      assertEquals(VOLS[i % nVols], impliedVols[i], 1.e-8);
+      assertEquals(BlackFormulaRepository.impliedVolatility(prices[i], forwards[i], strikes[i], times[i], isCall[i]), impliedVols[i], 1.e-8);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchLengthMismatchTest() {
+    BlackFormulaRepository.price(new double[] {FORWARD }, new double[] {100., 110. }, new double[] {1. }, new double[] {0.2 }, new boolean[] {true }, new double[1]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void batchNullPricesTest() {
+    BlackFormulaRepository.price(new double[] {FORWARD }, new double[] {100. }, new double[] {1. }, new double[] {0.2 }, new boolean[] {true }, null);
+  }
 }
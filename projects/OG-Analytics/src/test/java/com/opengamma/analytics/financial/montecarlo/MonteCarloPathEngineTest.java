@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathEngine.PathBlockFunction;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class MonteCarloPathEngineTest {
+
+  private static final int DIMENSION = 20;
+  private static final int NB_PATH = 10001;
+  private static final MonteCarloPathEngine ENGINE_1 = new MonteCarloPathEngine(new ForkJoinPool(1), 500);
+  private static final MonteCarloPathEngine ENGINE_4 = new MonteCarloPathEngine(new ForkJoinPool(4), 500);
+
+  /**
+   * The sum and the sum of squares of each variable.
+   */
+  private static final PathBlockFunction MOMENTS = new PathBlockFunction() {
+
+    @Override
+    public int getResultSize() {
+      return 2 * DIMENSION;
+    }
+
+    @Override
+    public void evaluate(final double[][] normals, final int nbPath, final double[] result) {
+      for (int loopdim = 0; loopdim < DIMENSION; loopdim++) {
+        for (int looppath = 0; looppath < nbPath; looppath++) {
+          final double x = normals[loopdim][looppath];
+          result[loopdim] += x;
+          result[DIMENSION + loopdim] += x * x;
+        }
+      }
+    }
+  };
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullPool() {
+    new MonteCarloPathEngine(null, 100);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBlockSize() {
+    new MonteCarloPathEngine(new ForkJoinPool(1), 0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAntitheticOddBlock() {
+    new MonteCarloPathEngine(new ForkJoinPool(1), 501).evaluate(new AntitheticRandomStreams(new PseudoRandomStreams(1)), DIMENSION, NB_PATH, MOMENTS);
+  }
+
+  private static void assertThreadCountInvariant(final MonteCarloRandomStreams streams) {
+    final double[] result1 = ENGINE_1.evaluate(streams, DIMENSION, NB_PATH, MOMENTS);
+    final double[] result4 = ENGINE_4.evaluate(streams, DIMENSION, NB_PATH, MOMENTS);
+    for (int i = 0; i < result1.length; i++) {
+      assertEquals(result1[i], result4[i], 0.0);
+    }
+  }
+
+  private static void assertMoments(final double[] result, final double toleranceMean, final double toleranceVariance) {
+    for (int loopdim = 0; loopdim < DIMENSION; loopdim++) {
+      assertEquals(0.0, result[loopdim] / NB_PATH, toleranceMean);
+      assertEquals(1.0, result[DIMENSION + loopdim] / NB_PATH, toleranceVariance);
+    }
+  }
+
+  @Test
+  public void pseudoRandom() {
+    final MonteCarloRandomStreams streams = new PseudoRandomStreams(42);
+    assertThreadCountInvariant(streams);
+    assertMoments(ENGINE_4.evaluate(streams, DIMENSION, NB_PATH, MOMENTS), 5.0E-2, 5.0E-2);
+  }
+
+  @Test
+  public void sobol() {
+    final MonteCarloRandomStreams streams = new SobolRandomStreams(42);
+    assertThreadCountInvariant(streams);
+    final double[] result = ENGINE_4.evaluate(streams, DIMENSION, NB_PATH, MOMENTS);
+    assertMoments(result, 5.0E-2, 5.0E-2);
+    // Low discrepancy: much closer to the exact moments than pseudo-random in the Sobol dimensions
+    for (int loopdim = 0; loopdim < SobolRandomStreams.MAX_DIMENSION; loopdim++) {
+      assertEquals(0.0, result[loopdim] / NB_PATH, 2.0E-3);
+    }
+  }
+
+  @Test
+  public void antithetic() {
+    final MonteCarloRandomStreams streams = new AntitheticRandomStreams(new PseudoRandomStreams(42));
+    assertThreadCountInvariant(streams);
+    final double[] result = ENGINE_4.evaluate(streams, DIMENSION, NB_PATH - 1, MOMENTS);
+    for (int loopdim = 0; loopdim < DIMENSION; loopdim++) {
+      assertEquals(0.0, result[loopdim], 1.0E-10);
+    }
+  }
+
+  @Test
+  public void streamsByRange() {
+    // The variables of a range of paths do not depend on the other ranges generated
+    final MonteCarloRandomStreams streams = new SobolRandomStreams(42);
+    final double[][] whole = new double[DIMENSION][1000];
+    streams.fillNormals(1000, whole, 1000);
+    final double[][] part = new double[DIMENSION][500];
+    streams.fillNormals(1500, part, 500);
+    final double[][] first = new double[DIMENSION][1000];
+    streams.fillNormals(1000, first, 1000);
+    for (int loopdim = 0; loopdim < SobolRandomStreams.MAX_DIMENSION; loopdim++) {
+      for (int looppath = 0; looppath < 1000; looppath++) {
+        assertEquals(whole[loopdim][looppath], first[loopdim][looppath], 0.0);
+      }
+      for (int looppath = 0; looppath < 500; looppath++) {
+        assertEquals(whole[loopdim][500 + looppath], part[loopdim][looppath], 0.0);
+      }
+    }
+  }
+
+}
@@ -6,6 +6,8 @@
 package com.opengamma.analytics.financial.provider.curve;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -48,6 +50,7 @@ import com.opengamma.analytics.financial.provider.calculator.discounting.ParSpre
 import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator;
 import com.opengamma.analytics.financial.provider.calculator.generic.LastTimeCalculator;
 import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountBuildingRepository;
+import com.opengamma.analytics.financial.provider.curve.multicurve.MulticurveDiscountWarmStart;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.financial.provider.description.interestrate.ParameterProviderInterface;
@@ -259,6 +262,42 @@ public class MulticurveBuildingDiscountingDiscountSimpleTest {
     }
   }
 
+  /**
+   * Calibrates again from the previous result: unchanged units are reused and changed ones give the same curves as a calibration from scratch.
+   */
+  @Test
+  public void warmStart() {
+    final MulticurveDiscountWarmStart cold = CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivativesWarmStart(makeCurveBundles(DEFINITIONS_UNITS[0], GENERATORS_UNITS[0],
+        NAMES_UNITS[0], false), KNOWN_DATA, new CurveBuildingBlockBundle(), DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, PSMQC, PSMQCSC, null);
+    assertFalse("Warm start: cold calibration", cold.isReused(0) || cold.isReused(1));
+    final MulticurveDiscountWarmStart same = CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivativesWarmStart(makeCurveBundles(DEFINITIONS_UNITS[0], GENERATORS_UNITS[0],
+        NAMES_UNITS[0], false), KNOWN_DATA, new CurveBuildingBlockBundle(), DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, PSMQC, PSMQCSC, cold);
+    assertTrue("Warm start: unchanged quotes", same.isReused(0) && same.isReused(1));
+    assertEquals("Warm start: unchanged quotes", cold.getMulticurves().getCurve(CURVE_NAME_FWD3_USD), same.getMulticurves().getCurve(CURVE_NAME_FWD3_USD));
+    final double[] fwdQuotesBumped = FWD3_USD_MARKET_QUOTES.clone();
+    fwdQuotesBumped[4] += 0.0010;
+    final InstrumentDefinition<?>[][][] definitionsBumped = new InstrumentDefinition<?>[][][] {DEFINITIONS_UNITS[0][0],
+      new InstrumentDefinition<?>[][] {getDefinitions(fwdQuotesBumped, FWD3_USD_GENERATORS, FWD3_USD_ATTR) } };
+    final MulticurveDiscountWarmStart warm = CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivativesWarmStart(makeCurveBundles(definitionsBumped, GENERATORS_UNITS[0],
+        NAMES_UNITS[0], false), KNOWN_DATA, new CurveBuildingBlockBundle(), DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, PSMQC, PSMQCSC, cold);
+    assertTrue("Warm start: discounting unit unchanged", warm.isReused(0));
+    assertFalse("Warm start: forward unit changed", warm.isReused(1));
+    final Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> bumped = makeCurvesFromDefinitions(definitionsBumped, GENERATORS_UNITS[0], NAMES_UNITS[0], KNOWN_DATA,
+        PSMQC, PSMQCSC, false);
+    final Double[] expected = ((YieldCurve) bumped.getFirst().getCurve(CURVE_NAME_FWD3_USD)).getCurve().getYData();
+    final Double[] actual = ((YieldCurve) warm.getMulticurves().getCurve(CURVE_NAME_FWD3_USD)).getCurve().getYData();
+    for (int loopnode = 0; loopnode < expected.length; loopnode++) {
+      assertEquals("Warm start: node " + loopnode, expected[loopnode], actual[loopnode], TOLERANCE_CAL);
+    }
+    final double[][] expectedBlock = bumped.getSecond().getBlock(CURVE_NAME_FWD3_USD).getSecond().getData();
+    final double[][] actualBlock = warm.getBlockBundle().getBlock(CURVE_NAME_FWD3_USD).getSecond().getData();
+    for (int loopp = 0; loopp < expectedBlock.length; loopp++) {
+      for (int loopm = 0; loopm < expectedBlock[loopp].length; loopm++) {
+        assertEquals("Warm start: block " + loopp + ", " + loopm, expectedBlock[loopp][loopm], actualBlock[loopp][loopm], 1.0E-6);
+      }
+    }
+  }
+
   @Test(enabled = true)
   public void blockBundleDscFiniteDifferenceTest() {
     final CurveBuildingBlockBundle blockBundles = CURVES_PAR_SPREAD_MQ_WITHOUT_TODAY_BLOCK.get(0).getSecond();
@@ -390,10 +429,16 @@ public class MulticurveBuildingDiscountingDiscountSimpleTest {
     }
   }
 
-  @SuppressWarnings("unchecked")
   private static Pair<MulticurveProviderDiscount, CurveBuildingBlockBundle> makeCurvesFromDefinitions(final InstrumentDefinition<?>[][][] definitions, final GeneratorYDCurve[][] curveGenerators,
       final String[][] curveNames, final MulticurveProviderDiscount knownData, final InstrumentDerivativeVisitor<ParameterProviderInterface, Double> calculator,
       final InstrumentDerivativeVisitor<ParameterProviderInterface, MulticurveSensitivity> sensitivityCalculator, final boolean withToday) {
+    return CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivatives(makeCurveBundles(definitions, curveGenerators, curveNames, withToday), knownData, DSC_MAP, FWD_IBOR_MAP,
+        FWD_ON_MAP, calculator, sensitivityCalculator);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MultiCurveBundle<GeneratorYDCurve>[] makeCurveBundles(final InstrumentDefinition<?>[][][] definitions, final GeneratorYDCurve[][] curveGenerators,
+      final String[][] curveNames, final boolean withToday) {
     final int nUnits = definitions.length;
     final MultiCurveBundle<GeneratorYDCurve>[] curveBundles = new MultiCurveBundle[nUnits];
     for (int i = 0; i < nUnits; i++) {
@@ -412,8 +457,7 @@ public class MulticurveBuildingDiscountingDiscountSimpleTest {
       }
       curveBundles[i] = new MultiCurveBundle<>(singleCurves);
     }
-    return CURVE_BUILDING_REPOSITORY.makeCurvesFromDerivatives(curveBundles, knownData, DSC_MAP, FWD_IBOR_MAP, FWD_ON_MAP, calculator,
-        sensitivityCalculator);
+    return curveBundles;
   }
 
   private static InstrumentDerivative convert(final InstrumentDefinition<?> instrument, final int unit, final boolean withToday) {
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.timeseries.precise.instant.ImmutableInstantDoubleTimeSeries;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class StreamingEmpiricalDistributionVaRCalculatorTest {
+  private static final EmpiricalDistributionVaRCalculator BATCH = new EmpiricalDistributionVaRCalculator();
+  private static final EmpiricalDistributionVaRParameters PARAMETERS = new EmpiricalDistributionVaRParameters(10, 250, 0.9);
+  private static final int N = 60;
+  private static final int WINDOW = 20;
+  private static final long[] T = new long[N];
+  private static final double[] PNL = new double[N];
+  private static final double EPS = 1e-12;
+
+  static {
+    for (int i = 0; i < N; i++) {
+      T[i] = i;
+      // Includes repeated values, so removal has to find one of several equal entries
+      PNL[i] = Math.round(10 * Math.sin(i * 0.9)) / 10.;
+    }
+  }
+
+  private static DoubleTimeSeries<?> ts(final int from, final int to) {
+    return ImmutableInstantDoubleTimeSeries.of(Arrays.copyOfRange(T, from, to), Arrays.copyOfRange(PNL, from, to));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullParameters() {
+    new StreamingEmpiricalDistributionVaRCalculator(null, WINDOW);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testZeroWindow() {
+    new StreamingEmpiricalDistributionVaRCalculator(PARAMETERS, 0);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testNoData() {
+    new StreamingEmpiricalDistributionVaRCalculator(PARAMETERS, WINDOW).getVaR();
+  }
+
+  @Test
+  public void testSeed() {
+    final StreamingEmpiricalDistributionVaRCalculator calculator = new StreamingEmpiricalDistributionVaRCalculator(PARAMETERS, WINDOW);
+    calculator.seed(ts(0, 10));
+    assertEquals(10, calculator.getCount());
+    assertEquals(BATCH.evaluate(PARAMETERS, ts(0, 10)).getVaRValue(), calculator.getVaR().getVaRValue(), EPS);
+    calculator.seed(ts(0, N));
+    assertEquals(WINDOW, calculator.getCount());
+    assertEquals(BATCH.evaluate(PARAMETERS, ts(N - WINDOW, N)).getVaRValue(), calculator.getVaR().getVaRValue(), EPS);
+  }
+
+  @Test
+  public void testRollingWindow() {
+    final StreamingEmpiricalDistributionVaRCalculator calculator = new StreamingEmpiricalDistributionVaRCalculator(PARAMETERS, WINDOW);
+    calculator.seed(ts(0, 5));
+    for (int i = 5; i < N; i++) {
+      calculator.add(PNL[i]);
+      final int from = Math.max(i + 1 - WINDOW, 0);
+      assertEquals(BATCH.evaluate(PARAMETERS, ts(from, i + 1)).getVaRValue(), calculator.getVaR().getVaRValue(), EPS);
+    }
+  }
+
+}
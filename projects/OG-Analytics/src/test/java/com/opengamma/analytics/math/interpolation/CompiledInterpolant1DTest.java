@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.interpolation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CompiledInterpolant1DTest {
+  /** Knots clustered at the short end, as on a yield curve, so that some buckets hold many knots */
+  private static final double[] X = new double[] {0.01, 0.02, 0.05, 0.08, 0.1, 0.25, 0.5, 1, 2, 3, 5, 7, 10, 20, 30 };
+  private static final double[] Y = new double[] {0.0101, 0.0105, 0.0110, 0.0112, 0.0115, 0.0123, 0.0130, 0.0142, 0.0160, 0.0175, 0.0198, 0.0213, 0.0229, 0.0251, 0.0255 };
+  private static final String[] INTERPOLATORS = new String[] {Interpolator1DFactory.LINEAR, Interpolator1DFactory.NATURAL_CUBIC_SPLINE, Interpolator1DFactory.NOTAKNOT_CUBIC,
+    Interpolator1DFactory.NATURAL_CUBIC_MONOTONE, Interpolator1DFactory.LOG_NATURAL_CUBIC, Interpolator1DFactory.LOG_NOTAKNOT_CUBIC, Interpolator1DFactory.LOG_LINEAR,
+    Interpolator1DFactory.DOUBLE_QUADRATIC };
+
+  private static double[] getValues(final double start, final double end, final int n) {
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = start + (end - start) * i / (n - 1);
+    }
+    return values;
+  }
+
+  private static void assertSameResults(final Interpolator1D interpolator, final double[] values) {
+    final Interpolator1DDataBundle data = interpolator.getDataBundleFromSortedArrays(X, Y);
+    final CompiledInterpolant1D compiled = interpolator.compile(data);
+    final double[] batch = compiled.interpolate(values);
+    for (int i = 0; i < values.length; i++) {
+      final double value = values[i];
+      final double expected = interpolator.interpolate(data, value);
+      assertEquals(interpolator.toString(), expected, compiled.interpolate(value), 0);
+      assertEquals(interpolator.toString(), expected, batch[i], 0);
+      assertEquals(interpolator.toString(), interpolator.firstDerivative(data, value), compiled.firstDerivative(value), 0);
+      final double[] expectedSensitivities = interpolator.getNodeSensitivitiesForValue(data, value);
+      final double[] sensitivities = compiled.getNodeSensitivitiesForValue(value);
+      assertEquals(expectedSensitivities.length, sensitivities.length);
+      for (int j = 0; j < sensitivities.length; j++) {
+        assertEquals(interpolator.toString(), expectedSensitivities[j], sensitivities[j], 0);
+      }
+    }
+  }
+
+  @Test
+  public void testInterpolators() {
+    final double[] values = getValues(X[0], X[X.length - 1], 1001);
+    for (final String name : INTERPOLATORS) {
+      final Interpolator1D interpolator = Interpolator1DFactory.getInterpolator(name);
+      assertSameResults(interpolator, values);
+      assertSameResults(interpolator, X);
+    }
+  }
+
+  @Test
+  public void testExtrapolators() {
+    final double[] values = getValues(-1, 35, 721);
+    for (final String name : INTERPOLATORS) {
+      assertSameResults(CombinedInterpolatorExtrapolatorFactory.getInterpolator(name, Interpolator1DFactory.FLAT_EXTRAPOLATOR), values);
+      assertSameResults(CombinedInterpolatorExtrapolatorFactory.getInterpolator(name, Interpolator1DFactory.LINEAR_EXTRAPOLATOR), values);
+    }
+  }
+
+  @Test
+  public void testUnsortedBatch() {
+    final double[] values = new double[] {25, 0.015, 3.5, 3.5, 0.2, 29.9, 0.01, 30, 1, 0.09, 12 };
+    for (final String name : INTERPOLATORS) {
+      assertSameResults(Interpolator1DFactory.getInterpolator(name), values);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testOutsideWithoutExtrapolator() {
+    final Interpolator1D interpolator = Interpolator1DFactory.getInterpolator(Interpolator1DFactory.LINEAR);
+    interpolator.compile(interpolator.getDataBundleFromSortedArrays(X, Y)).interpolate(31);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBatchLengthMismatch() {
+    final Interpolator1D interpolator = Interpolator1DFactory.getInterpolator(Interpolator1DFactory.LINEAR);
+    interpolator.compile(interpolator.getDataBundleFromSortedArrays(X, Y)).interpolate(new double[3], new double[2]);
+  }
+
+  @Test
+  public void testCurve() {
+    final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.NATURAL_CUBIC_SPLINE, Interpolator1DFactory.LINEAR_EXTRAPOLATOR);
+    final InterpolatedDoublesCurve curve = InterpolatedDoublesCurve.fromSorted(X, Y, interpolator);
+    assertSame(curve.getCompiled(), curve.getCompiled());
+    final double[] values = getValues(0, 32, 257);
+    final double[] yValues = curve.getYValues(values);
+    for (int i = 0; i < values.length; i++) {
+      final double expected = interpolator.interpolate(curve.getDataBundle(), values[i]);
+      assertEquals(expected, curve.getYValue(values[i]), 0);
+      assertEquals(expected, yValues[i], 0);
+      assertEquals(interpolator.firstDerivative(curve.getDataBundle(), values[i]), curve.getDyDx(values[i]), 0);
+    }
+  }
+
+}
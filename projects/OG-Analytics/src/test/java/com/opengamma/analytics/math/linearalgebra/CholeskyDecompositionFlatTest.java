@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the Cholesky decomposition on flat matrices.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CholeskyDecompositionFlatTest {
+
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final CholeskyDecompositionFlat CDF = new CholeskyDecompositionFlat();
+  private static final CholeskyDecompositionOpenGamma CDOG = new CholeskyDecompositionOpenGamma();
+  private static final DoubleMatrix2D A5 = new DoubleMatrix2D(new double[][] {new double[] {10.0, 2.0, -1.0, 1.0, 1.0}, new double[] {2.0, 5.0, -2.0, 0.5, 0.5},
+      new double[] {-1.0, -2.0, 15.0, 1.0, 0.5}, new double[] {1.0, 0.5, 1.0, 10.0, -1.0}, new double[] {1.0, 0.5, 0.5, -1.0, 25.0}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    CDF.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotSymmetric() {
+    CDF.evaluate(new DoubleMatrix2D(new double[][] { {1.0, 2.0}, {3.0, 1.0}}));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotPositive() {
+    CDF.evaluate(new DoubleMatrix2D(new double[][] { {1.0, 2.0}, {2.0, 1.0}}));
+  }
+
+  /**
+   * Tests the factor and determinant against the existing implementation.
+   */
+  public void compareOpenGamma() {
+    final CholeskyDecompositionResult resultFlat = CDF.evaluate(A5);
+    final CholeskyDecompositionResult resultOG = CDOG.evaluate(A5);
+    checkEquals(resultOG.getL(), resultFlat.getL());
+    checkEquals(resultOG.getLT(), resultFlat.getLT());
+    assertEquals("Determinant", resultOG.getDeterminant(), resultFlat.getDeterminant(), 1.0E-10);
+    checkEquals(A5, (DoubleMatrix2D) ALGEBRA.multiply(resultFlat.getL(), resultFlat.getLT()));
+  }
+
+  /**
+   * Tests the decomposition of a matrix that is a view on a larger buffer.
+   */
+  public void strided() {
+    final int n = A5.getNumberOfRows();
+    final int stride = n + 3;
+    final double[] buffer = new double[n * stride];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(A5.getData()[i], 0, buffer, i * stride, n);
+    }
+    final CholeskyDecompositionFlatResult result = CDF.evaluate(FlatDoubleMatrix2D.noCopy(buffer, n, n, stride));
+    checkEquals(CDOG.evaluate(A5).getL(), result.getL());
+  }
+
+  /**
+   * Tests solve Ax = b and AX = B.
+   */
+  public void solve() {
+    final CholeskyDecompositionFlatResult result = CDF.evaluate(new FlatDoubleMatrix2D(A5));
+    final double[] b = new double[] {1.0, 2.0, 3.0, 4.0, -1.0};
+    final DoubleMatrix1D ax = (DoubleMatrix1D) ALGEBRA.multiply(A5, new DoubleMatrix1D(result.solve(b)));
+    ArrayAsserts.assertArrayEquals("Cholesky decomposition flat - solve", b, ax.getData(), 1.0E-10);
+    final double[][] bb = new double[][] { {1.0, 2.0}, {2.0, 3.0}, {3.0, 4.0}, {4.0, -2.0}, {-1.0, -1.0}};
+    final DoubleMatrix2D x = result.solve(new DoubleMatrix2D(bb));
+    checkEquals(new DoubleMatrix2D(bb), (DoubleMatrix2D) ALGEBRA.multiply(A5, x));
+    checkEquals(x, result.solve(new FlatDoubleMatrix2D(bb)).toDoubleMatrix2D());
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.CommonsMatrixAlgebra;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.FlatDoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the LU decomposition on flat matrices.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LUDecompositionFlatTest {
+  private static final MatrixAlgebra ALGEBRA = new CommonsMatrixAlgebra();
+  private static final LUDecompositionFlat LU = new LUDecompositionFlat();
+  private static final Decomposition<LUDecompositionResult> LU_COMMONS = new LUDecompositionCommons();
+  private static final DoubleMatrix2D A = new DoubleMatrix2D(new double[][] {new double[] {1, 2, -1}, new double[] {4, 3, 1}, new double[] {2, 2, 3}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    LU.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSingularSolve() {
+    final LUDecompositionFlatResult result = LU.evaluate(new FlatDoubleMatrix2D(new double[][] { {1, 2}, {2, 4}}));
+    assertTrue(result.isSingular());
+    assertEquals(0.0, result.getDeterminant(), 0);
+    result.solve(new double[] {1, 1});
+  }
+
+  public void testRecoverOrginal() {
+    final LUDecompositionResult lu = LU.evaluate(A);
+    final DoubleMatrix2D a = (DoubleMatrix2D) ALGEBRA.multiply(lu.getL(), lu.getU());
+    checkEquals((DoubleMatrix2D) ALGEBRA.multiply(lu.getP(), A), a);
+  }
+
+  public void testCompareCommons() {
+    final LUDecompositionResult flat = LU.evaluate(A);
+    final LUDecompositionResult commons = LU_COMMONS.evaluate(A);
+    checkEquals(commons.getL(), flat.getL());
+    checkEquals(commons.getU(), flat.getU());
+    checkEquals(commons.getP(), flat.getP());
+    assertEquals(commons.getDeterminant(), flat.getDeterminant(), EPS);
+    final double[] b = new double[] {1, 2, 3};
+    ArrayAsserts.assertArrayEquals(commons.solve(b), flat.solve(b), EPS);
+    final DoubleMatrix2D bb = new DoubleMatrix2D(new double[][] { {1, 2}, {3, 4}, {5, 6}});
+    checkEquals(commons.solve(bb), flat.solve(bb));
+  }
+
+  public void testInverse() {
+    final FlatDoubleMatrix2D inverse = LU.evaluate(new FlatDoubleMatrix2D(A)).getInverse();
+    checkEquals(ALGEBRA.getInverse(A), inverse.toDoubleMatrix2D());
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+}
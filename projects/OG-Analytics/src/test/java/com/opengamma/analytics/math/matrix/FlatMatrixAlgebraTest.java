@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests {@link FlatMatrixAlgebra}, {@link FlatMatrixKernels} and {@link FlatDoubleMatrix2D}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class FlatMatrixAlgebraTest {
+  private static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+  private static final MatrixAlgebra OG = new OGMatrixAlgebra();
+  private static final MatrixAlgebra COMMONS = new CommonsMatrixAlgebra();
+  private static final MatrixAlgebra FLAT = new FlatMatrixAlgebra();
+  private static final DoubleMatrix2D A = random(150, 70);
+  private static final DoubleMatrix2D B = random(70, 130);
+  private static final DoubleMatrix2D C = random(100, 100);
+  private static final double EPS = 1e-9;
+
+  private static DoubleMatrix2D random(final int rows, final int columns) {
+    final double[][] data = new double[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        data[i][j] = RANDOM.nextDouble() - 0.5;
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSizeMismatch() {
+    FLAT.multiply(A, A);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testStrideTooSmall() {
+    FlatDoubleMatrix2D.noCopy(new double[12], 3, 4, 3);
+  }
+
+  public void testConversion() {
+    final FlatDoubleMatrix2D flat = new FlatDoubleMatrix2D(A);
+    assertEquals(A.getNumberOfRows(), flat.getNumberOfRows());
+    assertEquals(A.getNumberOfColumns(), flat.getNumberOfColumns());
+    assertEquals(A, flat.toDoubleMatrix2D());
+    assertEquals(flat, new FlatDoubleMatrix2D(A.getData()));
+    assertEquals(flat.hashCode(), new FlatDoubleMatrix2D(A.getData()).hashCode());
+    assertEquals(A.getEntry(3, 5), flat.get(3, 5), 0);
+  }
+
+  /**
+   * The blocked product sums in the same order as {@link OGMatrixAlgebra} so the results are identical.
+   */
+  public void testMultiply() {
+    assertEquals(OG.multiply(A, B), FLAT.multiply(A, B));
+    final Matrix<?> flat = FLAT.multiply(new FlatDoubleMatrix2D(A), new FlatDoubleMatrix2D(B));
+    assertTrue(flat instanceof FlatDoubleMatrix2D);
+    assertEquals(OG.multiply(A, B), ((FlatDoubleMatrix2D) flat).toDoubleMatrix2D());
+    assertEquals(OG.multiply(A, B), FLAT.multiply(new FlatDoubleMatrix2D(A), B));
+    assertEquals(OG.multiply(A, B), FLAT.multiply(A, new FlatDoubleMatrix2D(B)));
+    final DoubleMatrix1D x = new DoubleMatrix1D(B.getData()[0]);
+    checkEquals(OG.multiply(B, x), FLAT.multiply(new FlatDoubleMatrix2D(B), x));
+    final IdentityMatrix id = new IdentityMatrix(70);
+    assertEquals(A, FLAT.multiply(A, id));
+  }
+
+  /**
+   * A matrix can be a view of the leading rows and columns of a larger buffer.
+   */
+  public void testStridedMultiply() {
+    final FlatDoubleMatrix2D big = new FlatDoubleMatrix2D(C);
+    final FlatDoubleMatrix2D view = FlatDoubleMatrix2D.noCopy(big.getData(), 70, 60, 100);
+    final FlatDoubleMatrix2D copy = new FlatDoubleMatrix2D(view.toArray());
+    final FlatDoubleMatrix2D other = new FlatDoubleMatrix2D(random(60, 40));
+    assertEquals(FlatMatrixKernels.multiply(copy, other), FlatMatrixKernels.multiply(view, other));
+  }
+
+  public void testTranspose() {
+    final FlatDoubleMatrix2D flatA = new FlatDoubleMatrix2D(A);
+    assertEquals(OG.getTranspose(A), FlatMatrixKernels.transpose(flatA).toDoubleMatrix2D());
+    checkEquals(OG.matrixTransposeMultiplyMatrix(A), FLAT.matrixTransposeMultiplyMatrix(A));
+    final DoubleMatrix2D d = random(150, 30);
+    checkEquals(OG.multiply(OG.getTranspose(A), d), FlatMatrixKernels.transposeMultiply(flatA, new FlatDoubleMatrix2D(d)).toDoubleMatrix2D());
+  }
+
+  public void testInverseAndDeterminant() {
+    checkEquals(COMMONS.getInverse(C), FLAT.getInverse(C));
+    final double determinant = COMMONS.getDeterminant(C);
+    assertEquals(determinant, FLAT.getDeterminant(C), Math.abs(determinant) * EPS);
+  }
+
+  private void checkEquals(final Matrix<?> x, final Matrix<?> y) {
+    if (x instanceof DoubleMatrix1D) {
+      final double[] a = ((DoubleMatrix1D) x).getData();
+      final double[] b = ((DoubleMatrix1D) y).getData();
+      assertEquals(a.length, b.length);
+      for (int i = 0; i < a.length; i++) {
+        assertEquals(a[i], b[i], EPS);
+      }
+      return;
+    }
+    final DoubleMatrix2D a = (DoubleMatrix2D) x;
+    final DoubleMatrix2D b = (DoubleMatrix2D) y;
+    assertEquals(a.getNumberOfRows(), b.getNumberOfRows());
+    assertEquals(a.getNumberOfColumns(), b.getNumberOfColumns());
+    for (int i = 0; i < a.getNumberOfRows(); i++) {
+      for (int j = 0; j < a.getNumberOfColumns(); j++) {
+        assertEquals(a.getEntry(i, j), b.getEntry(i, j), EPS);
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.calcnode.CalculationJob;
+import com.opengamma.engine.calcnode.CalculationJobItem;
+import com.opengamma.engine.calcnode.CalculationJobResult;
+import com.opengamma.engine.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.test.TestCalculationNode;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Measures the execution of a job on a local calculation node.
+ * <p>
+ * The job contains every node of the {@link SyntheticView} graph in dependency order - the curves first and then the chain of values for each
+ * trade - so the figure includes the target resolution, input fetching, function invocation and result writing overheads for each item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CalculationNodeBenchmark {
+
+  @Param({"1000" })
+  private int _trades;
+
+  @Param({"4" })
+  private int _depth;
+
+  private TestCalculationNode _node;
+  private CalculationJob _job;
+
+  private static ValueSpecification valueSpec(final String valueName, final ComputationTargetSpecification target, final SyntheticFunction function) {
+    return new ValueSpecification(valueName, target, ValueProperties.with(ValuePropertyNames.FUNCTION, function.getUniqueId()).get());
+  }
+
+  @Setup
+  public void setup() {
+    final SyntheticView view = new SyntheticView(_trades, Math.max(1, _trades / 100), _depth);
+    _node = new TestCalculationNode();
+    final InMemoryFunctionRepository functions = (InMemoryFunctionRepository) _node.getFunctionCompilationService().getFunctionRepositoryFactory()
+        .constructRepository(Instant.now());
+    view.addFunctions(functions);
+    _node.getFunctionCompilationService().initialize();
+    final List<SyntheticFunction> chain = view.getFunctions();
+    final SyntheticFunction curveFunction = chain.get(0);
+    final List<CalculationJobItem> items = new ArrayList<CalculationJobItem>(view.getCurveCount() + view.getTradeCount() * view.getDepth());
+    for (int i = 0; i < view.getCurveCount(); i++) {
+      items.add(new CalculationJobItem(curveFunction.getUniqueId(), EmptyFunctionParameters.INSTANCE, view.getCurve(i), Collections.<ValueSpecification>emptySet(),
+          Collections.singleton(valueSpec(SyntheticView.CURVE_VALUE, view.getCurve(i), curveFunction)), ExecutionLogMode.INDICATORS));
+    }
+    for (int i = 0; i < view.getTradeCount(); i++) {
+      final ComputationTargetSpecification trade = view.getTrade(i);
+      Set<ValueSpecification> inputs = Collections.singleton(valueSpec(SyntheticView.CURVE_VALUE, view.getCurve(trade), curveFunction));
+      for (int level = 0; level < view.getDepth(); level++) {
+        final SyntheticFunction function = chain.get(level + 1);
+        final ValueSpecification output = valueSpec(SyntheticView.getValueName(level), trade, function);
+        items.add(new CalculationJobItem(function.getUniqueId(), EmptyFunctionParameters.INSTANCE, trade, inputs, Collections.singleton(output),
+            ExecutionLogMode.INDICATORS));
+        inputs = Collections.singleton(output);
+      }
+    }
+    final CalculationJobSpecification jobSpec = new CalculationJobSpecification(UniqueId.of("Benchmark", "ViewCycle"), SyntheticView.CALC_CONFIG, Instant.now(), 1L);
+    _job = new CalculationJob(jobSpec, 0L, VersionCorrection.LATEST, null, items, CacheSelectHint.allShared());
+  }
+
+  @TearDown
+  public void tearDown() {
+    _node.stop();
+  }
+
+  @Benchmark
+  public CalculationJobResult executeJob() {
+    return _node.executeJob(_job);
+  }
+
+}
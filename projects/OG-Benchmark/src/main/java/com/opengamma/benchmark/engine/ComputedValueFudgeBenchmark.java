@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Measures the Fudge encoding and decoding of a {@link ComputedValue}, as used when results are passed between processes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ComputedValueFudgeBenchmark {
+
+  private FudgeContext _fudgeContext;
+  private ComputedValue _value;
+  private FudgeMsg _message;
+  private byte[] _bytes;
+
+  @Setup
+  public void setup() {
+    _fudgeContext = OpenGammaFudgeContext.getInstance();
+    final ValueSpecification specification = new ValueSpecification("PresentValue", ComputationTargetSpecification.of(UniqueId.of(SyntheticView.TRADE_SCHEME, "1")),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "Benchmark").with(ValuePropertyNames.CURRENCY, "USD").with(ValuePropertyNames.CURVE, "Discounting").get());
+    _value = new ComputedValue(specification, 42d);
+    _message = _fudgeContext.toFudgeMsg(_value).getMessage();
+    _bytes = _fudgeContext.toByteArray(_message);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return _fudgeContext.toByteArray(_fudgeContext.toFudgeMsg(_value).getMessage());
+  }
+
+  @Benchmark
+  public ComputedValue decode() {
+    return _fudgeContext.fromFudgeMsg(ComputedValue.class, _fudgeContext.deserialize(_bytes).getMessage());
+  }
+
+  @Benchmark
+  public ComputedValue decodeMessage() {
+    return _fudgeContext.fromFudgeMsg(ComputedValue.class, _message);
+  }
+
+}
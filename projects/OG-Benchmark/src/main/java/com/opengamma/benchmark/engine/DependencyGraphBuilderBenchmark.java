@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.value.ValueRequirement;
+
+/**
+ * Measures the time taken by {@link DependencyGraphBuilder} to build the graph for a {@link SyntheticView}.
+ * <p>
+ * The function resolver is compiled once per trial; each invocation builds the complete graph from a new builder, as the view compiler does for each
+ * calculation configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DependencyGraphBuilderBenchmark {
+
+  @Param({"1000", "10000" })
+  private int _trades;
+
+  @Param({"4" })
+  private int _depth;
+
+  @Param({"0", "4" })
+  private int _additionalThreads;
+
+  private SyntheticView _view;
+  private FunctionCompilationContext _context;
+  private CompiledFunctionResolver _resolver;
+  private List<ValueRequirement> _requirements;
+
+  @Setup
+  public void setup() {
+    final Instant now = Instant.now();
+    _view = new SyntheticView(_trades, Math.max(1, _trades / 100), _depth);
+    _context = _view.createCompilationContext(now);
+    _resolver = _view.createFunctionResolver(_context, now);
+    _requirements = _view.getTerminalRequirements();
+  }
+
+  @Benchmark
+  public DependencyGraph buildGraph() {
+    final DependencyGraphBuilder builder = _view.createBuilder(_resolver, _context);
+    builder.setMaxAdditionalThreads(_additionalThreads);
+    builder.addTarget(_requirements);
+    return builder.getDependencyGraph();
+  }
+
+}
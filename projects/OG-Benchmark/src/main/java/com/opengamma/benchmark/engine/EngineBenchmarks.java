@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.opengamma.util.VersionUtils;
+
+/**
+ * Runs the engine benchmarks with a fixed configuration, writing the results as JSON so that runs against different releases can be compared.
+ * <p>
+ * The optional first argument is the name of the result file; it defaults to {@code og-benchmark-<version>.json}. The optional second argument is a
+ * regular expression selecting the benchmarks to run. Any other JMH options can be given by running {@code org.openjdk.jmh.Main} from the same jar.
+ */
+public final class EngineBenchmarks {
+
+  /**
+   * Restricted constructor.
+   */
+  private EngineBenchmarks() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the result file name and benchmark pattern, both optional
+   * @throws RunnerException if the benchmarks fail
+   */
+  public static void main(final String[] args) throws RunnerException {
+    String version = VersionUtils.deriveVersion();
+    if (version == null) {
+      version = VersionUtils.getVersion("og-benchmark");
+    }
+    final String resultFile = (args.length > 0) ? args[0] : "og-benchmark-" + version + ".json";
+    final String include = (args.length > 1) ? args[1] : EngineBenchmarks.class.getPackage().getName() + ".*Benchmark";
+    final Options options = new OptionsBuilder()
+        .include(include)
+        .forks(2)
+        .warmupIterations(5)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(10)
+        .measurementTime(TimeValue.seconds(1))
+        .timeout(TimeValue.minutes(10))
+        .jvmArgsAppend("-Xmx2g")
+        .resultFormat(ResultFormatType.JSON)
+        .result(resultFile)
+        .build();
+    new Runner(options).run();
+  }
+
+}
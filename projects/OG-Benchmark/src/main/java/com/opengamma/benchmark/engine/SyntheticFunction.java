@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.function.AbstractFunction;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * A function for the synthetic views used by the benchmarks.
+ * <p>
+ * Each instance applies to the primitive targets of one identifier scheme, producing a single {@code double} value. It may require one value from
+ * the same target and one value from a shared target, selected by the hash of the target identifier, so that the graphs built from these functions
+ * have both per-target chains and nodes shared between many targets, as a real view on a portfolio would.
+ */
+public class SyntheticFunction extends AbstractFunction.NonCompiledInvoker {
+
+  private final String _scheme;
+  private final String _valueName;
+  private final String _inputValueName;
+  private final String _sharedScheme;
+  private final String _sharedValueName;
+  private final int _sharedCount;
+
+  /**
+   * Creates a function with no inputs.
+   *
+   * @param scheme the scheme of the target identifiers the function applies to
+   * @param valueName the value produced
+   */
+  public SyntheticFunction(final String scheme, final String valueName) {
+    this(scheme, valueName, null, null, null, 0);
+  }
+
+  /**
+   * Creates a function.
+   *
+   * @param scheme the scheme of the target identifiers the function applies to
+   * @param valueName the value produced
+   * @param inputValueName the value required from the same target, or null for none
+   * @param sharedScheme the scheme of the shared target identifiers, or null for none
+   * @param sharedValueName the value required from a shared target, or null for none
+   * @param sharedCount the number of shared targets
+   */
+  public SyntheticFunction(final String scheme, final String valueName, final String inputValueName, final String sharedScheme, final String sharedValueName,
+      final int sharedCount) {
+    _scheme = scheme;
+    _valueName = valueName;
+    _inputValueName = inputValueName;
+    _sharedScheme = sharedScheme;
+    _sharedValueName = sharedValueName;
+    _sharedCount = sharedCount;
+    setUniqueId(scheme + "/" + valueName);
+  }
+
+  /**
+   * Returns the shared target used by a target.
+   *
+   * @param target the target, not null
+   * @param sharedScheme the scheme of the shared targets, not null
+   * @param sharedCount the number of shared targets
+   * @return the shared target specification, not null
+   */
+  public static ComputationTargetSpecification getSharedTarget(final UniqueId target, final String sharedScheme, final int sharedCount) {
+    return ComputationTargetSpecification.of(UniqueId.of(sharedScheme, Integer.toString((target.getValue().hashCode() & Integer.MAX_VALUE) % sharedCount)));
+  }
+
+  @Override
+  public ComputationTargetType getTargetType() {
+    return ComputationTargetType.PRIMITIVE;
+  }
+
+  @Override
+  public boolean canApplyTo(final FunctionCompilationContext context, final ComputationTarget target) {
+    return _scheme.equals(target.getUniqueId().getScheme());
+  }
+
+  @Override
+  public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+    return Collections.singleton(new ValueSpecification(_valueName, target.toSpecification(), createValueProperties().get()));
+  }
+
+  @Override
+  public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+    final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+    if (_inputValueName != null) {
+      requirements.add(new ValueRequirement(_inputValueName, target.toSpecification()));
+    }
+    if (_sharedValueName != null) {
+      requirements.add(new ValueRequirement(_sharedValueName, getSharedTarget(target.getUniqueId(), _sharedScheme, _sharedCount)));
+    }
+    return requirements;
+  }
+
+  @Override
+  public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+      final Set<ValueRequirement> desiredValues) {
+    double value = 1;
+    for (ComputedValue input : inputs.getAllValues()) {
+      value += (Double) input.getValue();
+    }
+    final ValueRequirement desiredValue = desiredValues.iterator().next();
+    return Collections.singleton(new ComputedValue(new ValueSpecification(_valueName, target.toSpecification(), desiredValue.getConstraints()), value));
+  }
+
+}
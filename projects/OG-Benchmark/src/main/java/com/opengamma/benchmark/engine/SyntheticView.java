@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * A reproducible synthetic view for the benchmarks.
+ * <p>
+ * The view has a number of trade targets, each requiring a chain of values to the given depth, and a smaller number of curve targets shared between
+ * the trades. The first value in each trade's chain requires the curve for that trade. The shape of the view is fully determined by the three
+ * parameters, so results from different builds can be compared.
+ */
+public final class SyntheticView {
+
+  /**
+   * The identifier scheme of the trade targets.
+   */
+  public static final String TRADE_SCHEME = "Trade";
+  /**
+   * The identifier scheme of the shared curve targets.
+   */
+  public static final String CURVE_SCHEME = "Curve";
+  /**
+   * The value produced on the shared curve targets.
+   */
+  public static final String CURVE_VALUE = "Curve";
+  /**
+   * The calculation configuration name.
+   */
+  public static final String CALC_CONFIG = "Default";
+
+  private final int _trades;
+  private final int _curves;
+  private final int _depth;
+  private final List<SyntheticFunction> _functions;
+
+  /**
+   * Creates a view.
+   *
+   * @param trades the number of trade targets
+   * @param curves the number of shared curve targets
+   * @param depth the length of the chain of values on each trade, at least one
+   */
+  public SyntheticView(final int trades, final int curves, final int depth) {
+    _trades = trades;
+    _curves = curves;
+    _depth = depth;
+    final List<SyntheticFunction> functions = new ArrayList<SyntheticFunction>(depth + 1);
+    functions.add(new SyntheticFunction(CURVE_SCHEME, CURVE_VALUE));
+    functions.add(new SyntheticFunction(TRADE_SCHEME, getValueName(0), null, CURVE_SCHEME, CURVE_VALUE, curves));
+    for (int i = 1; i < depth; i++) {
+      functions.add(new SyntheticFunction(TRADE_SCHEME, getValueName(i), getValueName(i - 1), null, null, 0));
+    }
+    _functions = Collections.unmodifiableList(functions);
+  }
+
+  public static String getValueName(final int level) {
+    return "Value" + level;
+  }
+
+  public int getTradeCount() {
+    return _trades;
+  }
+
+  public int getCurveCount() {
+    return _curves;
+  }
+
+  public int getDepth() {
+    return _depth;
+  }
+
+  /**
+   * Returns the functions, with the function producing the curves first and then the functions for each level of the trade chains.
+   *
+   * @return the functions, not null
+   */
+  public List<SyntheticFunction> getFunctions() {
+    return _functions;
+  }
+
+  public ComputationTargetSpecification getTrade(final int index) {
+    return ComputationTargetSpecification.of(UniqueId.of(TRADE_SCHEME, Integer.toString(index)));
+  }
+
+  public ComputationTargetSpecification getCurve(final int index) {
+    return ComputationTargetSpecification.of(UniqueId.of(CURVE_SCHEME, Integer.toString(index)));
+  }
+
+  /**
+   * Returns the curve used by a trade.
+   *
+   * @param trade the trade target, not null
+   * @return the curve target, not null
+   */
+  public ComputationTargetSpecification getCurve(final ComputationTargetSpecification trade) {
+    return SyntheticFunction.getSharedTarget(trade.getUniqueId(), CURVE_SCHEME, _curves);
+  }
+
+  /**
+   * Returns the terminal requirements of the view - the last value in the chain of each trade.
+   *
+   * @return the requirements, not null
+   */
+  public List<ValueRequirement> getTerminalRequirements() {
+    final String valueName = getValueName(_depth - 1);
+    final List<ValueRequirement> requirements = new ArrayList<ValueRequirement>(_trades);
+    for (int i = 0; i < _trades; i++) {
+      requirements.add(new ValueRequirement(valueName, getTrade(i)));
+    }
+    return requirements;
+  }
+
+  /**
+   * Adds the functions to a repository.
+   *
+   * @param repository the repository to populate, not null
+   */
+  public void addFunctions(final InMemoryFunctionRepository repository) {
+    for (SyntheticFunction function : _functions) {
+      repository.addFunction(function);
+    }
+  }
+
+  /**
+   * Creates a function resolver for the view's functions.
+   *
+   * @param context the compilation context, as returned by {@link #createCompilationContext}
+   * @param now the resolution time, not null
+   * @return the resolver, not null
+   */
+  public CompiledFunctionResolver createFunctionResolver(final FunctionCompilationContext context, final Instant now) {
+    final InMemoryFunctionRepository repository = new InMemoryFunctionRepository();
+    addFunctions(repository);
+    final CompiledFunctionService compilationService = new CompiledFunctionService(repository, new CachingFunctionRepositoryCompiler(), context);
+    compilationService.initialize();
+    return new DefaultFunctionResolver(compilationService).compile(now);
+  }
+
+  /**
+   * Creates a compilation context for the view.
+   *
+   * @param now the resolution time, not null
+   * @return the context, not null
+   */
+  public FunctionCompilationContext createCompilationContext(final Instant now) {
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    final ComputationTargetResolver targetResolver = new MapComputationTargetResolver();
+    context.setRawComputationTargetResolver(targetResolver);
+    context.setComputationTargetResolver(targetResolver.atVersionCorrection(VersionCorrection.of(now, now)));
+    return context;
+  }
+
+  /**
+   * Creates a dependency graph builder for the view, with no targets added.
+   *
+   * @param resolver the function resolver, as returned by {@link #createFunctionResolver}
+   * @param context the compilation context, as returned by {@link #createCompilationContext}
+   * @return the builder, not null
+   */
+  public DependencyGraphBuilder createBuilder(final CompiledFunctionResolver resolver, final FunctionCompilationContext context) {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder();
+    builder.setMarketDataAvailabilityProvider(new FixedMarketDataAvailabilityProvider());
+    builder.setCompilationContext(context);
+    builder.setFunctionResolver(resolver);
+    builder.setCalculationConfigurationName(CALC_CONFIG);
+    return builder;
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+
+/**
+ * Measures the {@link ValueProperties} operations used during graph building: requirement matching, composition and hashing.
+ * <p>
+ * The specification properties resemble those of real functions - a function identifier, currency, curve and calculation method - and the
+ * constraints are a mix of exact values, wild-cards and optional properties. Each invocation processes a fixed array of pairs generated from a
+ * fixed seed. The operations are measured on both canonical ({@link ValueProperties#intern}) and non-canonical instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValuePropertiesBenchmark {
+
+  private static final int COUNT = 1024;
+
+  private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CHF" };
+  private static final String[] CURVES = {"Discounting", "Forward3M", "Forward6M", "OIS" };
+  private static final String[] METHODS = {"PresentValue", "ParRate", "Black", "SABR" };
+
+  @Param({"false", "true" })
+  private boolean _interned;
+
+  private ValueProperties[] _constraints;
+  private ValueProperties[] _properties;
+
+  private static String pick(final Random random, final String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(0L);
+    _constraints = new ValueProperties[COUNT];
+    _properties = new ValueProperties[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      final String currency = pick(random, CURRENCIES);
+      final String curve = pick(random, CURVES);
+      final String method = pick(random, METHODS);
+      _properties[i] = ValueProperties.with(ValuePropertyNames.FUNCTION, "Function" + random.nextInt(64)).with(ValuePropertyNames.CURRENCY, currency)
+          .with(ValuePropertyNames.CURVE, curve).with(ValuePropertyNames.CALCULATION_METHOD, method).get();
+      final ValueProperties.Builder constraints = ValueProperties.with(ValuePropertyNames.CURRENCY, random.nextBoolean() ? currency : pick(random, CURRENCIES));
+      switch (random.nextInt(3)) {
+        case 0:
+          constraints.with(ValuePropertyNames.CURVE, curve);
+          break;
+        case 1:
+          constraints.withAny(ValuePropertyNames.CURVE);
+          break;
+        default:
+          constraints.with(ValuePropertyNames.CURVE, curve).withOptional(ValuePropertyNames.CURVE);
+          break;
+      }
+      if (random.nextBoolean()) {
+        constraints.with(ValuePropertyNames.CALCULATION_METHOD, method, pick(random, METHODS));
+      }
+      _constraints[i] = constraints.get();
+      if (_interned) {
+        _constraints[i] = _constraints[i].intern();
+        _properties[i] = _properties[i].intern();
+      }
+    }
+  }
+
+  @Benchmark
+  public int isSatisfiedBy() {
+    int count = 0;
+    for (int i = 0; i < COUNT; i++) {
+      if (_constraints[i].isSatisfiedBy(_properties[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public void compose(final Blackhole blackhole) {
+    for (int i = 0; i < COUNT; i++) {
+      blackhole.consume(_properties[i].compose(_constraints[i]));
+    }
+  }
+
+  @Benchmark
+  public int hashCodeAndEquals() {
+    int count = 0;
+    for (int i = 0; i < COUNT; i++) {
+      final ValueProperties copy = _properties[i].copy().get();
+      if ((copy.hashCode() == _properties[i].hashCode()) && copy.equals(_properties[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.benchmark.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.cache.DefaultFudgeMessageStore;
+import com.opengamma.engine.cache.DefaultViewComputationCache;
+import com.opengamma.engine.cache.InMemoryBinaryDataStore;
+import com.opengamma.engine.cache.InMemoryIdentifierMap;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Measures bulk reads and writes of {@code double} values through a {@link DefaultViewComputationCache}.
+ * <p>
+ * The cache is backed by the in-memory identifier map and binary data stores so that the figures reflect the identifier lookup and Fudge
+ * encoding costs rather than any network or disk latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewComputationCacheBenchmark {
+
+  @Param({"100", "10000" })
+  private int _values;
+
+  private DefaultViewComputationCache _cache;
+  private List<ComputedValue> _computedValues;
+  private List<ValueSpecification> _specifications;
+
+  @Setup
+  public void setup() {
+    final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    _cache = new DefaultViewComputationCache(new InMemoryIdentifierMap(), new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), fudgeContext),
+        new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(), fudgeContext), fudgeContext);
+    final SyntheticView view = new SyntheticView(_values, 1, 1);
+    final ValueProperties properties = ValueProperties.with(ValuePropertyNames.FUNCTION, "Benchmark").get();
+    _computedValues = new ArrayList<ComputedValue>(_values);
+    _specifications = new ArrayList<ValueSpecification>(_values);
+    for (int i = 0; i < _values; i++) {
+      final ValueSpecification specification = new ValueSpecification(SyntheticView.getValueName(0), view.getTrade(i), properties);
+      _specifications.add(specification);
+      _computedValues.add(new ComputedValue(specification, (double) i));
+    }
+    // Populate the cache so that the identifiers are allocated and the reads find values
+    _cache.putValues(_computedValues, CacheSelectHint.allShared());
+  }
+
+  @Benchmark
+  public void putValues() {
+    _cache.putValues(_computedValues, CacheSelectHint.allShared());
+  }
+
+  @Benchmark
+  public Collection<Pair<ValueSpecification, Object>> getValues() {
+    return _cache.getValues(_specifications, CacheSelectHint.allShared());
+  }
+
+}
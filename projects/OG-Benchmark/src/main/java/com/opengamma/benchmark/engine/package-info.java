@@ -0,0 +1,11 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+/**
+ * JMH microbenchmarks of the calculation engine hot paths: graph building, value property matching, the value cache, job execution and Fudge
+ * encoding of results.
+ */
+package com.opengamma.benchmark.engine;
@@ -28,6 +28,7 @@ import com.opengamma.livedata.cogda.server.CogdaLiveDataServer;
 import com.opengamma.livedata.cogda.server.CogdaLiveDataServerMBean;
 import com.opengamma.livedata.cogda.server.CogdaLiveDataServerUpdateListener;
 import com.opengamma.livedata.server.LastKnownValueStoreProvider;
+import com.opengamma.livedata.server.RedisLastKnownValueStoreProvider;
 import com.opengamma.transport.ByteArrayFudgeMessageReceiver;
 import com.opengamma.transport.jms.JmsByteArrayMessageDispatcher;
 import com.opengamma.util.jms.JmsConnector;
@@ -87,6 +88,9 @@ public class CogdaLiveDataServerFactory extends AbstractComponentFactory {
     
     repo.registerLifecycle(liveDataServer);
     repo.registerLifecycle(container);
+    if (lkvStoreProvider instanceof RedisLastKnownValueStoreProvider) {
+      repo.registerLifecycleStop(lkvStoreProvider, "close");
+    }
     repo.registerMBean(mbean);
   }
 
@@ -33,8 +33,6 @@ public final class MemoryUtils {
     }
   };
 
-  private static final WeakInstanceCache<ValueProperties> s_valueProperties = new WeakInstanceCache<ValueProperties>();
-
   private static final WeakInstanceCache<ValueRequirement> s_valueRequirement = new NormalizingWeakInstanceCache<ValueRequirement>() {
     @Override
     protected ValueRequirement normalize(final ValueRequirement valueRequirement) {
@@ -70,7 +68,7 @@ public final class MemoryUtils {
   }
 
   public static ValueProperties instance(final ValueProperties valueProperties) {
-    return s_valueProperties.get(valueProperties);
+    return valueProperties.intern();
   }
 
   public static ValueRequirement instance(final ValueRequirement valueRequirement) {
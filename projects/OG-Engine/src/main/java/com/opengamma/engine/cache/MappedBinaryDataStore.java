@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link BinaryDataStore} which holds all data off-heap in memory-mapped, append-only segment files.
+ * <p>
+ * Values are appended to the current segment and an index of identifier to segment position is kept on a primitive map so that no boxed
+ * keys are retained per entry. A value that is re-written is appended again and the index updated; the previous bytes are not reclaimed
+ * until the store is deleted, at which point whole segments are released and their files removed. This matches the lifetime of a view
+ * cycle's cache where values are written once and then read many times by other nodes.
+ * <p>
+ * This class is internally synchronized. Writers reserve space under a short exclusive lock and copy their data into the segment outside
+ * of it; the index entry is only published once the copy has completed so readers never observe a partially written value. Readers
+ * only take the shared index lock, finding segments through an array that is replaced whenever a segment is added. Deleting the store
+ * takes the exclusive index lock, so no reader or writer is using a segment when it is unmapped.
+ */
+public class MappedBinaryDataStore extends AbstractBinaryDataStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MappedBinaryDataStore.class);
+
+  /**
+   * The default segment size, 64Mb.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Number of bytes used to record the length of each value.
+   */
+  private static final int HEADER_SIZE = 4;
+
+  /**
+   * Index value for a missing identifier.
+   */
+  private static final long NOT_FOUND = -1L;
+
+  private final File _directory;
+  private final int _segmentSize;
+  private final List<Segment> _segments = new ArrayList<Segment>();
+  /**
+   * The segments for readers, replaced under the allocation lock whenever a segment is added.
+   */
+  private volatile Segment[] _segmentArray = new Segment[0];
+  private final Long2LongOpenHashMap _index = new Long2LongOpenHashMap();
+  private final ReadWriteLock _indexLock = new ReentrantReadWriteLock();
+  private final Object _allocationLock = new Object();
+  private Segment _current;
+  private int _currentIndex;
+  private volatile boolean _deleted;
+
+  /**
+   * A single memory-mapped segment file.
+   */
+  private static final class Segment {
+
+    private final File _file;
+    private final RandomAccessFile _raf;
+    private final MappedByteBuffer _buffer;
+    private int _writePosition;
+
+    private Segment(final File file, final int size) throws IOException {
+      _file = file;
+      _raf = new RandomAccessFile(file, "rw");
+      _raf.setLength(size);
+      _buffer = _raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private int remaining() {
+      return _buffer.capacity() - _writePosition;
+    }
+
+    private void write(final int offset, final byte[] data) {
+      final ByteBuffer buffer = _buffer.duplicate();
+      buffer.position(offset);
+      buffer.putInt(data.length);
+      buffer.put(data);
+    }
+
+    private byte[] read(final int offset) {
+      final ByteBuffer buffer = _buffer.duplicate();
+      buffer.position(offset);
+      final byte[] data = new byte[buffer.getInt()];
+      buffer.get(data);
+      return data;
+    }
+
+    private void release() {
+      unmap(_buffer);
+      try {
+        _raf.close();
+      } catch (IOException e) {
+        s_logger.warn("Couldn't close segment {} - {}", _file, e.getMessage());
+      }
+      if (!_file.delete()) {
+        s_logger.warn("Couldn't delete segment {}", _file);
+      }
+    }
+
+  }
+
+  /**
+   * Releases the mapping of a buffer immediately rather than when it is garbage collected. This uses the buffer's cleaner where the
+   * JVM provides one; otherwise the mapping is left for the garbage collector.
+   *
+   * @param buffer the buffer, not used afterwards
+   */
+  private static void unmap(final MappedByteBuffer buffer) {
+    try {
+      final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      final Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        final Method cleanMethod = cleaner.getClass().getMethod("clean");
+        cleanMethod.setAccessible(true);
+        cleanMethod.invoke(cleaner);
+      }
+    } catch (Exception e) {
+      s_logger.debug("Couldn't unmap segment buffer - {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Creates a new store, writing segment files to the given directory.
+   *
+   * @param directory the directory to hold the segment files, created if it does not exist, not null
+   * @param segmentSize the size of each segment file in bytes
+   */
+  public MappedBinaryDataStore(final File directory, final int segmentSize) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.isTrue(segmentSize > HEADER_SIZE, "segmentSize");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create data store directory " + directory);
+    }
+    _directory = directory;
+    _segmentSize = segmentSize;
+    _index.defaultReturnValue(NOT_FOUND);
+  }
+
+  /**
+   * Creates a new store, writing segment files of the default size to the given directory.
+   *
+   * @param directory the directory to hold the segment files, created if it does not exist, not null
+   */
+  public MappedBinaryDataStore(final File directory) {
+    this(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  /**
+   * Returns the number of segment files currently allocated.
+   *
+   * @return the number of segments
+   */
+  public int getSegmentCount() {
+    synchronized (_allocationLock) {
+      return _segments.size();
+    }
+  }
+
+  private static long position(final int segment, final int offset) {
+    return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static int segment(final long position) {
+    return (int) (position >>> 32);
+  }
+
+  private static int offset(final long position) {
+    return (int) position;
+  }
+
+  private Segment createSegment(final int size) {
+    final File file = new File(_directory, "segment-" + _segments.size() + ".dat");
+    try {
+      final Segment segment = new Segment(file, size);
+      _segments.add(segment);
+      _segmentArray = _segments.toArray(new Segment[_segments.size()]);
+      return segment;
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't create segment " + file, e);
+    }
+  }
+
+  /**
+   * Reserves space for a number of bytes, returning the segment and offset encoded as a position. The caller must hold the allocation
+   * lock.
+   *
+   * @param length the number of bytes, including headers, to reserve
+   * @return the encoded position
+   */
+  private long allocate(final int length) {
+    if (_deleted) {
+      throw new IllegalStateException("Data store has been deleted");
+    }
+    if ((_current == null) || (_current.remaining() < length)) {
+      if (length > _segmentSize) {
+        // Oversized value gets a segment of its own; the current segment remains available for subsequent writes
+        final Segment segment = createSegment(length);
+        segment._writePosition = length;
+        return position(_segments.size() - 1, 0);
+      }
+      _current = createSegment(_segmentSize);
+      _currentIndex = _segments.size() - 1;
+    }
+    final int offset = _current._writePosition;
+    _current._writePosition += length;
+    return position(_currentIndex, offset);
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    final Lock lock = _indexLock.readLock();
+    lock.lock();
+    try {
+      final long position = _index.get(identifier);
+      if (position == NOT_FOUND) {
+        return null;
+      }
+      return _segmentArray[segment(position)].read(offset(position));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>(identifiers.size());
+    final Lock lock = _indexLock.readLock();
+    lock.lock();
+    try {
+      final Segment[] segments = _segmentArray;
+      for (Long identifier : identifiers) {
+        final long position = _index.get(identifier.longValue());
+        if (position != NOT_FOUND) {
+          result.put(identifier, segments[segment(position)].read(offset(position)));
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    final long position;
+    final Segment segment;
+    synchronized (_allocationLock) {
+      position = allocate(HEADER_SIZE + data.length);
+      segment = _segments.get(segment(position));
+    }
+    Lock lock = _indexLock.readLock();
+    lock.lock();
+    try {
+      if (_deleted) {
+        throw new IllegalStateException("Data store has been deleted");
+      }
+      segment.write(offset(position), data);
+    } finally {
+      lock.unlock();
+    }
+    lock = _indexLock.writeLock();
+    lock.lock();
+    try {
+      if (!_deleted) {
+        _index.put(identifier, position);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    final int count = data.size();
+    final long[] keys = new long[count];
+    final long[] positions = new long[count];
+    final byte[][] values = new byte[count][];
+    int i = 0;
+    for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+      keys[i] = entry.getKey();
+      values[i++] = entry.getValue();
+    }
+    final Segment[] segments;
+    synchronized (_allocationLock) {
+      for (i = 0; i < count; i++) {
+        positions[i] = allocate(HEADER_SIZE + values[i].length);
+      }
+      segments = _segmentArray;
+    }
+    Lock lock = _indexLock.readLock();
+    lock.lock();
+    try {
+      if (_deleted) {
+        throw new IllegalStateException("Data store has been deleted");
+      }
+      for (i = 0; i < count; i++) {
+        segments[segment(positions[i])].write(offset(positions[i]), values[i]);
+      }
+    } finally {
+      lock.unlock();
+    }
+    lock = _indexLock.writeLock();
+    lock.lock();
+    try {
+      if (!_deleted) {
+        for (i = 0; i < count; i++) {
+          _index.put(keys[i], positions[i]);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void delete() {
+    // holding the exclusive index lock means no reader or writer is copying to or from a segment as it is unmapped
+    final Lock lock = _indexLock.writeLock();
+    lock.lock();
+    try {
+      _index.clear();
+      _index.trim();
+      synchronized (_allocationLock) {
+        _deleted = true;
+        for (Segment segment : _segments) {
+          segment.release();
+        }
+        _segments.clear();
+        _segmentArray = new Segment[0];
+        _current = null;
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (!_directory.delete()) {
+      s_logger.debug("Couldn't remove data store directory {}", _directory);
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link MappedBinaryDataStore} instances, each in its own folder beneath a common base folder.
+ */
+public class MappedBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  private final File _baseFolder;
+  private final int _segmentSize;
+  private final AtomicLong _nextStore = new AtomicLong();
+
+  public MappedBinaryDataStoreFactory(final File baseFolder) {
+    this(baseFolder, MappedBinaryDataStore.DEFAULT_SEGMENT_SIZE);
+  }
+
+  public MappedBinaryDataStoreFactory(final File baseFolder, final int segmentSize) {
+    ArgumentChecker.notNull(baseFolder, "baseFolder");
+    _baseFolder = baseFolder;
+    _segmentSize = segmentSize;
+  }
+
+  public File getBaseFolder() {
+    return _baseFolder;
+  }
+
+  public int getSegmentSize() {
+    return _segmentSize;
+  }
+
+  private static String escape(final String name) {
+    final StringBuilder sb = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if (Character.isLetterOrDigit(c) || (c == '-') || (c == '.')) {
+        sb.append(c);
+      } else {
+        sb.append('_');
+      }
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    // The counter keeps folders distinct even if two keys escape to the same name
+    final String folderName = escape(cacheKey.getViewCycleId() + "-" + cacheKey.getCalculationConfigurationName()) + "-" + _nextStore.getAndIncrement();
+    return new MappedBinaryDataStore(new File(_baseFolder, folderName), _segmentSize);
+  }
+
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link IdentifierMap} backed by striped, open-addressing hash tables with lock-free lookups.
+ * <p>
+ * Each stripe holds a linear probing table of specification to {@code long} identifier. Lookups read the published table without locking;
+ * a miss takes the stripe lock to allocate and insert a new identifier, and a full table is replaced by a larger copy rather than modified
+ * in place so that concurrent readers always see a consistent table. Identifiers are allocated densely from one, which allows the reverse
+ * index to be a chunked array indexed directly by identifier.
+ * <p>
+ * Like {@link InMemoryIdentifierMap} this has no facilities for persistence, but is suitable for production use on a calculation node or
+ * as the local tier of a {@link CachingIdentifierMap}.
+ */
+public class StripedIdentifierMap extends AbstractIdentifierMap implements IdentifierMap {
+
+  /**
+   * The default number of stripes.
+   */
+  public static final int DEFAULT_STRIPES = 64;
+
+  private static final int INITIAL_TABLE_SIZE = 64;
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final long NOT_FOUND = -1L;
+
+  /**
+   * An open-addressing table. Once published, a table is only modified by writing a previously empty slot: the identifier is written
+   * before the key so that a reader observing the key will also observe the identifier.
+   */
+  private static final class Table {
+
+    private final AtomicReferenceArray<ValueSpecification> _keys;
+    private final long[] _identifiers;
+    private final int _mask;
+    private int _size;
+
+    private Table(final int size) {
+      _keys = new AtomicReferenceArray<ValueSpecification>(size);
+      _identifiers = new long[size];
+      _mask = size - 1;
+    }
+
+    private long find(final ValueSpecification spec, final int hash) {
+      int index = (hash ^ (hash >>> 16)) & _mask;
+      ValueSpecification key;
+      while ((key = _keys.get(index)) != null) {
+        if ((key == spec) || key.equals(spec)) {
+          return _identifiers[index];
+        }
+        index = (index + 1) & _mask;
+      }
+      return NOT_FOUND;
+    }
+
+    private void insert(final ValueSpecification spec, final int hash, final long identifier) {
+      int index = (hash ^ (hash >>> 16)) & _mask;
+      while (_keys.get(index) != null) {
+        index = (index + 1) & _mask;
+      }
+      _identifiers[index] = identifier;
+      _keys.set(index, spec);
+      _size++;
+    }
+
+    private boolean isFull() {
+      // Keep the load factor at or below one half so probe sequences stay short
+      return (_size << 1) >= _mask;
+    }
+
+  }
+
+  /**
+   * A stripe of the forward index. Writers synchronize on the stripe; readers use the volatile table reference.
+   */
+  private static final class Stripe {
+
+    private volatile Table _table = new Table(INITIAL_TABLE_SIZE);
+
+  }
+
+  private final Stripe[] _stripes;
+  private final int _stripeShift;
+  private final AtomicLong _nextIdentifier = new AtomicLong(1L);
+  private volatile AtomicReferenceArray<ValueSpecification>[] _chunks;
+  private final Object _chunkLock = new Object();
+
+  /**
+   * Creates a new identifier map with the default number of stripes.
+   */
+  public StripedIdentifierMap() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * Creates a new identifier map.
+   *
+   * @param stripes the number of stripes, rounded up to a power of two, must be positive
+   */
+  @SuppressWarnings("unchecked")
+  public StripedIdentifierMap(final int stripes) {
+    ArgumentChecker.isTrue(stripes > 0, "stripes");
+    int count = 1;
+    int bits = 0;
+    while (count < stripes) {
+      count <<= 1;
+      bits++;
+    }
+    _stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      _stripes[i] = new Stripe();
+    }
+    _stripeShift = 32 - bits;
+    _chunks = new AtomicReferenceArray[16];
+  }
+
+  private static int hash(final ValueSpecification spec) {
+    // Fibonacci hashing spreads the specification hash so that the high bits select the stripe and the low bits the slot
+    return spec.hashCode() * 0x9E3779B9;
+  }
+
+  private Stripe stripe(final int hash) {
+    return (_stripeShift == 32) ? _stripes[0] : _stripes[hash >>> _stripeShift];
+  }
+
+  private void setValueSpecification(final long identifier, final ValueSpecification spec) {
+    final int chunk = (int) (identifier >>> CHUNK_SHIFT);
+    AtomicReferenceArray<ValueSpecification>[] chunks = _chunks;
+    if ((chunk >= chunks.length) || (chunks[chunk] == null)) {
+      synchronized (_chunkLock) {
+        chunks = _chunks;
+        if (chunk >= chunks.length) {
+          int length = chunks.length;
+          while (chunk >= length) {
+            length <<= 1;
+          }
+          @SuppressWarnings("unchecked")
+          final AtomicReferenceArray<ValueSpecification>[] newChunks = new AtomicReferenceArray[length];
+          System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+          chunks = newChunks;
+        }
+        if (chunks[chunk] == null) {
+          chunks[chunk] = new AtomicReferenceArray<ValueSpecification>(CHUNK_SIZE);
+        }
+        _chunks = chunks;
+      }
+    }
+    chunks[chunk].set((int) identifier & CHUNK_MASK, spec);
+  }
+
+  private long allocate(final Stripe stripe, final ValueSpecification spec, final int hash) {
+    synchronized (stripe) {
+      Table table = stripe._table;
+      long identifier = table.find(spec, hash);
+      if (identifier != NOT_FOUND) {
+        // Another thread allocated it after our lock-free lookup
+        return identifier;
+      }
+      if (table.isFull()) {
+        final Table newTable = new Table((table._mask + 1) << 1);
+        for (int i = 0; i <= table._mask; i++) {
+          final ValueSpecification key = table._keys.get(i);
+          if (key != null) {
+            newTable.insert(key, hash(key), table._identifiers[i]);
+          }
+        }
+        stripe._table = newTable;
+        table = newTable;
+      }
+      identifier = _nextIdentifier.getAndIncrement();
+      // Publish the reverse mapping first so that anyone obtaining the identifier can resolve it
+      setValueSpecification(identifier, spec);
+      table.insert(spec, hash, identifier);
+      return identifier;
+    }
+  }
+
+  @Override
+  public long getIdentifier(final ValueSpecification spec) {
+    ArgumentChecker.notNull(spec, "spec");
+    final int hash = hash(spec);
+    final Stripe stripe = stripe(hash);
+    final long identifier = stripe._table.find(spec, hash);
+    if (identifier != NOT_FOUND) {
+      return identifier;
+    }
+    return allocate(stripe, spec, hash);
+  }
+
+  @Override
+  public Object2LongMap<ValueSpecification> getIdentifiers(final Collection<ValueSpecification> specs) {
+    final Object2LongMap<ValueSpecification> identifiers = new Object2LongOpenHashMap<ValueSpecification>(specs.size());
+    for (ValueSpecification spec : specs) {
+      identifiers.put(spec, getIdentifier(spec));
+    }
+    return identifiers;
+  }
+
+  @Override
+  public ValueSpecification getValueSpecification(final long identifier) {
+    if (identifier <= 0) {
+      return null;
+    }
+    final AtomicReferenceArray<ValueSpecification>[] chunks = _chunks;
+    final long chunk = identifier >>> CHUNK_SHIFT;
+    if (chunk >= chunks.length) {
+      return null;
+    }
+    final AtomicReferenceArray<ValueSpecification> specs = chunks[(int) chunk];
+    if (specs == null) {
+      return null;
+    }
+    return specs.get((int) identifier & CHUNK_MASK);
+  }
+
+  @Override
+  public Long2ObjectMap<ValueSpecification> getValueSpecifications(final LongCollection identifiers) {
+    final Long2ObjectMap<ValueSpecification> specifications = new Long2ObjectOpenHashMap<ValueSpecification>(identifiers.size());
+    final LongIterator itr = identifiers.iterator();
+    while (itr.hasNext()) {
+      final long identifier = itr.nextLong();
+      specifications.put(identifier, getValueSpecification(identifier));
+    }
+    return specifications;
+  }
+
+  /**
+   * Returns the number of identifiers allocated.
+   *
+   * @return the number of identifiers
+   */
+  public long size() {
+    return _nextIdentifier.get() - 1;
+  }
+
+}
@@ -0,0 +1,439 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.fudgemsg.CalculationJobSpecificationFudgeBuilder;
+import com.opengamma.engine.fudgemsg.ComputationTargetReferenceFudgeBuilder;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.view.ExecutionLog;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Compact binary encoding of {@link CalculationJob} and {@link CalculationJobResult} for the remote calculation node protocol.
+ * <p>
+ * The bulk of a job or result is the identifier arrays of the items, which the Fudge encoding writes as full 64-bit values in nested sub-messages. Here
+ * they are written as variable length deltas from the previous identifier in the array - identifiers are allocated sequentially so neighbouring values
+ * are usually close. Targets, function identifiers and parameters are written once per job and referenced by index from subsequent items. Objects that
+ * are rare or small (the job specification, targets, function parameters and non-empty execution logs) are embedded using their normal Fudge encoding
+ * so this codec does not need to track changes to them.
+ * <p>
+ * The jobs and results must have been converted to their identifier form (see
+ * {@link com.opengamma.engine.cache.AbstractIdentifierMap#convertIdentifiers}) before they are encoded.
+ */
+/* package */final class BinaryJobCodec {
+
+  /**
+   * The wire format identifier advertised by nodes which can accept this encoding.
+   */
+  public static final int WIRE_FORMAT = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String VERSION_CORRECTION_FIELD_NAME = "versionCorrection";
+  private static final String EXECUTION_LOG_FIELD_NAME = "executionLog";
+
+  private static final int MISSING_INPUTS_FLAG = 1;
+  private static final int MISSING_OUTPUTS_FLAG = 2;
+  private static final int EXECUTION_LOG_FLAG = 4;
+
+  private static final ExecutionLogMode[] LOG_MODES = ExecutionLogMode.values();
+
+  /**
+   * Growable output buffer.
+   */
+  private static final class Writer {
+
+    private byte[] _buffer = new byte[1024];
+    private int _length;
+
+    private void ensureCapacity(final int extra) {
+      if (_length + extra > _buffer.length) {
+        _buffer = Arrays.copyOf(_buffer, Math.max(_length + extra, _buffer.length << 1));
+      }
+    }
+
+    public void writeByte(final int value) {
+      ensureCapacity(1);
+      _buffer[_length++] = (byte) value;
+    }
+
+    public void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        _buffer[_length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_length++] = (byte) value;
+    }
+
+    public void writeVarInt(final int value) {
+      writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeSignedVarLong(final long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBytes(final byte[] value) {
+      writeVarInt(value.length);
+      ensureCapacity(value.length);
+      System.arraycopy(value, 0, _buffer, _length, value.length);
+      _length += value.length;
+    }
+
+    public void writeString(final String value) {
+      writeBytes(value.getBytes(UTF8));
+    }
+
+    public void writeIdentifiers(final long[] identifiers) {
+      writeVarInt(identifiers.length);
+      long previous = 0;
+      for (long identifier : identifiers) {
+        writeSignedVarLong(identifier - previous);
+        previous = identifier;
+      }
+    }
+
+    public void writeMessage(final FudgeContext context, final FudgeMsg msg) {
+      writeBytes(context.toByteArray(msg));
+    }
+
+    public byte[] toByteArray() {
+      return Arrays.copyOf(_buffer, _length);
+    }
+
+  }
+
+  /**
+   * Input buffer, reading directly from the encoded array.
+   */
+  private static final class Reader {
+
+    private final ByteBuffer _buffer;
+
+    public Reader(final byte[] data) {
+      _buffer = ByteBuffer.wrap(data);
+    }
+
+    public int readByte() {
+      return _buffer.get() & 0xFF;
+    }
+
+    public long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = _buffer.get();
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    public int readVarInt() {
+      return (int) readVarLong();
+    }
+
+    public long readSignedVarLong() {
+      final long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    public byte[] readBytes() {
+      final byte[] value = new byte[readVarInt()];
+      _buffer.get(value);
+      return value;
+    }
+
+    public String readString() {
+      final int length = readVarInt();
+      final String value = new String(_buffer.array(), _buffer.arrayOffset() + _buffer.position(), length, UTF8);
+      _buffer.position(_buffer.position() + length);
+      return value;
+    }
+
+    public long[] readIdentifiers() {
+      final long[] identifiers = new long[readVarInt()];
+      long previous = 0;
+      for (int i = 0; i < identifiers.length; i++) {
+        previous += readSignedVarLong();
+        identifiers[i] = previous;
+      }
+      return identifiers;
+    }
+
+    public FudgeMsg readMessage(final FudgeContext context) {
+      return context.deserialize(readBytes()).getMessage();
+    }
+
+    public boolean hasRemaining() {
+      return _buffer.hasRemaining();
+    }
+
+  }
+
+  private BinaryJobCodec() {
+  }
+
+  private static void checkFormat(final Reader reader) {
+    final int format = reader.readByte();
+    if (format != WIRE_FORMAT) {
+      throw new OpenGammaRuntimeException("Unsupported wire format " + format);
+    }
+  }
+
+  private static void checkComplete(final Reader reader) {
+    if (reader.hasRemaining()) {
+      throw new OpenGammaRuntimeException("Unexpected data after end of message");
+    }
+  }
+
+  /**
+   * Encodes a job. The job must be in identifier form.
+   *
+   * @param context the Fudge context for any embedded objects, not null
+   * @param job the job to encode, not null
+   * @return the encoded job, not null
+   */
+  public static byte[] encodeJob(final FudgeContext context, final CalculationJob job) {
+    final FudgeSerializer serializer = new FudgeSerializer(context);
+    final Writer writer = new Writer();
+    writer.writeByte(WIRE_FORMAT);
+    final MutableFudgeMsg header = serializer.newMessage();
+    CalculationJobSpecificationFudgeBuilder.buildMessageImpl(header, job.getSpecification());
+    serializer.addToMessage(header, VERSION_CORRECTION_FIELD_NAME, null, job.getResolverVersionCorrection());
+    writer.writeMessage(context, header);
+    writer.writeSignedVarLong(job.getFunctionInitializationIdentifier());
+    final CacheSelectHint cacheSelectHint = job.getCacheSelectHint();
+    writer.writeByte(cacheSelectHint.isPrivate() ? 1 : 0);
+    writer.writeIdentifiers(cacheSelectHint.getValueIdentifiers());
+    final long[] requiredJobIds = job.getRequiredJobIds();
+    if (requiredJobIds != null) {
+      writer.writeByte(1);
+      writer.writeIdentifiers(requiredJobIds);
+    } else {
+      writer.writeByte(0);
+    }
+    final List<CalculationJobItem> items = job.getJobItems();
+    final Map<ComputationTargetSpecification, Integer> targets = new HashMap<ComputationTargetSpecification, Integer>();
+    final Map<String, Integer> functions = new HashMap<String, Integer>();
+    final Map<FunctionParameters, Integer> parameters = new HashMap<FunctionParameters, Integer>();
+    writer.writeVarInt(items.size());
+    for (CalculationJobItem item : items) {
+      // Dictionary references; an index equal to the dictionary size introduces a new entry
+      final ComputationTargetSpecification target = item.getComputationTargetSpecification();
+      Integer index = targets.get(target);
+      if (index != null) {
+        writer.writeVarInt(index);
+      } else {
+        index = targets.size();
+        targets.put(target, index);
+        writer.writeVarInt(index);
+        final MutableFudgeMsg msg = serializer.newMessage();
+        ComputationTargetReferenceFudgeBuilder.buildMessageImpl(serializer, msg, target);
+        writer.writeMessage(context, msg);
+      }
+      final String function = item.getFunctionUniqueIdentifier();
+      index = functions.get(function);
+      if (index != null) {
+        writer.writeVarInt(index);
+      } else {
+        index = functions.size();
+        functions.put(function, index);
+        writer.writeVarInt(index);
+        writer.writeString(function);
+      }
+      // Parameter index zero is the empty parameters
+      final FunctionParameters parameter = item.getFunctionParameters();
+      if (parameter instanceof EmptyFunctionParameters) {
+        writer.writeVarInt(0);
+      } else {
+        index = parameters.get(parameter);
+        if (index != null) {
+          writer.writeVarInt(index + 1);
+        } else {
+          index = parameters.size();
+          parameters.put(parameter, index);
+          writer.writeVarInt(index + 1);
+          writer.writeMessage(context, FudgeSerializer.addClassHeader(serializer.objectToFudgeMsg(parameter), parameter.getClass(), FunctionParameters.class));
+        }
+      }
+      writer.writeIdentifiers(item.getInputIdentifiers());
+      writer.writeIdentifiers(item.getOutputIdentifiers());
+      writer.writeByte(item.getLogMode().ordinal());
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a job. The job will be in identifier form.
+   *
+   * @param context the Fudge context for any embedded objects, not null
+   * @param data the encoded job, not null
+   * @return the job, not null
+   */
+  public static CalculationJob decodeJob(final FudgeContext context, final byte[] data) {
+    final FudgeDeserializer deserializer = new FudgeDeserializer(context);
+    final Reader reader = new Reader(data);
+    try {
+      checkFormat(reader);
+      final FudgeMsg header = reader.readMessage(context);
+      final CalculationJobSpecification jobSpec = CalculationJobSpecificationFudgeBuilder.buildObjectImpl(header);
+      final VersionCorrection resolverVersionCorrection = deserializer.fieldValueToObject(VersionCorrection.class, header.getByName(VERSION_CORRECTION_FIELD_NAME));
+      final long functionInitializationIdentifier = reader.readSignedVarLong();
+      final boolean isPrivate = reader.readByte() != 0;
+      final CacheSelectHint cacheSelectHint = CacheSelectHint.create(reader.readIdentifiers(), isPrivate);
+      final long[] requiredJobIds = (reader.readByte() != 0) ? reader.readIdentifiers() : null;
+      final int count = reader.readVarInt();
+      final List<CalculationJobItem> items = new ArrayList<CalculationJobItem>(count);
+      final List<ComputationTargetSpecification> targets = new ArrayList<ComputationTargetSpecification>();
+      final List<String> functions = new ArrayList<String>();
+      final List<FunctionParameters> parameters = new ArrayList<FunctionParameters>();
+      for (int i = 0; i < count; i++) {
+        int index = reader.readVarInt();
+        final ComputationTargetSpecification target;
+        if (index < targets.size()) {
+          target = targets.get(index);
+        } else {
+          target = ComputationTargetReferenceFudgeBuilder.buildObjectImpl(deserializer, reader.readMessage(context)).getSpecification();
+          targets.add(target);
+        }
+        index = reader.readVarInt();
+        final String function;
+        if (index < functions.size()) {
+          function = functions.get(index);
+        } else {
+          function = reader.readString();
+          functions.add(function);
+        }
+        index = reader.readVarInt();
+        final FunctionParameters parameter;
+        if (index == 0) {
+          parameter = EmptyFunctionParameters.INSTANCE;
+        } else if (index <= parameters.size()) {
+          parameter = parameters.get(index - 1);
+        } else {
+          parameter = deserializer.fudgeMsgToObject(FunctionParameters.class, reader.readMessage(context));
+          parameters.add(parameter);
+        }
+        final long[] inputs = reader.readIdentifiers();
+        final long[] outputs = reader.readIdentifiers();
+        final ExecutionLogMode logMode = LOG_MODES[reader.readByte()];
+        items.add(new CalculationJobItem(function, parameter, target, inputs, outputs, logMode));
+      }
+      checkComplete(reader);
+      return new CalculationJob(jobSpec, functionInitializationIdentifier, resolverVersionCorrection, requiredJobIds, items, cacheSelectHint);
+    } catch (BufferUnderflowException e) {
+      throw new OpenGammaRuntimeException("Truncated job message", e);
+    }
+  }
+
+  /**
+   * Encodes a job result. The result must be in identifier form.
+   *
+   * @param context the Fudge context for any embedded objects, not null
+   * @param result the result to encode, not null
+   * @return the encoded result, not null
+   */
+  public static byte[] encodeResult(final FudgeContext context, final CalculationJobResult result) {
+    final FudgeSerializer serializer = new FudgeSerializer(context);
+    final Writer writer = new Writer();
+    writer.writeByte(WIRE_FORMAT);
+    final MutableFudgeMsg header = serializer.newMessage();
+    CalculationJobSpecificationFudgeBuilder.buildMessageImpl(header, result.getSpecification());
+    writer.writeMessage(context, header);
+    writer.writeSignedVarLong(result.getDuration());
+    writer.writeString(result.getComputeNodeId());
+    final List<CalculationJobResultItem> items = result.getResultItems();
+    writer.writeVarInt(items.size());
+    for (CalculationJobResultItem item : items) {
+      final long[] missingInputs = item.getMissingInputIdentifiers();
+      final long[] missingOutputs = item.getMissingOutputIdentifiers();
+      final ExecutionLog executionLog = item.getExecutionLog();
+      int flags = 0;
+      if (missingInputs != null) {
+        flags |= MISSING_INPUTS_FLAG;
+      }
+      if (missingOutputs != null) {
+        flags |= MISSING_OUTPUTS_FLAG;
+      }
+      if (!executionLog.isEmpty()) {
+        flags |= EXECUTION_LOG_FLAG;
+      }
+      writer.writeByte(flags);
+      if (missingInputs != null) {
+        writer.writeIdentifiers(missingInputs);
+      }
+      if (missingOutputs != null) {
+        writer.writeIdentifiers(missingOutputs);
+      }
+      if (!executionLog.isEmpty()) {
+        final MutableFudgeMsg msg = serializer.newMessage();
+        serializer.addToMessage(msg, EXECUTION_LOG_FIELD_NAME, null, executionLog);
+        writer.writeMessage(context, msg);
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a job result. The result will be in identifier form.
+   *
+   * @param context the Fudge context for any embedded objects, not null
+   * @param data the encoded result, not null
+   * @return the result, not null
+   */
+  public static CalculationJobResult decodeResult(final FudgeContext context, final byte[] data) {
+    final FudgeDeserializer deserializer = new FudgeDeserializer(context);
+    final Reader reader = new Reader(data);
+    try {
+      checkFormat(reader);
+      final CalculationJobSpecification jobSpec = CalculationJobSpecificationFudgeBuilder.buildObjectImpl(reader.readMessage(context));
+      final long duration = reader.readSignedVarLong();
+      final String nodeId = reader.readString();
+      final int count = reader.readVarInt();
+      final List<CalculationJobResultItem> items = new ArrayList<CalculationJobResultItem>(count);
+      for (int i = 0; i < count; i++) {
+        final int flags = reader.readByte();
+        final long[] missingInputs = ((flags & MISSING_INPUTS_FLAG) != 0) ? reader.readIdentifiers() : null;
+        final long[] missingOutputs = ((flags & MISSING_OUTPUTS_FLAG) != 0) ? reader.readIdentifiers() : null;
+        final ExecutionLog executionLog;
+        if ((flags & EXECUTION_LOG_FLAG) != 0) {
+          executionLog = deserializer.fieldValueToObject(ExecutionLog.class, reader.readMessage(context).getByName(EXECUTION_LOG_FIELD_NAME));
+        } else {
+          executionLog = ExecutionLog.EMPTY;
+        }
+        items.add(new CalculationJobResultItem(missingInputs, missingOutputs, executionLog));
+      }
+      checkComplete(reader);
+      return new CalculationJobResult(jobSpec, duration, items, nodeId);
+    } catch (BufferUnderflowException e) {
+      throw new OpenGammaRuntimeException("Truncated result message", e);
+    }
+  }
+
+}
@@ -20,6 +20,8 @@ import org.springframework.context.Lifecycle;
 
 import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.IdentifierMap;
+import com.opengamma.engine.calcnode.msg.BinaryExecute;
+import com.opengamma.engine.calcnode.msg.BinaryResult;
 import com.opengamma.engine.calcnode.msg.Cancel;
 import com.opengamma.engine.calcnode.msg.Execute;
 import com.opengamma.engine.calcnode.msg.Failure;
@@ -67,26 +69,13 @@ public class RemoteNodeClient extends SimpleCalculationNodeInvocationContainer i
     }
 
     @Override
-    protected void visitExecuteMessage(final Execute message) {
-      final CalculationJob job = message.getJob();
-      VersionCorrectionUtils.lockForLifetime(job.getResolverVersionCorrection(), job);
-      getFunctionCompilationService().reinitializeIfNeeded(job.getFunctionInitializationIdentifier());
-      AbstractIdentifierMap.resolveIdentifiers(getIdentifierMap(), job);
-      addJob(job, new ExecutionReceiver() {
-
-        @Override
-        public void executionComplete(final CalculationJobResult result) {
-          AbstractIdentifierMap.convertIdentifiers(getIdentifierMap(), result);
-          sendMessage(new Result(result));
-        }
-
-        @Override
-        public void executionFailed(final SimpleCalculationNode node, final Exception exception) {
-          s_logger.warn("Exception thrown by job execution", exception);
-          sendMessage(new Failure(job.getSpecification(), exception.getMessage(), node.getNodeId()));
-        }
+    protected void visitBinaryExecuteMessage(final BinaryExecute message) {
+      execute(BinaryJobCodec.decodeJob(getConnection().getFudgeMessageSender().getFudgeContext(), message.getJob()), true);
+    }
 
-      }, null);
+    @Override
+    protected void visitExecuteMessage(final Execute message) {
+      execute(message.getJob(), false);
     }
 
     @Override
@@ -171,6 +160,37 @@ public class RemoteNodeClient extends SimpleCalculationNodeInvocationContainer i
     return _statistics;
   }
 
+  /**
+   * Executes a job received from the server, replying in the same wire format the job was received in.
+   *
+   * @param job the job, in identifier form, not null
+   * @param binary true to send a {@link BinaryResult}, false to send a {@link Result}
+   */
+  private void execute(final CalculationJob job, final boolean binary) {
+    VersionCorrectionUtils.lockForLifetime(job.getResolverVersionCorrection(), job);
+    getFunctionCompilationService().reinitializeIfNeeded(job.getFunctionInitializationIdentifier());
+    AbstractIdentifierMap.resolveIdentifiers(getIdentifierMap(), job);
+    addJob(job, new ExecutionReceiver() {
+
+      @Override
+      public void executionComplete(final CalculationJobResult result) {
+        AbstractIdentifierMap.convertIdentifiers(getIdentifierMap(), result);
+        if (binary) {
+          sendMessage(new BinaryResult(BinaryJobCodec.encodeResult(getConnection().getFudgeMessageSender().getFudgeContext(), result)));
+        } else {
+          sendMessage(new Result(result));
+        }
+      }
+
+      @Override
+      public void executionFailed(final SimpleCalculationNode node, final Exception exception) {
+        s_logger.warn("Exception thrown by job execution", exception);
+        sendMessage(new Failure(job.getSpecification(), exception.getMessage(), node.getNodeId()));
+      }
+
+    }, null);
+  }
+
   private void sendMessage(final RemoteCalcNodeMessage message) {
     final FudgeMessageSender sender = getConnection().getFudgeMessageSender();
     final FudgeSerializer serializer = new FudgeSerializer(sender.getFudgeContext());
@@ -180,7 +200,7 @@ public class RemoteNodeClient extends SimpleCalculationNodeInvocationContainer i
   }
 
   protected void sendCapabilities() {
-    final Ready ready = new Ready(getTotalNodeCount(), getHostId());
+    final Ready ready = new Ready(getTotalNodeCount(), getHostId(), BinaryJobCodec.WIRE_FORMAT);
     // TODO any other capabilities to add
     sendMessage(ready);
   }
@@ -28,6 +28,8 @@ import org.slf4j.LoggerFactory;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.cache.AbstractIdentifierMap;
 import com.opengamma.engine.cache.IdentifierMap;
+import com.opengamma.engine.calcnode.msg.BinaryExecute;
+import com.opengamma.engine.calcnode.msg.BinaryResult;
 import com.opengamma.engine.calcnode.msg.Cancel;
 import com.opengamma.engine.calcnode.msg.Execute;
 import com.opengamma.engine.calcnode.msg.Failure;
@@ -99,6 +101,7 @@ import com.opengamma.transport.FudgeMessageSender;
   private final FunctionBlacklistQuery _blacklistQuery;
   private final FunctionBlacklistMaintainer _blacklistUpdate;
   private volatile String _invokerId;
+  private volatile boolean _binaryWireFormat;
   private final RemoteCalcNodeMessageVisitor _messageVisitor = new RemoteCalcNodeMessageVisitor() {
 
     @Override
@@ -148,6 +151,9 @@ import com.opengamma.transport.FudgeMessageSender;
       getCapabilitySet().setParameterCapability(PlatformCapabilities.NODE_COUNT, message.getCapacity());
       // [ENG-42] this is where we'd detect any other capability changes
       _capacity = message.getCapacity();
+      if (message.getWireFormat() != null) {
+        _binaryWireFormat = message.getWireFormat() >= BinaryJobCodec.WIRE_FORMAT;
+      }
       final int launched = _launched.get();
       if (launched < 0) {
         // An additional decrement can happen if there is an error in the original job dispatch
@@ -161,16 +167,15 @@ import com.opengamma.transport.FudgeMessageSender;
       }
     }
 
-    @Override
-    protected void visitResultMessage(final Result message) {
-      s_logger.info("Received result for job {}", message.getResult().getSpecification());
-      if (message.getReady() != null) {
-        message.getReady().accept(this);
+    private void resultReceived(final CalculationJobResult result, final Ready ready) {
+      s_logger.info("Received result for job {}", result.getSpecification());
+      if (ready != null) {
+        ready.accept(this);
       }
       // We decrement the count (and re-register) before processing the data as the remote node is already available if it's sent us its data.
-      final JobInfo job = getPendingJobs().remove(message.getResult().getSpecification());
+      final JobInfo job = getPendingJobs().remove(result.getSpecification());
       if (job == null) {
-        s_logger.warn("Duplicate or result for cancelled callback {} received", message.getResult().getSpecification());
+        s_logger.warn("Duplicate or result for cancelled callback {} received", result.getSpecification());
         return;
       }
       if (_launched.addAndGet(job.getLaunchDelta()) < _capacity) {
@@ -180,11 +185,20 @@ import com.opengamma.transport.FudgeMessageSender;
           s_logger.debug("Notified dispatcher of capacity available");
         }
       }
-      final CalculationJobResult result = message.getResult();
       AbstractIdentifierMap.resolveIdentifiers(getIdentifierMap(), result);
       job.getReceiver().jobCompleted(result);
     }
 
+    @Override
+    protected void visitResultMessage(final Result message) {
+      resultReceived(message.getResult(), message.getReady());
+    }
+
+    @Override
+    protected void visitBinaryResultMessage(final BinaryResult message) {
+      resultReceived(BinaryJobCodec.decodeResult(getFudgeMessageSender().getFudgeContext(), message.getResult()), message.getReady());
+    }
+
   };
 
   public RemoteNodeJobInvoker(
@@ -316,7 +330,12 @@ import com.opengamma.transport.FudgeMessageSender;
       private void sendJob(final CalculationJob job) throws Exception {
         getPendingJobs().put(job.getSpecification(), new JobInfo(receiver, job));
         AbstractIdentifierMap.convertIdentifiers(getIdentifierMap(), job);
-        sendMessage(new Execute(blacklist(getBlacklistQuery(), job)));
+        final CalculationJob executeJob = blacklist(getBlacklistQuery(), job);
+        if (_binaryWireFormat) {
+          sendMessage(new BinaryExecute(BinaryJobCodec.encodeJob(getFudgeMessageSender().getFudgeContext(), executeJob)));
+        } else {
+          sendMessage(new Execute(executeJob));
+        }
       }
 
       @Override
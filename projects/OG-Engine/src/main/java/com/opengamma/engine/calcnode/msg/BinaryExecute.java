@@ -0,0 +1,77 @@
+// Automatically created - do not modify - CSOFF
+///CLOVER:OFF
+package com.opengamma.engine.calcnode.msg;
+public class BinaryExecute extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessage implements java.io.Serializable {
+  public void accept (RemoteCalcNodeMessageVisitor visitor) { visitor.visitBinaryExecuteMessage (this); }
+  private static final long serialVersionUID = 64459180925l;
+  private byte[] _job;
+  public static final String JOB_KEY = "job";
+  public BinaryExecute (byte[] job) {
+    if (job == null) throw new NullPointerException ("'job' cannot be null");
+    else {
+      _job = job;
+    }
+  }
+  protected BinaryExecute (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
+    fudgeField = fudgeMsg.getByName (JOB_KEY);
+    if (fudgeField == null) throw new IllegalArgumentException ("Fudge message is not a BinaryExecute - field 'job' is not present");
+    try {
+      _job = fudgeMsg.getFieldValue (byte[].class, fudgeField);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException ("Fudge message is not a BinaryExecute - field 'job' is not byte[]", e);
+    }
+  }
+  protected BinaryExecute (final BinaryExecute source) {
+    super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    if (source._job == null) _job = null;
+    else {
+      _job = java.util.Arrays.copyOf (source._job, source._job.length);
+    }
+  }
+  public BinaryExecute clone () {
+    return new BinaryExecute (this);
+  }
+  public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
+    if (serializer == null) throw new NullPointerException ("serializer must not be null");
+    final org.fudgemsg.MutableFudgeMsg msg = serializer.newMessage ();
+    toFudgeMsg (serializer, msg);
+    return msg;
+  }
+  public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
+    super.toFudgeMsg (serializer, msg);
+    if (_job != null)  {
+      msg.add (JOB_KEY, null, _job);
+    }
+  }
+  public static BinaryExecute fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
+    for (org.fudgemsg.FudgeField field : types) {
+      final String className = (String)field.getValue ();
+      if ("com.opengamma.engine.calcnode.msg.BinaryExecute".equals (className)) break;
+      try {
+        return (com.opengamma.engine.calcnode.msg.BinaryExecute)Class.forName (className).getDeclaredMethod ("fromFudgeMsg", org.fudgemsg.mapping.FudgeDeserializer.class, org.fudgemsg.FudgeMsg.class).invoke (null, deserializer, fudgeMsg);
+      }
+      catch (Throwable t) {
+        // no-action
+      }
+    }
+    return new BinaryExecute (deserializer, fudgeMsg);
+  }
+  public byte[] getJob () {
+    return _job;
+  }
+  public void setJob (byte[] job) {
+    if (job == null) throw new NullPointerException ("'job' cannot be null");
+    else {
+      _job = job;
+    }
+  }
+  public String toString () {
+    return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
+///CLOVER:ON - CSON
@@ -0,0 +1,118 @@
+// Automatically created - do not modify - CSOFF
+///CLOVER:OFF
+package com.opengamma.engine.calcnode.msg;
+public class BinaryResult extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessage implements java.io.Serializable {
+  public void accept (RemoteCalcNodeMessageVisitor visitor) { visitor.visitBinaryResultMessage (this); }
+  private static final long serialVersionUID = -4382209377157l;
+  private byte[] _result;
+  public static final String RESULT_KEY = "result";
+  private com.opengamma.engine.calcnode.msg.Ready _ready;
+  public static final String READY_KEY = "ready";
+  public BinaryResult (byte[] result) {
+    if (result == null) throw new NullPointerException ("'result' cannot be null");
+    else {
+      _result = result;
+    }
+  }
+  protected BinaryResult (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
+    fudgeField = fudgeMsg.getByName (RESULT_KEY);
+    if (fudgeField == null) throw new IllegalArgumentException ("Fudge message is not a BinaryResult - field 'result' is not present");
+    try {
+      _result = fudgeMsg.getFieldValue (byte[].class, fudgeField);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException ("Fudge message is not a BinaryResult - field 'result' is not byte[]", e);
+    }
+    fudgeField = fudgeMsg.getByName (READY_KEY);
+    if (fudgeField != null)  {
+      try {
+        final com.opengamma.engine.calcnode.msg.Ready fudge1;
+        fudge1 = com.opengamma.engine.calcnode.msg.Ready.fromFudgeMsg (deserializer, fudgeMsg.getFieldValue (org.fudgemsg.FudgeMsg.class, fudgeField));
+        setReady (fudge1);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a BinaryResult - field 'ready' is not Ready message", e);
+      }
+    }
+  }
+  public BinaryResult (byte[] result, com.opengamma.engine.calcnode.msg.Ready ready) {
+    if (result == null) throw new NullPointerException ("'result' cannot be null");
+    else {
+      _result = result;
+    }
+    if (ready == null) _ready = null;
+    else {
+      _ready = (com.opengamma.engine.calcnode.msg.Ready)ready.clone ();
+    }
+  }
+  protected BinaryResult (final BinaryResult source) {
+    super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    if (source._result == null) _result = null;
+    else {
+      _result = java.util.Arrays.copyOf (source._result, source._result.length);
+    }
+    if (source._ready == null) _ready = null;
+    else {
+      _ready = (com.opengamma.engine.calcnode.msg.Ready)source._ready.clone ();
+    }
+  }
+  public BinaryResult clone () {
+    return new BinaryResult (this);
+  }
+  public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
+    if (serializer == null) throw new NullPointerException ("serializer must not be null");
+    final org.fudgemsg.MutableFudgeMsg msg = serializer.newMessage ();
+    toFudgeMsg (serializer, msg);
+    return msg;
+  }
+  public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
+    super.toFudgeMsg (serializer, msg);
+    if (_result != null)  {
+      msg.add (RESULT_KEY, null, _result);
+    }
+    if (_ready != null)  {
+      final org.fudgemsg.MutableFudgeMsg fudge1 = org.fudgemsg.mapping.FudgeSerializer.addClassHeader (serializer.newMessage (), _ready.getClass (), com.opengamma.engine.calcnode.msg.Ready.class);
+      _ready.toFudgeMsg (serializer, fudge1);
+      msg.add (READY_KEY, null, fudge1);
+    }
+  }
+  public static BinaryResult fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
+    for (org.fudgemsg.FudgeField field : types) {
+      final String className = (String)field.getValue ();
+      if ("com.opengamma.engine.calcnode.msg.BinaryResult".equals (className)) break;
+      try {
+        return (com.opengamma.engine.calcnode.msg.BinaryResult)Class.forName (className).getDeclaredMethod ("fromFudgeMsg", org.fudgemsg.mapping.FudgeDeserializer.class, org.fudgemsg.FudgeMsg.class).invoke (null, deserializer, fudgeMsg);
+      }
+      catch (Throwable t) {
+        // no-action
+      }
+    }
+    return new BinaryResult (deserializer, fudgeMsg);
+  }
+  public byte[] getResult () {
+    return _result;
+  }
+  public void setResult (byte[] result) {
+    if (result == null) throw new NullPointerException ("'result' cannot be null");
+    else {
+      _result = result;
+    }
+  }
+  public com.opengamma.engine.calcnode.msg.Ready getReady () {
+    return _ready;
+  }
+  public void setReady (com.opengamma.engine.calcnode.msg.Ready ready) {
+    if (ready == null) _ready = null;
+    else {
+      _ready = (com.opengamma.engine.calcnode.msg.Ready)ready.clone ();
+    }
+  }
+  public String toString () {
+    return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
+///CLOVER:ON - CSON
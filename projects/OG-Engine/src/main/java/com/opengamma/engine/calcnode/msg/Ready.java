@@ -8,6 +8,8 @@ public class Ready extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessa
   public static final String CAPACITY_KEY = "capacity";
   private String _hostId;
   public static final String HOST_ID_KEY = "hostId";
+  private Integer _wireFormat;
+  public static final String WIRE_FORMAT_KEY = "wireFormat";
   public Ready (int capacity, String hostId) {
     _capacity = capacity;
     if (hostId == null) throw new NullPointerException ("hostId' cannot be null");
@@ -32,12 +34,28 @@ public class Ready extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessa
     catch (IllegalArgumentException e) {
       throw new IllegalArgumentException ("Fudge message is not a Ready - field 'hostId' is not string", e);
     }
+    fudgeField = fudgeMsg.getByName (WIRE_FORMAT_KEY);
+    if (fudgeField != null)  {
+      try {
+        setWireFormat (fudgeMsg.getFieldValue (Integer.class, fudgeField));
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Ready - field 'wireFormat' is not integer", e);
+      }
+    }
+  }
+  public Ready (int capacity, String hostId, Integer wireFormat) {
+    _capacity = capacity;
+    if (hostId == null) throw new NullPointerException ("hostId' cannot be null");
+    _hostId = hostId;
+    _wireFormat = wireFormat;
   }
   protected Ready (final Ready source) {
     super (source);
     if (source == null) throw new NullPointerException ("'source' must not be null");
     _capacity = source._capacity;
     _hostId = source._hostId;
+    _wireFormat = source._wireFormat;
   }
   public Ready clone () {
     return new Ready (this);
@@ -54,6 +72,9 @@ public class Ready extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessa
     if (_hostId != null)  {
       msg.add (HOST_ID_KEY, null, _hostId);
     }
+    if (_wireFormat != null)  {
+      msg.add (WIRE_FORMAT_KEY, null, _wireFormat);
+    }
   }
   public static Ready fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -82,6 +103,12 @@ public class Ready extends com.opengamma.engine.calcnode.msg.RemoteCalcNodeMessa
     if (hostId == null) throw new NullPointerException ("hostId' cannot be null");
     _hostId = hostId;
   }
+  public Integer getWireFormat () {
+    return _wireFormat;
+  }
+  public void setWireFormat (Integer wireFormat) {
+    _wireFormat = wireFormat;
+  }
   public String toString () {
     return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
   }
@@ -13,6 +13,14 @@ public abstract class RemoteCalcNodeMessageVisitor {
 
   protected abstract void visitUnexpectedMessage(RemoteCalcNodeMessage message);
 
+  protected void visitBinaryExecuteMessage(BinaryExecute message) {
+    visitUnexpectedMessage(message);
+  }
+
+  protected void visitBinaryResultMessage(BinaryResult message) {
+    visitUnexpectedMessage(message);
+  }
+
   protected void visitCancelMessage(Cancel message) {
     visitUnexpectedMessage(message);
   }
@@ -21,6 +21,7 @@ public class MultipleNodeExecutorFactory extends PlanBasedGraphExecutorFactory i
   private final MultipleNodeExecutionPlanner _basePlanner;
   private CachingExecutionPlanner _cachingPlanner;
   private CacheManager _cacheManager;
+  private double _costDriftTolerance = 0.5;
 
   private MultipleNodeExecutorFactory(final MultipleNodeExecutionPlanner planner) {
     super(planner);
@@ -137,8 +138,70 @@ public class MultipleNodeExecutorFactory extends PlanBasedGraphExecutorFactory i
     return _basePlanner.getMaximumConcurrency();
   }
 
+  /**
+   * Sets the target estimated cost of jobs that the planner will attempt to produce.
+   * 
+   * @param targetJobCost the estimated cost, or 0 to use the minimum and maximum job costs
+   * @see MultipleNodeExecutionPlanner#setTargetJobCost
+   */
+  public void setTargetJobCost(final long targetJobCost) {
+    _basePlanner.setTargetJobCost(targetJobCost);
+  }
+
+  /**
+   * Returns the target estimated cost of jobs that the planner will attempt to produce.
+   * 
+   * @return the estimated cost, or 0 if the minimum and maximum job costs are used
+   * @see MultipleNodeExecutionPlanner#getTargetJobCost
+   */
+  public long getTargetJobCost() {
+    return _basePlanner.getTargetJobCost();
+  }
+
+  /**
+   * Sets the number of calculation nodes that the planner will attempt to keep busy when a target job cost is set.
+   * 
+   * @param targetParallelism the number of calculation nodes, or 0 to use the target job cost as-is
+   * @see MultipleNodeExecutionPlanner#setTargetParallelism
+   */
+  public void setTargetParallelism(final int targetParallelism) {
+    _basePlanner.setTargetParallelism(targetParallelism);
+  }
+
+  /**
+   * Returns the number of calculation nodes that the planner will attempt to keep busy when a target job cost is set.
+   * 
+   * @return the number of calculation nodes, or 0 if not set
+   * @see MultipleNodeExecutionPlanner#getTargetParallelism
+   */
+  public int getTargetParallelism() {
+    return _basePlanner.getTargetParallelism();
+  }
+
+  /**
+   * Sets the relative change in a graph's estimated cost that will cause a cached plan to be recreated (if caching is enabled).
+   * 
+   * @param costDriftTolerance the tolerance
+   * @see CachingExecutionPlanner#setCostDriftTolerance
+   */
+  public void setCostDriftTolerance(final double costDriftTolerance) {
+    _costDriftTolerance = costDriftTolerance;
+    final CachingExecutionPlanner planner = _cachingPlanner;
+    if (planner != null) {
+      planner.setCostDriftTolerance(costDriftTolerance);
+    }
+  }
+
+  public double getCostDriftTolerance() {
+    return _costDriftTolerance;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     _basePlanner.setFunctionCosts(functionCosts);
+    final CachingExecutionPlanner planner = _cachingPlanner;
+    if (planner != null) {
+      planner.setFunctionCosts(functionCosts);
+    }
   }
 
   public FunctionCosts getFunctionCosts() {
@@ -164,6 +227,8 @@ public class MultipleNodeExecutorFactory extends PlanBasedGraphExecutorFactory i
     if (cacheManager != null) {
       if (_cachingPlanner == null) {
         _cachingPlanner = new CachingExecutionPlanner(_basePlanner, cacheManager);
+        _cachingPlanner.setFunctionCosts(getFunctionCosts());
+        _cachingPlanner.setCostDriftTolerance(getCostDriftTolerance());
       }
       setPlanner(_cachingPlanner);
     }
@@ -8,8 +8,10 @@ package com.opengamma.engine.exec.plan;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -18,7 +20,10 @@ import net.sf.ehcache.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.calcnode.stats.FunctionCosts;
+import com.opengamma.engine.calcnode.stats.FunctionCostsPerConfiguration;
 import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.function.FunctionParameters;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
@@ -27,6 +32,9 @@ import com.opengamma.util.ehcache.EHCacheUtils;
 
 /**
  * Caches the plans produced by other execution planners.
+ * <p>
+ * If function costs are set, the estimated cost of a graph is recorded when its plan is cached and periodically compared against the current function costs. A plan whose graph cost has drifted by
+ * more than the tolerance is discarded and replaced with a fresh plan from the underlying planner.
  */
 public class CachingExecutionPlanner implements GraphExecutionPlanner {
 
@@ -85,8 +93,38 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
 
   }
 
+  /**
+   * A cached plan, with the estimated cost of the graph at the time the plan was created.
+   */
+  /* package */static final class CachedPlan implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final GraphExecutionPlan _plan;
+    private final double _estimatedCost;
+    private transient volatile long _lastChecked;
+
+    public CachedPlan(final GraphExecutionPlan plan, final double estimatedCost) {
+      _plan = plan;
+      _estimatedCost = estimatedCost;
+      _lastChecked = System.nanoTime();
+    }
+
+    public GraphExecutionPlan getPlan() {
+      return _plan;
+    }
+
+    public double getEstimatedCost() {
+      return _estimatedCost;
+    }
+
+  }
+
   private final GraphExecutionPlanner _underlying;
   private final Cache _cache;
+  private FunctionCosts _functionCosts;
+  private double _costDriftTolerance = 0.5;
+  private long _costDriftCheckPeriod = TimeUnit.SECONDS.toNanos(30);
 
   /**
    * Constructs an instance.
@@ -102,6 +140,88 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     _cache = EHCacheUtils.getCacheFromManager(manager, CACHE_NAME);
   }
 
+  /**
+   * Sets the function costs used to detect plans that should be recreated.
+   * 
+   * @param functionCosts the function costs, or null to never recreate a cached plan
+   */
+  public void setFunctionCosts(final FunctionCosts functionCosts) {
+    _functionCosts = functionCosts;
+  }
+
+  public FunctionCosts getFunctionCosts() {
+    return _functionCosts;
+  }
+
+  /**
+   * Sets the relative change in the estimated cost of a graph that will cause its plan to be recreated.
+   * 
+   * @param costDriftTolerance the tolerance, for example 0.5 to recreate plans when the estimated graph cost has changed by 50% or more, must be positive
+   */
+  public void setCostDriftTolerance(final double costDriftTolerance) {
+    ArgumentChecker.isTrue(costDriftTolerance > 0, "costDriftTolerance");
+    _costDriftTolerance = costDriftTolerance;
+  }
+
+  public double getCostDriftTolerance() {
+    return _costDriftTolerance;
+  }
+
+  /**
+   * Sets the minimum time between checks of a cached plan against the current function costs.
+   * 
+   * @param period the period between checks, must be at least 0
+   * @param unit the unit of the period, not null
+   */
+  public void setCostDriftCheckPeriod(final long period, final TimeUnit unit) {
+    ArgumentChecker.isTrue(period >= 0, "period");
+    ArgumentChecker.notNull(unit, "unit");
+    _costDriftCheckPeriod = unit.toNanos(period);
+  }
+
+  /**
+   * Estimates the total invocation cost of a graph from the function costs.
+   * 
+   * @param graph the graph to estimate, not null
+   * @param costs the function costs, not null
+   * @return the estimated cost in nanoseconds
+   */
+  /* package */static double estimateCost(final DependencyGraph graph, final FunctionCosts costs) {
+    final FunctionCostsPerConfiguration configurationCosts = costs.getStatistics(graph.getCalculationConfigurationName());
+    double cost = 0;
+    final Iterator<DependencyNode> itr = graph.nodeIterator();
+    while (itr.hasNext()) {
+      cost += configurationCosts.getStatistics(itr.next().getFunction().getFunctionId()).getInvocationCost();
+    }
+    return cost;
+  }
+
+  /**
+   * Tests whether a cached plan is still acceptable given the current function costs.
+   * 
+   * @param graph the graph the plan is for, not null
+   * @param cached the cached plan, not null
+   * @return true if the plan can be used, false if it should be recreated
+   */
+  private boolean isCurrent(final DependencyGraph graph, final CachedPlan cached) {
+    final FunctionCosts costs = getFunctionCosts();
+    if (costs == null) {
+      return true;
+    }
+    final long now = System.nanoTime();
+    if (now - cached._lastChecked < _costDriftCheckPeriod) {
+      return true;
+    }
+    cached._lastChecked = now;
+    final double estimatedCost = estimateCost(graph, costs);
+    final double drift = Math.abs(estimatedCost - cached.getEstimatedCost()) / Math.max(cached.getEstimatedCost(), 1d);
+    if (drift >= getCostDriftTolerance()) {
+      s_logger.info("Estimated cost of {} has changed from {} to {}; recreating execution plan", new Object[] {graph, cached.getEstimatedCost(), estimatedCost });
+      return false;
+    }
+    return true;
+  }
+
   public synchronized void invalidate() {
     if (_cache != null) {
       s_logger.info("Clearing execution plan cache of {} items", _cache.getSize());
@@ -119,16 +239,21 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     CacheKey key = new CacheKey(graph, functionInitId, sharedValues, parameters);
     final Element element = _cache.get(key);
     if (element != null) {
-      s_logger.debug("Cache hit");
-      return ((GraphExecutionPlan) element.getObjectValue()).withCalculationConfiguration(graph.getCalculationConfigurationName());
+      final CachedPlan cached = (CachedPlan) element.getObjectValue();
+      if (isCurrent(graph, cached)) {
+        s_logger.debug("Cache hit");
+        return cached.getPlan().withCalculationConfiguration(graph.getCalculationConfigurationName());
+      }
+      _cache.remove(key);
     } else {
       s_logger.debug("Cache miss");
-      final GraphExecutionPlan plan = _underlying.createPlan(graph, logModeSource, functionInitId, sharedValues, parameters);
-      if (plan != null) {
-        _cache.put(new Element(key, plan));
-      }
-      return plan;
     }
+    final GraphExecutionPlan plan = _underlying.createPlan(graph, logModeSource, functionInitId, sharedValues, parameters);
+    if (plan != null) {
+      final FunctionCosts costs = getFunctionCosts();
+      _cache.put(new Element(key, new CachedPlan(plan, (costs != null) ? estimateCost(graph, costs) : 0d)));
+    }
+    return plan;
   }
 
   /**
@@ -138,6 +263,4 @@ public class CachingExecutionPlanner implements GraphExecutionPlanner {
     _cache.getCacheManager().removeCache(CACHE_NAME);
   }
 
-  // TODO [ENG-269] If the function costs change significantly, invalidate the execution plan cache.
-
 }
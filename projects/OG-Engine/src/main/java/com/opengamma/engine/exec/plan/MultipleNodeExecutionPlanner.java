@@ -42,17 +42,27 @@ import com.opengamma.util.tuple.Pairs;
  * <p>
  * Job cost estimates are in nanoseconds. These are using the (normalized) time estimate for the function execution and the estimated input/output data volumes using an approximate data rate. The
  * actual jobs produced may take longer to execute because of additional scheduling and housekeeping overheads.
+ * <p>
+ * If a target job cost is set, the minimum and maximum job costs are instead derived for each graph from that target and the recorded function costs. If a target parallelism is also set, the
+ * target is reduced for graphs that would otherwise produce too few jobs to keep that many calculation nodes busy until the end of the cycle.
  */
 public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
 
   private static final Logger s_logger = LoggerFactory.getLogger(MultipleNodeExecutionPlanner.class);
   private static final GraphExecutionPlanner s_smallJobPlanner = new SingleNodeExecutionPlanner();
 
+  /**
+   * The number of jobs per calculation node that a cost-driven plan aims to produce so that the final jobs of a cycle are small relative to the whole.
+   */
+  private static final int JOBS_PER_NODE = 4;
+
   private int _minimumJobItems = 1;
   private int _maximumJobItems = Integer.MAX_VALUE;
   private long _minimumJobCost;
   private long _maximumJobCost = Long.MAX_VALUE;
   private int _maximumConcurrency = Integer.MAX_VALUE;
+  private long _targetJobCost;
+  private int _targetParallelism;
   private FunctionCosts _functionCosts = new FunctionCosts();
 
   /**
@@ -163,6 +173,50 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     return _maximumConcurrency;
   }
 
+  /**
+   * Sets the target estimated cost of jobs.
+   * <p>
+   * When set, the minimum and maximum job costs are ignored. Jobs are instead sized between half the target and the target, based on the recorded function costs for each graph.
+   * 
+   * @param targetJobCost the estimated cost in nanoseconds, must be at least 0. If set to 0, the minimum and maximum job costs are used.
+   */
+  public void setTargetJobCost(final long targetJobCost) {
+    ArgumentChecker.isTrue(targetJobCost >= 0, "targetJobCost");
+    _targetJobCost = targetJobCost;
+  }
+
+  /**
+   * Returns the target estimated cost of jobs.
+   * 
+   * @return the estimated cost, or 0 if the minimum and maximum job costs are used
+   * @see #setTargetJobCost
+   */
+  public long getTargetJobCost() {
+    return _targetJobCost;
+  }
+
+  /**
+   * Sets the number of calculation nodes that cost-driven plans should keep busy.
+   * <p>
+   * This only has an effect when a target job cost is set. If the estimated cost of a graph is too low to give each node several jobs of the target cost, the target is reduced for that graph.
+   * 
+   * @param targetParallelism the number of calculation nodes, must be at least 0. If set to 0, the target job cost is used as-is.
+   */
+  public void setTargetParallelism(final int targetParallelism) {
+    ArgumentChecker.isTrue(targetParallelism >= 0, "targetParallelism");
+    _targetParallelism = targetParallelism;
+  }
+
+  /**
+   * Returns the number of calculation nodes that cost-driven plans should keep busy.
+   * 
+   * @return the number of calculation nodes, or 0 if not set
+   * @see #setTargetParallelism
+   */
+  public int getTargetParallelism() {
+    return _targetParallelism;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     ArgumentChecker.notNull(functionCosts, "functionCosts");
     _functionCosts = functionCosts;
@@ -243,7 +297,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   /**
    * Finds pairs of nodes with the same input set (i.e. that would execute concurrently) that are below the minimum job size and merge them together.
    */
-  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments) {
+  private boolean mergeSharedInputs(final Set<GraphFragment> rootFragments, final Set<GraphFragment> allFragments, final long minimumJobCost, final long maximumJobCost) {
     final Map<Set<GraphFragment>, GraphFragment> possibleCandidates = new HashMap<Set<GraphFragment>, GraphFragment>();
     final Map<GraphFragment, GraphFragment> validCandidates = new HashMap<GraphFragment, GraphFragment>();
     boolean result = false;
@@ -254,13 +308,13 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
           // No inputs to consider
           continue;
         }
-        if ((fragment.getJobCost() >= getMinimumJobCost()) && (fragment.getJobItems() >= getMinimumJobItems())) {
+        if ((fragment.getJobCost() >= minimumJobCost) && (fragment.getJobItems() >= getMinimumJobItems())) {
           // We already meet the minimum requirement for the graph
           continue;
         }
         final GraphFragment mergeCandidate = possibleCandidates.get(fragment.getInputFragments());
         if (mergeCandidate != null) {
-          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), getMaximumJobCost())) {
+          if (mergeCandidate.canAppendFragment(fragment, getMaximumJobItems(), maximumJobCost)) {
             // Defer the merge because we're iterating through the dependent's inputs at the moment
             validCandidates.put(fragment, mergeCandidate);
             // Stop using the merge candidate
@@ -309,7 +363,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
   /**
    * If a fragment has only one dependency, and both it and its dependent are below the maximum job size they are merged.
    */
-  private boolean mergeSingleDependencies(final GraphFragmentContext context, final Set<GraphFragment> allFragments) {
+  private boolean mergeSingleDependencies(final GraphFragmentContext context, final Set<GraphFragment> allFragments, final long maximumJobCost) {
     int changes = 0;
     final Iterator<GraphFragment> fragmentIterator = allFragments.iterator();
     while (fragmentIterator.hasNext()) {
@@ -318,7 +372,7 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
         continue;
       }
       final GraphFragment dependency = fragment.getOutputFragments().iterator().next();
-      if (!dependency.canPrependFragment(fragment, getMaximumJobItems(), getMaximumJobCost())) {
+      if (!dependency.canPrependFragment(fragment, getMaximumJobItems(), maximumJobCost)) {
         // Can't merge
         continue;
       }
@@ -453,6 +507,31 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     }
   }
 
+  /**
+   * Calculates the target job cost for a graph from the estimated costs of its initial fragments.
+   * 
+   * @param allFragments the initial fragments, one per node, not null
+   * @return the target job cost in nanoseconds, or 0 if the static limits are to be used
+   */
+  private long calculateTargetJobCost(final Collection<GraphFragment> allFragments) {
+    long targetJobCost = getTargetJobCost();
+    if (targetJobCost <= 0) {
+      return 0;
+    }
+    final int parallelism = getTargetParallelism();
+    if (parallelism > 0) {
+      long totalCost = 0;
+      for (final GraphFragment fragment : allFragments) {
+        totalCost += fragment.getJobCost();
+      }
+      final long balancedJobCost = totalCost / ((long) parallelism * JOBS_PER_NODE);
+      if (balancedJobCost < targetJobCost) {
+        targetJobCost = Math.max(balancedJobCost, 1L);
+      }
+    }
+    return targetJobCost;
+  }
+
   private GraphExecutionPlan createMultipleNodePlan(final DependencyGraph graph, final ExecutionLogModeSource logModeSource, final long functionInitializationId,
       final Set<ValueSpecification> sharedValues, final Map<ValueSpecification, FunctionParameters> parameters) {
     final GraphFragmentContext context = new GraphFragmentContext(graph.getCalculationConfigurationName(), logModeSource, functionInitializationId, sharedValues, parameters);
@@ -461,16 +540,27 @@ public class MultipleNodeExecutionPlanner implements GraphExecutionPlanner {
     final Set<GraphFragment> rootFragments = createGraphFragments(graph, gatherer);
     final Set<GraphFragment> allFragments = gatherer.getAllFragments();
     gatherer = null;
+    final long minimumJobCost;
+    final long maximumJobCost;
+    final long targetJobCost = calculateTargetJobCost(allFragments);
+    if (targetJobCost > 0) {
+      minimumJobCost = targetJobCost >> 1;
+      maximumJobCost = targetJobCost;
+      s_logger.debug("Using target job cost of {}ns for {}", targetJobCost, graph);
+    } else {
+      minimumJobCost = getMinimumJobCost();
+      maximumJobCost = getMaximumJobCost();
+    }
     int failCount = 0;
     do {
-      if (mergeSharedInputs(rootFragments, allFragments)) {
+      if (mergeSharedInputs(rootFragments, allFragments, minimumJobCost, maximumJobCost)) {
         failCount = 0;
       } else {
         if (++failCount >= 2) {
           break;
         }
       }
-      if (mergeSingleDependencies(context, allFragments)) {
+      if (mergeSingleDependencies(context, allFragments, maximumJobCost)) {
         failCount = 0;
       } else {
         if (++failCount >= 2) {
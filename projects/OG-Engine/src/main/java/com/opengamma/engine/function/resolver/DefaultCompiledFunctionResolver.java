@@ -302,7 +302,7 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
   /**
    * The rules by target type. The map values are {@link ChainedRuleBundle} instances during construction, after which return an iterator giving the rules in blocks of descending priority order.
    */
-  private final ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>> _type2Rules = new ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>>(s_foldRules);
+  private final ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>> _type2Rules;
 
   /**
    * The total number of unique rules.
@@ -322,7 +322,7 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
   /**
    * Function definition lookup.
    */
-  private final Map<String, CompiledFunctionDefinition> _functions = new HashMap<String, CompiledFunctionDefinition>();
+  private final Map<String, CompiledFunctionDefinition> _functions;
 
   /**
    * Creates a resolver.
@@ -343,9 +343,32 @@ public class DefaultCompiledFunctionResolver implements CompiledFunctionResolver
     ArgumentChecker.notNull(functionCompilationContext, "functionCompilationContext");
     ArgumentChecker.notNull(resolutionRules, "resolutionRules");
     _functionCompilationContext = functionCompilationContext;
+    _type2Rules = new ComputationTargetTypeMap<Iterable<Collection<ResolutionRule>>>(s_foldRules);
+    _functions = new HashMap<String, CompiledFunctionDefinition>();
     addRules(resolutionRules);
   }
 
+  /**
+   * Creates a resolver that uses the compiled rules of another with a different context.
+   * <p>
+   * The prioritized rules do not depend on the context so can be shared, but the functions' results are determined with this resolver's context
+   * and cached separately.
+   * 
+   * @param functionCompilationContext the context, not null
+   * @param compiledRules the resolver to take the rules from, {@link #compileRules} must have been called on it, not null
+   */
+  public DefaultCompiledFunctionResolver(final FunctionCompilationContext functionCompilationContext, final DefaultCompiledFunctionResolver compiledRules) {
+    ArgumentChecker.notNull(functionCompilationContext, "functionCompilationContext");
+    ArgumentChecker.notNull(compiledRules, "compiledRules");
+    for (Iterable<Collection<ResolutionRule>> rules : compiledRules._type2Rules.values()) {
+      ArgumentChecker.isFalse(rules instanceof ChainedRuleBundle, "rules must have been compiled");
+    }
+    _functionCompilationContext = functionCompilationContext;
+    _type2Rules = compiledRules._type2Rules;
+    _functions = compiledRules._functions;
+    _ruleCount = compiledRules._ruleCount;
+  }
+
   private static final BinaryOperator<Iterable<Collection<ResolutionRule>>> s_combineChainedRuleBundle = new BinaryOperator<Iterable<Collection<ResolutionRule>>>() {
     @Override
     public Iterable<Collection<ResolutionRule>> apply(final Iterable<Collection<ResolutionRule>> a, final Iterable<Collection<ResolutionRule>> b) {
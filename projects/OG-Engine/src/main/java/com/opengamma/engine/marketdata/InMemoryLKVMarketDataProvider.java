@@ -5,11 +5,18 @@
  */
 package com.opengamma.engine.marketdata;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractSet;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,12 +29,47 @@ import com.opengamma.engine.value.ValueSpecification;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * Snapshots do not copy the cache. Each value is held with the version at which it was written, and a snapshot
+ * reads each value as it was at the snapshot's version. A snapshot only starts a new version if a value has changed
+ * since the previous one. A value replaced after a snapshot is kept, behind the new value, only while a snapshot that
+ * can read it is still reachable, so a read normally looks at a single entry and a long-held snapshot only retains
+ * the values it would read itself.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector {
 
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
 
-  private final Map<ValueSpecification, Object> _lastKnownValues = new ConcurrentHashMap<ValueSpecification, Object>();
+  /**
+   * The latest entry of each value, including removals still visible to a snapshot. Changes are made while
+   * holding the lock on this map.
+   */
+  private final ConcurrentMap<ValueSpecification, Entry> _values = new ConcurrentHashMap<ValueSpecification, Entry>();
+  /**
+   * The values currently present.
+   */
+  private final Set<ValueSpecification> _keys = Collections.newSetFromMap(new ConcurrentHashMap<ValueSpecification, Boolean>());
+  /**
+   * The version stamped on changes, guarded by the lock on the values.
+   */
+  private long _version;
+  /**
+   * Whether a value has changed at the current version, guarded by the lock on the values.
+   */
+  private boolean _changed;
+  /**
+   * The version of the latest snapshot, null if none has been taken, guarded by the lock on the values.
+   */
+  private Version _snapshotVersion;
+  /**
+   * The versions of the snapshots that may still be reachable, guarded by the lock on the values.
+   */
+  private final NavigableSet<Long> _liveVersions = new TreeSet<Long>();
+  /**
+   * The references noticing when those versions become unreachable, held so that they are enqueued.
+   */
+  private final Set<VersionReference> _liveVersionReferences = new HashSet<VersionReference>();
+  private final ReferenceQueue<Version> _releasedVersions = new ReferenceQueue<Version>();
   private final FixedMarketDataAvailabilityProvider _availability = new FixedMarketDataAvailabilityProvider();
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -85,7 +127,7 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void addValue(final ValueSpecification specification, final Object value) {
     if (value != null) {
-      _lastKnownValues.put(specification, value);
+      setValue(specification, value);
     }
     _availability.addAvailableData(specification);
     valueChanged(specification);
@@ -100,7 +142,7 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void removeValue(final ValueSpecification specification) {
     _availability.removeAvailableData(specification);
-    _lastKnownValues.remove(specification);
+    setValue(specification, null);
     valueChanged(specification);
   }
 
@@ -112,17 +154,214 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   //-------------------------------------------------------------------------
   public Set<ValueSpecification> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    return Collections.unmodifiableSet(_keys);
   }
 
   public Object getCurrentValue(final ValueSpecification specification) {
-    return _lastKnownValues.get(specification);
+    final Entry entry = _values.get(specification);
+    return (entry != null) ? entry._value : null;
+  }
+
+  //-------------------------------------------------------------------------
+  private void setValue(final ValueSpecification specification, final Object value) {
+    synchronized (_values) {
+      expungeReleasedVersions();
+      final Entry previous = _values.get(specification);
+      if ((previous == null) && (value == null)) {
+        return;
+      }
+      final Entry entry = new Entry(_version, value, previous);
+      if (!_changed) {
+        _changed = true;
+        // the next snapshot starts a new version, so only the snapshots already taken keep this one reachable
+        _snapshotVersion = null;
+      }
+      // drop the replaced entries that no reachable snapshot reads
+      Entry newer = entry;
+      for (Entry older = previous; older != null; older = older._previous) {
+        final Long reader = _liveVersions.ceiling(older._version);
+        if ((reader != null) && (reader < newer._version)) {
+          if (newer._previous != older) {
+            newer._previous = older;
+          }
+          newer = older;
+        }
+      }
+      if (newer._previous != null) {
+        newer._previous = null;
+      }
+      if (value != null) {
+        _values.put(specification, entry);
+        if ((previous == null) || (previous._value == null)) {
+          _keys.add(specification);
+        }
+      } else {
+        _keys.remove(specification);
+        if (entry._previous != null) {
+          _values.put(specification, entry);
+        } else {
+          _values.remove(specification);
+        }
+      }
+    }
+  }
+
+  private void expungeReleasedVersions() {
+    VersionReference released = (VersionReference) _releasedVersions.poll();
+    while (released != null) {
+      _liveVersionReferences.remove(released);
+      _liveVersions.remove(released._version);
+      released = (VersionReference) _releasedVersions.poll();
+    }
+  }
+
+  /**
+   * Gets the version for a new snapshot, starting a new version if a value has changed since the previous snapshot.
+   * 
+   * @return the version, not null
+   */
+  /*package*/Version doSnapshot() {
+    synchronized (_values) {
+      expungeReleasedVersions();
+      if (_changed || (_snapshotVersion == null)) {
+        _snapshotVersion = new Version(_version, _keys.size());
+        _liveVersions.add(_version);
+        _liveVersionReferences.add(new VersionReference(_snapshotVersion, _releasedVersions));
+        _version++;
+        _changed = false;
+      }
+      return _snapshotVersion;
+    }
+  }
+
+  /**
+   * Gets a value as it was at a snapshot's version.
+   * 
+   * @param version the snapshot version, not null
+   * @param specification the value, not null
+   * @return the value, null if not present
+   */
+  /*package*/Object getValue(final Version version, final ValueSpecification specification) {
+    Entry entry = _values.get(specification);
+    while ((entry != null) && (entry._version > version._version)) {
+      entry = entry._previous;
+    }
+    return (entry != null) ? entry._value : null;
+  }
+
+  /**
+   * Gets the values present at a snapshot's version.
+   * <p>
+   * The set is a view, reading the values as they were at the version.
+   * 
+   * @param version the snapshot version, not null
+   * @return the values, not null
+   */
+  /*package*/Set<ValueSpecification> getValueKeys(final Version version) {
+    return new AbstractSet<ValueSpecification>() {
+
+      @Override
+      public boolean contains(final Object o) {
+        return (o instanceof ValueSpecification) && (getValue(version, (ValueSpecification) o) != null);
+      }
+
+      @Override
+      public int size() {
+        return version._size;
+      }
+
+      @Override
+      public Iterator<ValueSpecification> iterator() {
+        final Iterator<ValueSpecification> keys = _values.keySet().iterator();
+        return new Iterator<ValueSpecification>() {
+
+          private ValueSpecification _next = findNext();
+
+          private ValueSpecification findNext() {
+            while (keys.hasNext()) {
+              final ValueSpecification key = keys.next();
+              if (getValue(version, key) != null) {
+                return key;
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return _next != null;
+          }
+
+          @Override
+          public ValueSpecification next() {
+            if (_next == null) {
+              throw new NoSuchElementException();
+            }
+            final ValueSpecification next = _next;
+            _next = findNext();
+            return next;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+
+        };
+      }
+
+    };
   }
 
   //-------------------------------------------------------------------------
+  /**
+   * A value written at a version, linked to the value it replaced if a snapshot still reads that.
+   */
+  private static final class Entry {
+
+    private final long _version;
+    private final Object _value;
+    private volatile Entry _previous;
+
+    private Entry(final long version, final Object value, final Entry previous) {
+      _version = version;
+      _value = value;
+      _previous = previous;
+    }
+
+  }
+
+  /**
+   * The version read by one or more snapshots.
+   */
+  /*package*/static final class Version {
+
+    private final long _version;
+    private final int _size;
+
+    private Version(final long version, final int size) {
+      _version = version;
+      _size = size;
+    }
+
+    /*package*/int getSize() {
+      return _size;
+    }
+
+  }
+
+  /**
+   * Notices when no snapshot can read a version any more.
+   */
+  private static final class VersionReference extends WeakReference<Version> {
+
+    private final long _version;
+
+    private VersionReference(final Version version, final ReferenceQueue<Version> queue) {
+      super(version, queue);
+      _version = version._version;
+    }
 
-  /*package*/Map<ValueSpecification, Object> doSnapshot() {
-    return new HashMap<>(_lastKnownValues);
   }
 
 }
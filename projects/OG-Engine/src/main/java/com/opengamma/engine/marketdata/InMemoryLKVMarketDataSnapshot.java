@@ -6,7 +6,6 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -19,6 +18,8 @@ import com.opengamma.id.UniqueId;
 
 /**
  * An implementation of {@link MarketDataSnapshot} backed by an {@link InMemoryLKVMarketDataProvider}.
+ * <p>
+ * The values are not copied; they are read from the provider as they were at the version the snapshot was initialised with.
  */
 public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
@@ -26,7 +27,7 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
   private final InMemoryLKVMarketDataProvider _provider;
   private Instant _snapshotTime;
-  private Map<ValueSpecification, Object> _snapshot;
+  private InMemoryLKVMarketDataProvider.Version _snapshot;
 
   public InMemoryLKVMarketDataSnapshot(final InMemoryLKVMarketDataProvider provider) {
     _provider = provider;
@@ -63,7 +64,7 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
   @Override
   public boolean isEmpty() {
     assertInitialized();
-    return _snapshot.isEmpty();
+    return _snapshot.getSize() == 0;
   }
 
   @Override
@@ -73,16 +74,16 @@ public class InMemoryLKVMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
   @Override
   public Object query(final ValueSpecification value) {
-    return getSnapshot().get(value);
+    return getProvider().getValue(getSnapshot(), value);
   }
 
   //-------------------------------------------------------------------------
   public Set<ValueSpecification> getAllValueKeys() {
-    return Collections.unmodifiableSet(getSnapshot().keySet());
+    return Collections.unmodifiableSet(getProvider().getValueKeys(getSnapshot()));
   }
 
   //-------------------------------------------------------------------------
-  private Map<ValueSpecification, Object> getSnapshot() {
+  private InMemoryLKVMarketDataProvider.Version getSnapshot() {
     if (_snapshot == null) {
       throw new IllegalStateException("Snapshot has not been initialised");
     }
@@ -90,6 +90,12 @@ public class InMemoryLKVLiveMarketDataProvider extends AbstractMarketDataProvide
   private final WriteLock _subscriptionWriteLock = _subscriptionLock.writeLock();
   private final ReadLock _subscriptionReadLock = _subscriptionLock.readLock();
 
+  private volatile boolean _coalesceNotifications;
+  /** The changed values waiting to be notified, guarded by itself. */
+  private final Set<ValueSpecification> _pendingChanges = new HashSet<>();
+  /** Whether a thread is notifying the pending changes, guarded by the pending changes. */
+  private boolean _notifying;
+
   public InMemoryLKVLiveMarketDataProvider(final LiveDataClient liveDataClient, final MarketDataAvailabilityFilter availabilityFilter, final UserPrincipal marketDataUser) {
     this(liveDataClient, availabilityFilter, new LiveMarketDataPermissionProvider(liveDataClient), marketDataUser);
   }
@@ -176,6 +182,29 @@ public class InMemoryLKVLiveMarketDataProvider extends AbstractMarketDataProvide
     return results;
   }
   
+  /**
+   * Gets whether change notifications are coalesced.
+   * 
+   * @return true if coalesced
+   */
+  public boolean isCoalesceNotifications() {
+    return _coalesceNotifications;
+  }
+
+  /**
+   * Sets whether change notifications are coalesced.
+   * <p>
+   * By default listeners are notified once for each update received. When coalesced, the values changed by updates
+   * received while listeners are being notified are notified together, by the thread already notifying, once that
+   * notification returns. Every changed value is still notified, in fewer notifications, when updates arrive faster
+   * than the listeners (typically the trigger for a view cycle) handle them.
+   * 
+   * @param coalesceNotifications true to coalesce notifications
+   */
+  public void setCoalesceNotifications(final boolean coalesceNotifications) {
+    _coalesceNotifications = coalesceNotifications;
+  }
+
   /*package*/ InMemoryLKVMarketDataProvider getUnderlyingProvider() {
     return _underlyingProvider;
   }
@@ -460,7 +489,44 @@ public class InMemoryLKVLiveMarketDataProvider extends AbstractMarketDataProvide
       }
       _underlyingProvider.addValue(subscription, value);
     }
-    valuesChanged(subscribers);
+    if (isCoalesceNotifications()) {
+      coalesceValuesChanged(subscribers);
+    } else {
+      valuesChanged(subscribers);
+    }
+  }
+
+  private void coalesceValuesChanged(final Collection<ValueSpecification> specifications) {
+    synchronized (_pendingChanges) {
+      _pendingChanges.addAll(specifications);
+      if (_notifying) {
+        return;
+      }
+      _notifying = true;
+    }
+    boolean drained = false;
+    try {
+      while (true) {
+        final Set<ValueSpecification> changed;
+        synchronized (_pendingChanges) {
+          if (_pendingChanges.isEmpty()) {
+            _notifying = false;
+            drained = true;
+            return;
+          }
+          changed = new HashSet<>(_pendingChanges);
+          _pendingChanges.clear();
+        }
+        valuesChanged(changed);
+      }
+    } finally {
+      if (!drained) {
+        // a listener failed; leave the remaining changes for the next update to notify
+        synchronized (_pendingChanges) {
+          _notifying = false;
+        }
+      }
+    }
   }
 
   /**
@@ -6,6 +6,7 @@
 package com.opengamma.engine.value;
 
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -28,6 +29,7 @@ import com.opengamma.engine.value.properties.PropertyNameSet;
 import com.opengamma.engine.value.properties.SubtractivePropertiesBuilder;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.PublicAPI;
+import com.opengamma.util.WeakInstanceCache;
 
 /**
  * An immutable set of constraints on the values required, or properties of the value produced.
@@ -214,6 +216,12 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
 
     private final int _hashCode;
 
+    /**
+     * Recent {@link #isSatisfiedBy} and {@link #compose} results against other canonical instances, indexed by their hash code. Only used when this
+     * is also canonical.
+     */
+    private transient volatile Match[] _matches;
+
     /**
      * Creates a new instance, backed by the property array.
      * 
@@ -224,6 +232,27 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
       _hashCode = Arrays.hashCode(properties);
     }
 
+    private Match getMatch(final ValueProperties properties) {
+      final Match[] matches = _matches;
+      if (matches != null) {
+        final Match match = matches[properties.hashCode() & (MATCH_CACHE_SIZE - 1)];
+        if ((match != null) && (match.get() == properties)) {
+          return match;
+        }
+      }
+      return null;
+    }
+
+    private void setMatch(final Match match) {
+      Match[] matches = _matches;
+      if (matches == null) {
+        matches = new Match[MATCH_CACHE_SIZE];
+        _matches = matches;
+      }
+      // Racing writes may lose an entry, which just costs a later recalculation
+      matches[match.getHashCode() & (MATCH_CACHE_SIZE - 1)] = match;
+    }
+
     private boolean isLongerPropertyCount(final SimpleValueProperties other) {
       if (_properties.length < other._properties.length) {
         return true;
@@ -616,6 +645,15 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
       if (properties == this) {
         return true;
       }
+      if (isCanonical() && properties.isCanonical()) {
+        final Match match = getMatch(properties);
+        if ((match != null) && (match._satisfied != null)) {
+          return match._satisfied;
+        }
+        final boolean satisfied = properties.isSatisfySimple(this);
+        setMatch(new Match(properties, satisfied, (match != null) ? match.getComposed() : null));
+        return satisfied;
+      }
       return properties.isSatisfySimple(this);
     }
 
@@ -632,6 +670,16 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
       if (properties == this) {
         return this;
       }
+      if (isCanonical() && properties.isCanonical()) {
+        final Match match = getMatch(properties);
+        final ValueProperties previous = (match != null) ? match.getComposed() : null;
+        if (previous != null) {
+          return previous;
+        }
+        final ValueProperties composed = properties.rightIntersectSimple(this);
+        setMatch(new Match(properties, (match != null) ? match._satisfied : null, composed));
+        return composed;
+      }
       return properties.rightIntersectSimple(this);
     }
 
@@ -750,6 +798,10 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
       if (other._hashCode != _hashCode) {
         return false;
       }
+      if (isCanonical() && other.isCanonical()) {
+        // Distinct canonical instances are never equal
+        return false;
+      }
       return Arrays.equals(_properties, other._properties);
     }
 
@@ -1542,11 +1594,61 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
    */
   private static final ValueProperties INFINITE = new InfiniteValueProperties();
 
+  /**
+   * The canonical instances, as returned by {@link #intern}.
+   */
+  private static final WeakInstanceCache<ValueProperties> s_canonical = new WeakInstanceCache<ValueProperties>();
+
+  /**
+   * The number of recent match results held by each canonical instance; must be a power of two.
+   */
+  private static final int MATCH_CACHE_SIZE = 8;
+
+  /**
+   * A remembered result of testing or composing a canonical instance against another.
+   * <p>
+   * The other instance and the composed result are only weakly referenced, so canonical instances do not keep each other, or the results of composing
+   * them, from being collected and dropped from the canonical instance cache.
+   */
+  private static final class Match extends WeakReference<ValueProperties> {
+
+    private final int _hashCode;
+
+    private final Boolean _satisfied;
+
+    private final WeakReference<ValueProperties> _composed;
+
+    private Match(final ValueProperties properties, final Boolean satisfied, final ValueProperties composed) {
+      super(properties);
+      _hashCode = properties.hashCode();
+      _satisfied = satisfied;
+      _composed = (composed != null) ? new WeakReference<ValueProperties>(composed) : null;
+    }
+
+    private int getHashCode() {
+      return _hashCode;
+    }
+
+    private ValueProperties getComposed() {
+      return (_composed != null) ? _composed.get() : null;
+    }
+
+  }
+
+  /**
+   * Whether this is the canonical instance for its property set.
+   */
+  private transient volatile boolean _canonical;
+
   // internal implementation
 
   /* package */ValueProperties() {
   }
 
+  /* package */boolean isCanonical() {
+    return _canonical;
+  }
+
   /* package */abstract boolean isSatisfySimple(SimpleValueProperties other);
 
   /* package */abstract boolean isSatisfyNearInfinite(NearInfiniteValueProperties other);
@@ -1575,6 +1677,24 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
 
   // public API
 
+  /**
+   * Returns the canonical instance of this property set.
+   * <p>
+   * Equal property sets share a single canonical instance for as long as it is referenced. Canonical instances can be compared by reference, and
+   * remember the results of {@link #isSatisfiedBy} and {@link #compose} against other canonical instances, so long-lived property sets such as those
+   * of the value specifications and requirements in a dependency graph should be canonicalized.
+   * 
+   * @return the canonical instance, not null
+   */
+  public ValueProperties intern() {
+    if (_canonical) {
+      return this;
+    }
+    final ValueProperties canonical = s_canonical.get(this);
+    canonical._canonical = true;
+    return canonical;
+  }
+
   /**
    * Returns the empty property set, typically indicating no value constraints.
    * 
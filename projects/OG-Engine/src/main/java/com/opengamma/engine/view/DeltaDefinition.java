@@ -60,6 +60,25 @@ public class DeltaDefinition {
     return !ObjectUtils.equals(previousValue, newValue);
   }
   
+  /**
+   * Tests whether two {@code double} values are a delta. This gives the same answer as {@link #isDelta(ComputedValue, ComputedValue)} for values
+   * with equal specifications but avoids boxing when comparing whole columns of results.
+   * 
+   * @param previousValue the previous value
+   * @param newValue the new value
+   * @return true if the new value is a delta, false otherwise
+   */
+  public boolean isDelta(final double previousValue, final double newValue) {
+    final DeltaComparer<Number> comparer = getNumberComparer();
+    if (comparer == null) {
+      return Double.doubleToLongBits(previousValue) != Double.doubleToLongBits(newValue);
+    }
+    if (comparer instanceof NumberDeltaComparer) {
+      return ((NumberDeltaComparer) comparer).isDelta(previousValue, newValue);
+    }
+    return comparer.isDelta(previousValue, newValue);
+  }
+
   @Override
   public int hashCode() {
     return ObjectUtils.hashCode(_numberComparer);
@@ -43,12 +43,20 @@ public class NumberDeltaComparer implements DeltaComparer<Number> {
     if (previousValue == null || newValue == null) {
       return true;
     }
-    
-    long previousCompare = (long) (previousValue.doubleValue() * _multiplier);
-    long newCompare = (long) (newValue.doubleValue() * _multiplier);
-    return previousCompare != newCompare;
+    return isDelta(previousValue.doubleValue(), newValue.doubleValue());
   }
   
+  /**
+   * Indicates whether the difference between two {@code double} values is sufficient to be treated as a delta.
+   * 
+   * @param previousValue the previous value
+   * @param newValue the new value
+   * @return true if {@code newValue} should be treated as a delta, otherwise false
+   */
+  public boolean isDelta(final double previousValue, final double newValue) {
+    return (long) (previousValue * _multiplier) != (long) (newValue * _multiplier);
+  }
+
   public FudgeMsg toFudgeMsg(FudgeSerializer fudgeContext) {
     MutableFudgeMsg msg = fudgeContext.newMessage();
     msg.add(DECIMAL_PLACES_FIELD, _decimalPlaces);
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.client;
 
+import java.util.BitSet;
 import java.util.Map;
 
 import org.apache.commons.lang.ObjectUtils;
@@ -18,6 +19,7 @@ import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.impl.ColumnarViewCalculationResultModel;
 import com.opengamma.engine.view.impl.InMemoryViewDeltaResultModel;
 import com.opengamma.util.tuple.Pair;
 
@@ -49,6 +51,14 @@ public class ViewDeltaResultCalculator {
       final DeltaDefinition deltaDefinition = viewDefinition.getCalculationConfiguration(calcConfigName).getDeltaDefinition();
       final ViewCalculationResultModel resultCalcModel = result.getCalculationResult(calcConfigName);
       final ViewCalculationResultModel previousCalcModel = previousResult != null ? previousResult.getCalculationResult(calcConfigName) : null;
+      if ((resultCalcModel instanceof ColumnarViewCalculationResultModel) && (previousCalcModel instanceof ColumnarViewCalculationResultModel)) {
+        final ColumnarViewCalculationResultModel resultColumns = (ColumnarViewCalculationResultModel) resultCalcModel;
+        final ColumnarViewCalculationResultModel previousColumns = (ColumnarViewCalculationResultModel) previousCalcModel;
+        if (resultColumns.getIndex() == previousColumns.getIndex()) {
+          computeDeltaModel(deltaDefinition, deltaModel, calcConfigName, previousColumns, resultColumns);
+          continue;
+        }
+      }
       for (ComputationTargetSpecification targetSpec : resultCalcModel.getAllTargets()) {
         computeDeltaModel(deltaDefinition, deltaModel, targetSpec, calcConfigName, previousCalcModel, resultCalcModel);
       }
@@ -56,6 +66,18 @@ public class ViewDeltaResultCalculator {
     return deltaModel;
   }
 
+  private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, String calcConfigName,
+      ColumnarViewCalculationResultModel previousCalcModel, ColumnarViewCalculationResultModel resultCalcModel) {
+    // The models share a target index, so the rows of each column can be compared directly
+    for (ColumnarViewCalculationResultModel.Column resultColumn : resultCalcModel.getColumns()) {
+      final ColumnarViewCalculationResultModel.Column previousColumn = previousCalcModel.getColumn(resultColumn.getValueName(), resultColumn.getProperties());
+      final BitSet deltas = resultColumn.getDeltas(previousColumn, deltaDefinition);
+      for (int i = deltas.nextSetBit(0); i >= 0; i = deltas.nextSetBit(i + 1)) {
+        deltaModel.addValue(calcConfigName, resultColumn.getResult(i));
+      }
+    }
+  }
+
   private static void computeDeltaModel(DeltaDefinition deltaDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
       String calcConfigName, ViewCalculationResultModel previousCalcModel, ViewCalculationResultModel resultCalcModel) {
     final Map<Pair<String, ValueProperties>, ComputedValueResult> resultValues = resultCalcModel.getValues(targetSpec);
@@ -5,8 +5,10 @@
  */
 package com.opengamma.engine.view.compilation;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -76,6 +78,63 @@ public final class PartiallyCompiledGraph implements DependencyGraph {
     return _requirements;
   }
 
+  private boolean isTerminal(final DependencyNode node) {
+    final int count = node.getOutputCount();
+    for (int i = 0; i < count; i++) {
+      if (_terminals.containsKey(node.getOutputValue(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes any root nodes that no longer produce a terminal output, along with any of their inputs that are not used by a remaining node.
+   * <p>
+   * This is used after terminal outputs have been removed, for example because their targets are no longer part of the portfolio, so that the graph builder is not populated with fragments of
+   * graph that would only be discarded once the incremental compilation has completed. Nodes that are retained are not modified.
+   * 
+   * @return the number of nodes removed
+   */
+  public int removeUnnecessaryNodes() {
+    // Count the number of times each node is used as an input
+    final Map<DependencyNode, Integer> usage = new HashMap<DependencyNode, Integer>();
+    final Iterator<DependencyNode> itr = nodeIterator();
+    while (itr.hasNext()) {
+      final DependencyNode node = itr.next();
+      final int count = node.getInputCount();
+      for (int i = 0; i < count; i++) {
+        final DependencyNode input = node.getInputNode(i);
+        final Integer uses = usage.get(input);
+        usage.put(input, (uses != null) ? uses + 1 : 1);
+      }
+    }
+    // Discard roots that are not terminal; any input no longer used by another node becomes a root candidate
+    final Deque<DependencyNode> pending = new ArrayDeque<DependencyNode>(_roots);
+    _roots.clear();
+    int removed = 0;
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.removeFirst();
+      if (isTerminal(node)) {
+        _roots.add(node);
+        continue;
+      }
+      removed++;
+      final int count = node.getInputCount();
+      for (int i = 0; i < count; i++) {
+        final DependencyNode input = node.getInputNode(i);
+        final int uses = usage.get(input) - 1;
+        if (uses == 0) {
+          usage.remove(input);
+          pending.addLast(input);
+        } else {
+          usage.put(input, uses);
+        }
+      }
+    }
+    return removed;
+  }
+
   // DependencyGraph
 
   @Override
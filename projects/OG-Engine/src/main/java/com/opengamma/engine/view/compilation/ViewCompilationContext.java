@@ -7,7 +7,9 @@ package com.opengamma.engine.view.compilation;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -23,6 +25,7 @@ import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
 import com.opengamma.engine.function.resolver.ComputationTargetResults;
 import com.opengamma.engine.function.resolver.DefaultCompiledFunctionResolver;
 import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.function.resolver.ResolutionRuleTransform;
 import com.opengamma.engine.target.ComputationTargetReference;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
@@ -43,8 +46,27 @@ import com.opengamma.id.VersionCorrection;
   private final CompiledFunctionResolver _functions;
   private final Collection<ResolutionRule> _rules;
   private final ComputationTargetResolver.AtVersionCorrection _targetResolver;
+  private final Map<ResolutionRuleTransform, SharedRules> _sharedRules;
   private Set<UniqueId> _expiredResolutions;
 
+  /**
+   * Transformed resolution rules, and a resolver holding their compiled form, shared by the calculation configurations with the same rule transform.
+   * <p>
+   * Only the prioritized rules are shared; each configuration gets its own resolver over them because the functions' results, and the resolver's
+   * cache of them, depend on the compilation context which names the configuration.
+   */
+  private static final class SharedRules {
+
+    private final Collection<ResolutionRule> _rules;
+    private final DefaultCompiledFunctionResolver _compiled;
+
+    private SharedRules(final Collection<ResolutionRule> rules, final DefaultCompiledFunctionResolver compiled) {
+      _rules = rules;
+      _compiled = compiled;
+    }
+
+  }
+
   /* package */ViewCompilationContext(final ViewDefinition viewDefinition, final ViewCompilationServices compilationServices,
       final Instant valuationTime, final VersionCorrection resolverVersionCorrection, final ConcurrentMap<ComputationTargetReference, UniqueId> resolutions) {
     _viewDefinition = viewDefinition;
@@ -55,6 +77,7 @@ import com.opengamma.id.VersionCorrection;
     _rules = _functions.getAllResolutionRules();
     _targetResolver = TargetResolutionLogger.of(compilationServices.getFunctionCompilationContext().getRawComputationTargetResolver().atVersionCorrection(resolverVersionCorrection), resolutions,
         _expiredResolutions);
+    _sharedRules = ViewDefinitionCompiler.isParallelCalculationConfigurations() ? new HashMap<ResolutionRuleTransform, SharedRules>() : null;
     for (final ViewCalculationConfiguration calcConfig : viewDefinition.getAllCalculationConfigurations()) {
       _builders.add(createBuilder(calcConfig));
     }
@@ -70,10 +93,28 @@ import com.opengamma.id.VersionCorrection;
     final FunctionCompilationContext compilationContext = _services.getFunctionCompilationContext().clone();
     compilationContext.setViewCalculationConfiguration(calcConfig);
     compilationContext.setComputationTargetResolver(_targetResolver);
-    final Collection<ResolutionRule> transformedRules = calcConfig.getResolutionRuleTransform().transform(_rules);
+    final Collection<ResolutionRule> transformedRules;
+    final DefaultCompiledFunctionResolver functionResolver;
+    if (_sharedRules != null) {
+      SharedRules shared;
+      synchronized (_sharedRules) {
+        shared = _sharedRules.get(calcConfig.getResolutionRuleTransform());
+        if (shared == null) {
+          final Collection<ResolutionRule> rules = calcConfig.getResolutionRuleTransform().transform(_rules);
+          final DefaultCompiledFunctionResolver compiled = new DefaultCompiledFunctionResolver(compilationContext, rules);
+          compiled.compileRules();
+          shared = new SharedRules(rules, compiled);
+          _sharedRules.put(calcConfig.getResolutionRuleTransform(), shared);
+        }
+      }
+      transformedRules = shared._rules;
+      functionResolver = new DefaultCompiledFunctionResolver(compilationContext, shared._compiled);
+    } else {
+      transformedRules = calcConfig.getResolutionRuleTransform().transform(_rules);
+      functionResolver = new DefaultCompiledFunctionResolver(compilationContext, transformedRules);
+      functionResolver.compileRules();
+    }
     compilationContext.setComputationTargetResults(new ComputationTargetResults(transformedRules));
-    final DefaultCompiledFunctionResolver functionResolver = new DefaultCompiledFunctionResolver(compilationContext, transformedRules);
-    functionResolver.compileRules();
     builder.setFunctionResolver(functionResolver);
     compilationContext.init();
     builder.setCompilationContext(compilationContext);
@@ -70,6 +70,7 @@ public final class ViewDefinitionCompiler {
 
   private static final Logger s_logger = LoggerFactory.getLogger(ViewDefinitionCompiler.class);
   private static boolean s_striped;
+  private static volatile boolean s_parallel = System.getProperty("ViewDefinitionCompiler.parallelCalculationConfigurations", "FALSE").equalsIgnoreCase("TRUE");
   private static Timer s_fullTimer = new Timer(); // timer for full graph compilation (replaced if registerMetrics called)
   private static Timer s_deltaTimer = new Timer(); // timer for delta graph compilation (replaced if registerMetrics called)
 
@@ -180,12 +181,21 @@ public final class ViewDefinitionCompiler {
     protected abstract void compile(DependencyGraphBuilder builder);
 
     protected void compile() {
+      final boolean parallel = isParallelCalculationConfigurations();
+      if (parallel) {
+        // Add the requirements to every builder before waiting for any of them so that the background threads (limited by the builder factory
+        // across all of the builders) work on all of the graphs concurrently
+        for (final DependencyGraphBuilder builder : getContext().getBuilders()) {
+          compile(builder);
+        }
+      }
       final Iterator<DependencyGraphBuilder> builders = getContext().getBuilders().iterator();
       while (builders.hasNext()) {
         final DependencyGraphBuilder builder = builders.next();
-        compile(builder);
-        // TODO: Use a heuristic to decide whether to let the graph builds run in parallel, or sequentially. We will force sequential builds for the time being.
-        // Wait for the current config's dependency graph to be built before moving to the next view calc config
+        if (!parallel) {
+          // Wait for the current config's dependency graph to be built before moving to the next view calc config
+          compile(builder);
+        }
         DependencyGraph graph = builder.getDependencyGraph();
         builders.remove();
         graph = DependencyGraphImpl.removeUnnecessaryValues(graph);
@@ -385,6 +395,7 @@ public final class ViewDefinitionCompiler {
     private final Map<String, PartiallyCompiledGraph> _previousGraphs;
     private final Set<UniqueId> _unchangedNodes;
     private final Set<UniqueId> _changedPositions;
+    private Set<UniqueId> _portfolioIdentifiers;
 
     protected IncrementalCompilationTask(final ViewCompilationContext context, final Map<String, PartiallyCompiledGraph> previousGraphs, final Set<UniqueId> changedPositions,
         final Set<UniqueId> unchangedNodes) {
@@ -394,6 +405,21 @@ public final class ViewDefinitionCompiler {
       _changedPositions = changedPositions;
     }
 
+    /**
+     * Returns the identifiers of the portfolio nodes, positions and trades in the portfolio. The portfolio is the same for each calculation configuration so is only traversed once per compilation.
+     * 
+     * @param portfolio the portfolio being compiled against, not null
+     * @return the identifiers, not null
+     */
+    private Set<UniqueId> getPortfolioIdentifiers(final Portfolio portfolio) {
+      if (_portfolioIdentifiers == null) {
+        final PortfolioIdentifierGatherer gatherer = new PortfolioIdentifierGatherer();
+        PortfolioNodeTraverser.parallel(gatherer, getContext().getServices().getExecutorService()).traverse(portfolio.getRootNode());
+        _portfolioIdentifiers = gatherer.getIdentifiers();
+      }
+      return _portfolioIdentifiers;
+    }
+
     @Override
     protected void compile(final DependencyGraphBuilder builder) {
       final ViewCalculationConfiguration calcConfig = getContext().getViewDefinition().getCalculationConfiguration(builder.getCalculationConfigurationName());
@@ -403,13 +429,12 @@ public final class ViewDefinitionCompiler {
       if (previousGraph != null) {
         if (builder.getCompilationContext().getPortfolio() != null) {
           // Remove any invalid terminal outputs from the graph and update the changed position set with any late noticed changes
-          final PortfolioIdentifierGatherer gatherer = new PortfolioIdentifierGatherer();
-          PortfolioNodeTraverser.parallel(gatherer, getContext().getServices().getExecutorService()).traverse(builder.getCompilationContext().getPortfolio().getRootNode());
-          final Set<UniqueId> identifiers = gatherer.getIdentifiers();
+          final Set<UniqueId> identifiers = getPortfolioIdentifiers(builder.getCompilationContext().getPortfolio());
           final Set<ValueRequirement> specifics = calcConfig.getSpecificRequirements();
           final Iterator<Map.Entry<ValueSpecification, Set<ValueRequirement>>> itrTerminal = previousGraph.getTerminalOutputs().entrySet().iterator();
           Set<ValueRequirement> toRemove = null;
           Set<UniqueId> updatedPositions = null;
+          boolean terminalsRemoved = false;
           while (itrTerminal.hasNext()) {
             final Map.Entry<ValueSpecification, Set<ValueRequirement>> terminal = itrTerminal.next();
             final ValueSpecification terminalSpec = terminal.getKey();
@@ -442,6 +467,7 @@ public final class ViewDefinitionCompiler {
                   terminal.setValue(newReqs);
                   s_logger.trace("Pruned terminal output {} ({})", terminalSpec, toRemove);
                 }
+                terminalsRemoved = true;
                 if (_unchangedNodes == null) {
                   if (terminalTarget.getType().isTargetType(ComputationTargetType.POSITION)) {
                     // [PLAT-5097] This is an old, or updated position, that we've removed the terminal outputs for. In the case of an
@@ -458,6 +484,11 @@ public final class ViewDefinitionCompiler {
               }
             }
           }
+          if (terminalsRemoved) {
+            // Discard the parts of the graph that only served the removed targets before the builder indexes them
+            final int removed = previousGraph.removeUnnecessaryNodes();
+            s_logger.debug("Removed {} unnecessary nodes from previous {} graph", removed, calcConfig.getName());
+          }
           if (updatedPositions != null) {
             s_logger.info("Late updates detected on {} positions - updating the change set", updatedPositions.size());
             // Note: looking up the new identifiers of the updated positions (if they haven't been deleted) could be costly; good caching should
@@ -623,6 +654,31 @@ public final class ViewDefinitionCompiler {
     s_striped = useStripes;
   }
 
+  /**
+   * Indicates whether the graphs for all of the calculation configurations in a view are built concurrently or one after another.
+   * <p>
+   * Concurrent builds finish sooner for views with several calculation configurations but need the memory for all of the builds at once. Calculation
+   * configurations with the same resolution rule transform share the compiled resolution rules, but each resolves its own requirements because
+   * function results can depend on the calculation configuration's context.
+   * <p>
+   * The default is taken from the {@code ViewDefinitionCompiler.parallelCalculationConfigurations} system property if set, otherwise it is off.
+   * 
+   * @return true to build the calculation configurations concurrently, false to build them sequentially
+   */
+  public static boolean isParallelCalculationConfigurations() {
+    return s_parallel;
+  }
+
+  /**
+   * Sets whether the graphs for all of the calculation configurations in a view are built concurrently.
+   * 
+   * @param parallel true to build the calculation configurations concurrently, false to build them sequentially
+   * @see #isParallelCalculationConfigurations
+   */
+  public static void setParallelCalculationConfigurations(final boolean parallel) {
+    s_parallel = parallel;
+  }
+
   private static void addPortfolioRequirements(final DependencyGraphBuilder builder, final Set<ValueRequirement> alreadyAdded, final ViewCompilationContext context,
       final ViewCalculationConfiguration calcConfig, final Set<UniqueId> includeEvents, final Set<UniqueId> excludeEvents) {
     if (calcConfig.getAllPortfolioRequirements().size() == 0) {
@@ -68,8 +68,10 @@ import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
+import com.opengamma.engine.view.impl.TargetOrdinalIndex;
 import com.opengamma.engine.view.impl.ViewProcessContext;
 import com.opengamma.engine.view.listener.ComputationResultListener;
 import com.opengamma.id.UniqueId;
@@ -119,16 +121,36 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   private volatile SingleComputationCycleExecutor _executor;
 
   // Output
-  private final InMemoryViewComputationResultModel _resultModel;
+  private final ColumnarViewComputationResultModel _resultModel;
 
   public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
       final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection) {
+    this(cycleId, name, cycleFragmentResultListener, viewProcessContext, compiledViewDefinition, executionOptions, versionCorrection, new TargetOrdinalIndex());
+  }
+
+  /**
+   * Creates a cycle whose full result model shares a target index with other cycles of the same view. The deltas between the results of cycles
+   * sharing an index can be calculated column by column.
+   * 
+   * @param cycleId the cycle identifier, not null
+   * @param name the cycle name
+   * @param cycleFragmentResultListener the listener for result fragments, not null
+   * @param viewProcessContext the view process context, not null
+   * @param compiledViewDefinition the compiled view definition, not null
+   * @param executionOptions the cycle execution options, not null
+   * @param versionCorrection the resolved version/correction, not null
+   * @param targetIndex the target index for the full result model, not null
+   */
+  public SingleComputationCycle(final UniqueId cycleId, final String name, final ComputationResultListener cycleFragmentResultListener, final ViewProcessContext viewProcessContext,
+      final CompiledViewDefinitionWithGraphs compiledViewDefinition, final ViewCycleExecutionOptions executionOptions, final VersionCorrection versionCorrection,
+      final TargetOrdinalIndex targetIndex) {
     ArgumentChecker.notNull(cycleId, "cycleId");
     ArgumentChecker.notNull(cycleFragmentResultListener, "cycleFragmentResultListener");
     ArgumentChecker.notNull(viewProcessContext, "viewProcessContext");
     ArgumentChecker.notNull(compiledViewDefinition, "compiledViewDefinition");
     ArgumentChecker.notNull(executionOptions, "executionOptions");
     ArgumentChecker.isFalse(versionCorrection.containsLatest(), "versionCorrection must be fully-resolved");
+    ArgumentChecker.notNull(targetIndex, "targetIndex");
     _cycleId = cycleId;
     _name = name;
     _viewProcessContext = viewProcessContext;
@@ -136,7 +158,11 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     _cycleFragmentResultListener = cycleFragmentResultListener;
     _executionOptions = executionOptions;
     _versionCorrection = versionCorrection;
-    _resultModel = constructTemplateResultModel();
+    _resultModel = new ColumnarViewComputationResultModel(targetIndex);
+    _resultModel.setViewCycleId(getCycleId());
+    _resultModel.setViewProcessId(getViewProcessId());
+    _resultModel.setViewCycleExecutionOptions(getExecutionOptions());
+    _resultModel.setVersionCorrection(getVersionCorrection());
   }
 
   protected InMemoryViewComputationResultModel constructTemplateResultModel() {
@@ -258,7 +284,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   @Override
-  public InMemoryViewComputationResultModel getResultModel() {
+  public ColumnarViewComputationResultModel getResultModel() {
     return _resultModel;
   }
 
@@ -403,7 +429,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * Adds suppressed output markers to the result model for all terminal outputs.
    */
   private void generateSuppressedOutputs() {
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final ColumnarViewComputationResultModel fullResultModel = getResultModel();
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
     for (CompiledViewCalculationConfiguration compiledCalcConfig : getCompiledViewDefinition().getCompiledCalculationConfigurations()) {
       String calcConfigName = compiledCalcConfig.getName();
@@ -460,7 +486,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     final Set<ValueSpecification> allRequiredMarketData = getCompiledViewDefinition().getMarketDataRequirements();
     s_logger.debug("Populating {} market data items using snapshot {}", allRequiredMarketData.size(), snapshot);
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final ColumnarViewComputationResultModel fullResultModel = getResultModel();
     final Map<ValueSpecification, Object> marketDataValues = snapshot.query(allRequiredMarketData);
     if (suppressExecutionOnNoMarketData && allRequiredMarketData.size() > 0 && marketDataValues.size() == 0) {
       // Market data was expected but the snapshot was empty. Don't bother doing anything else, and indicate that
@@ -547,7 +573,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
     final FunctionParametersDelta parameterDelta = FunctionParametersDelta.of(previousCycle.getExecutionOptions(), getExecutionOptions());
     final InMemoryViewComputationResultModel fragmentResultModel = constructTemplateResultModel();
-    final InMemoryViewComputationResultModel fullResultModel = getResultModel();
+    final ColumnarViewComputationResultModel fullResultModel = getResultModel();
     final CompiledViewDefinition previousViewDefinition = previousCycle.getCompiledViewDefinition();
     final CompiledViewDefinitionWithGraphs viewDefinition = getCompiledViewDefinition();
     for (final DependencyGraphExplorer depGraphExplorer : viewDefinition.getDependencyGraphExplorers()) {
@@ -40,6 +40,7 @@ import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.AggregatedExecutionLog;
 import com.opengamma.engine.view.ExecutionLog;
 import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.engine.view.impl.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.impl.ExecutionLogModeSource;
 import com.opengamma.engine.view.impl.InMemoryViewComputationResultModel;
 import com.opengamma.util.async.Cancelable;
@@ -136,7 +137,7 @@ import com.opengamma.util.tuple.Pair;
       return _terminalOutputs;
     }
 
-    public void buildResults(final InMemoryViewComputationResultModel fragmentResultModel, final InMemoryViewComputationResultModel fullResultModel) {
+    public void buildResults(final InMemoryViewComputationResultModel fragmentResultModel, final ColumnarViewComputationResultModel fullResultModel) {
       if (_terminalOutputs.isEmpty()) {
         return;
       }
@@ -195,7 +196,7 @@ import com.opengamma.util.tuple.Pair;
           } else {
             s_logger.debug("Building result fragment");
             final InMemoryViewComputationResultModel fragmentResultModel = getCycle().constructTemplateResultModel();
-            final InMemoryViewComputationResultModel fullResultModel = getCycle().getResultModel();
+            final ColumnarViewComputationResultModel fullResultModel = getCycle().getResultModel();
             for (ExecutingCalculationConfiguration calcConfig : _executing.values()) {
               calcConfig.buildResults(fragmentResultModel, fullResultModel);
             }
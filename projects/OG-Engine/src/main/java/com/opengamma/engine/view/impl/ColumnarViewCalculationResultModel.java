@@ -0,0 +1,420 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.InvocationResult;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.DeltaDefinition;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * An implementation of the calculation result model which holds each value name and properties pair as a column.
+ * <p>
+ * Rows are indexed by the ordinal allocated to the target by a {@link TargetOrdinalIndex}. Results which are {@code double} values are held in a
+ * primitive array; a column only allocates an object array once it holds something else. The value specification of a cell is implied by its
+ * column and row, and the remaining per-result detail (execution log, compute node, missing inputs and invocation result) takes few distinct
+ * values, so each distinct combination is held once per model and referenced from the cells by number. The {@link ComputedValueResult}
+ * instances are only created when the values are queried through the {@link ViewCalculationResultModel} methods, so a large result set does not
+ * retain an object (and map entry) per cell.
+ * <p>
+ * Two models sharing the same index can be compared column by column, see {@link Column#getDeltas}.
+ */
+public class ColumnarViewCalculationResultModel implements ViewCalculationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int INITIAL_ROWS = 16;
+
+  /**
+   * The detail of a result other than its specification and value.
+   */
+  private static final class Detail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AggregatedExecutionLog _log;
+    private final String _computeNodeId;
+    private final Set<ValueSpecification> _missingInputs;
+    private final InvocationResult _invocationResult;
+    private final int _hashCode;
+
+    private Detail(final ComputedValueResult value) {
+      _log = value.getAggregatedExecutionLog();
+      _computeNodeId = value.getComputeNodeId();
+      _missingInputs = value.getMissingInputs();
+      _invocationResult = value.getInvocationResult();
+      _hashCode = ObjectUtils.hashCode(_log) ^ ObjectUtils.hashCode(_computeNodeId) ^ ObjectUtils.hashCode(_missingInputs) ^ ObjectUtils.hashCode(_invocationResult);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Detail)) {
+        return false;
+      }
+      final Detail other = (Detail) o;
+      return (_hashCode == other._hashCode) && ObjectUtils.equals(_log, other._log) && ObjectUtils.equals(_computeNodeId, other._computeNodeId)
+          && ObjectUtils.equals(_missingInputs, other._missingInputs) && (_invocationResult == other._invocationResult);
+    }
+
+  }
+
+  /**
+   * The distinct details of the results in a model.
+   */
+  private static final class Details implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object2IntOpenHashMap<Detail> _ids = new Object2IntOpenHashMap<Detail>();
+    private final List<Detail> _details = new ArrayList<Detail>();
+
+    private Details() {
+      _ids.defaultReturnValue(-1);
+    }
+
+    private int getId(final ComputedValueResult value) {
+      final Detail detail = new Detail(value);
+      int id = _ids.getInt(detail);
+      if (id < 0) {
+        id = _details.size();
+        _details.add(detail);
+        _ids.put(detail, id);
+      }
+      return id;
+    }
+
+    private Detail get(final int id) {
+      return _details.get(id);
+    }
+
+  }
+
+  /**
+   * A single column of results, for one value name and set of properties.
+   */
+  public static final class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String _valueName;
+    private final ValueProperties _properties;
+    private final TargetOrdinalIndex _index;
+    private final Details _details;
+    private final BitSet _present = new BitSet();
+    private final BitSet _primitive = new BitSet();
+    private double[] _doubles;
+    private int[] _detailIds;
+    private Object[] _values;
+
+    private Column(final String valueName, final ValueProperties properties, final TargetOrdinalIndex index, final Details details, final int rows) {
+      _valueName = valueName;
+      _properties = properties;
+      _index = index;
+      _details = details;
+      _doubles = new double[rows];
+      _detailIds = new int[rows];
+    }
+
+    private void ensureCapacity(final int ordinal) {
+      if (ordinal >= _doubles.length) {
+        final int rows = Math.max(ordinal + 1, _doubles.length << 1);
+        _doubles = Arrays.copyOf(_doubles, rows);
+        _detailIds = Arrays.copyOf(_detailIds, rows);
+        if (_values != null) {
+          _values = Arrays.copyOf(_values, rows);
+        }
+      }
+    }
+
+    private void set(final int ordinal, final ComputedValueResult value) {
+      ensureCapacity(ordinal);
+      final Object v = value.getValue();
+      if (v instanceof Double) {
+        _doubles[ordinal] = (Double) v;
+        if (_values != null) {
+          _values[ordinal] = null;
+        }
+        _primitive.set(ordinal);
+      } else {
+        if (_values == null) {
+          _values = new Object[_doubles.length];
+        }
+        _doubles[ordinal] = 0;
+        _values[ordinal] = v;
+        _primitive.clear(ordinal);
+      }
+      _detailIds[ordinal] = _details.getId(value);
+      _present.set(ordinal);
+    }
+
+    public String getValueName() {
+      return _valueName;
+    }
+
+    public ValueProperties getProperties() {
+      return _properties;
+    }
+
+    /**
+     * Tests whether the column has a value for a row.
+     *
+     * @param ordinal the target ordinal
+     * @return true if there is a value, false otherwise
+     */
+    public boolean isPresent(final int ordinal) {
+      return _present.get(ordinal);
+    }
+
+    /**
+     * Tests whether the column holds a {@code double} value for a row.
+     *
+     * @param ordinal the target ordinal
+     * @return true if there is a {@code double} value, false otherwise
+     */
+    public boolean isDouble(final int ordinal) {
+      return _primitive.get(ordinal);
+    }
+
+    /**
+     * Returns the {@code double} value for a row. This is only valid if {@link #isDouble} returns true.
+     *
+     * @param ordinal the target ordinal
+     * @return the value
+     */
+    public double getDouble(final int ordinal) {
+      return _doubles[ordinal];
+    }
+
+    /**
+     * Returns the value for a row, boxing it if it is held as a {@code double}.
+     *
+     * @param ordinal the target ordinal
+     * @return the value, or null if there is none
+     */
+    public Object getValue(final int ordinal) {
+      if (_primitive.get(ordinal)) {
+        return _doubles[ordinal];
+      } else if (_present.get(ordinal)) {
+        return _values[ordinal];
+      } else {
+        return null;
+      }
+    }
+
+    private AggregatedExecutionLog getLog(final int ordinal) {
+      return _details.get(_detailIds[ordinal])._log;
+    }
+
+    /**
+     * Returns the result for a row as a new {@link ComputedValueResult}.
+     *
+     * @param ordinal the target ordinal
+     * @return the result, or null if there is none
+     */
+    public ComputedValueResult getResult(final int ordinal) {
+      if (!_present.get(ordinal)) {
+        return null;
+      }
+      final Detail detail = _details.get(_detailIds[ordinal]);
+      return new ComputedValueResult(new ValueSpecification(_valueName, _index.getTarget(ordinal), _properties), getValue(ordinal), detail._log,
+          detail._computeNodeId, detail._missingInputs, detail._invocationResult);
+    }
+
+    /**
+     * Returns the rows with values in this column. The caller must not modify the returned set.
+     *
+     * @return the target ordinals with values
+     */
+    public BitSet getOrdinals() {
+      return _present;
+    }
+
+    /**
+     * Identifies the rows of this column which are deltas from a previous column. The previous column must have been produced from a model sharing
+     * the same {@link TargetOrdinalIndex}.
+     * <p>
+     * The {@code double} values are compared in a single pass over the two primitive arrays; anything else falls back to
+     * {@link DeltaDefinition#isDelta(com.opengamma.engine.value.ComputedValue, com.opengamma.engine.value.ComputedValue)}. The specification of a row
+     * is the same in both columns; as with the map based comparison, a change to the aggregated execution log is always a delta.
+     *
+     * @param previous the previous column, or null if there was none
+     * @param deltaDefinition the delta definition, not null
+     * @return the target ordinals which are deltas
+     */
+    public BitSet getDeltas(final Column previous, final DeltaDefinition deltaDefinition) {
+      final BitSet deltas = (BitSet) _present.clone();
+      if (previous == null) {
+        return deltas;
+      }
+      // Rows which are double in both columns can be compared without boxing
+      final BitSet primitive = (BitSet) _primitive.clone();
+      primitive.and(previous._primitive);
+      final double[] previousDoubles = previous._doubles;
+      final double[] doubles = _doubles;
+      for (int i = primitive.nextSetBit(0); i >= 0; i = primitive.nextSetBit(i + 1)) {
+        if (!deltaDefinition.isDelta(previousDoubles[i], doubles[i])) {
+          deltas.clear(i);
+        }
+      }
+      // Everything else present in both columns
+      final BitSet other = (BitSet) _present.clone();
+      other.and(previous._present);
+      other.andNot(primitive);
+      for (int i = other.nextSetBit(0); i >= 0; i = other.nextSetBit(i + 1)) {
+        if (!deltaDefinition.isDelta(previous.getResult(i), getResult(i))) {
+          deltas.clear(i);
+        }
+      }
+      // Execution log changes are always deltas
+      other.or(primitive);
+      other.andNot(deltas);
+      for (int i = other.nextSetBit(0); i >= 0; i = other.nextSetBit(i + 1)) {
+        if (!ObjectUtils.equals(previous.getLog(i), getLog(i))) {
+          deltas.set(i);
+        }
+      }
+      return deltas;
+    }
+
+  }
+
+  private final TargetOrdinalIndex _index;
+  private final Details _details = new Details();
+  private final Map<Pair<String, ValueProperties>, Column> _columns = new HashMap<Pair<String, ValueProperties>, Column>();
+  private final BitSet _targets = new BitSet();
+
+  /**
+   * Creates a new model.
+   *
+   * @param index the target ordinal index, not null
+   */
+  public ColumnarViewCalculationResultModel(final TargetOrdinalIndex index) {
+    ArgumentChecker.notNull(index, "index");
+    _index = index;
+  }
+
+  public TargetOrdinalIndex getIndex() {
+    return _index;
+  }
+
+  /**
+   * Adds a value, replacing any previous value for the same target, value name and properties.
+   *
+   * @param value the value to add, not null
+   */
+  public void addValue(final ComputedValueResult value) {
+    final ValueSpecification specification = value.getSpecification();
+    final int ordinal = _index.getOrdinal(specification.getTargetSpecification());
+    final Pair<String, ValueProperties> key = Pairs.of(specification.getValueName(), specification.getProperties());
+    Column column = _columns.get(key);
+    if (column == null) {
+      column = new Column(specification.getValueName(), specification.getProperties(), _index, _details, INITIAL_ROWS);
+      _columns.put(key, column);
+    }
+    column.set(ordinal, value);
+    _targets.set(ordinal);
+  }
+
+  /**
+   * Returns the columns of the model.
+   *
+   * @return the columns, not null
+   */
+  public Collection<Column> getColumns() {
+    return Collections.unmodifiableCollection(_columns.values());
+  }
+
+  /**
+   * Returns a column of the model.
+   *
+   * @param valueName the value name, not null
+   * @param properties the value properties, not null
+   * @return the column, or null if there is none
+   */
+  public Column getColumn(final String valueName, final ValueProperties properties) {
+    return _columns.get(Pairs.of(valueName, properties));
+  }
+
+  private int findOrdinal(final ComputationTargetSpecification target) {
+    final int ordinal = _index.findOrdinal(target);
+    if ((ordinal == TargetOrdinalIndex.NOT_FOUND) || !_targets.get(ordinal)) {
+      return TargetOrdinalIndex.NOT_FOUND;
+    }
+    return ordinal;
+  }
+
+  @Override
+  public Collection<ComputationTargetSpecification> getAllTargets() {
+    final List<ComputationTargetSpecification> targets = new ArrayList<ComputationTargetSpecification>(_targets.cardinality());
+    for (int i = _targets.nextSetBit(0); i >= 0; i = _targets.nextSetBit(i + 1)) {
+      targets.add(_index.getTarget(i));
+    }
+    return targets;
+  }
+
+  @Override
+  public Map<Pair<String, ValueProperties>, ComputedValueResult> getValues(final ComputationTargetSpecification target) {
+    final int ordinal = findOrdinal(target);
+    if (ordinal == TargetOrdinalIndex.NOT_FOUND) {
+      return null;
+    }
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> values = new HashMap<Pair<String, ValueProperties>, ComputedValueResult>();
+    for (Map.Entry<Pair<String, ValueProperties>, Column> column : _columns.entrySet()) {
+      final ComputedValueResult value = column.getValue().getResult(ordinal);
+      if (value != null) {
+        values.put(column.getKey(), value);
+      }
+    }
+    return Collections.unmodifiableMap(values);
+  }
+
+  @Override
+  public Collection<ComputedValueResult> getAllValues(final ComputationTargetSpecification target) {
+    final int ordinal = findOrdinal(target);
+    if (ordinal == TargetOrdinalIndex.NOT_FOUND) {
+      return null;
+    }
+    final List<ComputedValueResult> values = new ArrayList<ComputedValueResult>(_columns.size());
+    for (Column column : _columns.values()) {
+      final ComputedValueResult value = column.getResult(ordinal);
+      if (value != null) {
+        values.add(value);
+      }
+    }
+    return Collections.unmodifiableCollection(values);
+  }
+
+}
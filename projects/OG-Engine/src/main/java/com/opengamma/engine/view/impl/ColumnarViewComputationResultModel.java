@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.threeten.bp.Duration;
+import org.threeten.bp.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.engine.view.ViewTargetResultModel;
+import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An implementation of {@link ViewComputationResultModel} holding the results of each calculation configuration in a
+ * {@link ColumnarViewCalculationResultModel}.
+ * <p>
+ * Models for successive cycles of a view should be constructed with the same {@link TargetOrdinalIndex} so that the deltas between them can be
+ * computed column by column by {@link com.opengamma.engine.view.client.ViewDeltaResultCalculator}. The per-target view of the results is built on
+ * demand.
+ */
+public class ColumnarViewComputationResultModel implements ViewComputationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final TargetOrdinalIndex _index;
+  private UniqueId _viewProcessId;
+  private UniqueId _viewCycleId;
+  private ViewCycleExecutionOptions _viewCycleExecutionOptions;
+  private Instant _calculationTime;
+  private Duration _calculationDuration;
+  private VersionCorrection _versionCorrection;
+  private final Map<String, ColumnarViewCalculationResultModel> _resultsByConfiguration = new HashMap<String, ColumnarViewCalculationResultModel>();
+  private final Map<ValueSpecification, ComputedValue> _allMarketData = new HashMap<ValueSpecification, ComputedValue>();
+
+  /**
+   * Creates a new model with its own target index.
+   */
+  public ColumnarViewComputationResultModel() {
+    this(new TargetOrdinalIndex());
+  }
+
+  /**
+   * Creates a new model.
+   *
+   * @param index the target index, not null
+   */
+  public ColumnarViewComputationResultModel(final TargetOrdinalIndex index) {
+    ArgumentChecker.notNull(index, "index");
+    _index = index;
+  }
+
+  /**
+   * Creates a new model populated from an existing one.
+   *
+   * @param copyFrom the model to copy, not null
+   * @param index the target index, not null
+   */
+  public ColumnarViewComputationResultModel(final ViewResultModel copyFrom, final TargetOrdinalIndex index) {
+    this(index);
+    update(copyFrom);
+  }
+
+  public TargetOrdinalIndex getIndex() {
+    return _index;
+  }
+
+  /**
+   * Updates the data held in this model with data from (and about) a delta cycle.
+   *
+   * @param delta the delta results, not null
+   */
+  public void update(final ViewResultModel delta) {
+    setViewProcessId(delta.getViewProcessId());
+    setViewCycleId(delta.getViewCycleId());
+    setViewCycleExecutionOptions(delta.getViewCycleExecutionOptions());
+    setCalculationTime(delta.getCalculationTime());
+    setCalculationDuration(delta.getCalculationDuration());
+    setVersionCorrection(delta.getVersionCorrection());
+    for (String calculationConfiguration : delta.getCalculationConfigurationNames()) {
+      final ViewCalculationResultModel deltaConfigResults = delta.getCalculationResult(calculationConfiguration);
+      final ColumnarViewCalculationResultModel calcConfigResults = getOrCreateCalculationResult(calculationConfiguration);
+      for (ComputationTargetSpecification target : deltaConfigResults.getAllTargets()) {
+        for (ComputedValueResult value : deltaConfigResults.getAllValues(target)) {
+          calcConfigResults.addValue(value);
+        }
+      }
+    }
+    if (delta instanceof ViewComputationResultModel) {
+      for (ComputedValue marketData : ((ViewComputationResultModel) delta).getAllMarketData()) {
+        addMarketData(marketData);
+      }
+    }
+  }
+
+  private ColumnarViewCalculationResultModel getOrCreateCalculationResult(final String calcConfigurationName) {
+    ColumnarViewCalculationResultModel result = _resultsByConfiguration.get(calcConfigurationName);
+    if (result == null) {
+      result = new ColumnarViewCalculationResultModel(_index);
+      _resultsByConfiguration.put(calcConfigurationName, result);
+    }
+    return result;
+  }
+
+  public void addValue(final String calcConfigurationName, final ComputedValueResult value) {
+    getOrCreateCalculationResult(calcConfigurationName).addValue(value);
+  }
+
+  /**
+   * Adds a market data value, replacing any previous item with the same value specification.
+   *
+   * @param marketData the market data value, not null
+   */
+  public void addMarketData(final ComputedValue marketData) {
+    _allMarketData.put(marketData.getSpecification(), marketData);
+  }
+
+  public boolean isEmpty() {
+    for (ColumnarViewCalculationResultModel result : _resultsByConfiguration.values()) {
+      if (!result.getColumns().isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public UniqueId getViewProcessId() {
+    return _viewProcessId;
+  }
+
+  public void setViewProcessId(final UniqueId viewProcessId) {
+    _viewProcessId = viewProcessId;
+  }
+
+  @Override
+  public UniqueId getViewCycleId() {
+    return _viewCycleId;
+  }
+
+  public void setViewCycleId(final UniqueId viewCycleId) {
+    _viewCycleId = viewCycleId;
+  }
+
+  @Override
+  public ViewCycleExecutionOptions getViewCycleExecutionOptions() {
+    return _viewCycleExecutionOptions;
+  }
+
+  public void setViewCycleExecutionOptions(final ViewCycleExecutionOptions viewCycleExecutionOptions) {
+    _viewCycleExecutionOptions = viewCycleExecutionOptions;
+  }
+
+  @Override
+  public Instant getCalculationTime() {
+    return _calculationTime;
+  }
+
+  public void setCalculationTime(final Instant calculationTime) {
+    _calculationTime = calculationTime;
+  }
+
+  @Override
+  public Duration getCalculationDuration() {
+    return _calculationDuration;
+  }
+
+  public void setCalculationDuration(final Duration calculationDuration) {
+    _calculationDuration = calculationDuration;
+  }
+
+  @Override
+  public VersionCorrection getVersionCorrection() {
+    return _versionCorrection;
+  }
+
+  public void setVersionCorrection(final VersionCorrection versionCorrection) {
+    _versionCorrection = versionCorrection;
+  }
+
+  @Override
+  public Set<ComputationTargetSpecification> getAllTargets() {
+    final Set<ComputationTargetSpecification> targets = new HashSet<ComputationTargetSpecification>();
+    for (ColumnarViewCalculationResultModel result : _resultsByConfiguration.values()) {
+      targets.addAll(result.getAllTargets());
+    }
+    return Collections.unmodifiableSet(targets);
+  }
+
+  @Override
+  public Collection<String> getCalculationConfigurationNames() {
+    return Collections.unmodifiableSet(_resultsByConfiguration.keySet());
+  }
+
+  @Override
+  public ColumnarViewCalculationResultModel getCalculationResult(final String calcConfigurationName) {
+    return _resultsByConfiguration.get(calcConfigurationName);
+  }
+
+  @Override
+  public ViewTargetResultModel getTargetResult(final ComputationTargetSpecification targetSpecification) {
+    ViewTargetResultModelImpl targetResult = null;
+    for (Map.Entry<String, ColumnarViewCalculationResultModel> config : _resultsByConfiguration.entrySet()) {
+      final Collection<ComputedValueResult> values = config.getValue().getAllValues(targetSpecification);
+      if (values != null) {
+        if (targetResult == null) {
+          targetResult = new ViewTargetResultModelImpl();
+        }
+        for (ComputedValueResult value : values) {
+          targetResult.addValue(config.getKey(), value);
+        }
+      }
+    }
+    return targetResult;
+  }
+
+  @Override
+  public List<ViewResultEntry> getAllResults() {
+    final List<ViewResultEntry> results = new ArrayList<ViewResultEntry>();
+    for (Map.Entry<String, ColumnarViewCalculationResultModel> config : _resultsByConfiguration.entrySet()) {
+      for (ColumnarViewCalculationResultModel.Column column : config.getValue().getColumns()) {
+        final BitSet ordinals = column.getOrdinals();
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+          results.add(new ViewResultEntry(config.getKey(), column.getResult(i)));
+        }
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Set<String> getAllOutputValueNames() {
+    final Set<String> outputValueNames = new HashSet<String>();
+    for (ColumnarViewCalculationResultModel result : _resultsByConfiguration.values()) {
+      for (ColumnarViewCalculationResultModel.Column column : result.getColumns()) {
+        outputValueNames.add(column.getValueName());
+      }
+    }
+    return outputValueNames;
+  }
+
+  @Override
+  public Set<ComputedValue> getAllMarketData() {
+    return new HashSet<ComputedValue>(_allMarketData.values());
+  }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Allocates stable, dense ordinals to computation targets for use as row indices by {@link ColumnarViewCalculationResultModel}.
+ * <p>
+ * An ordinal, once allocated, is never reused for a different target. Result models from successive cycles of the same compilation which share an index can
+ * therefore be compared row by row without any further lookup.
+ * <p>
+ * This class is internally synchronized.
+ */
+public final class TargetOrdinalIndex implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Value returned by {@link #findOrdinal} for a target with no ordinal.
+   */
+  public static final int NOT_FOUND = -1;
+
+  private final Object2IntOpenHashMap<ComputationTargetSpecification> _ordinals = new Object2IntOpenHashMap<ComputationTargetSpecification>();
+  private final List<ComputationTargetSpecification> _targets = new ArrayList<ComputationTargetSpecification>();
+
+  public TargetOrdinalIndex() {
+    _ordinals.defaultReturnValue(NOT_FOUND);
+  }
+
+  /**
+   * Returns the ordinal for a target, allocating a new one if the target has not been seen before.
+   *
+   * @param target the target, not null
+   * @return the ordinal
+   */
+  public synchronized int getOrdinal(final ComputationTargetSpecification target) {
+    ArgumentChecker.notNull(target, "target");
+    int ordinal = _ordinals.getInt(target);
+    if (ordinal == NOT_FOUND) {
+      ordinal = _targets.size();
+      _targets.add(target);
+      _ordinals.put(target, ordinal);
+    }
+    return ordinal;
+  }
+
+  /**
+   * Returns the ordinal for a target without allocating one.
+   *
+   * @param target the target, not null
+   * @return the ordinal or {@link #NOT_FOUND} if none has been allocated
+   */
+  public synchronized int findOrdinal(final ComputationTargetSpecification target) {
+    return _ordinals.getInt(target);
+  }
+
+  /**
+   * Returns the target with the given ordinal.
+   *
+   * @param ordinal the ordinal, as previously returned by {@link #getOrdinal}
+   * @return the target, not null
+   */
+  public synchronized ComputationTargetSpecification getTarget(final int ordinal) {
+    return _targets.get(ordinal);
+  }
+
+  /**
+   * Returns the number of ordinals allocated. All ordinals are less than this value.
+   *
+   * @return the number of ordinals allocated
+   */
+  public synchronized int size() {
+    return _targets.size();
+  }
+
+}
@@ -86,6 +86,7 @@ import com.opengamma.engine.view.cycle.ViewCycleState;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
+import com.opengamma.engine.view.impl.TargetOrdinalIndex;
 import com.opengamma.engine.view.impl.ViewProcessContext;
 import com.opengamma.engine.view.listener.ComputationResultListener;
 import com.opengamma.engine.view.worker.cache.ViewExecutionCacheKey;
@@ -227,6 +228,16 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
    */
   private ViewExecutionCacheKey _executionCacheKey;
 
+  /**
+   * The target index shared by the result models of the cycles of one compilation, so that their deltas can be calculated column by column.
+   */
+  private TargetOrdinalIndex _targetIndex;
+
+  /**
+   * The compiled view definition the target index is for.
+   */
+  private CompiledViewDefinitionWithGraphs _targetIndexCompiledViewDefinition;
+
   private TargetResolverChangeListener _targetResolverChanges;
 
   private volatile boolean _wakeOnCycleRequest;
@@ -888,10 +899,20 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
       }
     };
     final SingleComputationCycle cycle = new SingleComputationCycle(cycleId, executionOptions.getName(), streamingResultListener, getProcessContext(), compiledViewDefinition,
-        executionOptions, versionCorrection);
+        executionOptions, versionCorrection, getTargetIndex(compiledViewDefinition));
     return getProcessContext().getCycleManager().manage(cycle);
   }
 
+  private TargetOrdinalIndex getTargetIndex(final CompiledViewDefinitionWithGraphs compiledViewDefinition) {
+    // Each compilation starts a new index, so targets that are no longer in the graphs are dropped; the first cycle after a recompilation
+    // calculates its deltas target by target
+    if ((_targetIndex == null) || (compiledViewDefinition != _targetIndexCompiledViewDefinition)) {
+      _targetIndex = new TargetOrdinalIndex();
+      _targetIndexCompiledViewDefinition = compiledViewDefinition;
+    }
+    return _targetIndex;
+  }
+
   private void subscribeToTargetResolverChanges() {
     if (_targetResolverChanges == null) {
       _targetResolverChanges = new TargetResolverChangeListener() {
@@ -1142,6 +1163,7 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
       final Set<ValueRequirement> specificRequirements = calcConfig.getSpecificRequirements();
       final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = previousGraph.getTerminalOutputs();
       final Iterator<Map.Entry<ValueSpecification, Set<ValueRequirement>>> itrTerminalOutput = terminalOutputs.entrySet().iterator();
+      boolean terminalOutputsRemoved = false;
       while (itrTerminalOutput.hasNext()) {
         final Map.Entry<ValueSpecification, Set<ValueRequirement>> entry = itrTerminalOutput.next();
         if (unmap.contains(entry.getKey().getTargetSpecification().getUniqueId())) {
@@ -1164,9 +1186,15 @@ public class SingleThreadViewProcessWorker implements ViewProcessWorker, MarketD
               requirements.removeAll(removal);
               entry.setValue(requirements);
             }
+            terminalOutputsRemoved = true;
           }
         }
       }
+      if (terminalOutputsRemoved) {
+        // Drop the nodes that were only there for the unmapped targets so they are neither rewritten nor filtered below
+        final int removed = previousGraph.removeUnnecessaryNodes();
+        s_logger.debug("Removed {} unnecessary nodes from {}", removed, previousGraphEntry.getKey());
+      }
       if ((map != null) && !map.isEmpty()) {
         final ComputationTargetIdentifierRemapVisitor remapper = new ComputationTargetIdentifierRemapVisitor(map);
         final Collection<DependencyNode> oldRoots = previousGraph.getRoots();
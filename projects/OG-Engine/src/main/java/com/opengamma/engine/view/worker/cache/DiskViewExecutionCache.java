@@ -0,0 +1,479 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.ObjectUtils;
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.fudgemsg.wire.FudgeMsgReader;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphExplorer;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionDefinition;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.config.FunctionConfiguration;
+import com.opengamma.engine.function.config.FunctionConfigurationBundle;
+import com.opengamma.engine.function.config.FunctionConfigurationSource;
+import com.opengamma.engine.function.config.ParameterizedFunctionConfiguration;
+import com.opengamma.engine.function.config.StaticFunctionConfiguration;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A {@link ViewExecutionCache} that persists compiled view definitions to the local file system so that they survive a restart.
+ * <p>
+ * Each entry is written as a compressed Fudge message to a file named from a digest of the cache key's {@link ViewExecutionCacheKey#toBytes} encoding. The view definition and portfolio are stored by
+ * identifier and resolved again when the entry is loaded. The entry also records a digest of the function repository it was compiled against; an
+ * entry is discarded on load if the repository has changed, or if the key, format or referenced objects no longer match. A loaded entry is given the
+ * current function initialization identifier; any target changes since it was compiled are then detected by the view process worker in the same way
+ * as for entries from the other caches, giving an incremental rather than a full compilation.
+ */
+public class DiskViewExecutionCache implements ViewExecutionCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DiskViewExecutionCache.class);
+
+  /**
+   * The version of the file format; entries written with any other version are discarded.
+   */
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String FILE_SUFFIX = ".cvd";
+
+  private static final String FORMAT_FIELD = "format";
+  private static final String KEY_FIELD = "key";
+  private static final String FUNCTIONS_FIELD = "functions";
+  private static final String VERSION_CORRECTION_FIELD = "versionCorrection";
+  private static final String COMPILATION_IDENTIFIER_FIELD = "compilationId";
+  private static final String VIEW_DEFINITION_FIELD = "viewDefinition";
+  private static final String PORTFOLIO_FIELD = "portfolio";
+  private static final String GRAPH_FIELD = "graph";
+  private static final String RESOLUTION_FIELD = "resolution";
+  private static final String COMPILED_CALCULATION_CONFIGURATION_FIELD = "calcConfig";
+  private static final String VALID_FROM_FIELD = "validFrom";
+  private static final String VALID_TO_FIELD = "validTo";
+
+  private static final Integer MAP_KEY = 1;
+  private static final Integer MAP_VALUE = 2;
+
+  private final File _directory;
+
+  private final ComputationTargetResolver _targetResolver;
+
+  private final CompiledFunctionService _functions;
+
+  private final FudgeContext _fudgeContext;
+
+  private final ConcurrentMap<ViewExecutionCacheKey, CompiledViewDefinitionWithGraphs> _frontCache = new MapMaker().weakValues().makeMap();
+
+  private FunctionConfigurationSource _functionConfiguration;
+
+  private Long _functionsInitId;
+
+  private byte[] _functionsDigest;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param directory the directory to hold the cache files, not null. This will be created if it does not exist.
+   * @param targetResolver the target resolver for portfolio and view definition objects, not null
+   * @param functions the compiled function service, not null
+   */
+  public DiskViewExecutionCache(final File directory, final ComputationTargetResolver targetResolver, final CompiledFunctionService functions) {
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.notNull(targetResolver, "targetResolver");
+    ArgumentChecker.notNull(functions, "functions");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create cache directory " + directory);
+    }
+    _directory = directory;
+    _targetResolver = targetResolver;
+    _functions = functions;
+    _fudgeContext = OpenGammaFudgeContext.getInstance();
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param directory the directory to hold the cache files, not null. This will be created if it does not exist.
+   * @param functions the compiled function service, holding a computation target resolver, not null
+   */
+  public DiskViewExecutionCache(final File directory, final CompiledFunctionService functions) {
+    this(directory, functions.getFunctionCompilationContext().getRawComputationTargetResolver(), functions);
+  }
+
+  /**
+   * For testing only.
+   */
+  /* package */void clearFrontCache() {
+    _frontCache.clear();
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  public ComputationTargetResolver getTargetResolver() {
+    return _targetResolver;
+  }
+
+  protected FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new OpenGammaRuntimeException("SHA-1 not available", e);
+    }
+  }
+
+  /**
+   * Sets the source of the configuration the function repository was built from.
+   * <p>
+   * Functions constructed from a configuration don't expose the parameters they were constructed with, so without the source an entry is only
+   * invalidated by changes to the set of functions or to their default parameters. When set, the configuration is included in the digest.
+   *
+   * @param functionConfiguration the configuration source, null for none
+   */
+  public synchronized void setFunctionConfigurationSource(final FunctionConfigurationSource functionConfiguration) {
+    _functionConfiguration = functionConfiguration;
+    _functionsDigest = null;
+  }
+
+  public synchronized FunctionConfigurationSource getFunctionConfigurationSource() {
+    return _functionConfiguration;
+  }
+
+  private static void update(final MessageDigest digest, final String str) {
+    digest.update(str.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private byte[] encodeParameters(final FunctionParameters parameters) {
+    try {
+      final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+      return getFudgeContext().toByteArray(FudgeSerializer.addClassHeader(serializer.objectToFudgeMsg(parameters), parameters.getClass(), FunctionParameters.class));
+    } catch (RuntimeException e) {
+      // Parameters are required to be Fudge serializable but fall back to the string form rather than fail the cache
+      s_logger.debug("Couldn't encode {} - {}", parameters, e.getMessage());
+      return (parameters.getClass().getName() + ":" + parameters).getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Returns a digest of the function repository, recalculated whenever the functions are re-initialized. The initialization identifier itself
+   * changes on every restart so can't be used to validate persisted entries.
+   * <p>
+   * The digest covers the identifier, class and default parameters of each function and, if a configuration source has been set, the function
+   * configuration it currently supplies.
+   *
+   * @return the digest, not null
+   */
+  protected synchronized byte[] getFunctionsDigest() {
+    final Long initId = _functions.getFunctionCompilationContext().getFunctionInitId();
+    if ((_functionsDigest == null) || !ObjectUtils.equals(_functionsInitId, initId)) {
+      final Map<String, FunctionDefinition> functions = new TreeMap<String, FunctionDefinition>();
+      for (FunctionDefinition function : _functions.getFunctionRepository().getAllFunctions()) {
+        functions.put(function.getUniqueId(), function);
+      }
+      final MessageDigest digest = digest();
+      for (Map.Entry<String, FunctionDefinition> function : functions.entrySet()) {
+        update(digest, function.getKey());
+        update(digest, function.getValue().getClass().getName());
+        final FunctionParameters parameters = function.getValue().getDefaultParameters();
+        if (parameters != null) {
+          digest.update(encodeParameters(parameters));
+        }
+        digest.update((byte) 0);
+      }
+      if (_functionConfiguration != null) {
+        final List<String> configurations = new ArrayList<String>();
+        final FunctionConfigurationBundle bundle = _functionConfiguration.getFunctionConfiguration(Instant.now());
+        if (bundle.getFunctions() != null) {
+          for (FunctionConfiguration configuration : bundle.getFunctions()) {
+            final StringBuilder sb = new StringBuilder();
+            if (configuration instanceof StaticFunctionConfiguration) {
+              sb.append(((StaticFunctionConfiguration) configuration).getDefinitionClassName());
+              if (configuration instanceof ParameterizedFunctionConfiguration) {
+                for (String parameter : ((ParameterizedFunctionConfiguration) configuration).getParameter()) {
+                  sb.append('\0').append(parameter);
+                }
+              }
+            } else {
+              sb.append(configuration.getClass().getName()).append('\0').append(configuration);
+            }
+            configurations.add(sb.toString());
+          }
+        }
+        Collections.sort(configurations);
+        update(digest, Integer.toString(configurations.size()));
+        for (String configuration : configurations) {
+          update(digest, configuration);
+        }
+      }
+      _functionsDigest = digest.digest();
+      _functionsInitId = initId;
+    }
+    return _functionsDigest;
+  }
+
+  /* package */File getFile(final byte[] key) {
+    final byte[] digest = digest().digest(key);
+    final StringBuilder sb = new StringBuilder(digest.length * 2 + FILE_SUFFIX.length());
+    for (byte b : digest) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    sb.append(FILE_SUFFIX);
+    return new File(_directory, sb.toString());
+  }
+
+  protected MutableFudgeMsg toFudgeMsg(final byte[] key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+    final MutableFudgeMsg msg = serializer.newMessage();
+    msg.add(FORMAT_FIELD, FORMAT_VERSION);
+    msg.add(KEY_FIELD, key);
+    msg.add(FUNCTIONS_FIELD, getFunctionsDigest());
+    serializer.addToMessage(msg, VERSION_CORRECTION_FIELD, null, viewDefinition.getResolverVersionCorrection());
+    msg.add(COMPILATION_IDENTIFIER_FIELD, viewDefinition.getCompilationIdentifier());
+    serializer.addToMessage(msg, VIEW_DEFINITION_FIELD, null, viewDefinition.getViewDefinition().getUniqueId());
+    if (viewDefinition.getPortfolio() != null) {
+      serializer.addToMessage(msg, PORTFOLIO_FIELD, null, viewDefinition.getPortfolio().getUniqueId());
+    }
+    for (DependencyGraphExplorer explorer : viewDefinition.getDependencyGraphExplorers()) {
+      serializer.addToMessage(msg, GRAPH_FIELD, null, explorer.getWholeGraph());
+    }
+    for (Map.Entry<ComputationTargetReference, UniqueId> resolution : viewDefinition.getResolvedIdentifiers().entrySet()) {
+      final MutableFudgeMsg submsg = msg.addSubMessage(RESOLUTION_FIELD, null);
+      serializer.addToMessage(submsg, null, MAP_KEY, resolution.getKey());
+      serializer.addToMessage(submsg, null, MAP_VALUE, resolution.getValue());
+    }
+    for (CompiledViewCalculationConfiguration calcConfig : viewDefinition.getCompiledCalculationConfigurations()) {
+      serializer.addToMessage(msg, COMPILED_CALCULATION_CONFIGURATION_FIELD, null, calcConfig);
+    }
+    if (viewDefinition.getValidFrom() != null) {
+      serializer.addToMessage(msg, VALID_FROM_FIELD, null, viewDefinition.getValidFrom());
+    }
+    if (viewDefinition.getValidTo() != null) {
+      serializer.addToMessage(msg, VALID_TO_FIELD, null, viewDefinition.getValidTo());
+    }
+    return msg;
+  }
+
+  /**
+   * Reconstructs a compiled view definition from its message, checking it is valid for the key and the current function repository.
+   *
+   * @param key the serialized cache key, not null
+   * @param msg the message read from disk, not null
+   * @return the compiled view definition, or null if the entry is not valid
+   */
+  protected CompiledViewDefinitionWithGraphs fromFudgeMsg(final byte[] key, final FudgeMsg msg) {
+    final Integer format = msg.getInt(FORMAT_FIELD);
+    if ((format == null) || (format != FORMAT_VERSION)) {
+      s_logger.info("Discarding entry with format {}", format);
+      return null;
+    }
+    if (!Arrays.equals(key, msg.getValue(byte[].class, KEY_FIELD))) {
+      s_logger.info("Discarding entry for a different key");
+      return null;
+    }
+    if (!Arrays.equals(getFunctionsDigest(), msg.getValue(byte[].class, FUNCTIONS_FIELD))) {
+      s_logger.info("Discarding entry compiled against a different function repository");
+      return null;
+    }
+    final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
+    final VersionCorrection versionCorrection = deserializer.fieldValueToObject(VersionCorrection.class, msg.getByName(VERSION_CORRECTION_FIELD));
+    final ComputationTarget viewDefinition = getTargetResolver().resolve(
+        new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), deserializer.fieldValueToObject(UniqueId.class, msg.getByName(VIEW_DEFINITION_FIELD))),
+        VersionCorrection.LATEST);
+    if (viewDefinition == null) {
+      s_logger.info("Discarding entry for a view definition that can't be resolved");
+      return null;
+    }
+    Portfolio portfolio = null;
+    final FudgeField portfolioField = msg.getByName(PORTFOLIO_FIELD);
+    if (portfolioField != null) {
+      final ComputationTarget portfolioTarget = getTargetResolver().resolve(
+          new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, deserializer.fieldValueToObject(UniqueId.class, portfolioField)), versionCorrection);
+      if (portfolioTarget == null) {
+        s_logger.info("Discarding entry for a portfolio that can't be resolved");
+        return null;
+      }
+      portfolio = (Portfolio) portfolioTarget.getValue();
+    }
+    final List<FudgeField> graphFields = msg.getAllByName(GRAPH_FIELD);
+    final Collection<DependencyGraph> graphs = new ArrayList<DependencyGraph>(graphFields.size());
+    for (FudgeField field : graphFields) {
+      graphs.add(deserializer.fieldValueToObject(DependencyGraph.class, field));
+    }
+    final List<FudgeField> resolutionFields = msg.getAllByName(RESOLUTION_FIELD);
+    final Map<ComputationTargetReference, UniqueId> resolutions = new HashMap<ComputationTargetReference, UniqueId>(resolutionFields.size());
+    for (FudgeField field : resolutionFields) {
+      final FudgeMsg submsg = (FudgeMsg) field.getValue();
+      resolutions.put(deserializer.fieldValueToObject(ComputationTargetReference.class, submsg.getByOrdinal(MAP_KEY)),
+          deserializer.fieldValueToObject(UniqueId.class, submsg.getByOrdinal(MAP_VALUE)));
+    }
+    final List<FudgeField> calcConfigFields = msg.getAllByName(COMPILED_CALCULATION_CONFIGURATION_FIELD);
+    final Collection<CompiledViewCalculationConfiguration> calcConfigs = new ArrayList<CompiledViewCalculationConfiguration>(calcConfigFields.size());
+    for (FudgeField field : calcConfigFields) {
+      calcConfigs.add(deserializer.fieldValueToObject(CompiledViewCalculationConfiguration.class, field));
+    }
+    final FudgeField validFromField = msg.getByName(VALID_FROM_FIELD);
+    final Instant validFrom = (validFromField != null) ? deserializer.fieldValueToObject(Instant.class, validFromField) : null;
+    final FudgeField validToField = msg.getByName(VALID_TO_FIELD);
+    final Instant validTo = (validToField != null) ? deserializer.fieldValueToObject(Instant.class, validToField) : null;
+    // The function repository matches so the graphs are valid for the current function initialization
+    return new CompiledViewDefinitionWithGraphsImpl(versionCorrection, msg.getString(COMPILATION_IDENTIFIER_FIELD), (ViewDefinition) viewDefinition.getValue(), graphs, resolutions,
+        portfolio, _functions.getFunctionCompilationContext().getFunctionInitId(), calcConfigs, validFrom, validTo);
+  }
+
+  private CompiledViewDefinitionWithGraphs load(final ViewExecutionCacheKey key) {
+    final byte[] keyBytes = key.toBytes();
+    final File file = getFile(keyBytes);
+    if (!file.isFile()) {
+      return null;
+    }
+    InputStream in = null;
+    CompiledViewDefinitionWithGraphs viewDefinition = null;
+    try {
+      in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+      final FudgeMsgReader reader = getFudgeContext().createMessageReader(in);
+      viewDefinition = fromFudgeMsg(keyBytes, reader.nextMessage());
+    } catch (IOException | RuntimeException e) {
+      s_logger.warn("Couldn't read cache entry {} - {}", file, e.getMessage());
+      s_logger.debug("Caught exception", e);
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    if (viewDefinition == null) {
+      if (!file.delete()) {
+        s_logger.warn("Couldn't delete invalid cache entry {}", file);
+      }
+    }
+    return viewDefinition;
+  }
+
+  private void store(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final byte[] keyBytes = key.toBytes();
+    final File file = getFile(keyBytes);
+    // Write to a temporary file and rename so that a crash during the write can't leave a partial entry
+    final File temp = new File(_directory, file.getName() + ".tmp");
+    OutputStream out = null;
+    try {
+      out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      final FudgeMsgWriter writer = getFudgeContext().createMessageWriter(out);
+      writer.writeMessage(toFudgeMsg(keyBytes, viewDefinition));
+      writer.flush();
+      out.close();
+      out = null;
+      if (!temp.renameTo(file)) {
+        // Windows won't rename over an existing file
+        if (!file.delete() || !temp.renameTo(file)) {
+          throw new IOException("Couldn't rename " + temp + " to " + file);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      s_logger.warn("Couldn't write cache entry {} - {}", file, e.getMessage());
+      s_logger.debug("Caught exception", e);
+      IOUtils.closeQuietly(out);
+      temp.delete();
+    }
+  }
+
+  @Override
+  public CompiledViewDefinitionWithGraphs getCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key) {
+    CompiledViewDefinitionWithGraphs viewDefinition = _frontCache.get(key);
+    if (viewDefinition != null) {
+      s_logger.debug("Front cache hit CompiledViewDefinitionWithGraphs for {}", key);
+      return viewDefinition;
+    }
+    viewDefinition = load(key);
+    if (viewDefinition != null) {
+      s_logger.info("Disk cache hit CompiledViewDefinitionWithGraphs for {}", key);
+      final CompiledViewDefinitionWithGraphs existing = _frontCache.putIfAbsent(key, viewDefinition);
+      if (existing != null) {
+        viewDefinition = existing;
+      }
+    } else {
+      s_logger.debug("Disk cache miss CompiledViewDefinitionWithGraphs for {}", key);
+    }
+    return viewDefinition;
+  }
+
+  @Override
+  public void setCompiledViewDefinitionWithGraphs(final ViewExecutionCacheKey key, final CompiledViewDefinitionWithGraphs viewDefinition) {
+    final CompiledViewDefinitionWithGraphs existing = _frontCache.put(key, viewDefinition);
+    if (existing == viewDefinition) {
+      return;
+    }
+    s_logger.info("Storing CompiledViewDefinitionWithGraphs for {}", key);
+    store(key, viewDefinition);
+  }
+
+  @Override
+  public void clear() {
+    _frontCache.clear();
+    s_logger.info("Clearing all CompiledViewDefinitionWithGraphs");
+    final File[] files = _directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().endsWith(FILE_SUFFIX)) {
+          if (!file.delete()) {
+            s_logger.warn("Couldn't delete cache entry {}", file);
+          }
+        }
+      }
+    }
+  }
+
+}
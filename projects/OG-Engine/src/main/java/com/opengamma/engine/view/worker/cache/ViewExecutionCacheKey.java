@@ -5,10 +5,15 @@
  */
 package com.opengamma.engine.view.worker.cache;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
 
 import org.apache.commons.lang.ObjectUtils;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityProvider;
 import com.opengamma.engine.marketdata.manipulator.MarketDataSelectionGraphManipulator;
 import com.opengamma.engine.view.ViewDefinition;
@@ -54,6 +59,46 @@ public final class ViewExecutionCacheKey implements Serializable {
     return new ViewExecutionCacheKey(viewDefinition.getUniqueId(), marketDataProvider.getAvailabilityHintKey(), getMarketDataSelectorCacheHintKey(graphManipulations));
   }
 
+  private static void write(final DataOutputStream out, final Object hint) throws IOException {
+    if (hint == null) {
+      out.writeByte('N');
+    } else if (hint instanceof String) {
+      out.writeByte('S');
+      out.writeUTF((String) hint);
+    } else if (hint instanceof Collection) {
+      final Collection<?> hints = (Collection<?>) hint;
+      out.writeByte('C');
+      out.writeInt(hints.size());
+      for (Object element : hints) {
+        write(out, element);
+      }
+    } else {
+      out.writeByte('O');
+      out.writeUTF(hint.getClass().getName());
+      out.writeUTF(hint.toString());
+    }
+  }
+
+  /**
+   * Returns an encoding of the key that is stable between runs, for use in naming persisted entries.
+   * <p>
+   * Hints are encoded by their string form, so those that aren't strings or collections should have a {@link Object#toString} that identifies them
+   * and doesn't depend on the running instance.
+   * 
+   * @return the encoded key, not null
+   */
+  public byte[] toBytes() {
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(baos)) {
+      out.writeUTF(_viewDefinitionId.toString());
+      write(out, _marketDataProvider);
+      write(out, _scenarioManipulations);
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't encode " + this, e);
+    }
+    return baos.toByteArray();
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (o == this) {
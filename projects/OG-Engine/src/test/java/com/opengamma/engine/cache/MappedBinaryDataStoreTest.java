@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link MappedBinaryDataStore} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class MappedBinaryDataStoreTest {
+
+  private File createDirectory(final String name) {
+    return new File(new File(System.getProperty("java.io.tmpdir")), "MappedBinaryDataStoreTest-" + System.currentTimeMillis() + "-" + name);
+  }
+
+  private static byte[] data(final int length, final int seed) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (seed + i);
+    }
+    return data;
+  }
+
+  public void testPutGet() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(createDirectory("putGet"), 1024);
+    try {
+      assertNull(store.get(1L));
+      store.put(1L, data(10, 1));
+      store.put(2L, data(0, 2));
+      assertTrue(Arrays.equals(store.get(1L), data(10, 1)));
+      assertTrue(Arrays.equals(store.get(2L), data(0, 2)));
+      store.put(1L, data(20, 3));
+      assertTrue(Arrays.equals(store.get(1L), data(20, 3)));
+    } finally {
+      store.delete();
+    }
+  }
+
+  public void testSegmentRollover() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(createDirectory("rollover"), 256);
+    try {
+      for (int i = 0; i < 100; i++) {
+        store.put(i, data(50, i));
+      }
+      assertTrue(store.getSegmentCount() > 1);
+      for (int i = 0; i < 100; i++) {
+        assertTrue(Arrays.equals(store.get(i), data(50, i)));
+      }
+      // Larger than a segment
+      store.put(1000L, data(1000, 7));
+      assertTrue(Arrays.equals(store.get(1000L), data(1000, 7)));
+      store.put(1001L, data(10, 8));
+      assertTrue(Arrays.equals(store.get(1001L), data(10, 8)));
+    } finally {
+      store.delete();
+    }
+  }
+
+  public void testBulkPutGet() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(createDirectory("bulk"), 4096);
+    try {
+      final Map<Long, byte[]> values = new HashMap<Long, byte[]>();
+      for (int i = 0; i < 200; i++) {
+        values.put((long) i, data(i, i));
+      }
+      store.put(values);
+      final Map<Long, byte[]> result = store.get(Arrays.asList(0L, 10L, 199L, 500L));
+      assertEquals(result.size(), 3);
+      assertTrue(Arrays.equals(result.get(0L), data(0, 0)));
+      assertTrue(Arrays.equals(result.get(10L), data(10, 10)));
+      assertTrue(Arrays.equals(result.get(199L), data(199, 199)));
+    } finally {
+      store.delete();
+    }
+  }
+
+  public void testDeleteReleasesSegments() {
+    final File directory = createDirectory("delete");
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(directory, 256);
+    for (int i = 0; i < 20; i++) {
+      store.put(i, data(100, i));
+    }
+    assertTrue(directory.list().length > 1);
+    store.delete();
+    assertEquals(store.getSegmentCount(), 0);
+    assertNull(store.get(0L));
+    assertFalse(directory.exists());
+  }
+
+  public void testConcurrentReadWrite() throws Exception {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(createDirectory("concurrent"), 4096);
+    try {
+      final int count = 2000;
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      final Thread writer = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < count; i++) {
+            store.put(i, data(50, i));
+          }
+        }
+      };
+      final Thread reader = new Thread() {
+        @Override
+        public void run() {
+          try {
+            int i = 0;
+            while (i < count) {
+              final byte[] value = store.get(i);
+              if (value != null) {
+                // a published value must always be complete
+                assertTrue(Arrays.equals(value, data(50, i)));
+                i++;
+              }
+            }
+          } catch (Throwable t) {
+            failure.set(t);
+          }
+        }
+      };
+      reader.start();
+      writer.start();
+      writer.join();
+      reader.join();
+      assertNull(failure.get());
+      assertTrue(store.getSegmentCount() > 1);
+    } finally {
+      store.delete();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testPutAfterDelete() {
+    final MappedBinaryDataStore store = new MappedBinaryDataStore(createDirectory("putAfterDelete"), 256);
+    store.delete();
+    store.put(1L, data(10, 1));
+  }
+
+  public void testFactory() {
+    final File base = createDirectory("factory");
+    final MappedBinaryDataStoreFactory factory = new MappedBinaryDataStoreFactory(base, 1024);
+    final BinaryDataStore a = factory.createDataStore(new ViewComputationCacheKey(UniqueId.of("Test", "Cycle"), "Default"));
+    final BinaryDataStore b = factory.createDataStore(new ViewComputationCacheKey(UniqueId.of("Test", "Cycle"), "Default"));
+    try {
+      a.put(1L, data(10, 1));
+      b.put(1L, data(10, 2));
+      assertTrue(Arrays.equals(a.get(1L), data(10, 1)));
+      assertTrue(Arrays.equals(b.get(1L), data(10, 2)));
+    } finally {
+      a.delete();
+      b.delete();
+      base.delete();
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link StripedIdentifierMap} class.
+ */
+@Test(groups = TestGroup.INTEGRATION)
+public class StripedIdentifierMapTest extends AbstractIdentifierMapTest {
+
+  @Override
+  protected IdentifierMap createIdentifierMap(String testName) {
+    return new StripedIdentifierMap();
+  }
+
+  @Test
+  public void unknownIdentifier() {
+    final StripedIdentifierMap idMap = new StripedIdentifierMap(1);
+    assertNull(idMap.getValueSpecification(0L));
+    assertNull(idMap.getValueSpecification(1L));
+    assertNull(idMap.getValueSpecification(Long.MAX_VALUE));
+    final long identifier = idMap.getIdentifier(getValueSpec("a"));
+    assertEquals(getValueSpec("a"), idMap.getValueSpecification(identifier));
+    assertEquals(1L, idMap.size());
+  }
+
+  @Test
+  public void concurrentAllocation() throws Exception {
+    final StripedIdentifierMap idMap = new StripedIdentifierMap(4);
+    final int numThreads = 4;
+    final int numSpecifications = 20000;
+    final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      final List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+      for (int i = 0; i < numThreads; i++) {
+        results.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() {
+            final long[] identifiers = new long[numSpecifications];
+            for (int j = 0; j < numSpecifications; j++) {
+              final ValueSpecification valueSpec = getValueSpec("value-" + j);
+              identifiers[j] = idMap.getIdentifier(valueSpec);
+              assertEquals(valueSpec, idMap.getValueSpecification(identifiers[j]));
+            }
+            return identifiers;
+          }
+        }));
+      }
+      final long[] expected = results.get(0).get();
+      for (Future<long[]> result : results) {
+        assertTrue(Arrays.equals(expected, result.get()));
+      }
+      assertEquals(numSpecifications, idMap.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.calcnode;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.cache.AbstractIdentifierMap;
+import com.opengamma.engine.cache.CacheSelectHint;
+import com.opengamma.engine.cache.IdentifierMap;
+import com.opengamma.engine.cache.InMemoryIdentifierMap;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.function.SimpleFunctionParameters;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ExecutionLog;
+import com.opengamma.engine.view.ExecutionLogMode;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link BinaryJobCodec} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BinaryJobCodecTest {
+
+  private static final FudgeContext s_fudgeContext = OpenGammaFudgeContext.getInstance();
+
+  private static ValueSpecification valueSpec(final String name, final String target) {
+    return ValueSpecification.of(name, ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", target), ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get());
+  }
+
+  public void testJob() {
+    final IdentifierMap identifierMap = new InMemoryIdentifierMap();
+    final CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    final ComputationTargetSpecification target1 = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "1"));
+    final ComputationTargetSpecification target2 = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "2"));
+    final SimpleFunctionParameters parameters = new SimpleFunctionParameters();
+    parameters.setValue("Foo", "Bar");
+    final ValueSpecification a = valueSpec("A", "1");
+    final ValueSpecification b = valueSpec("B", "1");
+    final ValueSpecification c = valueSpec("C", "2");
+    final List<CalculationJobItem> items = Arrays.asList(
+        new CalculationJobItem("Foo", EmptyFunctionParameters.INSTANCE, target1, Collections.<ValueSpecification>emptySet(), Sets.newHashSet(a), ExecutionLogMode.INDICATORS),
+        new CalculationJobItem("Bar", parameters, target1, Sets.newHashSet(a), Sets.newHashSet(b), ExecutionLogMode.FULL),
+        new CalculationJobItem("Foo", parameters, target2, Sets.newHashSet(a, b), Sets.newHashSet(c), ExecutionLogMode.INDICATORS));
+    final CalculationJob inputJob = new CalculationJob(spec, Long.MAX_VALUE, VersionCorrection.of(Instant.ofEpochSecond(1000), Instant.ofEpochSecond(2000)),
+        new long[] {5L, 3L, Long.MAX_VALUE }, items, CacheSelectHint.privateValues(Collections.singleton(b)));
+    AbstractIdentifierMap.convertIdentifiers(identifierMap, inputJob);
+    final CalculationJob outputJob = BinaryJobCodec.decodeJob(s_fudgeContext, BinaryJobCodec.encodeJob(s_fudgeContext, inputJob));
+    AbstractIdentifierMap.resolveIdentifiers(identifierMap, outputJob);
+    assertEquals(inputJob.getSpecification(), outputJob.getSpecification());
+    assertEquals(Long.MAX_VALUE, outputJob.getFunctionInitializationIdentifier());
+    assertEquals(inputJob.getResolverVersionCorrection(), outputJob.getResolverVersionCorrection());
+    assertTrue(Arrays.equals(inputJob.getRequiredJobIds(), outputJob.getRequiredJobIds()));
+    assertTrue(outputJob.getCacheSelectHint().isPrivateValue(b));
+    assertFalse(outputJob.getCacheSelectHint().isPrivateValue(a));
+    assertEquals(items, outputJob.getJobItems());
+    final List<CalculationJobItem> outputItems = outputJob.getJobItems();
+    assertSame(EmptyFunctionParameters.INSTANCE, outputItems.get(0).getFunctionParameters());
+    assertEquals(parameters, outputItems.get(1).getFunctionParameters());
+    assertSame(outputItems.get(1).getFunctionParameters(), outputItems.get(2).getFunctionParameters());
+    assertSame(outputItems.get(0).getComputationTargetSpecification(), outputItems.get(1).getComputationTargetSpecification());
+    assertSame(outputItems.get(0).getFunctionUniqueIdentifier(), outputItems.get(2).getFunctionUniqueIdentifier());
+    assertEquals(ExecutionLogMode.FULL, outputItems.get(1).getLogMode());
+  }
+
+  public void testJobNoRequired() {
+    final CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 2L);
+    final CalculationJob inputJob = new CalculationJob(spec, 0L, VersionCorrection.LATEST, null, Collections.<CalculationJobItem>emptyList(), CacheSelectHint.allShared());
+    AbstractIdentifierMap.convertIdentifiers(new InMemoryIdentifierMap(), inputJob);
+    final CalculationJob outputJob = BinaryJobCodec.decodeJob(s_fudgeContext, BinaryJobCodec.encodeJob(s_fudgeContext, inputJob));
+    assertEquals(spec, outputJob.getSpecification());
+    assertEquals(VersionCorrection.LATEST, outputJob.getResolverVersionCorrection());
+    assertNull(outputJob.getRequiredJobIds());
+    assertTrue(outputJob.getJobItems().isEmpty());
+  }
+
+  public void testResult() {
+    final IdentifierMap identifierMap = new InMemoryIdentifierMap();
+    final CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    final CalculationJobResultItem item1 = CalculationJobResultItem.success();
+    final MutableExecutionLog executionLog = new MutableExecutionLog(ExecutionLogMode.INDICATORS);
+    final CalculationJobResultItem item2 = CalculationJobResultItemBuilder.of(executionLog).withException(new RuntimeException("failure!"))
+        .withMissingInputs(Collections.singleton(valueSpec("A", "1"))).toResultItem();
+    final CalculationJobResult inputResult = new CalculationJobResult(spec, 500, Lists.newArrayList(item1, item2), "localhost");
+    AbstractIdentifierMap.convertIdentifiers(identifierMap, inputResult);
+    final CalculationJobResult outputResult = BinaryJobCodec.decodeResult(s_fudgeContext, BinaryJobCodec.encodeResult(s_fudgeContext, inputResult));
+    AbstractIdentifierMap.resolveIdentifiers(identifierMap, outputResult);
+    assertEquals(spec, outputResult.getSpecification());
+    assertEquals(500, outputResult.getDuration());
+    assertEquals("localhost", outputResult.getComputeNodeId());
+    assertEquals(2, outputResult.getResultItems().size());
+    final CalculationJobResultItem outputItem1 = outputResult.getResultItems().get(0);
+    assertEquals(InvocationResult.SUCCESS, outputItem1.getResult());
+    assertSame(ExecutionLog.EMPTY, outputItem1.getExecutionLog());
+    assertTrue(outputItem1.getMissingInputs().isEmpty());
+    final CalculationJobResultItem outputItem2 = outputResult.getResultItems().get(1);
+    assertEquals(InvocationResult.FUNCTION_THREW_EXCEPTION, outputItem2.getResult());
+    assertEquals("java.lang.RuntimeException", outputItem2.getExecutionLog().getExceptionClass());
+    assertEquals("failure!", outputItem2.getExecutionLog().getExceptionMessage());
+    assertEquals(Collections.singleton(valueSpec("A", "1")), outputItem2.getMissingInputs());
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void testTruncated() {
+    final CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    final CalculationJobResult result = new CalculationJobResult(spec, 500, Collections.singletonList(CalculationJobResultItem.success()), "localhost");
+    AbstractIdentifierMap.convertIdentifiers(new InMemoryIdentifierMap(), result);
+    final byte[] data = BinaryJobCodec.encodeResult(s_fudgeContext, result);
+    BinaryJobCodec.decodeResult(s_fudgeContext, Arrays.copyOf(data, data.length - 2));
+  }
+
+}
@@ -19,6 +19,7 @@ import java.io.ObjectOutputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import net.sf.ehcache.CacheManager;
 
@@ -30,6 +31,7 @@ import org.testng.annotations.Test;
 
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.calcnode.stats.FunctionCosts;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
 import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
@@ -197,4 +199,27 @@ public class CachingExecutionPlannerTest {
     }
   }
 
+  public void testCache_costDrift() {
+    final CachingExecutionPlanner cache = new CachingExecutionPlanner(createExecutionPlanner(), _cacheManager);
+    try {
+      final FunctionCosts costs = new FunctionCosts();
+      cache.setFunctionCosts(costs);
+      cache.setCostDriftCheckPeriod(0, TimeUnit.SECONDS);
+      final GraphExecutionPlan plan1 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      final GraphExecutionPlan plan2 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan2, plan1);
+      costs.functionInvoked("Default", "Foo3", 1, 1000000d, Double.NaN, Double.NaN);
+      final GraphExecutionPlan plan3 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertNotSame(plan3, plan1);
+      final GraphExecutionPlan plan4 = cache.createPlan(testGraphBuilder("Default").buildGraph(), Mockito.mock(ExecutionLogModeSource.class), 0, Collections.<ValueSpecification>emptySet(),
+          Collections.<ValueSpecification, FunctionParameters>emptyMap());
+      assertSame(plan4, plan3);
+    } finally {
+      cache.shutdown();
+    }
+  }
+
 }
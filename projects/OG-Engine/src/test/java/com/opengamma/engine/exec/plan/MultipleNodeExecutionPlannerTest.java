@@ -532,4 +532,24 @@ public class MultipleNodeExecutionPlannerTest {
     assertEquals(gatherColours(plan), 3);
   }
 
+  /**
+   * Target job cost limits merging in the same way as the static cost limits, reduced if the target parallelism would not be met.
+   */
+  public void testTargetJobCost() {
+    final MultipleNodeExecutionPlanner planner = createPlanner(1, Integer.MAX_VALUE, 0);
+    planner.setTargetJobCost(1L);
+    GraphExecutionPlan plan = plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3));
+    assertEquals(plan.getTotalJobs(), 5);
+    planner.setTargetJobCost(1000000L);
+    plan = plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3));
+    if (PRINT_GRAPHS) {
+      System.out.println("testTargetJobCost");
+      plan.print();
+    }
+    assertTrue(plan.getTotalJobs() < 5);
+    planner.setTargetParallelism(100);
+    plan = plan(planner, graphBuilder().buildGraph(), ImmutableSet.of(_testValuex2, _testValuex3));
+    assertEquals(plan.getTotalJobs(), 5);
+  }
+
 }
@@ -6,8 +6,11 @@
 package com.opengamma.engine.marketdata;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
@@ -91,4 +94,67 @@ public class InMemoryLKVMarketDataProviderTest {
     assertEquals(snapshot.query(fooNull), "FooValue3");
   }
 
+  private static ValueSpecification resolve(final InMemoryLKVMarketDataProvider provider, final String valueName) {
+    return provider.getAvailabilityProvider(MarketData.live()).getAvailability(ComputationTargetSpecification.NULL, null, new ValueRequirement(valueName, ComputationTargetSpecification.NULL));
+  }
+
+  public void testSnapshotsReadTheirVersion() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(new ValueRequirement("Foo", ComputationTargetSpecification.NULL), 1d);
+    final ValueSpecification foo = resolve(provider, "Foo");
+    final InMemoryLKVMarketDataSnapshot snapshot1 = provider.snapshot(MarketData.live());
+    snapshot1.init();
+    provider.addValue(foo, 2d);
+    provider.addValue(new ValueRequirement("Bar", ComputationTargetSpecification.NULL), 10d);
+    final ValueSpecification bar = resolve(provider, "Bar");
+    final InMemoryLKVMarketDataSnapshot snapshot2 = provider.snapshot(MarketData.live());
+    snapshot2.init();
+    provider.addValue(foo, 3d);
+    provider.removeValue(bar);
+    final InMemoryLKVMarketDataSnapshot snapshot3 = provider.snapshot(MarketData.live());
+    snapshot3.init();
+    provider.addValue(foo, 4d);
+    assertEquals(snapshot1.query(foo), 1d);
+    assertNull(snapshot1.query(bar));
+    assertEquals(snapshot1.getAllValueKeys(), ImmutableSet.of(foo));
+    assertEquals(snapshot2.query(foo), 2d);
+    assertEquals(snapshot2.query(bar), 10d);
+    assertEquals(snapshot2.getAllValueKeys(), ImmutableSet.of(foo, bar));
+    assertEquals(snapshot3.query(foo), 3d);
+    assertNull(snapshot3.query(bar));
+    assertEquals(snapshot3.getAllValueKeys(), ImmutableSet.of(foo));
+    assertFalse(snapshot3.isEmpty());
+    assertEquals(provider.getCurrentValue(foo), 4d);
+  }
+
+  public void testSnapshotVersions() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    provider.addValue(new ValueRequirement("Foo", ComputationTargetSpecification.NULL), 1d);
+    final ValueSpecification foo = resolve(provider, "Foo");
+    final InMemoryLKVMarketDataSnapshot snapshot1 = provider.snapshot(MarketData.live());
+    snapshot1.init();
+    final InMemoryLKVMarketDataProvider.Version version1 = provider.doSnapshot();
+    // nothing has changed, so the same version is read
+    assertSame(provider.doSnapshot(), version1);
+    provider.removeValue(foo);
+    final InMemoryLKVMarketDataSnapshot snapshot2 = provider.snapshot(MarketData.live());
+    snapshot2.init();
+    assertNotSame(provider.doSnapshot(), version1);
+    provider.addValue(foo, 2d);
+    provider.addValue(foo, 3d);
+    final InMemoryLKVMarketDataSnapshot snapshot3 = provider.snapshot(MarketData.live());
+    snapshot3.init();
+    provider.addValue(foo, 4d);
+    assertEquals(snapshot1.query(foo), 1d);
+    assertTrue(snapshot1.getAllValueKeys().contains(foo));
+    assertNull(snapshot2.query(foo));
+    assertTrue(snapshot2.isEmpty());
+    assertTrue(snapshot2.getAllValueKeys().isEmpty());
+    assertFalse(snapshot2.getAllValueKeys().contains(foo));
+    assertEquals(snapshot3.query(foo), 3d);
+    assertEquals(snapshot3.getAllValueKeys(), ImmutableSet.of(foo));
+    assertEquals(provider.getCurrentValue(foo), 4d);
+    assertEquals(provider.getAllValueKeys(), ImmutableSet.of(foo));
+  }
+
 }
@@ -11,9 +11,17 @@ import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.MutableFudgeMsg;
@@ -25,6 +33,7 @@ import com.google.common.collect.Iterables;
 import com.opengamma.core.id.ExternalSchemes;
 import com.opengamma.core.value.MarketDataRequirementNames;
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.marketdata.MarketDataListener;
 import com.opengamma.engine.marketdata.MarketDataSnapshot;
 import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
 import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityFilter;
@@ -431,6 +440,110 @@ public class InMemoryLKVLiveMarketDataProviderTest {
     assertEquals(3, sub.getSubscriberCount());
   }
 
+  @Test
+  public void testCoalescedNotifications() throws Exception {
+    final TestLiveDataClient liveDataClient = new TestLiveDataClient();
+    try {
+      FixedMarketDataAvailabilityProvider availabilityProvider = new FixedMarketDataAvailabilityProvider();
+      availabilityProvider.addAvailableData(getTicker("test1"), constructSpecification("test1"));
+      availabilityProvider.addAvailableData(getTicker("test2"), constructSpecification("test2"));
+      availabilityProvider.addAvailableData(getTicker("test3"), constructSpecification("test3"));
+      InMemoryLKVLiveMarketDataProvider provider = new InMemoryLKVLiveMarketDataProvider(liveDataClient, availabilityProvider.getAvailabilityFilter(), UserPrincipal.getTestUser());
+      provider.setCoalesceNotifications(true);
+      ValueSpecification test1Specification = provider.getAvailabilityProvider(MarketData.live()).getAvailability(constructTargetSpec("test1"), getTicker("test1"), constructRequirement("test1"));
+      ValueSpecification test2Specification = provider.getAvailabilityProvider(MarketData.live()).getAvailability(constructTargetSpec("test2"), getTicker("test2"), constructRequirement("test2"));
+      ValueSpecification test3Specification = provider.getAvailabilityProvider(MarketData.live()).getAvailability(constructTargetSpec("test3"), getTicker("test3"), constructRequirement("test3"));
+      final LiveDataSpecification test1test2FullyQualifiedSpecification = new LiveDataSpecification(liveDataClient.getDefaultNormalizationRuleSetId(), ExternalId.of("fq-test1test2", "test1test2"));
+      LiveDataSpecification test3FullyQualifiedSpecification = new LiveDataSpecification(liveDataClient.getDefaultNormalizationRuleSetId(), ExternalId.of("fq-test3", "test3"));
+      provider.subscribe(test1Specification);
+      provider.subscribe(test2Specification);
+      provider.subscribe(test3Specification);
+      LiveDataSubscriptionResponse test1Response = new LiveDataSubscriptionResponse(LiveMarketDataAvailabilityProvider.getLiveDataSpecification(test1Specification), LiveDataSubscriptionResult.SUCCESS, null, test1test2FullyQualifiedSpecification, "test1test2", null);
+      LiveDataSubscriptionResponse test2Response = new LiveDataSubscriptionResponse(LiveMarketDataAvailabilityProvider.getLiveDataSpecification(test2Specification), LiveDataSubscriptionResult.SUCCESS, null, test1test2FullyQualifiedSpecification, "test1test2", null);
+      LiveDataSubscriptionResponse test3Response = new LiveDataSubscriptionResponse(LiveMarketDataAvailabilityProvider.getLiveDataSpecification(test3Specification), LiveDataSubscriptionResult.SUCCESS, null, test3FullyQualifiedSpecification, "test3", null);
+      provider.subscriptionResultsReceived(ImmutableList.of(test1Response, test2Response, test3Response));
+      liveDataClient.subscriptionRequestSatisfied(Iterables.getOnlyElement(liveDataClient.getSubscriptionRequests().get(0)), test1Response);
+      liveDataClient.subscriptionRequestSatisfied(Iterables.getOnlyElement(liveDataClient.getSubscriptionRequests().get(1)), test2Response);
+      liveDataClient.subscriptionRequestSatisfied(Iterables.getOnlyElement(liveDataClient.getSubscriptionRequests().get(2)), test3Response);
+
+      // the listener blocks in its first notification, and throws once when asked to
+      final List<Set<ValueSpecification>> notifications = new CopyOnWriteArrayList<>();
+      final CountDownLatch notifying = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final AtomicBoolean failNext = new AtomicBoolean();
+      provider.addListener(new MarketDataListener() {
+
+        @Override
+        public void subscriptionsSucceeded(final Collection<ValueSpecification> specifications) {
+        }
+
+        @Override
+        public void subscriptionFailed(final ValueSpecification specification, final String msg) {
+        }
+
+        @Override
+        public void subscriptionStopped(final ValueSpecification specification) {
+        }
+
+        @Override
+        public void valuesChanged(final Collection<ValueSpecification> specifications) {
+          notifications.add(new HashSet<>(specifications));
+          if (failNext.getAndSet(false)) {
+            throw new IllegalStateException("Listener failure");
+          }
+          if (notifying.getCount() > 0) {
+            notifying.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }
+
+      });
+      final MutableFudgeMsg msg = new FudgeContext().newMessage();
+      msg.add(_marketDataRequirement, 52.07);
+      final Thread first = new Thread() {
+        @Override
+        public void run() {
+          liveDataClient.marketDataReceived(test1test2FullyQualifiedSpecification, msg);
+        }
+      };
+      first.start();
+      assertTrue(notifying.await(10, TimeUnit.SECONDS));
+      // updates arriving while the listener is blocked are held and return without notifying
+      liveDataClient.marketDataReceived(test3FullyQualifiedSpecification, msg);
+      liveDataClient.marketDataReceived(test1test2FullyQualifiedSpecification, msg);
+      liveDataClient.marketDataReceived(test3FullyQualifiedSpecification, msg);
+      assertEquals(1, notifications.size());
+      release.countDown();
+      first.join(10000L);
+      assertFalse(first.isAlive());
+
+      // four updates were delivered in two calls, the second carrying every value changed while blocked
+      assertEquals(2, notifications.size());
+      assertEquals(ImmutableSet.of(test1Specification, test2Specification), notifications.get(0));
+      assertEquals(ImmutableSet.of(test1Specification, test2Specification, test3Specification), notifications.get(1));
+
+      // a failing listener does not stop later updates from being notified
+      notifications.clear();
+      failNext.set(true);
+      try {
+        liveDataClient.marketDataReceived(test3FullyQualifiedSpecification, msg);
+        fail("Expected listener failure");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+      liveDataClient.marketDataReceived(test1test2FullyQualifiedSpecification, msg);
+      assertEquals(2, notifications.size());
+      assertEquals(ImmutableSet.of(test3Specification), notifications.get(0));
+      assertEquals(ImmutableSet.of(test1Specification, test2Specification), notifications.get(1));
+    } finally {
+      liveDataClient.close();
+    }
+  }
+
   private ValueSpecification createPrimitiveValueSpec(String ticker) {
 
     // Create spec of the form
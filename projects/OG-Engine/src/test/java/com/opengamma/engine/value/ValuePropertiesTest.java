@@ -12,6 +12,7 @@ import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -367,4 +368,47 @@ public class ValuePropertiesTest {
     assertEquals(builder2.get(), ValueProperties.with("X", "Y").get());
   }
 
+  public void testIntern() {
+    final ValueProperties a = ValueProperties.with("Foo", "Bar").with("A", "B").get();
+    final ValueProperties b = ValueProperties.with("A", "B").with("Foo", "Bar").get();
+    final ValueProperties c = ValueProperties.with("Foo", "Bar").with("A", "C").get();
+    final ValueProperties canonical = a.intern();
+    assertSame(canonical, b.intern());
+    assertSame(canonical, canonical.intern());
+    assertEquals(canonical, b);
+    assertEquals(b, canonical);
+    assertFalse(canonical.equals(c.intern()));
+    assertFalse(c.intern().equals(canonical));
+    assertSame(ValueProperties.none(), ValueProperties.none().intern());
+  }
+
+  public void testInternedMatches() {
+    final ValueProperties constraints = ValueProperties.with("Foo", "Bar").withAny("A").withOptional("X").get().intern();
+    final ValueProperties satisfying = ValueProperties.with("Foo", "Bar", "Baz").with("A", "B").get().intern();
+    final ValueProperties unsatisfying = ValueProperties.with("Foo", "Baz").with("A", "B").get().intern();
+    for (int i = 0; i < 2; i++) {
+      assertTrue(constraints.isSatisfiedBy(satisfying));
+      assertFalse(constraints.isSatisfiedBy(unsatisfying));
+      assertEquals(ValueProperties.with("Foo", "Bar").with("A", "B").get(), satisfying.compose(constraints));
+    }
+    // The remembered results must agree with those from non-canonical instances
+    final ValueProperties copy = satisfying.copy().get();
+    assertTrue(constraints.isSatisfiedBy(copy));
+    assertEquals(satisfying.compose(constraints), copy.compose(constraints));
+  }
+
+  public void testInternedMatchesDoNotRetainOthers() {
+    final ValueProperties constraints = ValueProperties.with("Foo", "Bar").withAny("Retained").get().intern();
+    ValueProperties other = ValueProperties.with("Foo", "Bar").with("Retained", "Collectable").get().intern();
+    assertTrue(constraints.isSatisfiedBy(other));
+    assertNotNull(constraints.compose(other));
+    final WeakReference<ValueProperties> ref = new WeakReference<ValueProperties>(other);
+    other = null;
+    for (int i = 0; (i < 20) && (ref.get() != null); i++) {
+      System.gc();
+    }
+    // the remembered match must not keep the other canonical instance alive
+    assertNull(ref.get());
+  }
+
 }
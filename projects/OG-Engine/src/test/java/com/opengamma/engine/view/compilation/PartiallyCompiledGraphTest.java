@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.depgraph.impl.DependencyGraphImpl;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link PartiallyCompiledGraph} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PartiallyCompiledGraphTest {
+
+  private ValueSpecification _c;
+  private ValueSpecification _f;
+  private ValueSpecification _y;
+
+  private PartiallyCompiledGraph createGraph() {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder("Redundant");
+    NodeBuilder nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    final ValueSpecification a = nb.addOutput("A");
+    final ValueSpecification b = gb.addNode("Test", ComputationTargetSpecification.NULL).addOutput("B");
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    _c = nb.addOutput("C");
+    _y = nb.addTerminalOutput("Y");
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    final ValueSpecification d = nb.addOutput("D");
+    nb.addInput(a);
+    nb.addInput(b);
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    final ValueSpecification e = nb.addOutput("E");
+    nb.addInput(b);
+    nb.addInput(_c);
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    _f = nb.addTerminalOutput("F");
+    nb.addInput(d);
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    nb.addOutput("G");
+    nb.addInput(d);
+    nb.addInput(e);
+    nb = gb.addNode("Test", ComputationTargetSpecification.NULL);
+    nb.addOutput("H");
+    nb.addInput(e);
+    return new PartiallyCompiledGraph(gb.buildGraph());
+  }
+
+  private static Set<ValueSpecification> getRootOutputs(final PartiallyCompiledGraph graph) {
+    final Set<ValueSpecification> outputs = new HashSet<ValueSpecification>();
+    for (DependencyNode root : graph.getRoots()) {
+      final int count = root.getOutputCount();
+      for (int i = 0; i < count; i++) {
+        outputs.add(root.getOutputValue(i));
+      }
+    }
+    return outputs;
+  }
+
+  public void testRemoveUnnecessaryNodes() {
+    final PartiallyCompiledGraph graph = createGraph();
+    assertEquals(graph.getRootCount(), 3);
+    assertEquals(DependencyGraphImpl.getDependencyNodes(graph).size(), 8);
+    // G and H are not terminal; E is then only used by them
+    assertEquals(graph.removeUnnecessaryNodes(), 3);
+    assertEquals(getRootOutputs(graph), ImmutableSet.of(_c, _f, _y));
+    assertEquals(DependencyGraphImpl.getDependencyNodes(graph).size(), 5);
+    // Nothing further to remove
+    assertEquals(graph.removeUnnecessaryNodes(), 0);
+    assertEquals(graph.getRootCount(), 2);
+  }
+
+  public void testRemoveTerminalOutput() {
+    final PartiallyCompiledGraph graph = createGraph();
+    graph.getTerminalOutputs().remove(_f);
+    // Only the node producing Y is still needed
+    assertEquals(graph.removeUnnecessaryNodes(), 7);
+    assertEquals(getRootOutputs(graph), ImmutableSet.of(_c, _y));
+    assertEquals(DependencyGraphImpl.getDependencyNodes(graph).size(), 1);
+  }
+
+  public void testRemoveAllTerminalOutputs() {
+    final PartiallyCompiledGraph graph = createGraph();
+    graph.getTerminalOutputs().clear();
+    assertEquals(graph.removeUnnecessaryNodes(), 8);
+    assertEquals(graph.getRootCount(), 0);
+  }
+
+}
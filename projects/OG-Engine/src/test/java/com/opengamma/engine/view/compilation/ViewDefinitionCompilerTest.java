@@ -13,7 +13,10 @@ import static org.testng.AssertJUnit.fail;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
@@ -49,6 +52,9 @@ import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
 import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
 import com.opengamma.engine.target.ComputationTargetType;
 import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ResultOutputMode;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
@@ -313,6 +319,108 @@ public class ViewDefinitionCompilerTest {
     }
   }
 
+  public void testParallelCalculationConfigurations() {
+    TestLifecycle.begin();
+    final boolean parallel = ViewDefinitionCompiler.isParallelCalculationConfigurations();
+    ViewDefinitionCompiler.setParallelCalculationConfigurations(true);
+    try {
+      final ViewDefinition viewDefinition = new ViewDefinition("Test", "jonathan");
+      final ViewCalculationConfiguration calcConfig1 = new ViewCalculationConfiguration(viewDefinition, "Config1");
+      final ViewCalculationConfiguration calcConfig2 = new ViewCalculationConfiguration(viewDefinition, "Config2");
+      final ViewCalculationConfiguration calcConfig3 = new ViewCalculationConfiguration(viewDefinition, "Config3");
+      calcConfig3.setDefaultProperties(ValueProperties.with("Foo", "Bar").get());
+      viewDefinition.addViewCalculationConfiguration(calcConfig1);
+      viewDefinition.addViewCalculationConfiguration(calcConfig2);
+      viewDefinition.addViewCalculationConfiguration(calcConfig3);
+      final UniqueId t1 = UniqueId.of("TestScheme", "t1");
+      final UniqueId t2 = UniqueId.of("TestScheme", "t2");
+      final InMemoryFunctionRepository functionRepo = new InMemoryFunctionRepository();
+      final MockFunction f1 = MockFunction.getMockFunction("f1", new ComputationTarget(ComputationTargetType.PRIMITIVE, t1), 42);
+      final MockFunction f2 = MockFunction.getMockFunction("f2", new ComputationTarget(ComputationTargetType.PRIMITIVE, t2), 60, f1);
+      functionRepo.addFunction(f1);
+      functionRepo.addFunction(f2);
+      final FunctionCompilationContext compilationContext = new FunctionCompilationContext();
+      compilationContext.setFunctionInitId(123);
+      final CompiledFunctionService cfs = new CompiledFunctionService(functionRepo, new CachingFunctionRepositoryCompiler(), compilationContext);
+      TestLifecycle.register(cfs);
+      cfs.initialize();
+      final DefaultFunctionResolver functionResolver = new DefaultFunctionResolver(cfs);
+      compilationContext.setRawComputationTargetResolver(new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(), _cacheManager));
+      final ViewCompilationServices compilationServices = new ViewCompilationServices(new FixedMarketDataAvailabilityProvider(), functionResolver, compilationContext,
+          cfs.getExecutorService(), new DependencyGraphBuilderFactory());
+      calcConfig1.addSpecificRequirement(f2.getResultSpec().toRequirementSpecification());
+      calcConfig2.addSpecificRequirement(f1.getResultSpec().toRequirementSpecification());
+      calcConfig3.addSpecificRequirement(f2.getResultSpec().toRequirementSpecification());
+      final Instant now = Instant.now();
+      final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, now, VersionCorrection.of(now, now));
+      assertEquals(3, compiledViewDefinition.getDependencyGraphExplorers().size());
+      assertEquals(2, compiledViewDefinition.getDependencyGraphExplorer("Config1").getWholeGraph().getSize());
+      assertEquals(1, compiledViewDefinition.getDependencyGraphExplorer("Config2").getWholeGraph().getSize());
+      assertEquals(2, compiledViewDefinition.getDependencyGraphExplorer("Config3").getWholeGraph().getSize());
+      assertTargets(compiledViewDefinition, t1, t2);
+    } finally {
+      ViewDefinitionCompiler.setParallelCalculationConfigurations(parallel);
+      TestLifecycle.end();
+    }
+  }
+
+  private Map<String, Set<ValueSpecification>> compileConfigurationDependentResults(final boolean parallelCalculationConfigurations) {
+    TestLifecycle.begin();
+    final boolean parallel = ViewDefinitionCompiler.isParallelCalculationConfigurations();
+    ViewDefinitionCompiler.setParallelCalculationConfigurations(parallelCalculationConfigurations);
+    try {
+      final ViewDefinition viewDefinition = new ViewDefinition("Test", "jonathan");
+      final ViewCalculationConfiguration calcConfig1 = new ViewCalculationConfiguration(viewDefinition, "Config1");
+      final ViewCalculationConfiguration calcConfig2 = new ViewCalculationConfiguration(viewDefinition, "Config2");
+      viewDefinition.addViewCalculationConfiguration(calcConfig1);
+      viewDefinition.addViewCalculationConfiguration(calcConfig2);
+      final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("TestScheme", "t1"));
+      final InMemoryFunctionRepository functionRepo = new InMemoryFunctionRepository();
+      // The function's result properties depend on the calculation configuration it is compiled for
+      final MockFunction f1 = new MockFunction("f1", target) {
+        @Override
+        public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+          return Collections.singleton(new ValueSpecification("OUTPUT", target.toSpecification(), createValueProperties()
+              .with("Config", context.getViewCalculationConfiguration().getName()).get()));
+        }
+      };
+      functionRepo.addFunction(f1);
+      final FunctionCompilationContext compilationContext = new FunctionCompilationContext();
+      compilationContext.setFunctionInitId(123);
+      final CompiledFunctionService cfs = new CompiledFunctionService(functionRepo, new CachingFunctionRepositoryCompiler(), compilationContext);
+      TestLifecycle.register(cfs);
+      cfs.initialize();
+      final DefaultFunctionResolver functionResolver = new DefaultFunctionResolver(cfs);
+      compilationContext.setRawComputationTargetResolver(new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(), _cacheManager));
+      final ViewCompilationServices compilationServices = new ViewCompilationServices(new FixedMarketDataAvailabilityProvider(), functionResolver, compilationContext,
+          cfs.getExecutorService(), new DependencyGraphBuilderFactory());
+      final ValueRequirement requirement = new ValueRequirement("OUTPUT", target.toSpecification());
+      calcConfig1.addSpecificRequirement(requirement);
+      calcConfig2.addSpecificRequirement(requirement);
+      final Instant now = Instant.now();
+      final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, now, VersionCorrection.of(now, now));
+      final Map<String, Set<ValueSpecification>> results = new HashMap<String, Set<ValueSpecification>>();
+      for (String calcConfig : Arrays.asList("Config1", "Config2")) {
+        results.put(calcConfig, compiledViewDefinition.getDependencyGraphExplorer(calcConfig).getWholeGraph().getTerminalOutputs().keySet());
+      }
+      return results;
+    } finally {
+      ViewDefinitionCompiler.setParallelCalculationConfigurations(parallel);
+      TestLifecycle.end();
+    }
+  }
+
+  public void testParallelCalculationConfigurationsUseOwnContext() {
+    final Map<String, Set<ValueSpecification>> parallel = compileConfigurationDependentResults(true);
+    final Map<String, Set<ValueSpecification>> sequential = compileConfigurationDependentResults(false);
+    for (String calcConfig : Arrays.asList("Config1", "Config2")) {
+      final Set<ValueSpecification> outputs = parallel.get(calcConfig);
+      assertEquals(1, outputs.size());
+      assertEquals(calcConfig, outputs.iterator().next().getProperty("Config"));
+    }
+    assertEquals(sequential, parallel);
+  }
+
   public void testCancel() throws Exception {
     TestLifecycle.begin();
     try {
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.impl;
+
+import static com.opengamma.engine.view.impl.ViewCalculationResultModelImplTest.COMPUTED_VALUE_RESULT;
+import static com.opengamma.engine.view.impl.ViewCalculationResultModelImplTest.SPEC;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValueResult;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.AggregatedExecutionLog;
+import com.opengamma.engine.view.NumberDeltaComparer;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewCalculationResultModel;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.ViewDeltaResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
+import com.opengamma.id.UniqueId;
+import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.util.test.TestGroup;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Pairs;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModel} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ColumnarViewComputationResultModelTest {
+
+  private static final ValueProperties PROPERTIES = ValueProperties.with(ValuePropertyNames.FUNCTION, "mockFunctionId").get();
+
+  private static ComputedValueResult value(final String valueName, final String target, final Object value) {
+    final ValueSpecification spec = new ValueSpecification(valueName, ComputationTargetSpecification.of(UniqueId.of("Test", target)), PROPERTIES);
+    return new ComputedValueResult(spec, value, COMPUTED_VALUE_RESULT.getAggregatedExecutionLog());
+  }
+
+  public void testAddValue() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    assertTrue(model.isEmpty());
+    model.addValue("Default", COMPUTED_VALUE_RESULT);
+    assertFalse(model.isEmpty());
+    assertEquals(Sets.newHashSet(SPEC), model.getAllTargets());
+    final ViewCalculationResultModel calcResult = model.getCalculationResult("Default");
+    assertNotNull(calcResult);
+    final Map<Pair<String, ValueProperties>, ComputedValueResult> targetResults = calcResult.getValues(SPEC);
+    assertEquals(1, targetResults.size());
+    assertEquals("DATA", targetResults.keySet().iterator().next().getFirst());
+    assertEquals(COMPUTED_VALUE_RESULT, targetResults.values().iterator().next());
+    assertNull(calcResult.getValues(ComputationTargetSpecification.of(UniqueId.of("Test", "nonexistent"))));
+    assertEquals(Sets.newHashSet(COMPUTED_VALUE_RESULT), Sets.newHashSet(model.getTargetResult(SPEC).getAllValues("Default")));
+    assertEquals(Sets.newHashSet("DATA"), model.getAllOutputValueNames());
+  }
+
+  public void testPrimitiveColumn() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.addValue("Default", value("PV", "A", 1.5d));
+    model.addValue("Default", value("PV", "B", "Error"));
+    model.addValue("Default", value("PV", "C", 3d));
+    final ColumnarViewCalculationResultModel calcResult = model.getCalculationResult("Default");
+    final ColumnarViewCalculationResultModel.Column column = calcResult.getColumn("PV", PROPERTIES);
+    final int a = model.getIndex().findOrdinal(ComputationTargetSpecification.of(UniqueId.of("Test", "A")));
+    final int b = model.getIndex().findOrdinal(ComputationTargetSpecification.of(UniqueId.of("Test", "B")));
+    assertTrue(column.isDouble(a));
+    assertEquals(1.5d, column.getDouble(a));
+    assertFalse(column.isDouble(b));
+    assertEquals("Error", column.getValue(b));
+    assertEquals(3, column.getOrdinals().cardinality());
+    assertEquals(value("PV", "C", 3d), calcResult.getValues(ComputationTargetSpecification.of(UniqueId.of("Test", "C"))).get(Pairs.of("PV", PROPERTIES)));
+    assertEquals(3, model.getAllResults().size());
+  }
+
+  public void testCopy() {
+    final InMemoryViewComputationResultModel original = new InMemoryViewComputationResultModel();
+    original.setCalculationTime(Instant.ofEpochMilli(500));
+    original.addValue("Default", value("PV", "A", 1.5d));
+    original.addValue("Other", value("Delta", "B", 2d));
+    final ColumnarViewComputationResultModel copy = new ColumnarViewComputationResultModel(original, new TargetOrdinalIndex());
+    assertEquals(Instant.ofEpochMilli(500), copy.getCalculationTime());
+    assertEquals(original.getAllTargets(), copy.getAllTargets());
+    assertEquals(Sets.newHashSet(original.getAllResults()), Sets.newHashSet(copy.getAllResults()));
+  }
+
+  public void testColumnarDelta() {
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", UserPrincipal.getTestUser());
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Default");
+    calcConfig.getDeltaDefinition().setNumberComparer(new NumberDeltaComparer(2));
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    final TargetOrdinalIndex index = new TargetOrdinalIndex();
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel(index);
+    previous.addValue("Default", value("PV", "A", 1.001d));
+    previous.addValue("Default", value("PV", "B", 2d));
+    previous.addValue("Default", value("PV", "C", "X"));
+    previous.addValue("Default", value("PV", "D", "Y"));
+    final ColumnarViewComputationResultModel result = new ColumnarViewComputationResultModel(index);
+    result.addValue("Default", value("PV", "A", 1.002d));
+    result.addValue("Default", value("PV", "B", 2.5d));
+    result.addValue("Default", value("PV", "C", "X"));
+    result.addValue("Default", value("PV", "D", "Z"));
+    result.addValue("Default", value("PV", "E", 1d));
+    result.addValue("Default", value("Gamma", "A", 1d));
+    final ViewDeltaResultModel delta = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, previous, result);
+    final Set<ComputedValueResult> deltas = new HashSet<ComputedValueResult>();
+    for (ViewResultEntry entry : delta.getAllResults()) {
+      deltas.add(entry.getComputedValue());
+    }
+    // A is within the comparer's precision and C is unchanged
+    assertEquals(Sets.newHashSet(value("PV", "B", 2.5d), value("PV", "D", "Z"), value("PV", "E", 1d), value("Gamma", "A", 1d)), deltas);
+  }
+
+  public void testColumnarDeltaMatchesMapDelta() {
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", UserPrincipal.getTestUser());
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Default");
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    final TargetOrdinalIndex index = new TargetOrdinalIndex();
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel(index);
+    previous.addValue("Default", value("PV", "A", 1d));
+    previous.addValue("Default", value("PV", "B", 2d));
+    previous.addValue("Default", value("PV", "C", 3d));
+    final ColumnarViewComputationResultModel result = new ColumnarViewComputationResultModel(index);
+    result.addValue("Default", value("PV", "A", 1d));
+    result.addValue("Default", value("PV", "B", 2.5d));
+    final ValueSpecification spec = new ValueSpecification("PV", ComputationTargetSpecification.of(UniqueId.of("Test", "C")), PROPERTIES);
+    // same value, different execution log
+    result.addValue("Default", new ComputedValueResult(spec, 3d, AggregatedExecutionLog.EMPTY));
+    final Set<ComputedValueResult> columnar = new HashSet<ComputedValueResult>();
+    for (ViewResultEntry entry : ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, previous, result).getAllResults()) {
+      columnar.add(entry.getComputedValue());
+    }
+    final Set<ComputedValueResult> map = new HashSet<ComputedValueResult>();
+    for (ViewResultEntry entry : ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, new InMemoryViewComputationResultModel(previous),
+        new InMemoryViewComputationResultModel(result)).getAllResults()) {
+      map.add(entry.getComputedValue());
+    }
+    assertEquals(map, columnar);
+    assertEquals(2, columnar.size());
+  }
+
+}
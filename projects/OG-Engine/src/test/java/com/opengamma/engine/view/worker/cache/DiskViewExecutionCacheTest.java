@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.worker.cache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.google.common.collect.ImmutableMap;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder;
+import com.opengamma.engine.depgraph.builder.TestDependencyGraphBuilder.NodeBuilder;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.SimpleFunctionParameters;
+import com.opengamma.engine.function.config.FunctionConfiguration;
+import com.opengamma.engine.function.config.FunctionConfigurationBundle;
+import com.opengamma.engine.function.config.FunctionConfigurationSource;
+import com.opengamma.engine.function.config.ParameterizedFunctionConfiguration;
+import com.opengamma.engine.target.ComputationTargetReference;
+import com.opengamma.engine.target.ComputationTargetRequirement;
+import com.opengamma.engine.target.ComputationTargetType;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfiguration;
+import com.opengamma.engine.view.compilation.CompiledViewCalculationConfigurationImpl;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphs;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link DiskViewExecutionCache} class.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class DiskViewExecutionCacheTest {
+
+  private final Instant _now = Instant.now();
+  private File _directory;
+  private InMemoryFunctionRepository _functionRepository;
+  private FunctionCompilationContext _compilationContext;
+  private CompiledFunctionService _functions;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    _directory = Files.createTempDirectory("DiskViewExecutionCacheTest").toFile();
+    _functionRepository = new InMemoryFunctionRepository();
+    _functionRepository.addFunction(new MockFunction("Foo", ComputationTarget.NULL));
+    _compilationContext = new FunctionCompilationContext();
+    _compilationContext.setFunctionInitId(1L);
+    _functions = Mockito.mock(CompiledFunctionService.class);
+    Mockito.when(_functions.getFunctionRepository()).thenReturn(_functionRepository);
+    Mockito.when(_functions.getFunctionCompilationContext()).thenReturn(_compilationContext);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(_directory);
+  }
+
+  private Portfolio createPortfolio() {
+    return new SimplePortfolio(UniqueId.of("Portfolio", "0", "V"), "Portfolio");
+  }
+
+  private ViewDefinition createViewDefinition() {
+    final ViewDefinition viewDefinition = new ViewDefinition("TestView", UniqueId.of("Portfolio", "0"), "TestUser");
+    viewDefinition.setUniqueId(UniqueId.of("View", "0", "V"));
+    return viewDefinition;
+  }
+
+  private DependencyGraph createDependencyGraph() {
+    final TestDependencyGraphBuilder gb = new TestDependencyGraphBuilder("Default");
+    final NodeBuilder n1 = gb.addNode("Foo", ComputationTargetSpecification.NULL);
+    n1.addTerminalOutput("Foo");
+    final NodeBuilder n2 = gb.addNode("Bar", ComputationTargetSpecification.NULL);
+    n1.addInput(n2.addOutput("Bar"));
+    final NodeBuilder n3 = gb.addNode("Cow", ComputationTargetSpecification.NULL);
+    n2.addInput(n3.addOutput("Cow"));
+    return gb.buildGraph();
+  }
+
+  private CompiledViewDefinitionWithGraphs createCompiledViewDefinitionWithGraphs() {
+    final Portfolio portfolio = createPortfolio();
+    final ViewDefinition viewDefinition = createViewDefinition();
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Default");
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    final DependencyGraph graph = createDependencyGraph();
+    final Collection<DependencyGraph> graphs = Collections.singleton(graph);
+    final Collection<CompiledViewCalculationConfiguration> calcConfigs = Collections.<CompiledViewCalculationConfiguration>singleton(CompiledViewCalculationConfigurationImpl.of(graph));
+    final Map<ComputationTargetReference, UniqueId> resolutions = ImmutableMap.<ComputationTargetReference, UniqueId>of(new ComputationTargetRequirement(ComputationTargetType.SECURITY,
+        ExternalId.of("Security", "Foo")), UniqueId.of("Sec", "0"));
+    return new CompiledViewDefinitionWithGraphsImpl(VersionCorrection.of(_now, _now), "", viewDefinition, graphs, resolutions, portfolio, 1L, calcConfigs, null, null);
+  }
+
+  private DiskViewExecutionCache createCache() {
+    final ComputationTargetResolver targetResolver = Mockito.mock(ComputationTargetResolver.class);
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO, UniqueId.of("Portfolio", "0", "V")), VersionCorrection.of(_now, _now)))
+        .thenReturn(new ComputationTarget(ComputationTargetType.PORTFOLIO, createPortfolio()));
+    Mockito.when(targetResolver.resolve(new ComputationTargetSpecification(ComputationTargetType.of(ViewDefinition.class), UniqueId.of("View", "0", "V")), VersionCorrection.LATEST))
+        .thenReturn(new ComputationTarget(ComputationTargetType.of(ViewDefinition.class), createViewDefinition()));
+    return new DiskViewExecutionCache(_directory, targetResolver, _functions);
+  }
+
+  private static void assertEquivalent(final CompiledViewDefinitionWithGraphs actual, final CompiledViewDefinitionWithGraphs expected) {
+    assertEquals(actual.getCompiledCalculationConfigurations(), expected.getCompiledCalculationConfigurations());
+    assertEquals(actual.getComputationTargets(), expected.getComputationTargets());
+    assertEquals(actual.getMarketDataRequirements(), expected.getMarketDataRequirements());
+    assertEquals(actual.getPortfolio(), expected.getPortfolio());
+    assertEquals(actual.getResolvedIdentifiers(), expected.getResolvedIdentifiers());
+    assertEquals(actual.getResolverVersionCorrection(), expected.getResolverVersionCorrection());
+    assertEquals(actual.getViewDefinition().getUniqueId(), expected.getViewDefinition().getUniqueId());
+  }
+
+  public void testCaching() {
+    final DiskViewExecutionCache cache = createCache();
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    // Miss
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    // Store
+    cache.setCompiledViewDefinitionWithGraphs(key, object);
+    // Hit the front cache
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key), object);
+    // Hit the disk
+    cache.clearFrontCache();
+    final CompiledViewDefinitionWithGraphs cachedObject = cache.getCompiledViewDefinitionWithGraphs(key);
+    assertNotNull(cachedObject);
+    assertNotSame(cachedObject, object);
+    assertEquivalent(cachedObject, object);
+    // Hit the front cache
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key), cachedObject);
+    // Replacement
+    final CompiledViewDefinitionWithGraphs newObject = createCompiledViewDefinitionWithGraphs();
+    cache.setCompiledViewDefinitionWithGraphs(key, newObject);
+    assertSame(cache.getCompiledViewDefinitionWithGraphs(key), newObject);
+  }
+
+  public void testRestart() {
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    createCache().setCompiledViewDefinitionWithGraphs(key, object);
+    // Functions re-initialized with the same repository
+    _compilationContext.setFunctionInitId(2L);
+    final CompiledViewDefinitionWithGraphs cachedObject = createCache().getCompiledViewDefinitionWithGraphs(key);
+    assertNotNull(cachedObject);
+    assertEquivalent(cachedObject, object);
+    assertEquals(((CompiledViewDefinitionWithGraphsImpl) cachedObject).getFunctionInitId(), 2L);
+  }
+
+  public void testFunctionRepositoryChange() {
+    final DiskViewExecutionCache cache = createCache();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    cache.setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    _functionRepository.addFunction(new MockFunction("Bar", ComputationTarget.NULL));
+    _compilationContext.setFunctionInitId(2L);
+    cache.clearFrontCache();
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    assertEquals(_directory.listFiles().length, 0);
+  }
+
+  public void testFunctionParameterChange() {
+    final DiskViewExecutionCache cache = createCache();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    cache.setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    // Same function identifiers but different default parameters
+    final InMemoryFunctionRepository functionRepository = new InMemoryFunctionRepository();
+    functionRepository.addFunction(new MockFunction("Foo", ComputationTarget.NULL) {
+      @Override
+      public FunctionParameters getDefaultParameters() {
+        return new SimpleFunctionParameters(Collections.singletonMap("Bar", "Cow"));
+      }
+    });
+    Mockito.when(_functions.getFunctionRepository()).thenReturn(functionRepository);
+    _compilationContext.setFunctionInitId(2L);
+    cache.clearFrontCache();
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    assertEquals(_directory.listFiles().length, 0);
+  }
+
+  public void testFunctionConfigurationChange() {
+    final FunctionConfigurationSource functionConfiguration = Mockito.mock(FunctionConfigurationSource.class);
+    Mockito.when(functionConfiguration.getFunctionConfiguration(Mockito.any(Instant.class))).thenReturn(
+        new FunctionConfigurationBundle(Collections.<FunctionConfiguration>singleton(new ParameterizedFunctionConfiguration(MockFunction.class.getName(), Arrays.asList("Foo")))));
+    final CompiledViewDefinitionWithGraphs object = createCompiledViewDefinitionWithGraphs();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    DiskViewExecutionCache cache = createCache();
+    cache.setFunctionConfigurationSource(functionConfiguration);
+    cache.setCompiledViewDefinitionWithGraphs(key, object);
+    // Restart with the same configuration
+    _compilationContext.setFunctionInitId(2L);
+    cache = createCache();
+    cache.setFunctionConfigurationSource(functionConfiguration);
+    assertNotNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    // Restart with a changed constructor parameter; the repository's identifiers and default parameters are the same
+    Mockito.when(functionConfiguration.getFunctionConfiguration(Mockito.any(Instant.class))).thenReturn(
+        new FunctionConfigurationBundle(Collections.<FunctionConfiguration>singleton(new ParameterizedFunctionConfiguration(MockFunction.class.getName(), Arrays.asList("Bar")))));
+    _compilationContext.setFunctionInitId(3L);
+    cache = createCache();
+    cache.setFunctionConfigurationSource(functionConfiguration);
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+  }
+
+  public void testCorruptEntry() throws IOException {
+    final DiskViewExecutionCache cache = createCache();
+    final ViewExecutionCacheKey key = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    cache.setCompiledViewDefinitionWithGraphs(key, createCompiledViewDefinitionWithGraphs());
+    final File[] files = _directory.listFiles();
+    assertEquals(files.length, 1);
+    try (FileOutputStream out = new FileOutputStream(files[0])) {
+      out.write(new byte[] {1, 2, 3, 4 });
+    }
+    cache.clearFrontCache();
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key));
+    assertFalse(files[0].exists());
+  }
+
+  public void testClear() {
+    final DiskViewExecutionCache cache = createCache();
+    final ViewExecutionCacheKey key1 = new ViewExecutionCacheKey(UniqueId.of("Key", "1"), "Foo", "No-op");
+    final ViewExecutionCacheKey key2 = new ViewExecutionCacheKey(UniqueId.of("Key", "2"), "Foo", "No-op");
+    cache.setCompiledViewDefinitionWithGraphs(key1, createCompiledViewDefinitionWithGraphs());
+    cache.setCompiledViewDefinitionWithGraphs(key2, createCompiledViewDefinitionWithGraphs());
+    assertEquals(_directory.listFiles().length, 2);
+    cache.clear();
+    assertEquals(_directory.listFiles().length, 0);
+    assertTrue(_directory.isDirectory());
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key1));
+    assertNull(cache.getCompiledViewDefinitionWithGraphs(key2));
+  }
+
+}
@@ -9,6 +9,8 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 
@@ -71,4 +73,14 @@ public class ViewExecutionCacheKeyTest {
         .equals(ViewExecutionCacheKey.of(viewDefinition1(), marketDataProvider("Foo"), new MarketDataSelectionGraphManipulator(MarketDataPointSelector.of(ExternalId.of("Test", "Bar")),
             Collections.<String, Map<DistinctMarketDataSelector, FunctionParameters>>emptyMap()))));
   }
+
+  public void toBytes() {
+    final ViewExecutionCacheKey key = ViewExecutionCacheKey.of(viewDefinition1(), marketDataProvider("Foo"), null);
+    assertTrue(Arrays.equals(key.toBytes(), ViewExecutionCacheKey.of(viewDefinition1(), marketDataProvider("Foo"), null).toBytes()));
+    assertTrue(Arrays.equals(key.toBytes(), new ViewExecutionCacheKey(UniqueId.of("View", "123"), "Foo", "No-op").toBytes()));
+    assertFalse(Arrays.equals(key.toBytes(), ViewExecutionCacheKey.of(viewDefinition1(), marketDataProvider("Bar"), null).toBytes()));
+    assertFalse(Arrays.equals(key.toBytes(), ViewExecutionCacheKey.of(viewDefinition2(), marketDataProvider("Foo"), null).toBytes()));
+    assertFalse(Arrays.equals(key.toBytes(), new ViewExecutionCacheKey(UniqueId.of("View", "123"), (Serializable) Arrays.asList("Foo"), "No-op").toBytes()));
+  }
+
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Maps the JMS topics of individual lines of market data onto a fixed number of partition topics,
+ * on which batches of updates are published.
+ * <p>
+ * The server and its clients must use partitioners with the same prefix and number of partitions.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class LiveDataTopicPartitioner {
+
+  /**
+   * The prefix of the partition topics.
+   */
+  private final String _prefix;
+  /**
+   * The number of partitions.
+   */
+  private final int _numPartitions;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param prefix  the prefix of the partition topics, not null
+   * @param numPartitions  the number of partitions, positive
+   */
+  public LiveDataTopicPartitioner(String prefix, int numPartitions) {
+    ArgumentChecker.notNull(prefix, "prefix");
+    ArgumentChecker.isTrue(numPartitions > 0, "numPartitions must be positive, was {}", numPartitions);
+    _prefix = prefix;
+    _numPartitions = numPartitions;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the prefix of the partition topics.
+   * 
+   * @return the prefix, not null
+   */
+  public String getPrefix() {
+    return _prefix;
+  }
+
+  /**
+   * Gets the number of partitions.
+   * 
+   * @return the number of partitions
+   */
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  /**
+   * Gets the partition of a topic.
+   * 
+   * @param topic  the topic of a line of market data, not null
+   * @return the partition, from zero to the number of partitions - 1
+   */
+  public int getPartition(String topic) {
+    ArgumentChecker.notNull(topic, "topic");
+    return (topic.hashCode() & Integer.MAX_VALUE) % _numPartitions;
+  }
+
+  /**
+   * Gets the partition topic on which the updates of a topic are published.
+   * 
+   * @param topic  the topic of a line of market data, not null
+   * @return the partition topic, not null
+   */
+  public String getPartitionTopic(String topic) {
+    return getPartitionTopic(getPartition(topic));
+  }
+
+  /**
+   * Gets the topic of a partition.
+   * 
+   * @param partition  the partition
+   * @return the partition topic, not null
+   */
+  public String getPartitionTopic(int partition) {
+    ArgumentChecker.isTrue(partition >= 0 && partition < _numPartitions, "partition must be from 0 to {}, was {}", _numPartitions - 1, partition);
+    return _prefix + "." + partition;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof LiveDataTopicPartitioner) {
+      LiveDataTopicPartitioner other = (LiveDataTopicPartitioner) obj;
+      return _prefix.equals(other._prefix) && _numPartitions == other._numPartitions;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return _prefix.hashCode() * 31 + _numPartitions;
+  }
+
+  @Override
+  public String toString() {
+    return "LiveDataTopicPartitioner[" + _prefix + ", " + _numPartitions + "]";
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+/**
+ * Converts batches of {@link LiveDataValueUpdateBean} to and from a single Fudge message.
+ * <p>
+ * Each update is held as a sub-message, in the form written by {@link LiveDataValueUpdateBeanFudgeBuilder}.
+ */
+public final class LiveDataValueUpdateBatch {
+
+  /** Field name. */
+  public static final String UPDATE_FIELD_NAME = "update";
+
+  /**
+   * Restricted constructor.
+   */
+  private LiveDataValueUpdateBatch() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Builds the message of a batch of updates.
+   * 
+   * @param serializer  the serializer, not null
+   * @param updates  the updates, not null
+   * @return the message, not null
+   */
+  public static MutableFudgeMsg toFudgeMsg(FudgeSerializer serializer, Collection<LiveDataValueUpdateBean> updates) {
+    final MutableFudgeMsg msg = serializer.newMessage();
+    for (LiveDataValueUpdateBean update : updates) {
+      msg.add(UPDATE_FIELD_NAME, LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(serializer, update));
+    }
+    return msg;
+  }
+
+  /**
+   * Checks if a message is a batch of updates.
+   * 
+   * @param msg  the message, not null
+   * @return true if the message holds a batch of updates
+   */
+  public static boolean isBatch(FudgeMsg msg) {
+    return msg.hasField(UPDATE_FIELD_NAME);
+  }
+
+  /**
+   * Reads the updates of a batch, in the order they were added.
+   * Updates that cannot be read are skipped.
+   * 
+   * @param deserializer  the deserializer, not null
+   * @param msg  the message, not null
+   * @return the updates, not null
+   */
+  public static List<LiveDataValueUpdateBean> fromFudgeMsg(FudgeDeserializer deserializer, FudgeMsg msg) {
+    final List<FudgeField> fields = msg.getAllByName(UPDATE_FIELD_NAME);
+    final List<LiveDataValueUpdateBean> updates = new ArrayList<LiveDataValueUpdateBean>(fields.size());
+    for (FudgeField field : fields) {
+      if (field.getValue() instanceof FudgeMsg) {
+        final LiveDataValueUpdateBean update = LiveDataValueUpdateBeanFudgeBuilder.fromFudgeMsg(deserializer, (FudgeMsg) field.getValue());
+        if (update != null) {
+          updates.add(update);
+        }
+      }
+    }
+    return updates;
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.client;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.support.JmsUtils;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.livedata.LiveDataTopicPartitioner;
+import com.opengamma.livedata.LiveDataValueUpdateBatch;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.transport.FudgeRequestSender;
+import com.opengamma.transport.jms.JmsByteArrayMessageDispatcher;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.PublicAPI;
+import com.opengamma.util.jms.JmsConnector;
+
+/**
+ * A JMS LiveData client for servers publishing batches of updates through a
+ * {@link com.opengamma.livedata.server.distribution.BatchingJmsSenderFactory}.
+ * <p>
+ * Behaves the same as {@link JmsLiveDataClient} except that it subscribes to the partition topic
+ * of each tick distribution specification, once per partition, and unpacks each batch received,
+ * passing every update to the {@link ValueDistributor}. The partitioner must match the server's.
+ */
+@PublicAPI
+public class BatchedJmsLiveDataClient extends JmsLiveDataClient {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(BatchedJmsLiveDataClient.class);
+
+  /**
+   * The partitioner.
+   */
+  private final LiveDataTopicPartitioner _partitioner;
+  /**
+   * The consumer of each partition topic, guarded by itself.
+   */
+  private final Map<String, ConsumerRecord> _consumersByPartitionTopic = new HashMap<String, ConsumerRecord>();
+
+  /**
+   * The consumer of a partition topic and the specifications received through it.
+   */
+  private static final class ConsumerRecord {
+    private final MessageConsumer _consumer;
+    private final Set<String> _receiving = new HashSet<String>();
+
+    private ConsumerRecord(MessageConsumer consumer) {
+      _consumer = consumer;
+    }
+  }
+
+  public BatchedJmsLiveDataClient(FudgeRequestSender subscriptionRequestSender,
+      FudgeRequestSender entitlementRequestSender, JmsConnector jmsConnector, LiveDataTopicPartitioner partitioner) {
+    super(subscriptionRequestSender, entitlementRequestSender, jmsConnector);
+    ArgumentChecker.notNull(partitioner, "partitioner");
+    _partitioner = partitioner;
+  }
+
+  public BatchedJmsLiveDataClient(FudgeRequestSender subscriptionRequestSender,
+      FudgeRequestSender entitlementRequestSender, JmsConnector jmsConnector, FudgeContext fudgeContext, int maxSessions,
+      LiveDataTopicPartitioner partitioner) {
+    super(subscriptionRequestSender, entitlementRequestSender, jmsConnector, fudgeContext, maxSessions);
+    ArgumentChecker.notNull(partitioner, "partitioner");
+    _partitioner = partitioner;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the partitioner.
+   * 
+   * @return the partitioner, not null
+   */
+  public LiveDataTopicPartitioner getPartitioner() {
+    return _partitioner;
+  }
+
+  @Override
+  protected Map<String, Runnable> startReceivingTicks(List<String> specs, Session session,
+      JmsByteArrayMessageDispatcher jmsDispatcher) {
+    Map<String, Runnable> ret = new HashMap<String, Runnable>();
+    synchronized (_consumersByPartitionTopic) {
+      for (String spec : specs) {
+        String partitionTopic = _partitioner.getPartitionTopic(spec);
+        ConsumerRecord record = _consumersByPartitionTopic.get(partitionTopic);
+        if (record == null) {
+          try {
+            Topic topic = session.createTopic(partitionTopic);
+            MessageConsumer messageConsumer = session.createConsumer(topic);
+            messageConsumer.setMessageListener(jmsDispatcher);
+            record = new ConsumerRecord(messageConsumer);
+            _consumersByPartitionTopic.put(partitionTopic, record);
+          } catch (JMSException e) {
+            throw new OpenGammaRuntimeException("Failed to create subscription to JMS topic " + partitionTopic, e);
+          }
+        }
+        record._receiving.add(spec);
+        ret.put(spec, getCloseAction(spec, partitionTopic, record));
+      }
+    }
+    return ret;
+  }
+
+  private Runnable getCloseAction(final String tickDistributionSpecification, final String partitionTopic, final ConsumerRecord record) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        synchronized (_consumersByPartitionTopic) {
+          record._receiving.remove(tickDistributionSpecification);
+          if (record._receiving.isEmpty() && _consumersByPartitionTopic.get(partitionTopic) == record) {
+            s_logger.debug("Closing consumer of {} after last unsubscribe {}", partitionTopic, tickDistributionSpecification);
+            JmsUtils.closeMessageConsumer(record._consumer);
+            _consumersByPartitionTopic.remove(partitionTopic);
+          }
+        }
+      }
+    };
+  }
+
+  @Override
+  public void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+    FudgeMsg fudgeMsg = msgEnvelope.getMessage();
+    if (!LiveDataValueUpdateBatch.isBatch(fudgeMsg)) {
+      super.messageReceived(fudgeContext, msgEnvelope);
+      return;
+    }
+    for (LiveDataValueUpdateBean update : LiveDataValueUpdateBatch.fromFudgeMsg(new FudgeDeserializer(fudgeContext), fudgeMsg)) {
+      valueUpdate(update);
+    }
+  }
+
+}
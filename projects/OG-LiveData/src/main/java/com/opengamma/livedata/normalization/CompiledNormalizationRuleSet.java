@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A normalization rule set that normalizes in a single pass over a reusable {@link NormalizationFieldBuffer}.
+ * <p>
+ * Rules implementing {@link FieldBufferNormalizationRule} modify the buffer in place, so that only
+ * the normalized message is built. Other rules are applied to a message built from the buffer, whose
+ * result is loaded back. The result is the same as that of the rule set it was compiled from.
+ * <p>
+ * Each thread normalizing has its own buffer, so instances can be shared like any rule set.
+ */
+public class CompiledNormalizationRuleSet extends NormalizationRuleSet {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CompiledNormalizationRuleSet.class);
+
+  /**
+   * The buffer of each thread.
+   */
+  private static final ThreadLocal<NormalizationFieldBuffer> s_buffer = new ThreadLocal<NormalizationFieldBuffer>() {
+    @Override
+    protected NormalizationFieldBuffer initialValue() {
+      return new NormalizationFieldBuffer();
+    }
+  };
+
+  /**
+   * The rules, in order.
+   */
+  private final NormalizationRule[] _rules;
+  /**
+   * The rules that can be applied to the buffer, null where a rule must be applied to a message.
+   */
+  private final FieldBufferNormalizationRule[] _bufferRules;
+
+  /**
+   * Compiles a rule set.
+   * 
+   * @param ruleSet  the rule set, not null
+   */
+  public CompiledNormalizationRuleSet(NormalizationRuleSet ruleSet) {
+    this(ruleSet.getId(), ruleSet.getJmsTopicSuffix(), ruleSet.getRules());
+  }
+
+  /**
+   * Creates a compiled rule set.
+   * 
+   * @param id  the rule set ID, not null
+   * @param jmsTopicSuffix  the JMS topic suffix, not null
+   * @param rules  the rules, not null
+   */
+  public CompiledNormalizationRuleSet(String id, String jmsTopicSuffix, List<NormalizationRule> rules) {
+    super(id, jmsTopicSuffix, rules);
+    _rules = rules.toArray(new NormalizationRule[rules.size()]);
+    _bufferRules = new FieldBufferNormalizationRule[_rules.length];
+    for (int i = 0; i < _rules.length; i++) {
+      if (_rules[i] instanceof FieldBufferNormalizationRule) {
+        _bufferRules[i] = (FieldBufferNormalizationRule) _rules[i];
+      } else {
+        s_logger.debug("Rule {} in rule set {} will be applied to a message", _rules[i], id);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public FudgeMsg getNormalizedMessage(FudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    final FudgeContext context = OpenGammaFudgeContext.getInstance();
+    final NormalizationFieldBuffer buffer = s_buffer.get();
+    buffer.load(msg);
+    try {
+      for (int i = 0; i < _rules.length; i++) {
+        if (_bufferRules[i] != null) {
+          if (!_bufferRules[i].apply(buffer, securityUniqueId, fieldHistory)) {
+            s_logger.debug("Rule {} in rule set {} rejected message {}", new Object[] {_rules[i], getId(), msg});
+            return null;
+          }
+        } else {
+          final MutableFudgeMsg normalizedMsg = _rules[i].apply(buffer.toMessage(context), securityUniqueId, fieldHistory);
+          if (normalizedMsg == null) {
+            s_logger.debug("Rule {} in rule set {} rejected message {}", new Object[] {_rules[i], getId(), msg});
+            return null;
+          }
+          buffer.load(normalizedMsg);
+        }
+      }
+      final MutableFudgeMsg normalizedMsg = buffer.toMessage(context);
+      s_logger.debug("Applying rule set {} to message {} produced normalized message {}", new Object[] {getId(), msg, normalizedMsg});
+      return normalizedMsg;
+    } finally {
+      buffer.clear();
+    }
+  }
+
+}
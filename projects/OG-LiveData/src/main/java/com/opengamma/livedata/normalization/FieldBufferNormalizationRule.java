@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import com.opengamma.livedata.server.FieldHistoryStore;
+
+/**
+ * A normalization rule that can also be applied to a {@link NormalizationFieldBuffer}, as done
+ * by {@link CompiledNormalizationRuleSet}.
+ * <p>
+ * Applying the rule to a buffer must have the same effect as applying it to a message holding the same fields.
+ */
+public interface FieldBufferNormalizationRule extends NormalizationRule {
+
+  /**
+   * Applies the normalization rule to the fields in a buffer, modifying them in place.
+   * 
+   * @param fields  the fields to normalize, not null
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory  the distributor-specific field history which the rule may choose to update, not null 
+   * @return true to continue, false to prevent the message from being sent to the client
+   */
+  boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory);
+
+}
@@ -22,10 +22,11 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
  * <p>
  * If no field is accepted, the message is extinguished. 
  */
-public class FieldFilter implements NormalizationRule {
+public class FieldFilter implements FieldBufferNormalizationRule {
   
   private final Collection<String> _fieldsToAccept;
   private final FudgeContext _context;
+  private final boolean[] _fieldMask;
   
   public FieldFilter(String... fieldsToAccept) {
     this(OpenGammaFudgeContext.getInstance(), fieldsToAccept);
@@ -44,6 +45,7 @@ public class FieldFilter implements NormalizationRule {
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     _fieldsToAccept = new HashSet<String>(fieldsToAccept);
     _context = fudgeContext;
+    _fieldMask = NormalizationFieldBuffer.getFieldMask(_fieldsToAccept);
   }
 
   /**
@@ -78,5 +80,11 @@ public class FieldFilter implements NormalizationRule {
     
     return normalizedMsg;
   }
+
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    fields.retain(_fieldMask);
+    return !fields.isEmpty();
+  }
   
 }
@@ -12,12 +12,18 @@ import com.opengamma.livedata.server.FieldHistoryStore;
 /**
  * Stores the current state of the message normalization pipeline in the history store.
  */
-public class FieldHistoryUpdater implements NormalizationRule {
+public class FieldHistoryUpdater implements FieldBufferNormalizationRule {
 
   @Override
   public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
     fieldHistory.liveDataReceived(msg);
     return msg;
   }
+
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    fieldHistory.liveDataReceived(fields);
+    return true;
+  }
   
 }
@@ -6,6 +6,7 @@
 package com.opengamma.livedata.normalization;
 
 import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeFieldType;
 import org.fudgemsg.MutableFudgeMsg;
 
 import com.opengamma.livedata.server.FieldHistoryStore;
@@ -14,16 +15,20 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * Changes the name of a field, leaving its value and all other fields unaffected.
  */
-public class FieldNameChange implements NormalizationRule {
+public class FieldNameChange implements FieldBufferNormalizationRule {
   
   private final String _from;
   private final String _to;
+  private final int _fromId;
+  private final int _toId;
   
   public FieldNameChange(String from, String to) {
     ArgumentChecker.notNull(from, "From");
     ArgumentChecker.notNull(to, "To");
     _from = from;
     _to = to;
+    _fromId = NormalizationFieldBuffer.getFieldId(from);
+    _toId = NormalizationFieldBuffer.getFieldId(to);
   }
   
   @Override
@@ -37,4 +42,16 @@ public class FieldNameChange implements NormalizationRule {
     return msg;
   }
 
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    int index = fields.indexOf(_fromId);
+    if (index >= 0) {
+      FudgeFieldType type = fields.getType(index);
+      Object value = fields.getValue(index);
+      fields.remove(_fromId);
+      fields.add(_toId, _to, type, value);
+    }
+    return true;
+  }
+
 }
@@ -16,7 +16,14 @@ import com.opengamma.livedata.server.FieldHistoryStore;
  *
  * @author pietari
  */
-public class ImpliedVolatilityCalculator implements NormalizationRule {
+public class ImpliedVolatilityCalculator implements FieldBufferNormalizationRule {
+
+  private static final int BEST_IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.BEST_IMPLIED_VOLATILITY);
+  private static final int MID_IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.MID_IMPLIED_VOLATILITY);
+  private static final int LAST_IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.LAST_IMPLIED_VOLATILITY);
+  private static final int BID_IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.BID_IMPLIED_VOLATILITY);
+  private static final int ASK_IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.ASK_IMPLIED_VOLATILITY);
+  private static final int IMPLIED_VOLATILITY_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.IMPLIED_VOLATILITY);
   
   @Override
   public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
@@ -58,4 +65,29 @@ public class ImpliedVolatilityCalculator implements NormalizationRule {
     return msg;
   }
 
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    Double impliedVolatility = fields.getDoubleById(BEST_IMPLIED_VOLATILITY_ID);
+    if (impliedVolatility == null) {
+      impliedVolatility = fields.getDoubleById(MID_IMPLIED_VOLATILITY_ID);
+    }
+    if (impliedVolatility == null) {
+      impliedVolatility = fields.getDoubleById(LAST_IMPLIED_VOLATILITY_ID);
+    }
+    if (impliedVolatility == null) {
+      Double impliedVolatilityBid = fields.getDoubleById(BID_IMPLIED_VOLATILITY_ID);
+      Double impliedVolatilityAsk = fields.getDoubleById(ASK_IMPLIED_VOLATILITY_ID);
+      if (impliedVolatilityBid != null && impliedVolatilityAsk != null) {
+        impliedVolatility = (impliedVolatilityBid + impliedVolatilityAsk) / 2;
+      }
+    }
+    if (impliedVolatility == null) {
+      impliedVolatility = fieldHistory.getLastKnownDouble(MarketDataRequirementNames.IMPLIED_VOLATILITY);
+    }
+    if (impliedVolatility != null) {
+      fields.add(IMPLIED_VOLATILITY_ID, MarketDataRequirementNames.IMPLIED_VOLATILITY, impliedVolatility);
+    }
+    return true;
+  }
+
 }
@@ -14,13 +14,19 @@ import com.opengamma.livedata.server.FieldHistoryStore;
 /**
  * Calculates a best estimate of the current value of a security.
  */
-public class MarketValueCalculator implements NormalizationRule {
+public class MarketValueCalculator implements FieldBufferNormalizationRule {
   
   private static final double TOLERANCE = 0.00001;
   /**
    * The maximum relative bid/ask spread to use their midpoint.
    */
   private static final double MAX_ACCEPTABLE_SPREAD_TO_USE_MIDPOINT = 0.20;
+  private static final int BID_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.BID);
+  private static final int ASK_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.ASK);
+  private static final int LAST_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.LAST);
+  private static final int MID_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.MID);
+  private static final int CLOSE_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.CLOSE);
+  private static final int MARKET_VALUE_ID = NormalizationFieldBuffer.getFieldId(MarketDataRequirementNames.MARKET_VALUE);
 
   /**
    * Calculates a best estimate of the current value of a security.
@@ -104,6 +110,62 @@ public class MarketValueCalculator implements NormalizationRule {
     return lastKnownMarketValue(msg, fieldHistory);
   }
 
+  /**
+   * Calculates a best estimate of the current value of a security, as
+   * {@link #apply(MutableFudgeMsg, String, FieldHistoryStore)} does.
+   * 
+   * @param fields  the fields to normalize, not null
+   * @param securityUniqueId  the data provider's unique ID of the security, not null
+   * @param fieldHistory  the distributor-specific field history which the rule may choose to update, not null 
+   * @return true
+   */
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    Double bid = fields.getDoubleById(BID_ID);
+    if (bid == null) {
+      bid = fieldHistory.getLastKnownDouble(MarketDataRequirementNames.BID);
+    }
+    Double ask = fields.getDoubleById(ASK_ID);
+    if (ask == null) {
+      ask = fieldHistory.getLastKnownDouble(MarketDataRequirementNames.ASK);
+    }
+    if (bid != null && ask != null) {
+      if (Math.abs(bid) > TOLERANCE && (getRelativeSpread(bid, ask) > MAX_ACCEPTABLE_SPREAD_TO_USE_MIDPOINT)) {
+        Double last = fields.getDoubleById(LAST_ID);
+        if (last != null) {
+          if (last < bid) {
+            addMarketValue(fields, bid);
+          } else if (last > ask) {
+            addMarketValue(fields, ask);
+          } else {
+            addMarketValue(fields, last);
+          }
+          return true;
+        }
+      }
+      addMarketValue(fields, (bid + ask) / 2.0);
+      return true;
+    }
+    Double value = fields.getDoubleById(MID_ID);
+    if (value == null) {
+      value = fields.getDoubleById(LAST_ID);
+    }
+    if (value == null) {
+      value = fields.getDoubleById(CLOSE_ID);
+    }
+    if (value == null) {
+      value = fieldHistory.getLastKnownDouble(MarketDataRequirementNames.MARKET_VALUE);
+    }
+    if (value != null) {
+      addMarketValue(fields, value);
+    }
+    return true;
+  }
+
+  private static void addMarketValue(NormalizationFieldBuffer fields, double marketValue) {
+    fields.add(MARKET_VALUE_ID, MarketDataRequirementNames.MARKET_VALUE, marketValue);
+  }
+
   private double getRelativeSpread(Double bid, Double ask) {
     return Math.abs(ask - bid) / Math.abs(ask);
   }
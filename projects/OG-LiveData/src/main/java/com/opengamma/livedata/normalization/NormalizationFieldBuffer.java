@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeFieldType;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.google.common.primitives.Ints;
+import com.opengamma.livedata.server.LiveDataFieldTable;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A reusable buffer of the fields of a market data message being normalized.
+ * <p>
+ * Field names are interned to integer ids, shared by all buffers, so that rules can look fields up
+ * by an id computed once rather than by comparing names. Double values are held in a primitive array.
+ * The fields keep the order of the message, and a message is only built once normalization is complete.
+ * <p>
+ * This class is not thread-safe; each thread should use its own buffer.
+ */
+public final class NormalizationFieldBuffer {
+
+  /**
+   * The id of each interned field name.
+   */
+  private static final ConcurrentMap<String, Integer> s_fieldIds = new ConcurrentHashMap<String, Integer>();
+  /**
+   * The next field id.
+   */
+  private static final AtomicInteger s_nextFieldId = new AtomicInteger();
+  /**
+   * The id of a field without a name.
+   */
+  public static final int NO_NAME = -1;
+  private static final int INITIAL_CAPACITY = 32;
+
+  /**
+   * The field id of each field.
+   */
+  private int[] _ids = new int[INITIAL_CAPACITY];
+  /**
+   * The name of each field.
+   */
+  private String[] _names = new String[INITIAL_CAPACITY];
+  /**
+   * The ordinal of each field, may hold nulls.
+   */
+  private Integer[] _ordinals = new Integer[INITIAL_CAPACITY];
+  /**
+   * The double value of each field, if it holds a double.
+   */
+  private double[] _doubles = new double[INITIAL_CAPACITY];
+  /**
+   * The value of each field, null if it holds a double.
+   */
+  private Object[] _objects = new Object[INITIAL_CAPACITY];
+  /**
+   * The Fudge type of each field, null if it holds a double.
+   */
+  private FudgeFieldType[] _types = new FudgeFieldType[INITIAL_CAPACITY];
+  /**
+   * The number of fields.
+   */
+  private int _size;
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the id of a field name, interning the name the first time it is seen.
+   * 
+   * @param name  the field name, null returns {@link #NO_NAME}
+   * @return the field id
+   */
+  public static int getFieldId(String name) {
+    if (name == null) {
+      return NO_NAME;
+    }
+    Integer id = s_fieldIds.get(name);
+    if (id == null) {
+      synchronized (s_fieldIds) {
+        id = s_fieldIds.get(name);
+        if (id == null) {
+          id = s_nextFieldId.getAndIncrement();
+          s_fieldIds.put(name, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Gets the ids of several field names.
+   * 
+   * @param names  the field names, not null
+   * @return the field ids, not null
+   */
+  public static int[] getFieldIds(Iterable<String> names) {
+    ArgumentChecker.notNull(names, "names");
+    final List<Integer> ids = new ArrayList<Integer>();
+    for (String name : names) {
+      ids.add(getFieldId(name));
+    }
+    return Ints.toArray(ids);
+  }
+
+  /**
+   * Creates a mask, indexed by field id, of several field names.
+   * 
+   * @param names  the field names, not null
+   * @return the mask, true at the id of each of the names, not null
+   */
+  public static boolean[] getFieldMask(Iterable<String> names) {
+    final int[] ids = getFieldIds(names);
+    int max = -1;
+    for (int id : ids) {
+      max = Math.max(max, id);
+    }
+    final boolean[] mask = new boolean[max + 1];
+    for (int id : ids) {
+      if (id >= 0) {
+        mask[id] = true;
+      }
+    }
+    return mask;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Replaces the contents of the buffer with the fields of a message.
+   * 
+   * @param msg  the message, not null
+   */
+  public void load(FudgeMsg msg) {
+    clear();
+    for (FudgeField field : msg) {
+      final Object value = field.getValue();
+      final int index = append(getFieldId(field.getName()), field.getName(), field.getOrdinal());
+      if (value instanceof Double) {
+        _doubles[index] = (Double) value;
+      } else {
+        _objects[index] = value;
+        _types[index] = field.getType();
+      }
+    }
+  }
+
+  /**
+   * Builds a message of the fields in the buffer.
+   * 
+   * @param context  the Fudge context, not null
+   * @return the message, not null
+   */
+  public MutableFudgeMsg toMessage(FudgeContext context) {
+    final MutableFudgeMsg msg = context.newMessage();
+    for (int i = 0; i < _size; i++) {
+      if (_types[i] == null) {
+        msg.add(_names[i], _ordinals[i], _doubles[i]);
+      } else {
+        msg.add(_names[i], _ordinals[i], _types[i], _objects[i]);
+      }
+    }
+    return msg;
+  }
+
+  /**
+   * Stores the fields in the buffer in a field table.
+   * 
+   * @param table  the table, not null
+   */
+  public void copyTo(LiveDataFieldTable table) {
+    for (int i = 0; i < _size; i++) {
+      if (_types[i] == null) {
+        table.update(_names[i], _ordinals[i], _doubles[i]);
+      } else {
+        table.update(_names[i], _ordinals[i], _types[i], _objects[i]);
+      }
+    }
+  }
+
+  /**
+   * Removes all the fields.
+   */
+  public void clear() {
+    Arrays.fill(_objects, 0, _size, null);
+    Arrays.fill(_types, 0, _size, null);
+    Arrays.fill(_names, 0, _size, null);
+    Arrays.fill(_ordinals, 0, _size, null);
+    _size = 0;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of fields.
+   * 
+   * @return the number of fields
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Checks if the buffer is empty.
+   * 
+   * @return true if there are no fields
+   */
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  /**
+   * Finds the first field with an id.
+   * 
+   * @param id  the field id
+   * @return the index of the field, -1 if there is none
+   */
+  public int indexOf(int id) {
+    for (int i = 0; i < _size; i++) {
+      if (_ids[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if there is a field with an id.
+   * 
+   * @param id  the field id
+   * @return true if there is such a field
+   */
+  public boolean contains(int id) {
+    return indexOf(id) >= 0;
+  }
+
+  /**
+   * Checks if the field at an index holds a number.
+   * 
+   * @param index  the index of the field
+   * @return true if the value is a number
+   */
+  public boolean isNumber(int index) {
+    return _types[index] == null || _objects[index] instanceof Number;
+  }
+
+  /**
+   * Gets the value of the field at an index as a double.
+   * 
+   * @param index  the index of a field holding a number
+   * @return the value
+   */
+  public double getDouble(int index) {
+    return _types[index] == null ? _doubles[index] : ((Number) _objects[index]).doubleValue();
+  }
+
+  /**
+   * Gets the value of the first field with an id as a double.
+   * 
+   * @param id  the field id
+   * @return the value, null if there is no such field or it does not hold a number
+   */
+  public Double getDoubleById(int id) {
+    final int index = indexOf(id);
+    if (index < 0 || !isNumber(index)) {
+      return null;
+    }
+    return getDouble(index);
+  }
+
+  /**
+   * Gets the Fudge type of the field at an index.
+   * 
+   * @param index  the index of the field
+   * @return the type, null if the field holds a double
+   */
+  public FudgeFieldType getType(int index) {
+    return _types[index];
+  }
+
+  /**
+   * Gets the value of the field at an index.
+   * 
+   * @param index  the index of the field
+   * @return the value, boxed if the field holds a double
+   */
+  public Object getValue(int index) {
+    return _types[index] == null ? (Object) _doubles[index] : _objects[index];
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a double field at the end of the buffer.
+   * 
+   * @param id  the field id
+   * @param name  the field name
+   * @param value  the value
+   */
+  public void add(int id, String name, double value) {
+    final int index = append(id, name, null);
+    _doubles[index] = value;
+  }
+
+  /**
+   * Adds a field at the end of the buffer.
+   * 
+   * @param id  the field id
+   * @param name  the field name
+   * @param type  the Fudge type, null if the value is a double
+   * @param value  the value
+   */
+  public void add(int id, String name, FudgeFieldType type, Object value) {
+    if (type == null) {
+      add(id, name, (Double) value);
+      return;
+    }
+    final int index = append(id, name, null);
+    _objects[index] = value;
+    _types[index] = type;
+  }
+
+  /**
+   * Removes all the fields with an id.
+   * 
+   * @param id  the field id
+   */
+  public void remove(int id) {
+    int j = 0;
+    for (int i = 0; i < _size; i++) {
+      if (_ids[i] != id) {
+        move(i, j++);
+      }
+    }
+    truncate(j);
+  }
+
+  /**
+   * Removes the fields without a name or whose id is not in a mask.
+   * 
+   * @param mask  the mask of the field ids to keep, not null
+   */
+  public void retain(boolean[] mask) {
+    int j = 0;
+    for (int i = 0; i < _size; i++) {
+      final int id = _ids[i];
+      if (id >= 0 && id < mask.length && mask[id]) {
+        move(i, j++);
+      }
+    }
+    truncate(j);
+  }
+
+  //-------------------------------------------------------------------------
+  private int append(int id, String name, Integer ordinal) {
+    if (_size == _ids.length) {
+      final int capacity = 2 * _size;
+      _ids = Arrays.copyOf(_ids, capacity);
+      _names = Arrays.copyOf(_names, capacity);
+      _ordinals = Arrays.copyOf(_ordinals, capacity);
+      _doubles = Arrays.copyOf(_doubles, capacity);
+      _objects = Arrays.copyOf(_objects, capacity);
+      _types = Arrays.copyOf(_types, capacity);
+    }
+    final int index = _size++;
+    _ids[index] = id;
+    _names[index] = name;
+    _ordinals[index] = ordinal;
+    _objects[index] = null;
+    _types[index] = null;
+    return index;
+  }
+
+  private void move(int from, int to) {
+    if (from != to) {
+      _ids[to] = _ids[from];
+      _names[to] = _names[from];
+      _ordinals[to] = _ordinals[from];
+      _doubles[to] = _doubles[from];
+      _objects[to] = _objects[from];
+      _types[to] = _types[from];
+    }
+  }
+
+  private void truncate(int size) {
+    Arrays.fill(_objects, size, _size, null);
+    Arrays.fill(_types, size, _size, null);
+    Arrays.fill(_names, size, _size, null);
+    Arrays.fill(_ordinals, size, _size, null);
+    _size = size;
+  }
+
+}
@@ -83,6 +83,15 @@ public class NormalizationRuleSet {
     return normalizedMsg;
   }
   
+  /**
+   * Gets the rules of this normalization rule set, in the order they are applied.
+   * 
+   * @return the rules, not null
+   */
+  public List<NormalizationRule> getRules() {
+    return Collections.unmodifiableList(_rules);
+  }
+
   /**
    * Gets the ID of this normalization rule set.
    * 
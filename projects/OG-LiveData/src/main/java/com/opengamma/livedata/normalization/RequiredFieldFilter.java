@@ -17,12 +17,16 @@ import com.opengamma.livedata.server.FieldHistoryStore;
 /**
  * Rejects any update that doesn't contain a set of fields.
  */
-public class RequiredFieldFilter implements NormalizationRule {
+public class RequiredFieldFilter implements FieldBufferNormalizationRule {
 
   /**
    * The field names that must be present.
    */
   private final Set<String> _requiredFieldNames = new HashSet<String>();
+  /**
+   * The ids of the field names that must be present.
+   */
+  private final int[] _requiredFieldIds;
 
   /**
    * Creates a filter with a set of required field names.
@@ -40,6 +44,7 @@ public class RequiredFieldFilter implements NormalizationRule {
    */
   public RequiredFieldFilter(Collection<String> requiredFieldNames) {
     _requiredFieldNames.addAll(requiredFieldNames);
+    _requiredFieldIds = NormalizationFieldBuffer.getFieldIds(_requiredFieldNames);
   }
 
   //-------------------------------------------------------------------------
@@ -70,4 +75,14 @@ public class RequiredFieldFilter implements NormalizationRule {
     return null;
   }
 
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    for (int id : _requiredFieldIds) {
+      if (!fields.contains(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 }
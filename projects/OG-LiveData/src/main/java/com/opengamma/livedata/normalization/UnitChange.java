@@ -16,27 +16,35 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * Multiplies the value of a {@code Double} field by a constant.
  */
-public class UnitChange implements NormalizationRule {
+public class UnitChange implements FieldBufferNormalizationRule {
   
   private final Set<String> _fields;
   private final double _multiplier;
+  private final String[] _fieldNames;
+  private final int[] _fieldIds;
   
   public UnitChange(String field, double multiplier) {
     ArgumentChecker.notNull(field, "Field name");
     _fields = ImmutableSet.of(field);
     _multiplier = multiplier;        
+    _fieldNames = _fields.toArray(new String[_fields.size()]);
+    _fieldIds = NormalizationFieldBuffer.getFieldIds(_fields);
   }
   
   public UnitChange(Set<String> fields, double multiplier) {
     ArgumentChecker.notNull(fields, "Field names");
     _fields = fields;
     _multiplier = multiplier;
+    _fieldNames = _fields.toArray(new String[_fields.size()]);
+    _fieldIds = NormalizationFieldBuffer.getFieldIds(_fields);
   }
   
   public UnitChange(double multiplier, String... fields) {
     ArgumentChecker.notNull(fields, "fields");
     _fields = ImmutableSet.copyOf(fields);
     _multiplier = multiplier;
+    _fieldNames = _fields.toArray(new String[_fields.size()]);
+    _fieldIds = NormalizationFieldBuffer.getFieldIds(_fields);
   }
   
   @Override
@@ -44,6 +52,18 @@ public class UnitChange implements NormalizationRule {
     return multiplyFields(msg, _fields, _multiplier);
   }
 
+  @Override
+  public boolean apply(NormalizationFieldBuffer fields, String securityUniqueId, FieldHistoryStore fieldHistory) {
+    for (int i = 0; i < _fieldIds.length; i++) {
+      Double value = fields.getDoubleById(_fieldIds[i]);
+      if (value != null) {
+        fields.remove(_fieldIds[i]);
+        fields.add(_fieldIds[i], _fieldNames[i], value * _multiplier);
+      }
+    }
+    return true;
+  }
+
   private static MutableFudgeMsg multiplyFields(MutableFudgeMsg msg, Set<String> fields, double multiplier) {
     for (String field : fields) {
       Double value = msg.getDouble(field);
@@ -5,16 +5,10 @@
  */
 package com.opengamma.livedata.server;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-
 import org.fudgemsg.FudgeContext;
-import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
-import org.fudgemsg.MutableFudgeMsg;
-import org.fudgemsg.UnmodifiableFudgeField;
 
+import com.opengamma.livedata.normalization.NormalizationFieldBuffer;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
 /**
@@ -23,6 +17,9 @@ import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
  * At the moment, the field history only stores the last value.
  * This class could be extended in future to store the last N 
  * values, values at a certain interval for the last N minutes, etc. 
+ * <p>
+ * The values are held in a {@link LiveDataFieldTable}, so storing a tick of
+ * double fields does not allocate.
  */
 public class FieldHistoryStore {
 
@@ -33,13 +30,13 @@ public class FieldHistoryStore {
   /**
    * The last known values.
    */
-  private final Map<String, UnmodifiableFudgeField> _lastKnownValues;
+  private final LiveDataFieldTable _lastKnownValues;
 
   /**
    * Creates an instance.
    */
   public FieldHistoryStore() {
-    _lastKnownValues = new HashMap<String, UnmodifiableFudgeField>();
+    _lastKnownValues = new LiveDataFieldTable();
   }
 
   /**
@@ -65,15 +62,36 @@ public class FieldHistoryStore {
   /**
    * Handles the arrival of a data message, storing the fields in history.
    * <p>
-   * The history is stored as a {@code Map} by field name, thus if the message
+   * The history is stored by field name, thus if the message
    * contains multiple fields with the same name, only the last will be stored.
    * 
    * @param msg  the received message, not null
    */
   public synchronized void liveDataReceived(FudgeMsg msg) {
-    for (FudgeField field : msg) {
-      _lastKnownValues.put(field.getName(), UnmodifiableFudgeField.of(field));
+    _lastKnownValues.update(msg);
+  }
+
+  /**
+   * Handles the arrival of data being normalized, storing the fields in history.
+   * 
+   * @param fields  the received fields, not null
+   */
+  public synchronized void liveDataReceived(NormalizationFieldBuffer fields) {
+    fields.copyTo(_lastKnownValues);
+  }
+
+  /**
+   * Gets the last value of a numeric field, without building a message.
+   * 
+   * @param fieldName  the field name
+   * @return the value, null if the field has not been seen or is not numeric
+   */
+  public synchronized Double getLastKnownDouble(String fieldName) {
+    final Object value = _lastKnownValues.getValue(fieldName);
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
     }
+    return null;
   }
 
   /**
@@ -82,11 +100,7 @@ public class FieldHistoryStore {
    * @return the history as a message, not null
    */
   public synchronized FudgeMsg getLastKnownValues() {
-    MutableFudgeMsg newMessage = _context.newMessage();
-    for (Entry<String, UnmodifiableFudgeField> entry : _lastKnownValues.entrySet()) {
-      newMessage.add(entry.getValue());
-    }
-    return newMessage;
+    return _lastKnownValues.getLastKnownValues(_context);
   }
 
   /**
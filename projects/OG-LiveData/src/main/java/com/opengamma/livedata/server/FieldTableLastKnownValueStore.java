@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Implementation of {@link LastKnownValueStore} that backs onto a {@link LiveDataFieldTable}.
+ * <p>
+ * Unlike {@link MapLastKnownValueStore}, an update of double fields does not allocate, which matters as the
+ * store is updated on every tick while it is only read for snapshots.
+ */
+public class FieldTableLastKnownValueStore implements LastKnownValueStore {
+
+  /**
+   * The Fudge context in use.
+   */
+  private final FudgeContext _context = OpenGammaFudgeContext.getInstance();
+  /**
+   * The last known values.
+   */
+  private final LiveDataFieldTable _fields = new LiveDataFieldTable();
+
+  @Override
+  public synchronized void updateFields(FudgeMsg fieldValues) {
+    _fields.update(fieldValues);
+  }
+
+  @Override
+  public synchronized FudgeMsg getFields() {
+    return _fields.getLastKnownValues(_context);
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return _fields.isEmpty();
+  }
+
+}
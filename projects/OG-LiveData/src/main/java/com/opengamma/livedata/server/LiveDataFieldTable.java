@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.util.Arrays;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeFieldType;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A table of the last value of each field of a market data line, which also tracks the fields changed since
+ * the changes were last taken.
+ * <p>
+ * Each field name is given a slot the first time it is seen. Double values, the bulk of market data, are held
+ * in a primitive array, so that an update does not allocate; other values are held with their Fudge type. Messages
+ * are only built when the values are read, in the order the fields were first seen, with the ordinal of the last
+ * value stored for each field.
+ * <p>
+ * This class is not thread-safe; callers must synchronize access.
+ */
+public final class LiveDataFieldTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The field name of each slot.
+   */
+  private String[] _names = new String[INITIAL_CAPACITY];
+  /**
+   * The ordinal of each slot, may hold nulls.
+   */
+  private Integer[] _ordinals = new Integer[INITIAL_CAPACITY];
+  /**
+   * The double value of each slot, if it holds a double.
+   */
+  private double[] _doubles = new double[INITIAL_CAPACITY];
+  /**
+   * The value of each slot, null if it holds a double.
+   */
+  private Object[] _objects = new Object[INITIAL_CAPACITY];
+  /**
+   * The Fudge type of each slot, null if it holds a double.
+   */
+  private FudgeFieldType[] _types = new FudgeFieldType[INITIAL_CAPACITY];
+  /**
+   * Whether each slot has changed since the changes were last taken.
+   */
+  private boolean[] _changed = new boolean[INITIAL_CAPACITY];
+  /**
+   * The changed slots, in the order they changed.
+   */
+  private int[] _changedSlots = new int[INITIAL_CAPACITY];
+  /**
+   * The open addressing hash of the names to slot + 1, zero if empty.
+   */
+  private int[] _hash = new int[2 * INITIAL_CAPACITY];
+  /**
+   * The number of slots in use.
+   */
+  private int _size;
+  /**
+   * The number of changed slots.
+   */
+  private int _nChanged;
+
+  //-------------------------------------------------------------------------
+  /**
+   * Stores the fields of a message, marking them as changed. If the message contains several fields with
+   * the same name, the last one is stored.
+   *
+   * @param msg  the message, not null
+   */
+  public void update(FudgeMsg msg) {
+    ArgumentChecker.notNull(msg, "msg");
+    for (FudgeField field : msg) {
+      final Object value = field.getValue();
+      if (value instanceof Double) {
+        update(field.getName(), field.getOrdinal(), (Double) value);
+      } else {
+        update(field.getName(), field.getOrdinal(), field.getType(), value);
+      }
+    }
+  }
+
+  /**
+   * Stores a double field without an ordinal, marking it as changed.
+   *
+   * @param name  the field name
+   * @param value  the value
+   */
+  public void update(String name, double value) {
+    update(name, null, value);
+  }
+
+  /**
+   * Stores a double field, marking it as changed.
+   *
+   * @param name  the field name
+   * @param ordinal  the field ordinal, null for none
+   * @param value  the value
+   */
+  public void update(String name, Integer ordinal, double value) {
+    final int slot = getOrCreateSlot(name);
+    _ordinals[slot] = ordinal;
+    _doubles[slot] = value;
+    _objects[slot] = null;
+    _types[slot] = null;
+    markChanged(slot);
+  }
+
+  /**
+   * Stores a field without an ordinal, marking it as changed.
+   *
+   * @param name  the field name
+   * @param type  the Fudge type, not null
+   * @param value  the value
+   */
+  public void update(String name, FudgeFieldType type, Object value) {
+    update(name, null, type, value);
+  }
+
+  /**
+   * Stores a field, marking it as changed.
+   *
+   * @param name  the field name
+   * @param ordinal  the field ordinal, null for none
+   * @param type  the Fudge type, not null
+   * @param value  the value
+   */
+  public void update(String name, Integer ordinal, FudgeFieldType type, Object value) {
+    ArgumentChecker.notNull(type, "type");
+    final int slot = getOrCreateSlot(name);
+    _ordinals[slot] = ordinal;
+    _objects[slot] = value;
+    _types[slot] = type;
+    markChanged(slot);
+  }
+
+  /**
+   * Builds a message with the last value of all the fields.
+   *
+   * @param context  the Fudge context, not null
+   * @return the message, not null
+   */
+  public FudgeMsg getLastKnownValues(FudgeContext context) {
+    final MutableFudgeMsg msg = context.newMessage();
+    for (int slot = 0; slot < _size; slot++) {
+      addField(msg, slot);
+    }
+    return msg;
+  }
+
+  /**
+   * Builds a message with the last value of the fields changed since the changes were last taken, and
+   * clears the changes.
+   *
+   * @param context  the Fudge context, not null
+   * @return the message, null if no field has changed
+   */
+  public FudgeMsg takeChanges(FudgeContext context) {
+    if (_nChanged == 0) {
+      return null;
+    }
+    final MutableFudgeMsg msg = context.newMessage();
+    for (int i = 0; i < _nChanged; i++) {
+      final int slot = _changedSlots[i];
+      addField(msg, slot);
+      _changed[slot] = false;
+    }
+    _nChanged = 0;
+    return msg;
+  }
+
+  /**
+   * Gets the last value of a field.
+   *
+   * @param name  the field name
+   * @return the value, null if the field has not been seen
+   */
+  public Object getValue(String name) {
+    final int slot = findSlot(name);
+    if (slot < 0) {
+      return null;
+    }
+    return _types[slot] == null ? (Object) _doubles[slot] : _objects[slot];
+  }
+
+  /**
+   * Checks if any field has changed since the changes were last taken.
+   *
+   * @return true if a field has changed
+   */
+  public boolean hasChanges() {
+    return _nChanged > 0;
+  }
+
+  /**
+   * Checks if the table is empty.
+   *
+   * @return true if no field has been seen
+   */
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  /**
+   * Gets the number of fields.
+   *
+   * @return the number of fields seen
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Clears the table.
+   */
+  public void clear() {
+    Arrays.fill(_names, 0, _size, null);
+    Arrays.fill(_ordinals, 0, _size, null);
+    Arrays.fill(_objects, 0, _size, null);
+    Arrays.fill(_types, 0, _size, null);
+    Arrays.fill(_changed, 0, _size, false);
+    Arrays.fill(_hash, 0);
+    _size = 0;
+    _nChanged = 0;
+  }
+
+  //-------------------------------------------------------------------------
+  private void markChanged(int slot) {
+    if (!_changed[slot]) {
+      _changed[slot] = true;
+      _changedSlots[_nChanged++] = slot;
+    }
+  }
+
+  private void addField(MutableFudgeMsg msg, int slot) {
+    if (_types[slot] == null) {
+      msg.add(_names[slot], _ordinals[slot], _doubles[slot]);
+    } else {
+      msg.add(_names[slot], _ordinals[slot], _types[slot], _objects[slot]);
+    }
+  }
+
+  private static int hash(String name) {
+    if (name == null) {
+      return 0;
+    }
+    final int h = name.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private int findSlot(String name) {
+    final int mask = _hash.length - 1;
+    for (int i = hash(name) & mask;; i = (i + 1) & mask) {
+      final int entry = _hash[i];
+      if (entry == 0) {
+        return -1;
+      }
+      final String slotName = _names[entry - 1];
+      if (slotName == null ? name == null : slotName.equals(name)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private int getOrCreateSlot(String name) {
+    final int existing = findSlot(name);
+    if (existing >= 0) {
+      return existing;
+    }
+    if (_size == _names.length) {
+      grow();
+    }
+    final int slot = _size++;
+    _names[slot] = name;
+    insertHash(slot);
+    return slot;
+  }
+
+  private void insertHash(int slot) {
+    final int mask = _hash.length - 1;
+    int i = hash(_names[slot]) & mask;
+    while (_hash[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    _hash[i] = slot + 1;
+  }
+
+  private void grow() {
+    final int capacity = 2 * _names.length;
+    _names = Arrays.copyOf(_names, capacity);
+    _ordinals = Arrays.copyOf(_ordinals, capacity);
+    _doubles = Arrays.copyOf(_doubles, capacity);
+    _objects = Arrays.copyOf(_objects, capacity);
+    _types = Arrays.copyOf(_types, capacity);
+    _changed = Arrays.copyOf(_changed, capacity);
+    _changedSlots = Arrays.copyOf(_changedSlots, capacity);
+    _hash = new int[2 * capacity];
+    for (int slot = 0; slot < _size; slot++) {
+      insertHash(slot);
+    }
+  }
+
+}
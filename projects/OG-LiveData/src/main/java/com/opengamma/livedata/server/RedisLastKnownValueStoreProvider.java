@@ -15,6 +15,7 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 import com.opengamma.id.ExternalId;
+import com.opengamma.util.metric.OpenGammaMetricRegistry;
 
 /**
  * An implemention of {@link LastKnownValueStoreProvider} which backs onto Redis.
@@ -44,8 +45,12 @@ public class RedisLastKnownValueStoreProvider implements LastKnownValueStoreProv
   private int _port = 6379;
   private String _globalPrefix = "";
   private boolean _writeThrough = true;
+  private boolean _writeBehind;
+  private long _flushIntervalMillis = RedisLastKnownValueWriter.DEFAULT_FLUSH_INTERVAL_MILLIS;
+  private int _maxBatchSize = RedisLastKnownValueWriter.DEFAULT_MAX_BATCH_SIZE;
   private volatile boolean _isInitialized;
   private JedisPool _jedisPool;
+  private RedisLastKnownValueWriter _writer;
 
   /**
    * Gets the server.
@@ -111,12 +116,72 @@ public class RedisLastKnownValueStoreProvider implements LastKnownValueStoreProv
     _writeThrough = writeThrough;
   }
 
+  /**
+   * Gets whether writes are made behind, on a background thread, rather than on each update.
+   * @return the writeBehind
+   */
+  public boolean isWriteBehind() {
+    return _writeBehind;
+  }
+
+  /**
+   * Sets whether writes are made behind, on a background thread, rather than on each update.
+   * Only used if write-through is set.
+   * @param writeBehind  the writeBehind
+   */
+  public void setWriteBehind(boolean writeBehind) {
+    _writeBehind = writeBehind;
+  }
+
+  /**
+   * Gets the interval between writes when writing behind.
+   * @return the flushIntervalMillis
+   */
+  public long getFlushIntervalMillis() {
+    return _flushIntervalMillis;
+  }
+
+  /**
+   * Sets the interval between writes when writing behind.
+   * @param flushIntervalMillis  the flushIntervalMillis
+   */
+  public void setFlushIntervalMillis(long flushIntervalMillis) {
+    _flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /**
+   * Gets the maximum number of keys written in one pipeline when writing behind.
+   * @return the maxBatchSize
+   */
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of keys written in one pipeline when writing behind.
+   * @param maxBatchSize  the maxBatchSize
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    _maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Gets the writer used when writing behind, for its metrics.
+   * @return the writer, null if not writing behind or not yet initialized
+   */
+  public RedisLastKnownValueWriter getWriter() {
+    return _writer;
+  }
+
   @Override
   public LastKnownValueStore newInstance(ExternalId security, String normalizationRuleSetId) {
     initIfNecessary();
     String redisKey = generateRedisKey(security, normalizationRuleSetId);
     s_logger.debug("Creating Redis LKV store on {}/{} with key name {}", new Object[] {security, normalizationRuleSetId, redisKey});
     updateIdentifiers(security);
+    if (_writer != null) {
+      return new WriteBehindRedisLastKnownValueStore(_writer, redisKey);
+    }
     RedisLastKnownValueStore store = new RedisLastKnownValueStore(_jedisPool, redisKey, isWriteThrough());
     return store;
   }
@@ -165,17 +230,53 @@ public class RedisLastKnownValueStoreProvider implements LastKnownValueStoreProv
       return;
     }
     synchronized (this) {
+      if (_isInitialized) {
+        return;
+      }
       assert _jedisPool == null;
       s_logger.info("Connecting to {}:{}. Write-through set to: {}", new Object[] {getServer(), getPort(), _writeThrough});
       JedisPoolConfig poolConfig = new JedisPoolConfig();
       //poolConfig.set...
       JedisPool pool = new JedisPool(poolConfig, getServer(), getPort());
       _jedisPool = pool;
+      if (isWriteThrough() && isWriteBehind()) {
+        _writer = new RedisLastKnownValueWriter(pool, getFlushIntervalMillis(), getMaxBatchSize());
+        _writer.registerMetrics(OpenGammaMetricRegistry.getSummaryInstance(), OpenGammaMetricRegistry.getDetailedInstance(), getMetricNamePrefix());
+      }
       
       _isInitialized = true;
     }
   }
   
+  private String getMetricNamePrefix() {
+    StringBuilder sb = new StringBuilder("RedisLastKnownValueWriter-");
+    sb.append(getServer());
+    sb.append(":");
+    sb.append(getPort());
+    if ((getGlobalPrefix() != null) && !getGlobalPrefix().isEmpty()) {
+      sb.append("-");
+      sb.append(getGlobalPrefix());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Stops writing behind, writing any changes still queued, and closes the connections to Redis.
+   * The provider connects again if it is used afterwards.
+   */
+  public synchronized void close() {
+    if (!_isInitialized) {
+      return;
+    }
+    if (_writer != null) {
+      _writer.shutdown();
+      _writer = null;
+    }
+    _jedisPool.destroy();
+    _jedisPool = null;
+    _isInitialized = false;
+  }
+
   protected void updateIdentifiers(ExternalId security) {
     Jedis jedis = _jedisPool.getResource();
     jedis.sadd(generateAllSchemesKey(), security.getScheme().getName());
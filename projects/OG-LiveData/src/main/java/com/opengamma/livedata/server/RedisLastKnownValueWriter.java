@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.metric.MetricProducer;
+
+/**
+ * Writes the changes of {@link WriteBehindRedisLastKnownValueStore} instances to Redis on a background thread.
+ * <p>
+ * Stores with changes queue themselves once until they are written. At a fixed interval, and whenever
+ * {@link #flush()} is called, the changed fields of the queued stores are written in pipelined batches,
+ * so that a batch costs one round trip however many stores it holds.
+ */
+public class RedisLastKnownValueWriter implements MetricProducer {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(RedisLastKnownValueWriter.class);
+  /**
+   * The default interval between flushes, in milliseconds.
+   */
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+  /**
+   * The default maximum number of stores written in one pipeline.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+  private final JedisPool _jedisPool;
+  private final int _maxBatchSize;
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  private final ScheduledExecutorService _executor;
+  /**
+   * The stores with changes not yet written.
+   */
+  private final Queue<WriteBehindRedisLastKnownValueStore> _queue = new ConcurrentLinkedQueue<WriteBehindRedisLastKnownValueStore>();
+  /**
+   * The number of stores in the queue.
+   */
+  private final AtomicInteger _queueDepth = new AtomicInteger();
+  /**
+   * The lock held while flushing, so writes to a key are in order.
+   */
+  private final Object _flushLock = new Object();
+  private final AtomicLong _numFieldsWritten = new AtomicLong();
+  private final AtomicLong _numFailedBatches = new AtomicLong();
+  private Meter _fieldsWrittenMeter;
+  /**
+   * The registry holding the metrics, and their names, so they are removed on shutdown, guarded by this.
+   */
+  private MetricRegistry _metricRegistry;
+  private final List<String> _metricNames = new ArrayList<String>();
+
+  /**
+   * Creates an instance with the default flush interval and batch size.
+   * 
+   * @param jedisPool  the Jedis pool, not null
+   */
+  public RedisLastKnownValueWriter(JedisPool jedisPool) {
+    this(jedisPool, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param jedisPool  the Jedis pool, may be null if {@link #load} and {@link #write} are overridden
+   * @param flushIntervalMillis  the interval between flushes, in milliseconds, positive
+   * @param maxBatchSize  the maximum number of stores written in one pipeline, positive
+   */
+  public RedisLastKnownValueWriter(JedisPool jedisPool, long flushIntervalMillis, int maxBatchSize) {
+    ArgumentChecker.isTrue(flushIntervalMillis > 0, "flushIntervalMillis must be positive, was {}", flushIntervalMillis);
+    ArgumentChecker.isTrue(maxBatchSize > 0, "maxBatchSize must be positive, was {}", maxBatchSize);
+    _jedisPool = jedisPool;
+    _maxBatchSize = maxBatchSize;
+    _executor = new ScheduledThreadPoolExecutor(1, new NamedThreadPoolFactory("RedisLastKnownValueWriter", true));
+    _executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          flush();
+        } catch (RuntimeException e) {
+          s_logger.error("Failed to flush last known values to Redis", e);
+        }
+      }
+    }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the jedisPool.
+   * @return the jedisPool
+   */
+  public JedisPool getJedisPool() {
+    return _jedisPool;
+  }
+
+  /**
+   * Gets the number of stores with changes not yet written.
+   * @return the queue depth
+   */
+  public int getQueueDepth() {
+    return _queueDepth.get();
+  }
+
+  /**
+   * Gets how long the oldest change not yet written has been waiting.
+   * @return the flush lag in milliseconds, zero if there are no changes waiting
+   */
+  public long getFlushLagMillis() {
+    final WriteBehindRedisLastKnownValueStore oldest = _queue.peek();
+    if (oldest == null) {
+      return 0;
+    }
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.getQueuedAtNanos()));
+  }
+
+  /**
+   * Gets the number of fields written.
+   * @return the number of fields written
+   */
+  public long getNumFieldsWritten() {
+    return _numFieldsWritten.get();
+  }
+
+  /**
+   * Gets the number of batches that could not be written.
+   * @return the number of failed batches
+   */
+  public long getNumFailedBatches() {
+    return _numFailedBatches.get();
+  }
+
+  @Override
+  public synchronized void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailedRegistry, String namePrefix) {
+    _metricRegistry = summaryRegistry;
+    _metricNames.add(namePrefix + ".fieldsWritten");
+    _fieldsWrittenMeter = summaryRegistry.meter(namePrefix + ".fieldsWritten");
+    _metricNames.add(namePrefix + ".queueDepth");
+    summaryRegistry.register(namePrefix + ".queueDepth", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return getQueueDepth();
+      }
+    });
+    _metricNames.add(namePrefix + ".flushLagMillis");
+    summaryRegistry.register(namePrefix + ".flushLagMillis", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getFlushLagMillis();
+      }
+    });
+    _metricNames.add(namePrefix + ".failedBatches");
+    summaryRegistry.register(namePrefix + ".failedBatches", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getNumFailedBatches();
+      }
+    });
+  }
+
+  private synchronized void unregisterMetrics() {
+    if (_metricRegistry != null) {
+      for (String name : _metricNames) {
+        _metricRegistry.remove(name);
+      }
+      _metricNames.clear();
+      _metricRegistry = null;
+      _fieldsWrittenMeter = null;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Queues a store with changes to be written.
+   * @param store  the store, not null
+   */
+  void enqueue(WriteBehindRedisLastKnownValueStore store) {
+    _queue.add(store);
+    _queueDepth.incrementAndGet();
+  }
+
+  /**
+   * Writes the changes of all the queued stores.
+   * <p>
+   * The changes of a batch that cannot be written are put back into their stores, which are queued
+   * again to be written by a later flush.
+   */
+  public void flush() {
+    synchronized (_flushLock) {
+      final Map<String, Map<String, String>> batch = new HashMap<String, Map<String, String>>();
+      final List<WriteBehindRedisLastKnownValueStore> batchStores = new ArrayList<WriteBehindRedisLastKnownValueStore>();
+      final List<FudgeMsg> batchChanges = new ArrayList<FudgeMsg>();
+      final List<WriteBehindRedisLastKnownValueStore> requeue = new ArrayList<WriteBehindRedisLastKnownValueStore>();
+      WriteBehindRedisLastKnownValueStore store;
+      while ((store = _queue.poll()) != null) {
+        _queueDepth.decrementAndGet();
+        final FudgeMsg changes = store.takeChanges(_fudgeContext);
+        if (changes == null) {
+          continue;
+        }
+        final Map<String, String> fields = new HashMap<String, String>();
+        for (FudgeField field : changes) {
+          final String redisValue = RedisLastKnownValueStore.toRedisTextValue(store.getJedisKey(), field);
+          if (redisValue != null) {
+            fields.put(field.getName(), redisValue);
+          }
+        }
+        if (!fields.isEmpty()) {
+          // a store updated during the flush is polled again, and its newer fields are merged over the older ones
+          final Map<String, String> previous = batch.put(store.getJedisKey(), fields);
+          if (previous != null) {
+            previous.putAll(fields);
+            batch.put(store.getJedisKey(), previous);
+          }
+          batchStores.add(store);
+          batchChanges.add(changes);
+          if (batch.size() == _maxBatchSize) {
+            writeBatch(batch, batchStores, batchChanges, requeue);
+            batch.clear();
+            batchStores.clear();
+            batchChanges.clear();
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        writeBatch(batch, batchStores, batchChanges, requeue);
+      }
+      // queued after polling, so that a flush does not retry its own failures
+      for (WriteBehindRedisLastKnownValueStore failed : requeue) {
+        enqueue(failed);
+      }
+    }
+  }
+
+  /**
+   * Stops the background thread, writing any changes still queued, and removes the metrics.
+   */
+  public void shutdown() {
+    _executor.shutdown();
+    flush();
+    unregisterMetrics();
+  }
+
+  private void writeBatch(Map<String, Map<String, String>> batch, List<WriteBehindRedisLastKnownValueStore> batchStores, List<FudgeMsg> batchChanges,
+      List<WriteBehindRedisLastKnownValueStore> requeue) {
+    int numFields = 0;
+    for (Map<String, String> fields : batch.values()) {
+      numFields += fields.size();
+    }
+    try {
+      write(batch);
+    } catch (RuntimeException e) {
+      _numFailedBatches.incrementAndGet();
+      s_logger.error("Unable to write " + numFields + " fields of " + batch.size() + " keys to Redis", e);
+      // newest first, so that older changes taken from the same store do not replace newer ones
+      for (int i = batchStores.size() - 1; i >= 0; i--) {
+        final WriteBehindRedisLastKnownValueStore store = batchStores.get(i);
+        if (store.restoreChanges(_fudgeContext, batchChanges.get(i))) {
+          requeue.add(store);
+        }
+      }
+      return;
+    }
+    _numFieldsWritten.addAndGet(numFields);
+    final Meter meter = _fieldsWrittenMeter;
+    if (meter != null) {
+      meter.mark(numFields);
+    }
+  }
+
+  /**
+   * Writes fields to Redis in one pipeline.
+   * 
+   * @param fieldsByKey  the fields to write by hash key, not null
+   */
+  protected void write(Map<String, Map<String, String>> fieldsByKey) {
+    Jedis jedis = getJedisPool().getResource();
+    try {
+      Pipeline pipeline = jedis.pipelined();
+      for (Map.Entry<String, Map<String, String>> entry : fieldsByKey.entrySet()) {
+        pipeline.hmset(entry.getKey(), entry.getValue());
+      }
+      pipeline.sync();
+    } finally {
+      getJedisPool().returnResource(jedis);
+    }
+  }
+
+  /**
+   * Reads all the fields of a key from Redis.
+   * 
+   * @param key  the hash key, not null
+   * @return the fields, not null
+   */
+  protected Map<String, String> load(String key) {
+    Jedis jedis = getJedisPool().getResource();
+    try {
+      return jedis.hgetAll(key);
+    } finally {
+      getJedisPool().returnResource(jedis);
+    }
+  }
+
+}
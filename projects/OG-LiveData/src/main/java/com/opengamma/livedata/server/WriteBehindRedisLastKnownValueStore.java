@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * A {@link LastKnownValueStore} backed by a Redis server, written behind.
+ * <p>
+ * Updates are applied in memory, and reads are served from memory. The changed fields are written
+ * to Redis by a {@link RedisLastKnownValueWriter}, so Redis lags memory by up to the flush interval.
+ * The text encoding of the values is the same as {@link RedisLastKnownValueStore}.
+ */
+public class WriteBehindRedisLastKnownValueStore implements LastKnownValueStore {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(WriteBehindRedisLastKnownValueStore.class);
+
+  private final RedisLastKnownValueWriter _writer;
+  private final String _jedisKey;
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  /**
+   * The last known values, tracking the changes not yet written, guarded by this.
+   */
+  private final LiveDataFieldTable _fields = new LiveDataFieldTable();
+  /**
+   * Whether the store is queued to be written, guarded by this.
+   */
+  private boolean _queued;
+  /**
+   * When the store was queued.
+   */
+  private volatile long _queuedAtNanos;
+
+  /**
+   * Creates an instance, loading the current values from Redis.
+   * 
+   * @param writer  the writer, not null
+   * @param jedisKey  the Redis hash key, not null
+   */
+  public WriteBehindRedisLastKnownValueStore(RedisLastKnownValueWriter writer, String jedisKey) {
+    ArgumentChecker.notNull(writer, "writer");
+    ArgumentChecker.notNull(jedisKey, "Jedis key");
+    _writer = writer;
+    _jedisKey = jedisKey;
+    updateFromRedis(true);
+  }
+
+  /**
+   * Gets the jedisKey.
+   * @return the jedisKey
+   */
+  protected String getJedisKey() {
+    return _jedisKey;
+  }
+
+  /**
+   * Gets the writer.
+   * @return the writer
+   */
+  public RedisLastKnownValueWriter getWriter() {
+    return _writer;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void updateFields(FudgeMsg fieldValues) {
+    final boolean enqueue;
+    synchronized (this) {
+      _fields.update(fieldValues);
+      enqueue = !_queued && _fields.hasChanges();
+      if (enqueue) {
+        _queued = true;
+        _queuedAtNanos = System.nanoTime();
+      }
+    }
+    if (enqueue) {
+      _writer.enqueue(this);
+    }
+  }
+
+  @Override
+  public synchronized FudgeMsg getFields() {
+    return _fields.getLastKnownValues(_fudgeContext);
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return _fields.isEmpty();
+  }
+
+  /**
+   * Replaces the values in memory with those in Redis.
+   * Changes not yet written are discarded.
+   * 
+   * @param failOnError Whether to propagate any exception from a failure to load.
+   */
+  public synchronized void updateFromRedis(boolean failOnError) {
+    _fields.clear();
+    try {
+      MutableFudgeMsg fudgeMsg = _fudgeContext.newMessage();
+      Map<String, String> allFields = _writer.load(getJedisKey());
+      s_logger.debug("Updating {} from Jedis: {}", getJedisKey(), allFields);
+      for (Map.Entry<String, String> fieldEntry : allFields.entrySet()) {
+        fudgeMsg.add(fieldEntry.getKey(), RedisLastKnownValueStore.fromRedisTextValue(fieldEntry.getValue()));
+      }
+      _fields.update(fudgeMsg);
+      // loaded values are already in Redis
+      _fields.takeChanges(_fudgeContext);
+    } catch (Exception e) {
+      s_logger.error("Unable to update from Redis", e);
+      if (failOnError) {
+        throw new OpenGammaRuntimeException("Unable to load state from underlying Redis instance on " + _jedisKey, e);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Takes the fields changed since they were last taken, called by the writer.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   * @return the changed fields, null if none
+   */
+  synchronized FudgeMsg takeChanges(FudgeContext fudgeContext) {
+    _queued = false;
+    return _fields.takeChanges(fudgeContext);
+  }
+
+  /**
+   * Puts back changes taken by {@link #takeChanges} that could not be written, called by the writer.
+   * Fields updated since they were taken keep their newer values.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   * @param changes  the changes that were taken, not null
+   * @return true if the store must be queued again, false if it is already queued
+   */
+  synchronized boolean restoreChanges(FudgeContext fudgeContext, FudgeMsg changes) {
+    final FudgeMsg newer = _fields.takeChanges(fudgeContext);
+    _fields.update(changes);
+    if (newer != null) {
+      _fields.update(newer);
+    }
+    if (_queued) {
+      return false;
+    }
+    _queued = true;
+    return true;
+  }
+
+  long getQueuedAtNanos() {
+    return _queuedAtNanos;
+  }
+
+}
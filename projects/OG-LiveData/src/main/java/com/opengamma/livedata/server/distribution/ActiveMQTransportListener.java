@@ -21,14 +21,14 @@ public class ActiveMQTransportListener implements TransportListener {
   /**
    * The JMS sender factory.
    */
-  private JmsSenderFactory _senderFactory;
+  private JmsTransportStateListener _senderFactory;
 
   /**
    * Creates an instance.
    * 
    * @param senderFactory  the sender factory to use, not null
    */
-  public ActiveMQTransportListener(JmsSenderFactory senderFactory) {
+  public ActiveMQTransportListener(JmsTransportStateListener senderFactory) {
     ArgumentChecker.notNull(senderFactory, "JMS Sender factory");
     _senderFactory = senderFactory;
   }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.server.LiveDataFieldTable;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * This {@link MarketDataSender} publishes market data to JMS in batches with the market data
+ * of other distributors, see {@link BatchingJmsSenderFactory}.
+ * <p>
+ * Updates received between two batches are combined, the latest value of each field winning,
+ * and published as one update carrying the latest sequence number.
+ */
+public class BatchingJmsSender implements MarketDataSender {
+
+  /**
+   * The distributor.
+   */
+  private final MarketDataDistributor _distributor;
+  /**
+   * The partition the updates are published on.
+   */
+  private final BatchingJmsSenderFactory.Partition _partition;
+  /**
+   * The fields waiting to be published, guarded by this.
+   */
+  private final LiveDataFieldTable _pending = new LiveDataFieldTable();
+  /**
+   * The last sequence number, guarded by this.
+   */
+  private long _lastSequenceNumber;
+  /**
+   * Whether the sender is waiting in its partition, guarded by this.
+   */
+  private boolean _queued;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param distributor  the distributor, not null
+   * @param partition  the partition to publish on, not null
+   */
+  BatchingJmsSender(MarketDataDistributor distributor, BatchingJmsSenderFactory.Partition partition) {
+    ArgumentChecker.notNull(distributor, "Market data distributor");
+    ArgumentChecker.notNull(partition, "partition");
+    _distributor = distributor;
+    _partition = partition;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public MarketDataDistributor getDistributor() {
+    return _distributor;
+  }
+
+  /**
+   * Gets the topic the updates are published on.
+   * 
+   * @return the partition topic, not null
+   */
+  public String getPartitionTopic() {
+    return _partition.getTopic();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void sendMarketData(LiveDataValueUpdateBean data) {
+    final boolean queue;
+    synchronized (this) {
+      _pending.update(data.getFields());
+      _lastSequenceNumber = data.getSequenceNumber();
+      queue = !_queued;
+      _queued = true;
+    }
+    if (queue) {
+      _partition.add(this);
+    }
+  }
+
+  /**
+   * Takes the update waiting to be published.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   * @return the update, null if there is none
+   */
+  synchronized LiveDataValueUpdateBean takeUpdate(FudgeContext fudgeContext) {
+    _queued = false;
+    final FudgeMsg fields = _pending.takeChanges(fudgeContext);
+    if (fields == null) {
+      return null;
+    }
+    return new LiveDataValueUpdateBean(_lastSequenceNumber, _distributor.getDistributionSpec().getFullyQualifiedLiveDataSpecification(), fields);
+  }
+
+  /**
+   * Puts back an update taken by {@link #takeUpdate} that could not be published. Fields updated since it was
+   * taken keep their newer values.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   * @param update  the update that was taken, not null
+   * @return true if the sender must be queued in its partition again, false if it is already queued
+   */
+  synchronized boolean restoreUpdate(FudgeContext fudgeContext, LiveDataValueUpdateBean update) {
+    final FudgeMsg newer = _pending.takeChanges(fudgeContext);
+    _pending.update(update.getFields());
+    if (newer != null) {
+      _pending.update(newer);
+    }
+    final boolean queue = !_queued;
+    _queued = true;
+    return queue;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchingJmsSender[" + _distributor.getDistributionSpec().toString() + "]";
+  }
+
+}
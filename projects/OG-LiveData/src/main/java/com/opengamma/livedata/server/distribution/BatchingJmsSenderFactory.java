@@ -0,0 +1,359 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.MessageCreator;
+
+import com.opengamma.livedata.LiveDataTopicPartitioner;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.LiveDataValueUpdateBatch;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.jms.JmsConnector;
+
+/**
+ * Factory to create JMS senders that publish the market data of many distributors in batches.
+ * <p>
+ * The JMS topic of each distributor is mapped onto a partition topic by a {@link LiveDataTopicPartitioner}.
+ * The updates of all the distributors of a partition are published together in one message, see
+ * {@link LiveDataValueUpdateBatch}, when the batch reaches its maximum size or its maximum latency,
+ * whichever comes first. Clients must subscribe to the partition topics, for example through
+ * {@link com.opengamma.livedata.client.BatchedJmsLiveDataClient}.
+ * <p>
+ * While the transport is interrupted, updates are combined by sender and published when it resumes.
+ */
+public class BatchingJmsSenderFactory implements MarketDataSenderFactory, JmsTransportStateListener {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(BatchingJmsSenderFactory.class);
+  /**
+   * The default maximum number of updates in a batch.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+  /**
+   * The default maximum time, in milliseconds, an update waits to be published.
+   */
+  public static final long DEFAULT_MAX_LATENCY_MILLIS = 5;
+
+  /**
+   * The JMS connector.
+   */
+  private final JmsConnector _jmsConnector;
+  /**
+   * The partitioner.
+   */
+  private final LiveDataTopicPartitioner _partitioner;
+  /**
+   * The maximum number of updates in a batch.
+   */
+  private final int _maxBatchSize;
+  /**
+   * The maximum time, in milliseconds, an update waits to be published.
+   */
+  private final long _maxLatencyMillis;
+  /**
+   * The executor that publishes the batches.
+   */
+  private final ScheduledExecutorService _executor;
+  /**
+   * The partitions, created on first use.
+   */
+  private final ConcurrentMap<Integer, Partition> _partitions = new ConcurrentHashMap<Integer, Partition>();
+  /**
+   * The Fudge context.
+   */
+  private volatile FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  /**
+   * Whether the transport is interrupted.
+   */
+  private volatile boolean _interrupted;
+
+  /**
+   * Creates an instance with the default batch size and latency.
+   * 
+   * @param jmsConnector  the JMS connector, not null
+   * @param partitioner  the partitioner, not null
+   */
+  public BatchingJmsSenderFactory(JmsConnector jmsConnector, LiveDataTopicPartitioner partitioner) {
+    this(jmsConnector, partitioner, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LATENCY_MILLIS);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param jmsConnector  the JMS connector, may be null if {@link #publish} is overridden
+   * @param partitioner  the partitioner, not null
+   * @param maxBatchSize  the maximum number of updates in a batch, positive
+   * @param maxLatencyMillis  the maximum time, in milliseconds, an update waits to be published, positive
+   */
+  public BatchingJmsSenderFactory(JmsConnector jmsConnector, LiveDataTopicPartitioner partitioner, int maxBatchSize, long maxLatencyMillis) {
+    ArgumentChecker.notNull(partitioner, "partitioner");
+    ArgumentChecker.isTrue(maxBatchSize > 0, "maxBatchSize must be positive, was {}", maxBatchSize);
+    ArgumentChecker.isTrue(maxLatencyMillis > 0, "maxLatencyMillis must be positive, was {}", maxLatencyMillis);
+    _jmsConnector = jmsConnector;
+    _partitioner = partitioner;
+    _maxBatchSize = maxBatchSize;
+    _maxLatencyMillis = maxLatencyMillis;
+    final int threads = Math.max(1, Math.min(partitioner.getNumPartitions(), Runtime.getRuntime().availableProcessors()));
+    _executor = new ScheduledThreadPoolExecutor(threads, new NamedThreadPoolFactory("BatchingJmsSender", true));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the JMS connector.
+   * 
+   * @return the JMS connector
+   */
+  public JmsConnector getJmsConnector() {
+    return _jmsConnector;
+  }
+
+  /**
+   * Gets the partitioner.
+   * 
+   * @return the partitioner, not null
+   */
+  public LiveDataTopicPartitioner getPartitioner() {
+    return _partitioner;
+  }
+
+  /**
+   * Gets the maximum number of updates in a batch.
+   * 
+   * @return the maximum batch size
+   */
+  public int getMaxBatchSize() {
+    return _maxBatchSize;
+  }
+
+  /**
+   * Gets the maximum time an update waits to be published.
+   * 
+   * @return the maximum latency, in milliseconds
+   */
+  public long getMaxLatencyMillis() {
+    return _maxLatencyMillis;
+  }
+
+  /**
+   * Gets the Fudge context.
+   * 
+   * @return the Fudge context
+   */
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Sets the Fudge context.
+   * 
+   * @param fudgeContext  the Fudge context
+   */
+  public void setFudgeContext(FudgeContext fudgeContext) {
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Holds the batches of every partition until the transport resumes. Updates continue to be merged
+   * into the pending fields of their senders while held.
+   */
+  @Override
+  public void transportInterrupted() {
+    s_logger.warn("JMS transport interrupted; holding batches of {} partitions", _partitions.size());
+    _interrupted = true;
+  }
+
+  /**
+   * Publishes the batches held while the transport was interrupted, and resumes publishing.
+   */
+  @Override
+  public void transportResumed() {
+    s_logger.info("JMS transport resumed; publishing batches of {} partitions", _partitions.size());
+    _interrupted = false;
+    for (final Partition partition : _partitions.values()) {
+      _executor.execute(partition);
+    }
+  }
+
+  /**
+   * Stops publishing. Updates not yet published are discarded.
+   */
+  public void shutdown() {
+    _executor.shutdown();
+  }
+
+  @Override
+  public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+    final int index = _partitioner.getPartition(distributor.getDistributionSpec().getJmsTopic());
+    Partition partition = _partitions.get(index);
+    if (partition == null) {
+      final Partition newPartition = new Partition(_partitioner.getPartitionTopic(index));
+      partition = _partitions.putIfAbsent(index, newPartition);
+      if (partition == null) {
+        partition = newPartition;
+        _executor.scheduleWithFixedDelay(partition, _maxLatencyMillis, _maxLatencyMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    s_logger.debug("Created BatchingJmsSender for {} on {}", distributor, partition.getTopic());
+    return Collections.<MarketDataSender>singleton(new BatchingJmsSender(distributor, partition));
+  }
+
+  /**
+   * Publishes a batch to JMS.
+   * 
+   * @param topic  the partition topic, not null
+   * @param bytes  the encoded batch, not null
+   */
+  protected void publish(String topic, final byte[] bytes) {
+    _jmsConnector.getJmsTemplateTopic().send(topic, new MessageCreator() {
+      @Override
+      public Message createMessage(Session session) throws JMSException {
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(bytes);
+        return bytesMessage;
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The senders of one partition topic waiting to be published.
+   */
+  final class Partition implements Runnable {
+    /**
+     * The topic.
+     */
+    private final String _topic;
+    /**
+     * The senders with updates waiting, guarded by this.
+     */
+    private List<BatchingJmsSender> _queued = new ArrayList<BatchingJmsSender>();
+    /**
+     * The lock held while publishing, so batches are published in order.
+     */
+    private final Object _publishLock = new Object();
+
+    Partition(String topic) {
+      _topic = topic;
+    }
+
+    String getTopic() {
+      return _topic;
+    }
+
+    void add(BatchingJmsSender sender) {
+      final boolean full;
+      synchronized (this) {
+        _queued.add(sender);
+        full = _queued.size() == _maxBatchSize;
+      }
+      if (full && !_interrupted) {
+        _executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        s_logger.error("Failed to publish batch to " + _topic, e);
+      }
+    }
+
+    private void flush() {
+      synchronized (_publishLock) {
+        if (_interrupted) {
+          return;
+        }
+        final List<BatchingJmsSender> senders;
+        synchronized (this) {
+          if (_queued.isEmpty()) {
+            return;
+          }
+          senders = _queued;
+          _queued = new ArrayList<BatchingJmsSender>();
+        }
+        final FudgeContext fudgeContext = getFudgeContext();
+        final int capacity = Math.min(senders.size(), _maxBatchSize);
+        final List<LiveDataValueUpdateBean> batch = new ArrayList<LiveDataValueUpdateBean>(capacity);
+        final List<BatchingJmsSender> batchSenders = new ArrayList<BatchingJmsSender>(capacity);
+        int taken = 0;
+        try {
+          while (taken < senders.size()) {
+            final BatchingJmsSender sender = senders.get(taken++);
+            final LiveDataValueUpdateBean update = sender.takeUpdate(fudgeContext);
+            if (update != null) {
+              batch.add(update);
+              batchSenders.add(sender);
+              if (batch.size() == _maxBatchSize) {
+                publish(fudgeContext, batch);
+                batch.clear();
+                batchSenders.clear();
+              }
+            }
+          }
+          if (!batch.isEmpty()) {
+            publish(fudgeContext, batch);
+          }
+        } catch (RuntimeException e) {
+          requeue(fudgeContext, batchSenders, batch, senders.subList(taken, senders.size()));
+          throw e;
+        }
+      }
+    }
+
+    /**
+     * Puts back the updates of a batch that failed to publish, ahead of any senders queued since, so they are
+     * published with the next batch. Fields updated since the batch was taken keep their newer values.
+     */
+    private void requeue(FudgeContext fudgeContext, List<BatchingJmsSender> batchSenders, List<LiveDataValueUpdateBean> batch,
+        List<BatchingJmsSender> notTaken) {
+      final List<BatchingJmsSender> requeue = new ArrayList<BatchingJmsSender>(batchSenders.size() + notTaken.size());
+      for (int i = 0; i < batchSenders.size(); i++) {
+        final BatchingJmsSender sender = batchSenders.get(i);
+        if (sender.restoreUpdate(fudgeContext, batch.get(i))) {
+          requeue.add(sender);
+        }
+      }
+      // The senders not yet taken are still marked as queued
+      requeue.addAll(notTaken);
+      synchronized (this) {
+        _queued.addAll(0, requeue);
+      }
+      s_logger.warn("Requeued {} updates for {} after failing to publish", requeue.size(), _topic);
+    }
+
+    private void publish(FudgeContext fudgeContext, List<LiveDataValueUpdateBean> batch) {
+      s_logger.debug("Publishing batch of {} updates to {}", batch.size(), _topic);
+      final FudgeMsg msg = LiveDataValueUpdateBatch.toFudgeMsg(new FudgeSerializer(fudgeContext), batch);
+      BatchingJmsSenderFactory.this.publish(_topic, fudgeContext.toByteArray(msg));
+    }
+  }
+
+}
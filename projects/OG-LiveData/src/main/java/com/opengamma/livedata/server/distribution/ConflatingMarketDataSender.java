@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.server.LiveDataFieldTable;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@link MarketDataSender} that sends market data through an underlying sender on an executor,
+ * conflating the updates that arrive while a send is in progress.
+ * <p>
+ * The distributor hands over an update and returns immediately. Updates waiting to be sent are merged
+ * field by field, the latest value of each field winning, and sent as one update carrying the latest
+ * sequence number. A slow underlying sender therefore delays only its own line of market data, which
+ * sees fewer, fresher updates, rather than blocking the thread receiving the data.
+ * <p>
+ * At most one send per sender is in progress at any time, so updates are sent in order.
+ */
+public class ConflatingMarketDataSender implements MarketDataSender {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingMarketDataSender.class);
+
+  /**
+   * The underlying sender.
+   */
+  private final MarketDataSender _underlying;
+  /**
+   * The executor that sends.
+   */
+  private final Executor _executor;
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The fields waiting to be sent, guarded by itself.
+   */
+  private final LiveDataFieldTable _pending = new LiveDataFieldTable();
+  /**
+   * The latest sequence number, guarded by the pending fields.
+   */
+  private long _sequenceNumber;
+  /**
+   * The latest specification, guarded by the pending fields.
+   */
+  private LiveDataSpecification _specification;
+  /**
+   * Whether a send is scheduled or in progress.
+   */
+  private final AtomicBoolean _scheduled = new AtomicBoolean();
+  /**
+   * The number of updates merged into an update waiting to be sent.
+   */
+  private final AtomicLong _numConflated = new AtomicLong();
+  /**
+   * The task that sends the pending fields.
+   */
+  private final Runnable _drain = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  /**
+   * Creates an instance.
+   * 
+   * @param underlying  the sender to send through, not null
+   * @param executor  the executor to send on, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public ConflatingMarketDataSender(MarketDataSender underlying, Executor executor, FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(executor, "executor");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _underlying = underlying;
+    _executor = executor;
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying sender.
+   * 
+   * @return the sender, not null
+   */
+  public MarketDataSender getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the number of updates that were merged into an update already waiting to be sent.
+   * 
+   * @return the number of conflated updates
+   */
+  public long getNumConflated() {
+    return _numConflated.get();
+  }
+
+  @Override
+  public MarketDataDistributor getDistributor() {
+    return _underlying.getDistributor();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void sendMarketData(LiveDataValueUpdateBean data) {
+    ArgumentChecker.notNull(data, "data");
+    synchronized (_pending) {
+      if (_pending.hasChanges()) {
+        _numConflated.incrementAndGet();
+      }
+      _pending.update(data.getFields());
+      _sequenceNumber = data.getSequenceNumber();
+      _specification = data.getSpecification();
+    }
+    if (_scheduled.compareAndSet(false, true)) {
+      _executor.execute(_drain);
+    }
+  }
+
+  private void drain() {
+    final LiveDataValueUpdateBean data;
+    synchronized (_pending) {
+      final FudgeMsg fields = _pending.takeChanges(_fudgeContext);
+      if (fields == null) {
+        _scheduled.set(false);
+        return;
+      }
+      data = new LiveDataValueUpdateBean(_sequenceNumber, _specification, fields);
+    }
+    try {
+      _underlying.sendMarketData(data);
+    } catch (RuntimeException e) {
+      s_logger.error("Failed to send market data update " + data, e);
+    }
+    synchronized (_pending) {
+      if (!_pending.hasChanges()) {
+        _scheduled.set(false);
+        return;
+      }
+    }
+    // reschedule rather than loop, so a busy line does not hold on to a thread
+    _executor.execute(_drain);
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Factory that wraps the senders of another factory in {@link ConflatingMarketDataSender} instances,
+ * so that the receipt of market data is not held up by sending it.
+ */
+public class ConflatingMarketDataSenderFactory implements MarketDataSenderFactory {
+
+  /**
+   * The underlying factory.
+   */
+  private final MarketDataSenderFactory _underlying;
+  /**
+   * The executor that sends.
+   */
+  private final Executor _executor;
+  /**
+   * The Fudge context.
+   */
+  private FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+
+  /**
+   * Creates an instance sending on a pool of two threads per processor.
+   * 
+   * @param underlying  the factory of the senders to wrap, not null
+   */
+  public ConflatingMarketDataSenderFactory(MarketDataSenderFactory underlying) {
+    this(underlying, createDefaultExecutor());
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param underlying  the factory of the senders to wrap, not null
+   * @param executor  the executor to send on, not null
+   */
+  public ConflatingMarketDataSenderFactory(MarketDataSenderFactory underlying, Executor executor) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(executor, "executor");
+    _underlying = underlying;
+    _executor = executor;
+  }
+
+  private static Executor createDefaultExecutor() {
+    final int threads = Math.max(Runtime.getRuntime().availableProcessors(), 1) * 2;
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying factory.
+   * 
+   * @return the factory, not null
+   */
+  public MarketDataSenderFactory getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the Fudge context.
+   * 
+   * @return the Fudge context, not null
+   */
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * Sets the Fudge context.
+   * 
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public void setFudgeContext(FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+    final Collection<MarketDataSender> senders = _underlying.create(distributor);
+    final Collection<MarketDataSender> conflating = new ArrayList<MarketDataSender>(senders.size());
+    for (MarketDataSender sender : senders) {
+      conflating.add(new ConflatingMarketDataSender(sender, _executor, _fudgeContext));
+    }
+    return conflating;
+  }
+
+}
@@ -24,7 +24,7 @@ import com.opengamma.util.jms.JmsConnector;
 /**
  * Factory to create JMS senders.
  */
-public class JmsSenderFactory implements MarketDataSenderFactory {
+public class JmsSenderFactory implements MarketDataSenderFactory, JmsTransportStateListener {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(JmsSenderFactory.class);
@@ -106,6 +106,7 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
   }
 
   //-------------------------------------------------------------------------
+  @Override
   public synchronized void transportInterrupted() {
     s_logger.warn("JMS transport interrupted; notifying {} senders", _allActiveSenders.size());
     for (final JmsSender sender : _allActiveSenders) {
@@ -118,6 +119,7 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
     }
   }
 
+  @Override
   public synchronized void transportResumed() {
     s_logger.info("JMS transport resumed; notifying {} senders", _allActiveSenders.size());
     for (final JmsSender sender : _allActiveSenders) {
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+/**
+ * Receives notice of the JMS transport being interrupted and resumed.
+ * <p>
+ * Sender factories implement this so that they stop sending while the broker cannot be reached,
+ * rather than failing on each message.
+ */
+public interface JmsTransportStateListener {
+
+  /**
+   * Called when the JMS transport has been interrupted. Messages should be held until it resumes.
+   */
+  void transportInterrupted();
+
+  /**
+   * Called when the JMS transport has resumed. Messages held while it was interrupted should be sent.
+   */
+  void transportResumed();
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.client;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataTopicPartitioner;
+import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.livedata.LiveDataValueUpdateBatch;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
+import com.opengamma.livedata.test.CollectingLiveDataListener;
+import com.opengamma.transport.FudgeRequestSender;
+import com.opengamma.transport.jms.JmsByteArrayMessageDispatcher;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.jms.JmsConnector;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BatchedJmsLiveDataClientTest {
+
+  private static final FudgeContext CONTEXT = OpenGammaFudgeContext.getInstance();
+
+  private static BatchedJmsLiveDataClient createClient(LiveDataTopicPartitioner partitioner) {
+    return new BatchedJmsLiveDataClient(mock(FudgeRequestSender.class), mock(FudgeRequestSender.class), mock(JmsConnector.class), partitioner);
+  }
+
+  private static LiveDataValueUpdateBean update(long sequenceNumber, LiveDataSpecification spec, double bid) {
+    MutableFudgeMsg fields = CONTEXT.newMessage();
+    fields.add("BID", bid);
+    return new LiveDataValueUpdateBean(sequenceNumber, spec, fields);
+  }
+
+  //-------------------------------------------------------------------------
+  public void oneConsumerPerPartition() throws Exception {
+    LiveDataTopicPartitioner partitioner = new LiveDataTopicPartitioner("LiveData.Batch", 2);
+    List<String> partition0 = new ArrayList<String>();
+    String other = null;
+    for (int i = 0; partition0.size() < 2 || other == null; i++) {
+      String spec = "LiveData.Test." + i;
+      if (partitioner.getPartition(spec) == 0) {
+        partition0.add(spec);
+      } else {
+        other = spec;
+      }
+    }
+    Session session = mock(Session.class);
+    Topic topic = mock(Topic.class);
+    MessageConsumer consumer = mock(MessageConsumer.class);
+    when(session.createTopic(anyString())).thenReturn(topic);
+    when(session.createConsumer(topic)).thenReturn(consumer);
+    JmsByteArrayMessageDispatcher dispatcher = mock(JmsByteArrayMessageDispatcher.class);
+    BatchedJmsLiveDataClient client = createClient(partitioner);
+    try {
+      Map<String, Runnable> closeActions = client.startReceivingTicks(Arrays.asList(partition0.get(0), partition0.get(1), other), session, dispatcher);
+      assertEquals(3, closeActions.size());
+      verify(session, times(1)).createTopic("LiveData.Batch.0");
+      verify(session, times(1)).createTopic("LiveData.Batch.1");
+      verify(session, times(2)).createConsumer(topic);
+      verify(consumer, times(2)).setMessageListener(dispatcher);
+
+      closeActions.get(partition0.get(0)).run();
+      verify(consumer, never()).close();
+      closeActions.get(partition0.get(1)).run();
+      verify(consumer, times(1)).close();
+      closeActions.get(other).run();
+      verify(consumer, times(2)).close();
+
+      // the partition consumer is created again once all its specifications have closed
+      client.startReceivingTicks(Arrays.asList(partition0.get(0)), session, dispatcher);
+      verify(session, times(2)).createTopic("LiveData.Batch.0");
+    } finally {
+      client.getTimer().cancel();
+    }
+  }
+
+  public void batchUnpacked() {
+    BatchedJmsLiveDataClient client = createClient(new LiveDataTopicPartitioner("LiveData.Batch", 1));
+    try {
+      LiveDataSpecification spec1 = new LiveDataSpecification("Test", ExternalId.of("RIC", "T1"));
+      LiveDataSpecification spec2 = new LiveDataSpecification("Test", ExternalId.of("RIC", "T2"));
+      CollectingLiveDataListener listener1 = new CollectingLiveDataListener();
+      CollectingLiveDataListener listener2 = new CollectingLiveDataListener();
+      client.getValueDistributor().addListener(spec1, listener1);
+      client.getValueDistributor().addListener(spec2, listener2);
+
+      List<LiveDataValueUpdateBean> batch = Arrays.asList(update(1, spec1, 1.0), update(1, spec2, 2.0), update(2, spec1, 3.0));
+      client.messageReceived(CONTEXT, new FudgeMsgEnvelope(LiveDataValueUpdateBatch.toFudgeMsg(new FudgeSerializer(CONTEXT), batch)));
+
+      List<LiveDataValueUpdate> updates = listener1.getValueUpdates();
+      assertEquals(2, updates.size());
+      assertEquals(1, updates.get(0).getSequenceNumber());
+      assertEquals(1.0, updates.get(0).getFields().getDouble("BID"));
+      assertEquals(2, updates.get(1).getSequenceNumber());
+      assertEquals(3.0, updates.get(1).getFields().getDouble("BID"));
+      updates = listener2.getValueUpdates();
+      assertEquals(1, updates.size());
+      assertEquals(spec2, updates.get(0).getSpecification());
+      assertEquals(2.0, updates.get(0).getFields().getDouble("BID"));
+    } finally {
+      client.getTimer().cancel();
+    }
+  }
+
+  public void singleUpdate() {
+    BatchedJmsLiveDataClient client = createClient(new LiveDataTopicPartitioner("LiveData.Batch", 1));
+    try {
+      LiveDataSpecification spec = new LiveDataSpecification("Test", ExternalId.of("RIC", "T1"));
+      CollectingLiveDataListener listener = new CollectingLiveDataListener();
+      client.getValueDistributor().addListener(spec, listener);
+
+      LiveDataValueUpdateBean update = update(5, spec, 4.0);
+      client.messageReceived(CONTEXT, new FudgeMsgEnvelope(LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(CONTEXT), update)));
+
+      List<LiveDataValueUpdate> updates = listener.getValueUpdates();
+      assertEquals(1, updates.size());
+      assertEquals(5, updates.get(0).getSequenceNumber());
+      assertEquals(4.0, updates.get(0).getFields().getDouble("BID"));
+    } finally {
+      client.getTimer().cancel();
+    }
+  }
+
+}
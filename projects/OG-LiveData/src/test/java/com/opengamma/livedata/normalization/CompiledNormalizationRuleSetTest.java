@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.normalization;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CompiledNormalizationRuleSetTest {
+
+  /**
+   * A rule that can only be applied to messages.
+   */
+  private static final NormalizationRule SCALE_VOLUME = new NormalizationRule() {
+    @Override
+    public MutableFudgeMsg apply(MutableFudgeMsg msg, String securityUniqueId, FieldHistoryStore fieldHistory) {
+      Double volume = msg.getDouble("VOLUME");
+      if (volume != null) {
+        msg.remove("VOLUME");
+        msg.add(MarketDataRequirementNames.VOLUME, volume * 1000);
+      }
+      return msg;
+    }
+  };
+
+  private static final List<NormalizationRule> RULES = Arrays.<NormalizationRule>asList(
+      new RequiredFieldFilter("BID"),
+      new FieldNameChange("BID", MarketDataRequirementNames.BID),
+      new FieldNameChange("ASK", MarketDataRequirementNames.ASK),
+      new FieldNameChange("LAST_PRICE", MarketDataRequirementNames.LAST),
+      new UnitChange(Sets.newHashSet(MarketDataRequirementNames.BID, MarketDataRequirementNames.ASK, MarketDataRequirementNames.LAST), 0.01),
+      SCALE_VOLUME,
+      new MarketValueCalculator(),
+      new ImpliedVolatilityCalculator(),
+      new FieldFilter(MarketDataRequirementNames.BID, MarketDataRequirementNames.ASK, MarketDataRequirementNames.LAST,
+          MarketDataRequirementNames.MARKET_VALUE, MarketDataRequirementNames.VOLUME, MarketDataRequirementNames.IMPLIED_VOLATILITY,
+          MarketDataRequirementNames.MID_IMPLIED_VOLATILITY, "NAME"),
+      new FieldHistoryUpdater());
+
+  private static MutableFudgeMsg message(Object... namesAndValues) {
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      msg.add((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return msg;
+  }
+
+  private static void assertSameFields(FudgeMsg expected, FudgeMsg actual) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    List<FudgeField> expectedFields = expected.getAllFields();
+    List<FudgeField> actualFields = actual.getAllFields();
+    assertEquals(expectedFields.size(), actualFields.size());
+    for (int i = 0; i < expectedFields.size(); i++) {
+      assertEquals(expectedFields.get(i).getName(), actualFields.get(i).getName());
+      assertEquals(expectedFields.get(i).getType(), actualFields.get(i).getType());
+      assertEquals(expectedFields.get(i).getValue(), actualFields.get(i).getValue());
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  public void sameAsRuleSet() {
+    NormalizationRuleSet ruleSet = new NormalizationRuleSet("Test", "Test", RULES);
+    CompiledNormalizationRuleSet compiled = new CompiledNormalizationRuleSet(ruleSet);
+    assertEquals(ruleSet.getId(), compiled.getId());
+    assertEquals(ruleSet.getJmsTopicSuffix(), compiled.getJmsTopicSuffix());
+
+    FieldHistoryStore history = new FieldHistoryStore();
+    FieldHistoryStore compiledHistory = new FieldHistoryStore();
+    List<MutableFudgeMsg> ticks = Arrays.asList(
+        message("BID", 5080.0, "ASK", 5090.0, "LAST_PRICE", 5089.0, "VOLUME", 12.0, "NAME", "AAPL", "OTHER", 1),
+        message("ASK", 5091.0),
+        message("BID", 5000.0, "ASK", 7000.0, "LAST_PRICE", 7100.0),
+        message("BID", 5000.0, MarketDataRequirementNames.MID_IMPLIED_VOLATILITY, 0.25),
+        message("BID", 5001.0),
+        message("BID", 5002.0, "LAST_PRICE", 12));
+    for (MutableFudgeMsg tick : ticks) {
+      FudgeMsg expected = ruleSet.getNormalizedMessage(tick, "123", history);
+      FudgeMsg actual = compiled.getNormalizedMessage(tick, "123", compiledHistory);
+      assertSameFields(expected, actual);
+      assertSameFields(history.getLastKnownValues(), compiledHistory.getLastKnownValues());
+    }
+  }
+
+  public void rejected() {
+    CompiledNormalizationRuleSet compiled = new CompiledNormalizationRuleSet(new NormalizationRuleSet(
+        "Testing",
+        new RequiredFieldFilter("Foo"),
+        new FieldFilter("Bar")));
+    assertNull(compiled.getNormalizedMessage(message("Bar", 2.0, "Baz", 500), "123", new FieldHistoryStore()));
+    compiled = new CompiledNormalizationRuleSet(new NormalizationRuleSet("Testing", new FieldFilter("Bar")));
+    assertNull(compiled.getNormalizedMessage(message("Foo", 2.0, "Baz", 500), "123", new FieldHistoryStore()));
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LiveDataFieldTableTest {
+
+  private static final FudgeContext CONTEXT = OpenGammaFudgeContext.getInstance();
+
+  public void updateAndRead() {
+    LiveDataFieldTable table = new LiveDataFieldTable();
+    assertTrue(table.isEmpty());
+    assertNull(table.takeChanges(CONTEXT));
+
+    MutableFudgeMsg msg = CONTEXT.newMessage();
+    msg.add("BID", 1.5);
+    msg.add("ASK", 1.6);
+    msg.add("NAME", "AAPL");
+    table.update(msg);
+    assertEquals(3, table.size());
+    assertTrue(table.hasChanges());
+    assertEquals(1.5, table.getValue("BID"));
+    assertEquals("AAPL", table.getValue("NAME"));
+    assertNull(table.getValue("LAST"));
+
+    FudgeMsg changes = table.takeChanges(CONTEXT);
+    assertEquals(3, changes.getNumFields());
+    assertFalse(table.hasChanges());
+    assertNull(table.takeChanges(CONTEXT));
+
+    msg = CONTEXT.newMessage();
+    msg.add("ASK", 1.7);
+    msg.add("ASK", 1.8);
+    msg.add("NAME", 42.0);
+    table.update(msg);
+    changes = table.takeChanges(CONTEXT);
+    assertEquals(2, changes.getNumFields());
+    assertEquals(1.8, changes.getDouble("ASK"));
+    assertEquals(42.0, changes.getDouble("NAME"));
+
+    FudgeMsg all = table.getLastKnownValues(CONTEXT);
+    assertEquals(3, all.getNumFields());
+    assertEquals(1.5, all.getDouble("BID"));
+    assertEquals(1.8, all.getDouble("ASK"));
+
+    table.clear();
+    assertTrue(table.isEmpty());
+    assertNull(table.getValue("BID"));
+  }
+
+  public void manyFields() {
+    LiveDataFieldTable table = new LiveDataFieldTable();
+    for (int round = 0; round < 2; round++) {
+      MutableFudgeMsg msg = CONTEXT.newMessage();
+      for (int i = 0; i < 100; i++) {
+        msg.add("Field" + i, (double) (i + round));
+      }
+      table.update(msg);
+    }
+    assertEquals(100, table.size());
+    FudgeMsg changes = table.takeChanges(CONTEXT);
+    assertEquals(100, changes.getNumFields());
+    for (int i = 0; i < 100; i++) {
+      assertEquals((double) (i + 1), changes.getDouble("Field" + i));
+    }
+  }
+
+  public void ordinals() {
+    LiveDataFieldTable table = new LiveDataFieldTable();
+    MutableFudgeMsg msg = CONTEXT.newMessage();
+    msg.add("BID", 1, 1.5);
+    msg.add("NAME", 2, "AAPL");
+    msg.add("ASK", 1.6);
+    table.update(msg);
+    FudgeMsg all = table.getLastKnownValues(CONTEXT);
+    assertEquals(Integer.valueOf(1), all.getByName("BID").getOrdinal());
+    assertEquals(Integer.valueOf(2), all.getByName("NAME").getOrdinal());
+    assertNull(all.getByName("ASK").getOrdinal());
+    assertEquals(1.5, all.getDouble(1));
+
+    // The ordinal of the last value stored is kept
+    msg = CONTEXT.newMessage();
+    msg.add("BID", 3, 1.7);
+    msg.add("NAME", "MSFT");
+    table.update(msg);
+    FudgeMsg changes = table.takeChanges(CONTEXT);
+    assertEquals(Integer.valueOf(3), changes.getByName("BID").getOrdinal());
+    assertNull(changes.getByName("NAME").getOrdinal());
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test against an in-memory stand-in for Redis.
+ */
+@Test(groups = TestGroup.UNIT)
+public class WriteBehindRedisLastKnownValueStoreTest {
+
+  /**
+   * Writer holding the hashes in memory instead of Redis.
+   */
+  private static class InMemoryWriter extends RedisLastKnownValueWriter {
+    private final Map<String, Map<String, String>> _hashes = new HashMap<String, Map<String, String>>();
+    private final List<Integer> _pipelineSizes = new ArrayList<Integer>();
+    private int _failures;
+    private Runnable _onFailure;
+
+    InMemoryWriter(int maxBatchSize) {
+      super(null, 60000, maxBatchSize);
+    }
+
+    @Override
+    protected synchronized void write(Map<String, Map<String, String>> fieldsByKey) {
+      if (_failures > 0) {
+        _failures--;
+        if (_onFailure != null) {
+          _onFailure.run();
+        }
+        throw new OpenGammaRuntimeException("Write failed");
+      }
+      _pipelineSizes.add(fieldsByKey.size());
+      for (Map.Entry<String, Map<String, String>> entry : fieldsByKey.entrySet()) {
+        load(entry.getKey()).putAll(entry.getValue());
+      }
+    }
+
+    @Override
+    protected synchronized Map<String, String> load(String key) {
+      Map<String, String> hash = _hashes.get(key);
+      if (hash == null) {
+        hash = new HashMap<String, String>();
+        _hashes.put(key, hash);
+      }
+      return hash;
+    }
+  }
+
+  private static FudgeMsg message(Object... namesAndValues) {
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      msg.add((String) namesAndValues[i], namesAndValues[i + 1]);
+    }
+    return msg;
+  }
+
+  //-------------------------------------------------------------------------
+  public void writeBehind() {
+    InMemoryWriter writer = new InMemoryWriter(2);
+    try {
+      List<WriteBehindRedisLastKnownValueStore> stores = new ArrayList<WriteBehindRedisLastKnownValueStore>();
+      for (int i = 0; i < 5; i++) {
+        WriteBehindRedisLastKnownValueStore store = new WriteBehindRedisLastKnownValueStore(writer, "KEY" + i);
+        assertTrue(store.isEmpty());
+        stores.add(store);
+      }
+      for (int i = 0; i < 5; i++) {
+        stores.get(i).updateFields(message("BID", 1.0 + i, "NAME", "N" + i));
+        stores.get(i).updateFields(message("BID", 2.0 + i));
+      }
+      assertEquals(5, writer.getQueueDepth());
+      assertTrue(writer.getFlushLagMillis() >= 0);
+      // reads are served from memory before the values are written
+      assertEquals(3.0, stores.get(1).getFields().getDouble("BID"));
+      assertTrue(writer._hashes.get("KEY1").isEmpty());
+
+      writer.flush();
+      assertEquals(0, writer.getQueueDepth());
+      assertEquals(0, writer.getFlushLagMillis());
+      assertEquals(3, writer._pipelineSizes.size());
+      assertEquals(10, writer.getNumFieldsWritten());
+      assertEquals("3.0", writer._hashes.get("KEY1").get("BID"));
+      assertEquals("N1", writer._hashes.get("KEY1").get("NAME"));
+
+      stores.get(4).updateFields(message("ASK", 7.0));
+      writer.flush();
+      assertEquals("7.0", writer._hashes.get("KEY4").get("ASK"));
+      assertEquals(11, writer.getNumFieldsWritten());
+
+      writer.flush();
+      assertEquals(4, writer._pipelineSizes.size());
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  public void loadFromRedis() {
+    InMemoryWriter writer = new InMemoryWriter(10);
+    try {
+      Map<String, String> hash = writer.load("KEY");
+      hash.put("BID", "1.5");
+      hash.put("NAME", "AAPL");
+      WriteBehindRedisLastKnownValueStore store = new WriteBehindRedisLastKnownValueStore(writer, "KEY");
+      assertFalse(store.isEmpty());
+      assertEquals(1.5, store.getFields().getDouble("BID"));
+      assertEquals("AAPL", store.getFields().getString("NAME"));
+      // values loaded from Redis are not written back
+      assertEquals(0, writer.getQueueDepth());
+      writer.flush();
+      assertEquals(0, writer.getNumFieldsWritten());
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  public void failedWrite() {
+    InMemoryWriter writer = new InMemoryWriter(10);
+    try {
+      final WriteBehindRedisLastKnownValueStore store1 = new WriteBehindRedisLastKnownValueStore(writer, "KEY1");
+      WriteBehindRedisLastKnownValueStore store2 = new WriteBehindRedisLastKnownValueStore(writer, "KEY2");
+      store1.updateFields(message("BID", 1.0, "CLOSE", 0.5));
+      store2.updateFields(message("BID", 2.0));
+      writer._failures = 1;
+      writer._onFailure = new Runnable() {
+        @Override
+        public void run() {
+          // a tick arriving while the failed batch is put back
+          store1.updateFields(message("BID", 3.0));
+        }
+      };
+      writer.flush();
+      assertEquals(1, writer.getNumFailedBatches());
+      assertEquals(0, writer.getNumFieldsWritten());
+      assertTrue(writer._hashes.get("KEY1").isEmpty());
+      // both stores are queued again for the next flush
+      assertEquals(2, writer.getQueueDepth());
+
+      writer.flush();
+      assertEquals(0, writer.getQueueDepth());
+      assertEquals(3, writer.getNumFieldsWritten());
+      assertEquals("3.0", writer._hashes.get("KEY1").get("BID"));
+      assertEquals("0.5", writer._hashes.get("KEY1").get("CLOSE"));
+      assertEquals("2.0", writer._hashes.get("KEY2").get("BID"));
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+}
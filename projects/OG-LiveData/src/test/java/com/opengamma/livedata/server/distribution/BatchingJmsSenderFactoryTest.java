@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.livedata.LiveDataTopicPartitioner;
+import com.opengamma.livedata.LiveDataValueUpdateBatch;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.normalization.StandardRules;
+import com.opengamma.livedata.server.DistributionSpecification;
+import com.opengamma.livedata.server.MapLastKnownValueStoreProvider;
+import com.opengamma.livedata.server.Subscription;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class BatchingJmsSenderFactoryTest {
+
+  private static final FudgeContext CONTEXT = OpenGammaFudgeContext.getInstance();
+
+  /**
+   * Factory that collects the batches instead of publishing them.
+   */
+  private static class CollectingFactory extends BatchingJmsSenderFactory {
+    private final List<String> _topics = new ArrayList<String>();
+    private final List<List<LiveDataValueUpdateBean>> _batches = new ArrayList<List<LiveDataValueUpdateBean>>();
+    private int _failures;
+    private Runnable _onFailure;
+
+    CollectingFactory(int maxBatchSize, long maxLatencyMillis) {
+      super(null, new LiveDataTopicPartitioner("LiveData.Batch", 1), maxBatchSize, maxLatencyMillis);
+    }
+
+    @Override
+    protected synchronized void publish(String topic, byte[] bytes) {
+      if (_failures > 0) {
+        _failures--;
+        if (_onFailure != null) {
+          _onFailure.run();
+        }
+        throw new OpenGammaRuntimeException("Publish failed");
+      }
+      FudgeMsg msg = CONTEXT.deserialize(bytes).getMessage();
+      assertTrue(LiveDataValueUpdateBatch.isBatch(msg));
+      _topics.add(topic);
+      _batches.add(LiveDataValueUpdateBatch.fromFudgeMsg(new FudgeDeserializer(CONTEXT), msg));
+      notifyAll();
+    }
+
+    synchronized List<List<LiveDataValueUpdateBean>> waitForBatches(int count) throws InterruptedException {
+      while (_batches.size() < count) {
+        wait(10000);
+      }
+      return new ArrayList<List<LiveDataValueUpdateBean>>(_batches);
+    }
+  }
+
+  private static MarketDataDistributor getDistributor(MarketDataSenderFactory factory, String ticker) {
+    MapLastKnownValueStoreProvider lkvStoreProvider = new MapLastKnownValueStoreProvider();
+    return new MarketDataDistributor(new DistributionSpecification(
+        ExternalId.of("RIC", ticker),
+        StandardRules.getNoNormalization(),
+        "LiveData.Test." + ticker),
+        new Subscription("", factory, lkvStoreProvider),
+        factory,
+        false,
+        lkvStoreProvider);
+  }
+
+  private static FudgeMsg message(double bid) {
+    MutableFudgeMsg msg = CONTEXT.newMessage();
+    msg.add("BID", bid);
+    return msg;
+  }
+
+  private static FudgeMsg message(double bid, double ask) {
+    MutableFudgeMsg msg = CONTEXT.newMessage();
+    msg.add("BID", bid);
+    msg.add("ASK", ask);
+    return msg;
+  }
+
+  //-------------------------------------------------------------------------
+  public void partitioner() {
+    LiveDataTopicPartitioner partitioner = new LiveDataTopicPartitioner("LiveData.Batch", 8);
+    for (int i = 0; i < 100; i++) {
+      int partition = partitioner.getPartition("LiveData.Test." + i);
+      assertTrue(partition >= 0 && partition < 8);
+      assertEquals("LiveData.Batch." + partition, partitioner.getPartitionTopic("LiveData.Test." + i));
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void batchBySize() throws Exception {
+    CollectingFactory factory = new CollectingFactory(3, 60000);
+    try {
+      List<MarketDataDistributor> distributors = new ArrayList<MarketDataDistributor>();
+      for (int i = 0; i < 3; i++) {
+        distributors.add(getDistributor(factory, "T" + i));
+      }
+      distributors.get(0).distributeLiveData(message(1));
+      distributors.get(0).distributeLiveData(message(2));
+      distributors.get(1).distributeLiveData(message(3));
+      distributors.get(2).distributeLiveData(message(4));
+
+      List<List<LiveDataValueUpdateBean>> batches = factory.waitForBatches(1);
+      assertEquals(1, batches.size());
+      assertEquals("LiveData.Batch.0", factory._topics.get(0));
+      List<LiveDataValueUpdateBean> batch = batches.get(0);
+      assertEquals(3, batch.size());
+      Map<String, LiveDataValueUpdateBean> byTicker = new HashMap<String, LiveDataValueUpdateBean>();
+      for (LiveDataValueUpdateBean update : batch) {
+        byTicker.put(update.getSpecification().getIdentifier(ExternalScheme.of("RIC")), update);
+      }
+      assertEquals(2.0, byTicker.get("T0").getFields().getDouble("BID"));
+      assertEquals(1, byTicker.get("T0").getSequenceNumber());
+      assertEquals(3.0, byTicker.get("T1").getFields().getDouble("BID"));
+      assertEquals(4.0, byTicker.get("T2").getFields().getDouble("BID"));
+    } finally {
+      factory.shutdown();
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void batchByLatency() throws Exception {
+    CollectingFactory factory = new CollectingFactory(100, 5);
+    try {
+      MarketDataDistributor distributor = getDistributor(factory, "T0");
+      distributor.distributeLiveData(message(1));
+      List<List<LiveDataValueUpdateBean>> batches = factory.waitForBatches(1);
+      assertEquals(1, batches.get(0).size());
+      assertEquals(1.0, batches.get(0).get(0).getFields().getDouble("BID"));
+    } finally {
+      factory.shutdown();
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void interrupted() throws Exception {
+    CollectingFactory factory = new CollectingFactory(1, 5);
+    try {
+      MarketDataDistributor distributor = getDistributor(factory, "T0");
+      factory.transportInterrupted();
+      distributor.distributeLiveData(message(1));
+      distributor.distributeLiveData(message(2));
+      Thread.sleep(50);
+      assertEquals(0, factory._batches.size());
+      factory.transportResumed();
+      List<List<LiveDataValueUpdateBean>> batches = factory.waitForBatches(1);
+      assertEquals(1, batches.get(0).size());
+      assertEquals(2.0, batches.get(0).get(0).getFields().getDouble("BID"));
+    } finally {
+      factory.shutdown();
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void publishFailed() throws Exception {
+    CollectingFactory factory = new CollectingFactory(100, 5);
+    try {
+      final MarketDataDistributor distributor = getDistributor(factory, "T0");
+      synchronized (factory) {
+        factory._failures = 1;
+        factory._onFailure = new Runnable() {
+          @Override
+          public void run() {
+            // a newer tick arriving while the failed batch is being put back
+            distributor.distributeLiveData(message(3));
+          }
+        };
+      }
+      distributor.distributeLiveData(message(1, 2));
+      List<List<LiveDataValueUpdateBean>> batches = factory.waitForBatches(1);
+      assertEquals(1, batches.get(0).size());
+      FudgeMsg fields = batches.get(0).get(0).getFields();
+      assertEquals(3.0, fields.getDouble("BID"));
+      assertEquals(2.0, fields.getDouble("ASK"));
+      assertEquals(0, factory._failures);
+    } finally {
+      factory.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.normalization.StandardRules;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ConflatingMarketDataSenderTest {
+
+  private static final FudgeContext CONTEXT = OpenGammaFudgeContext.getInstance();
+  private static final LiveDataSpecification SPEC = new LiveDataSpecification(StandardRules.getNoNormalization().getId(), ExternalId.of("RIC", "AAPL.O"));
+
+  /**
+   * Executor that runs tasks when asked to.
+   */
+  private static class ManualExecutor implements Executor {
+    private final Queue<Runnable> _tasks = new LinkedList<Runnable>();
+
+    @Override
+    public void execute(Runnable command) {
+      _tasks.add(command);
+    }
+
+    int runAll() {
+      int count = 0;
+      Runnable task;
+      while ((task = _tasks.poll()) != null) {
+        task.run();
+        count++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Sender that records what it is sent.
+   */
+  private static class RecordingSender implements MarketDataSender {
+    private final List<LiveDataValueUpdateBean> _sent = new ArrayList<LiveDataValueUpdateBean>();
+
+    @Override
+    public void sendMarketData(LiveDataValueUpdateBean data) {
+      _sent.add(data);
+    }
+
+    @Override
+    public MarketDataDistributor getDistributor() {
+      return null;
+    }
+  }
+
+  private static LiveDataValueUpdateBean update(long sequenceNumber, String field, double value) {
+    MutableFudgeMsg msg = CONTEXT.newMessage();
+    msg.add(field, value);
+    return new LiveDataValueUpdateBean(sequenceNumber, SPEC, msg);
+  }
+
+  //-------------------------------------------------------------------------
+  public void conflation() {
+    ManualExecutor executor = new ManualExecutor();
+    RecordingSender underlying = new RecordingSender();
+    ConflatingMarketDataSender sender = new ConflatingMarketDataSender(underlying, executor, CONTEXT);
+
+    sender.sendMarketData(update(1, "BID", 1.0));
+    sender.sendMarketData(update(2, "ASK", 2.0));
+    sender.sendMarketData(update(3, "BID", 1.5));
+    assertTrue(underlying._sent.isEmpty());
+    assertEquals(1, executor.runAll());
+
+    assertEquals(1, underlying._sent.size());
+    LiveDataValueUpdateBean sent = underlying._sent.get(0);
+    assertEquals(3, sent.getSequenceNumber());
+    assertEquals(SPEC, sent.getSpecification());
+    assertEquals(2, sent.getFields().getNumFields());
+    assertEquals(1.5, sent.getFields().getDouble("BID"));
+    assertEquals(2.0, sent.getFields().getDouble("ASK"));
+    assertEquals(2, sender.getNumConflated());
+
+    sender.sendMarketData(update(4, "BID", 1.6));
+    assertEquals(1, executor.runAll());
+    assertEquals(2, underlying._sent.size());
+    assertEquals(4, underlying._sent.get(1).getSequenceNumber());
+    assertEquals(1, underlying._sent.get(1).getFields().getNumFields());
+  }
+
+  public void updatesDuringSend() {
+    final ManualExecutor executor = new ManualExecutor();
+    final List<Long> sent = new ArrayList<Long>();
+    final ConflatingMarketDataSender[] sender = new ConflatingMarketDataSender[1];
+    MarketDataSender underlying = new RecordingSender() {
+      @Override
+      public void sendMarketData(LiveDataValueUpdateBean data) {
+        sent.add(data.getSequenceNumber());
+        if (data.getSequenceNumber() == 1) {
+          sender[0].sendMarketData(update(2, "BID", 2.0));
+        }
+      }
+    };
+    sender[0] = new ConflatingMarketDataSender(underlying, executor, CONTEXT);
+    sender[0].sendMarketData(update(1, "BID", 1.0));
+    assertEquals(2, executor.runAll());
+    assertEquals(2, sent.size());
+    assertEquals(1L, (long) sent.get(0));
+    assertEquals(2L, (long) sent.get(1));
+  }
+
+  public void failedSendDoesNotStall() {
+    ManualExecutor executor = new ManualExecutor();
+    MarketDataSender underlying = new RecordingSender() {
+      @Override
+      public void sendMarketData(LiveDataValueUpdateBean data) {
+        throw new IllegalStateException();
+      }
+    };
+    ConflatingMarketDataSender sender = new ConflatingMarketDataSender(underlying, executor, CONTEXT);
+    sender.sendMarketData(update(1, "BID", 1.0));
+    assertEquals(1, executor.runAll());
+    sender.sendMarketData(update(2, "BID", 2.0));
+    assertEquals(1, executor.runAll());
+  }
+
+  public void factory() {
+    final RecordingSender underlying = new RecordingSender();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(new MarketDataSenderFactory() {
+      @Override
+      public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+        return Collections.<MarketDataSender>singleton(underlying);
+      }
+    }, new ManualExecutor());
+    Collection<MarketDataSender> senders = factory.create(null);
+    assertEquals(1, senders.size());
+    MarketDataSender sender = senders.iterator().next();
+    assertTrue(sender instanceof ConflatingMarketDataSender);
+    assertTrue(((ConflatingMarketDataSender) sender).getUnderlying() == underlying);
+  }
+
+}
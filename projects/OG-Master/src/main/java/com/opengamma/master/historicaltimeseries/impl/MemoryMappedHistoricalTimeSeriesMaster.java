@@ -0,0 +1,1129 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.master.historicaltimeseries.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.ObjectIdentifiable;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoHistoryRequest;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoHistoryResult;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoMetaDataRequest;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoMetaDataResult;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoSearchRequest;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoSearchResult;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@code HistoricalTimeSeriesMaster} decorator that holds the latest data points of each time-series in memory-mapped files on the local disk.
+ * <p>
+ * The time-series are packed into a small number of large region files, each mapped once, so the number of mappings doesn't grow with the number
+ * of series or of updates. A region is a sequence of records, each holding a segment of one series. A segment replaces the points within a date
+ * range with a column of dates, in their integer form, followed by a column of values. The first segment of a series covers all dates and is
+ * written when the series is first loaded from the underlying master. Updates, corrections and removals made through this master are appended as
+ * further segments holding just the affected range, and the series is rewritten as a single segment when too many accumulate. An index held in
+ * memory gives the region and offset of each segment; a read of a single segment series is a binary search and bulk copy of the mapped columns
+ * with no per-point decoding.
+ * <p>
+ * Records are only ever appended to the newest region. A region is deleted once none of its records are current, and the series remaining in a
+ * mostly superseded region are moved to the newest region so that it can be deleted in turn. The index is rebuilt by scanning the record headers
+ * of the regions left by a previous process, whose series are used only if the data points identifier recorded with them matches the current one
+ * in the underlying master. The underlying master must therefore return versioned identifiers for the series to survive a restart.
+ * <p>
+ * Only requests for the latest version and correction are served from the regions; all other requests, and all operations on the information
+ * documents, are passed to the underlying master. A change notified by the underlying master causes the corresponding series to be reloaded
+ * unless the change was made through this master.
+ * <p>
+ * A {@link MasterHistoricalTimeSeriesSource} constructed over an instance of this class will serve its time-series from the regions.
+ */
+public class MemoryMappedHistoricalTimeSeriesMaster implements HistoricalTimeSeriesMaster {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(MemoryMappedHistoricalTimeSeriesMaster.class);
+
+  /**
+   * The default size of a region file, 64Mb.
+   */
+  public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Marker at the start of each region.
+   */
+  private static final int MAGIC = 0x4F474854;
+  /**
+   * Marker at the start of each complete record.
+   */
+  private static final int RECORD_MAGIC = 0x48545352;
+  /**
+   * The version of the file format; regions with any other version are discarded.
+   */
+  private static final int FORMAT_VERSION = 2;
+  /**
+   * The size of the region header.
+   */
+  private static final int HEADER_SIZE = 8;
+  /**
+   * Record kind for the first segment of a series, replacing any earlier records.
+   */
+  private static final byte FULL = 0;
+  /**
+   * Record kind for a segment appended to the earlier records of a series.
+   */
+  private static final byte PARTIAL = 1;
+  /**
+   * The number of segments at which a series is rewritten as a single segment.
+   */
+  private static final int MAX_SEGMENTS = 16;
+  /**
+   * The fraction of a region that must be current for it to be left alone when a new region is started.
+   */
+  private static final int RECLAIM_DIVISOR = 4;
+
+  private static final String REGION_PREFIX = "region-";
+
+  private static final String FILE_SUFFIX = ".hts";
+
+  private static final int LOCK_COUNT = 64;
+
+  /**
+   * The underlying master.
+   */
+  private final HistoricalTimeSeriesMaster _underlying;
+  /**
+   * The directory holding the region files.
+   */
+  private final File _directory;
+  /**
+   * The size of each region file.
+   */
+  private final int _regionSize;
+  /**
+   * The segments of each time-series, keyed by the data points object identifier.
+   */
+  private final ConcurrentMap<ObjectId, Entry> _entries = new ConcurrentHashMap<ObjectId, Entry>();
+  /**
+   * The time-series found in the regions left by a previous process that have not yet been checked against the underlying master.
+   */
+  private final ConcurrentMap<ObjectId, Entry> _existing = new ConcurrentHashMap<ObjectId, Entry>();
+  /**
+   * The time-series changed in the underlying master since they were last fetched, with a unique stamp for each change notification.
+   */
+  private final ConcurrentMap<ObjectId, Long> _changes = new ConcurrentHashMap<ObjectId, Long>();
+  /**
+   * The source of change stamps.
+   */
+  private final AtomicLong _changeStamp = new AtomicLong();
+  /**
+   * Locks serializing the load and update of individual time-series.
+   */
+  private final Object[] _locks = new Object[LOCK_COUNT];
+  /**
+   * The regions, guarded by the allocation lock.
+   */
+  private final List<Region> _regions = new ArrayList<Region>();
+  /**
+   * Lock guarding the regions and the space within them.
+   */
+  private final Object _allocationLock = new Object();
+  /**
+   * Set when a region is started, so that superseded regions are reclaimed once the writer has released its lock.
+   */
+  private final AtomicBoolean _reclaim = new AtomicBoolean();
+  /**
+   * The region records are appended to, guarded by the allocation lock.
+   */
+  private Region _current;
+  /**
+   * The number of the next region file, guarded by the allocation lock.
+   */
+  private int _nextRegion;
+
+  /**
+   * A mapped region file.
+   */
+  private static final class Region {
+
+    private final File _file;
+    private final MappedByteBuffer _buffer;
+    /**
+     * The position of the next record, guarded by the allocation lock.
+     */
+    private int _writePosition;
+    /**
+     * The number of records allocated but not yet part of a series.
+     */
+    private final AtomicInteger _writers = new AtomicInteger();
+    /**
+     * The number of bytes of records that are part of a series.
+     */
+    private final AtomicLong _liveBytes = new AtomicLong();
+    /**
+     * The series with records in this region.
+     */
+    private final Set<ObjectId> _series = Collections.newSetFromMap(new ConcurrentHashMap<ObjectId, Boolean>());
+
+    private Region(final File file, final MappedByteBuffer buffer, final int writePosition) {
+      _file = file;
+      _buffer = buffer;
+      _writePosition = writePosition;
+    }
+
+    private int remaining() {
+      return _buffer.capacity() - _writePosition;
+    }
+
+  }
+
+  /**
+   * The location of a record.
+   */
+  private static final class Record {
+
+    private final Region _region;
+    private final int _offset;
+    private final int _length;
+
+    private Record(final Region region, final int offset, final int length) {
+      _region = region;
+      _offset = offset;
+      _length = length;
+    }
+
+  }
+
+  /**
+   * The records of a time-series.
+   */
+  private static final class Entry {
+
+    private final Record[] _records;
+    private final UniqueId _uniqueId;
+    private final Instant _versionInstant;
+    private final Instant _correctionInstant;
+
+    private Entry(final Record[] records, final UniqueId uniqueId, final Instant versionInstant, final Instant correctionInstant) {
+      _records = records;
+      _uniqueId = uniqueId;
+      _versionInstant = versionInstant;
+      _correctionInstant = correctionInstant;
+    }
+
+    private boolean contains(final Record record) {
+      for (Record r : _records) {
+        if (r == record) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean references(final Region region) {
+      for (Record r : _records) {
+        if (r._region == region) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+  /**
+   * A segment of a series, or a folded series. The points replace any existing ones from the first date to the last date, inclusive.
+   */
+  private static final class Segment {
+
+    private final int _fromDate;
+    private final int _toDate;
+    private final IntBuffer _dates;
+    private final DoubleBuffer _values;
+
+    private Segment(final int fromDate, final int toDate, final IntBuffer dates, final DoubleBuffer values) {
+      _fromDate = fromDate;
+      _toDate = toDate;
+      _dates = dates;
+      _values = values;
+    }
+
+  }
+
+  /**
+   * Creates an instance with regions of the default size.
+   *
+   * @param underlying the underlying master, not null
+   * @param directory the directory to hold the region files, not null. This will be created if it does not exist.
+   */
+  public MemoryMappedHistoricalTimeSeriesMaster(final HistoricalTimeSeriesMaster underlying, final File directory) {
+    this(underlying, directory, DEFAULT_REGION_SIZE);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param underlying the underlying master, not null
+   * @param directory the directory to hold the region files, not null. This will be created if it does not exist.
+   * @param regionSize the size of each region file in bytes. A series too large for a region is given a region of its own.
+   */
+  public MemoryMappedHistoricalTimeSeriesMaster(final HistoricalTimeSeriesMaster underlying, final File directory, final int regionSize) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(directory, "directory");
+    ArgumentChecker.isTrue(regionSize > HEADER_SIZE, "regionSize");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new OpenGammaRuntimeException("Couldn't create time-series directory " + directory);
+    }
+    _underlying = underlying;
+    _directory = directory;
+    _regionSize = regionSize;
+    for (int i = 0; i < LOCK_COUNT; i++) {
+      _locks[i] = new Object();
+    }
+    scanRegions();
+    underlying.changeManager().addChangeListener(new ChangeListener() {
+      @Override
+      public void entityChanged(final ChangeEvent event) {
+        _changes.put(event.getObjectId(), _changeStamp.incrementAndGet());
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying master.
+   *
+   * @return the underlying master, not null
+   */
+  public HistoricalTimeSeriesMaster getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the directory holding the region files.
+   *
+   * @return the directory, not null
+   */
+  public File getDirectory() {
+    return _directory;
+  }
+
+  /**
+   * Gets the size of each region file.
+   *
+   * @return the size in bytes
+   */
+  public int getRegionSize() {
+    return _regionSize;
+  }
+
+  /**
+   * Returns the number of region files currently allocated.
+   *
+   * @return the number of regions
+   */
+  public int getRegionCount() {
+    synchronized (_allocationLock) {
+      return _regions.size();
+    }
+  }
+
+  /**
+   * Loads, or validates, all of the time-series in the underlying master. This can be called at start up so that the first requests for each
+   * series don't have to go to the underlying master.
+   * <p>
+   * This is a single pass over the information documents. The master has no bulk operation for data points, so each series still costs a fetch
+   * of its latest point, to validate a series left by a previous process, or of all its points, which are appended to the current region.
+   *
+   * @return the number of time-series loaded or validated
+   */
+  public int populate() {
+    int count = 0;
+    for (HistoricalTimeSeriesInfoDocument document : HistoricalTimeSeriesInfoSearchIterator.iterable(getUnderlying(), new HistoricalTimeSeriesInfoSearchRequest())) {
+      final ObjectId objectId = document.getInfo().getTimeSeriesObjectId();
+      if (objectId != null) {
+        try {
+          getEntry(objectId);
+          count++;
+        } catch (RuntimeException e) {
+          s_logger.warn("Couldn't load time-series {} - {}", objectId, e.getMessage());
+        }
+      }
+    }
+    s_logger.info("Populated {} time-series in {}", count, _directory);
+    return count;
+  }
+
+  //-------------------------------------------------------------------------
+  private Object getLock(final ObjectId objectId) {
+    return _locks[(objectId.hashCode() & 0x7FFFFFFF) % LOCK_COUNT];
+  }
+
+  private boolean isCurrent(final ObjectId objectId) {
+    return !_changes.containsKey(objectId);
+  }
+
+  /**
+   * Clears a change notification once data fetched after it has been written. A notification received since the fetch started has a different
+   * stamp so is left in place.
+   */
+  private void clearChange(final ObjectId objectId, final Long change) {
+    if (change != null) {
+      _changes.remove(objectId, change);
+    }
+  }
+
+  /**
+   * Returns the segments of a time-series, loading it from the underlying master if there is no current one.
+   *
+   * @param objectId the data points object identifier, not null
+   * @return the entry, not null
+   */
+  private Entry getEntry(final ObjectId objectId) {
+    final Entry entry = _entries.get(objectId);
+    if ((entry != null) && isCurrent(objectId)) {
+      return entry;
+    }
+    try {
+      return loadEntry(objectId);
+    } finally {
+      reclaimIfNeeded();
+    }
+  }
+
+  private Entry loadEntry(final ObjectId objectId) {
+    synchronized (getLock(objectId)) {
+      Entry entry = _entries.get(objectId);
+      if ((entry != null) && isCurrent(objectId)) {
+        return entry;
+      }
+      final Long change = _changes.get(objectId);
+      if (entry == null) {
+        entry = openExisting(objectId, change);
+        if (entry != null) {
+          _entries.put(objectId, entry);
+          return entry;
+        }
+      }
+      final ManageableHistoricalTimeSeries series = getUnderlying().getTimeSeries(objectId, VersionCorrection.LATEST);
+      final LocalDateDoubleTimeSeries points = series.getTimeSeries();
+      final Entry newEntry = write(objectId, series.getUniqueId(), series.getVersionInstant(), series.getCorrectionInstant(),
+          new Segment(Integer.MIN_VALUE, Integer.MAX_VALUE, IntBuffer.wrap(points.timesArrayFast()), DoubleBuffer.wrap(points.valuesArrayFast())), null);
+      replace(_entries, objectId, entry, newEntry);
+      clearChange(objectId, change);
+      return newEntry;
+    }
+  }
+
+  /**
+   * Takes a series left by a previous process if it matches the current state of the underlying master.
+   *
+   * @param objectId the data points object identifier, not null
+   * @param change the pending change notification, null if none
+   * @return the entry, or null if there is no valid series
+   */
+  private Entry openExisting(final ObjectId objectId, final Long change) {
+    final Entry entry = _existing.get(objectId);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry._uniqueId.isLatest()) {
+      final ManageableHistoricalTimeSeries latest = getUnderlying().getTimeSeries(objectId, VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofLatestPoint());
+      if (entry._uniqueId.equals(latest.getUniqueId())) {
+        s_logger.debug("Using existing series for {}", objectId);
+        _existing.remove(objectId);
+        clearChange(objectId, change);
+        return entry;
+      }
+    }
+    s_logger.debug("Discarding stale series for {}", objectId);
+    replace(_existing, objectId, entry, null);
+    return null;
+  }
+
+  //-------------------------------------------------------------------------
+  private static Instant readInstant(final ByteBuffer buffer) {
+    final long seconds = buffer.getLong();
+    final int nanos = buffer.getInt();
+    return (seconds == Long.MIN_VALUE) ? null : Instant.ofEpochSecond(seconds, nanos);
+  }
+
+  private static void writeInstant(final ByteBuffer buffer, final Instant instant) {
+    if (instant == null) {
+      buffer.putLong(Long.MIN_VALUE).putInt(0);
+    } else {
+      buffer.putLong(instant.getEpochSecond()).putInt(instant.getNano());
+    }
+  }
+
+  private static String readString(final ByteBuffer buffer) {
+    final byte[] data = new byte[buffer.getInt()];
+    buffer.get(data);
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+  private File getFile(final int region) {
+    return new File(_directory, REGION_PREFIX + region + FILE_SUFFIX);
+  }
+
+  private static int getRegionNumber(final File file) {
+    final String name = file.getName();
+    if (name.startsWith(REGION_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+      try {
+        return Integer.parseInt(name.substring(REGION_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+      } catch (NumberFormatException e) {
+        // Not a region
+      }
+    }
+    return -1;
+  }
+
+  private static void delete(final File file) {
+    if (!file.delete()) {
+      s_logger.warn("Couldn't delete time-series file {}", file);
+    }
+  }
+
+  /**
+   * Scans the regions left by a previous process, rebuilding the index of their series. The regions are scanned in the order they were created so
+   * that the last full segment of each series, and the segments after it, are found. Records are never added to these regions.
+   */
+  private void scanRegions() {
+    final File[] files = _directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    final Map<Integer, File> regionFiles = new TreeMap<Integer, File>();
+    for (File file : files) {
+      if (file.getName().endsWith(FILE_SUFFIX)) {
+        final int region = getRegionNumber(file);
+        if (region >= 0) {
+          regionFiles.put(region, file);
+        } else {
+          // A file from an earlier format
+          delete(file);
+        }
+      }
+    }
+    final Map<ObjectId, Entry> entries = new HashMap<ObjectId, Entry>();
+    for (Map.Entry<Integer, File> regionFile : regionFiles.entrySet()) {
+      _nextRegion = regionFile.getKey() + 1;
+      final File file = regionFile.getValue();
+      try {
+        final MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+          buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if ((buffer.limit() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != FORMAT_VERSION)) {
+          throw new IOException("Invalid header");
+        }
+        final Region region = new Region(file, buffer, buffer.capacity());
+        scanRecords(region, entries);
+        _regions.add(region);
+      } catch (IOException | RuntimeException e) {
+        s_logger.warn("Couldn't read time-series region {} - {}", file, e.getMessage());
+        delete(file);
+      }
+    }
+    for (Map.Entry<ObjectId, Entry> entry : entries.entrySet()) {
+      _existing.put(entry.getKey(), entry.getValue());
+      for (Record record : entry.getValue()._records) {
+        record._region._series.add(entry.getKey());
+        record._region._liveBytes.addAndGet(record._length);
+      }
+    }
+    for (Region region : new ArrayList<Region>(_regions)) {
+      releaseIfUnused(region);
+    }
+    s_logger.info("Found {} time-series in {} regions in {}", _existing.size(), _regions.size(), _directory);
+  }
+
+  /**
+   * Walks the records of a region. A record without its marker, for example from a write interrupted by a crash, ends the region.
+   */
+  private static void scanRecords(final Region region, final Map<ObjectId, Entry> entries) {
+    final ByteBuffer walk = region._buffer.duplicate();
+    int offset = HEADER_SIZE;
+    while ((offset <= walk.limit() - 9) && (walk.getInt(offset) == RECORD_MAGIC)) {
+      final int length = walk.getInt(offset + 4);
+      if ((length <= 9) || (length > walk.limit() - offset)) {
+        break;
+      }
+      final byte kind;
+      final ObjectId objectId;
+      final UniqueId uniqueId;
+      final Instant versionInstant;
+      final Instant correctionInstant;
+      try {
+        walk.position(offset + 8);
+        kind = walk.get();
+        objectId = ObjectId.parse(readString(walk));
+        walk.position(walk.position() + 8);
+        uniqueId = UniqueId.parse(readString(walk));
+        versionInstant = readInstant(walk);
+        correctionInstant = readInstant(walk);
+      } catch (RuntimeException e) {
+        s_logger.warn("Invalid record at {} in time-series region {} - {}", offset, region._file, e.getMessage());
+        break;
+      }
+      final Record record = new Record(region, offset, length);
+      final Entry previous = entries.get(objectId);
+      if (kind == FULL) {
+        entries.put(objectId, new Entry(new Record[] {record }, uniqueId, versionInstant, correctionInstant));
+      } else if (previous != null) {
+        final Record[] records = Arrays.copyOf(previous._records, previous._records.length + 1);
+        records[previous._records.length] = record;
+        entries.put(objectId, new Entry(records, uniqueId, versionInstant, correctionInstant));
+      }
+      offset += length;
+    }
+  }
+
+  /**
+   * Reserves space for a record at the end of the current region, starting a new region if there is not enough space. A record too large for a
+   * region is given a region of its own.
+   *
+   * @param length the length of the record
+   * @return the record, not null
+   */
+  private Record allocate(final int length) {
+    synchronized (_allocationLock) {
+      if ((_current == null) || (_current.remaining() < length)) {
+        final Region previous = _current;
+        final Region region = createRegion(Math.max(_regionSize, HEADER_SIZE + length));
+        if (HEADER_SIZE + length > _regionSize) {
+          // Later records go to a newer region than this one so the regions stay in the order their records were written
+          _current = null;
+        } else {
+          _current = region;
+        }
+        if (previous != null) {
+          releaseIfUnusedLocked(previous);
+        }
+        _reclaim.set(true);
+        region._writePosition += length;
+        region._writers.incrementAndGet();
+        return new Record(region, HEADER_SIZE, length);
+      }
+      final int offset = _current._writePosition;
+      _current._writePosition += length;
+      _current._writers.incrementAndGet();
+      return new Record(_current, offset, length);
+    }
+  }
+
+  private Region createRegion(final int size) {
+    final File file = getFile(_nextRegion++);
+    try {
+      final MappedByteBuffer buffer;
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(0);
+        raf.setLength(size);
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, FORMAT_VERSION);
+      final Region region = new Region(file, buffer, HEADER_SIZE);
+      _regions.add(region);
+      s_logger.debug("Created time-series region {}", file);
+      return region;
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't create time-series region " + file, e);
+    }
+  }
+
+  private void releaseIfUnused(final Region region) {
+    synchronized (_allocationLock) {
+      releaseIfUnusedLocked(region);
+    }
+  }
+
+  /**
+   * Deletes a region once none of its records are, or are about to become, part of a series. The caller must hold the allocation lock. The
+   * mapping is not released explicitly as a reader may still hold an entry that has since been replaced; it is released when collected.
+   */
+  private void releaseIfUnusedLocked(final Region region) {
+    // Read the writers first; a writer publishes its record to the live bytes before it stops counting as a writer
+    if ((region != _current) && (region._writers.get() == 0) && (region._liveBytes.get() == 0) && _regions.remove(region)) {
+      s_logger.debug("Releasing time-series region {}", region._file);
+      delete(region._file);
+    }
+  }
+
+  /**
+   * Replaces the entry for a series, removing the records of the old entry that are not part of the new one from the live data of their regions.
+   * The records of the new entry were counted when they were written.
+   *
+   * @param entries the map holding the entry, not null
+   * @param objectId the data points object identifier, not null
+   * @param oldEntry the entry being replaced, null if none
+   * @param newEntry the new entry, null to remove the series
+   */
+  private void replace(final ConcurrentMap<ObjectId, Entry> entries, final ObjectId objectId, final Entry oldEntry, final Entry newEntry) {
+    if (newEntry != null) {
+      entries.put(objectId, newEntry);
+    } else {
+      entries.remove(objectId, oldEntry);
+    }
+    if (oldEntry != null) {
+      for (Record record : oldEntry._records) {
+        if ((newEntry == null) || !newEntry.contains(record)) {
+          final Region region = record._region;
+          if ((newEntry == null) || !newEntry.references(region)) {
+            region._series.remove(objectId);
+          }
+          if (region._liveBytes.addAndGet(-record._length) == 0) {
+            releaseIfUnused(region);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a segment of a series as a new record.
+   *
+   * @param objectId the data points object identifier, not null
+   * @param uniqueId the data points unique identifier, not null
+   * @param versionInstant the version instant of the data points, null if not known
+   * @param correctionInstant the correction instant of the data points, null if not known
+   * @param segment the segment to write, not null
+   * @param previous the existing entry to append the segment to, null to write the segment as the whole series
+   * @return the new entry, not null
+   */
+  private Entry write(final ObjectId objectId, final UniqueId uniqueId, final Instant versionInstant, final Instant correctionInstant,
+      final Segment segment, final Entry previous) {
+    final byte[] oid = objectId.toString().getBytes(StandardCharsets.UTF_8);
+    final byte[] uid = uniqueId.toString().getBytes(StandardCharsets.UTF_8);
+    final int count = segment._dates.limit();
+    final Record record = allocate(8 + 1 + 4 + oid.length + 8 + 4 + uid.length + 24 + 4 + count * 12);
+    try {
+      final ByteBuffer buffer = record._region._buffer.duplicate();
+      buffer.position(record._offset + 4);
+      buffer.putInt(record._length);
+      buffer.put((previous == null) ? FULL : PARTIAL);
+      buffer.putInt(oid.length).put(oid);
+      buffer.putInt(segment._fromDate).putInt(segment._toDate);
+      buffer.putInt(uid.length).put(uid);
+      writeInstant(buffer, versionInstant);
+      writeInstant(buffer, correctionInstant);
+      buffer.putInt(count);
+      buffer.asIntBuffer().put(segment._dates.duplicate());
+      buffer.position(buffer.position() + count * 4);
+      buffer.asDoubleBuffer().put(segment._values.duplicate());
+      // The marker goes last so that a record interrupted by a crash is not found by a later scan
+      buffer.putInt(record._offset, RECORD_MAGIC);
+      final Record[] records;
+      if (previous == null) {
+        records = new Record[] {record };
+      } else {
+        records = Arrays.copyOf(previous._records, previous._records.length + 1);
+        records[previous._records.length] = record;
+      }
+      // Count the record as live before it stops counting as a writer so that the region can't be released in between
+      record._region._series.add(objectId);
+      record._region._liveBytes.addAndGet(record._length);
+      return new Entry(records, uniqueId, versionInstant, correctionInstant);
+    } finally {
+      record._region._writers.decrementAndGet();
+    }
+  }
+
+  /**
+   * Moves the series out of regions that are mostly superseded so that the regions can be deleted. This is done after a new region has been started,
+   * outside of the lock of the series that caused it.
+   */
+  private void reclaimIfNeeded() {
+    if (!_reclaim.compareAndSet(true, false)) {
+      return;
+    }
+    final List<Region> regions;
+    synchronized (_allocationLock) {
+      regions = new ArrayList<Region>(_regions.size());
+      for (Region region : _regions) {
+        if ((region != _current) && (region._writers.get() == 0) && (region._liveBytes.get() < region._buffer.capacity() / RECLAIM_DIVISOR)) {
+          regions.add(region);
+        }
+      }
+    }
+    for (Region region : regions) {
+      s_logger.debug("Reclaiming time-series region {}", region._file);
+      for (ObjectId objectId : new ArrayList<ObjectId>(region._series)) {
+        try {
+          relocate(objectId, region);
+        } catch (RuntimeException e) {
+          s_logger.warn("Couldn't move time-series {} - {}", objectId, e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void relocate(final ObjectId objectId, final Region region) {
+    synchronized (getLock(objectId)) {
+      ConcurrentMap<ObjectId, Entry> entries = _entries;
+      Entry entry = entries.get(objectId);
+      if (entry == null) {
+        entries = _existing;
+        entry = entries.get(objectId);
+      }
+      if ((entry == null) || !entry.references(region)) {
+        return;
+      }
+      replace(entries, objectId, entry, write(objectId, entry._uniqueId, entry._versionInstant, entry._correctionInstant, readAll(entry), null));
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns the index of the first date in the column not before the given date.
+   */
+  private static int lowerBound(final IntBuffer dates, final int date) {
+    int low = 0;
+    int high = dates.limit();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (dates.get(mid) < date) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Reads a segment, returning views of its columns on the mapped buffer.
+   */
+  private static Segment readSegment(final Record record) {
+    final ByteBuffer buffer = record._region._buffer.duplicate();
+    buffer.position(record._offset + 9);
+    final int objectIdLength = buffer.getInt();
+    buffer.position(buffer.position() + objectIdLength);
+    final int fromDate = buffer.getInt();
+    final int toDate = buffer.getInt();
+    final int uniqueIdLength = buffer.getInt();
+    buffer.position(buffer.position() + uniqueIdLength + 24);
+    final int count = buffer.getInt();
+    final IntBuffer dates = ((ByteBuffer) buffer.slice().limit(count * 4)).asIntBuffer();
+    buffer.position(buffer.position() + count * 4);
+    final DoubleBuffer values = ((ByteBuffer) buffer.slice().limit(count * 8)).asDoubleBuffer();
+    return new Segment(fromDate, toDate, dates, values);
+  }
+
+  /**
+   * Replaces the points of a series within the range of a segment with the points of the segment.
+   */
+  private static Segment fold(final Segment series, final Segment segment) {
+    final int length = series._dates.limit();
+    final int count = segment._dates.limit();
+    final int lo = lowerBound(series._dates, segment._fromDate);
+    final int hi = (segment._toDate == Integer.MAX_VALUE) ? length : lowerBound(series._dates, segment._toDate + 1);
+    final int newLength = lo + count + (length - hi);
+    final int[] dates = new int[newLength];
+    final double[] values = new double[newLength];
+    ((IntBuffer) series._dates.duplicate().limit(lo)).get(dates, 0, lo);
+    ((DoubleBuffer) series._values.duplicate().limit(lo)).get(values, 0, lo);
+    segment._dates.duplicate().get(dates, lo, count);
+    segment._values.duplicate().get(values, lo, count);
+    ((IntBuffer) series._dates.duplicate().position(hi)).get(dates, lo + count, length - hi);
+    ((DoubleBuffer) series._values.duplicate().position(hi)).get(values, lo + count, length - hi);
+    return new Segment(Integer.MIN_VALUE, Integer.MAX_VALUE, IntBuffer.wrap(dates), DoubleBuffer.wrap(values));
+  }
+
+  /**
+   * Reads all the points of a time-series, folding its segments together if there is more than one.
+   */
+  private static Segment readAll(final Entry entry) {
+    Segment series = readSegment(entry._records[0]);
+    for (int i = 1; i < entry._records.length; i++) {
+      series = fold(series, readSegment(entry._records[i]));
+    }
+    return series;
+  }
+
+  /**
+   * Reads the points of a time-series from its segments, applying a filter.
+   */
+  private static LocalDateDoubleTimeSeries read(final Entry entry, final HistoricalTimeSeriesGetFilter filter) {
+    final Segment series = readAll(entry);
+    int start = 0;
+    int end = series._dates.limit();
+    if (filter.getEarliestDate() != null) {
+      start = lowerBound(series._dates, LocalDateToIntConverter.convertToInt(filter.getEarliestDate()));
+    }
+    if (filter.getLatestDate() != null) {
+      end = lowerBound(series._dates, LocalDateToIntConverter.convertToInt(filter.getLatestDate().plusDays(1)));
+    }
+    if (end < start) {
+      end = start;
+    }
+    final Integer maxPoints = filter.getMaxPoints();
+    if ((maxPoints != null) && (Math.abs(maxPoints) < end - start)) {
+      if (maxPoints >= 0) {
+        end = start + maxPoints;
+      } else {
+        start = end + maxPoints;
+      }
+    }
+    final int[] dates = new int[end - start];
+    final double[] values = new double[end - start];
+    ((IntBuffer) series._dates.duplicate().position(start)).get(dates);
+    ((DoubleBuffer) series._values.duplicate().position(start)).get(values);
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+  }
+
+  private static ManageableHistoricalTimeSeries toTimeSeries(final Entry entry, final HistoricalTimeSeriesGetFilter filter) {
+    final ManageableHistoricalTimeSeries result = new ManageableHistoricalTimeSeries();
+    result.setUniqueId(entry._uniqueId);
+    result.setVersionInstant(entry._versionInstant);
+    result.setCorrectionInstant(entry._correctionInstant);
+    result.setTimeSeries(read(entry, filter));
+    return result;
+  }
+
+  /**
+   * Brings the segments of a time-series up to date after a change made through this master. The changed date range is fetched from the underlying
+   * master and appended as a new segment, replacing any existing points in that range. This is only used if the series was current before the
+   * change; otherwise the whole series is reloaded when next requested.
+   *
+   * @param objectId the data points object identifier, not null
+   * @param append true if points were added after the last one, false to use the given range
+   * @param fromDate the first date of the changed range, null for no limit
+   * @param toDate the last date of the changed range, null for no limit
+   */
+  private void refresh(final ObjectId objectId, final boolean append, final LocalDate fromDate, final LocalDate toDate) {
+    try {
+      refreshEntry(objectId, append, fromDate, toDate);
+    } finally {
+      reclaimIfNeeded();
+    }
+  }
+
+  private void refreshEntry(final ObjectId objectId, final boolean append, LocalDate fromDate, final LocalDate toDate) {
+    synchronized (getLock(objectId)) {
+      final Entry entry = _entries.get(objectId);
+      if (entry == null) {
+        return;
+      }
+      final Long change = _changes.get(objectId);
+      try {
+        Segment existing = null;
+        if (append) {
+          existing = readAll(entry);
+          final int length = existing._dates.limit();
+          fromDate = (length > 0) ? LocalDateToIntConverter.convertToLocalDate(existing._dates.get(length - 1)).plusDays(1) : null;
+        }
+        final ManageableHistoricalTimeSeries series = getUnderlying().getTimeSeries(objectId, VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofRange(fromDate, toDate));
+        final int[] dates = series.getTimeSeries().timesArrayFast();
+        final double[] values = series.getTimeSeries().valuesArrayFast();
+        final Segment segment = new Segment((fromDate != null) ? LocalDateToIntConverter.convertToInt(fromDate) : Integer.MIN_VALUE,
+            (toDate != null) ? LocalDateToIntConverter.convertToInt(toDate) : Integer.MAX_VALUE, IntBuffer.wrap(dates), DoubleBuffer.wrap(values));
+        final Entry newEntry;
+        if (entry._records.length + 1 >= MAX_SEGMENTS) {
+          // Compact into a single segment
+          final Segment compacted = fold((existing != null) ? existing : readAll(entry), segment);
+          newEntry = write(objectId, series.getUniqueId(), series.getVersionInstant(), series.getCorrectionInstant(), compacted, null);
+        } else {
+          newEntry = write(objectId, series.getUniqueId(), series.getVersionInstant(), series.getCorrectionInstant(), segment, entry);
+        }
+        replace(_entries, objectId, entry, newEntry);
+        clearChange(objectId, change);
+      } catch (RuntimeException e) {
+        s_logger.warn("Couldn't refresh time-series {} - {}", objectId, e.getMessage());
+        replace(_entries, objectId, entry, null);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(final UniqueId uniqueId) {
+    return getTimeSeries(uniqueId, HistoricalTimeSeriesGetFilter.ofRange(null, null));
+  }
+
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(final UniqueId uniqueId, final HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.notNull(uniqueId, "uniqueId");
+    ArgumentChecker.notNull(filter, "filter");
+    if (uniqueId.isLatest()) {
+      return toTimeSeries(getEntry(uniqueId.getObjectId()), filter);
+    }
+    final Entry entry = _entries.get(uniqueId.getObjectId());
+    if ((entry != null) && uniqueId.equals(entry._uniqueId)) {
+      return toTimeSeries(entry, filter);
+    }
+    return getUnderlying().getTimeSeries(uniqueId, filter);
+  }
+
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(final ObjectIdentifiable objectId, final VersionCorrection versionCorrection) {
+    return getTimeSeries(objectId, versionCorrection, HistoricalTimeSeriesGetFilter.ofRange(null, null));
+  }
+
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(final ObjectIdentifiable objectId, final VersionCorrection versionCorrection, final HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+    if (VersionCorrection.LATEST.equals(versionCorrection)) {
+      return toTimeSeries(getEntry(objectId.getObjectId()), filter);
+    }
+    return getUnderlying().getTimeSeries(objectId, versionCorrection, filter);
+  }
+
+  @Override
+  public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
+    final boolean current = isCurrent(objectId.getObjectId());
+    final UniqueId uniqueId = getUnderlying().updateTimeSeriesDataPoints(objectId, series);
+    if (current) {
+      refresh(objectId.getObjectId(), true, null, null);
+    }
+    return uniqueId;
+  }
+
+  @Override
+  public UniqueId correctTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
+    final boolean current = isCurrent(objectId.getObjectId());
+    final UniqueId uniqueId = getUnderlying().correctTimeSeriesDataPoints(objectId, series);
+    if (current && !series.isEmpty()) {
+      refresh(objectId.getObjectId(), false, series.getEarliestTime(), series.getLatestTime());
+    }
+    return uniqueId;
+  }
+
+  @Override
+  public UniqueId removeTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    final boolean current = isCurrent(objectId.getObjectId());
+    final UniqueId uniqueId = getUnderlying().removeTimeSeriesDataPoints(objectId, fromDateInclusive, toDateInclusive);
+    if (current) {
+      refresh(objectId.getObjectId(), false, fromDateInclusive, toDateInclusive);
+    }
+    return uniqueId;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public HistoricalTimeSeriesInfoMetaDataResult metaData(final HistoricalTimeSeriesInfoMetaDataRequest request) {
+    return getUnderlying().metaData(request);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoSearchResult search(final HistoricalTimeSeriesInfoSearchRequest request) {
+    return getUnderlying().search(request);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoHistoryResult history(final HistoricalTimeSeriesInfoHistoryRequest request) {
+    return getUnderlying().history(request);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoDocument get(final UniqueId uniqueId) {
+    return getUnderlying().get(uniqueId);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoDocument get(final ObjectIdentifiable objectId, final VersionCorrection versionCorrection) {
+    return getUnderlying().get(objectId, versionCorrection);
+  }
+
+  @Override
+  public Map<UniqueId, HistoricalTimeSeriesInfoDocument> get(final Collection<UniqueId> uniqueIds) {
+    return getUnderlying().get(uniqueIds);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoDocument add(final HistoricalTimeSeriesInfoDocument document) {
+    return getUnderlying().add(document);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoDocument update(final HistoricalTimeSeriesInfoDocument document) {
+    return getUnderlying().update(document);
+  }
+
+  @Override
+  public void remove(final ObjectIdentifiable oid) {
+    getUnderlying().remove(oid);
+  }
+
+  @Override
+  public HistoricalTimeSeriesInfoDocument correct(final HistoricalTimeSeriesInfoDocument document) {
+    return getUnderlying().correct(document);
+  }
+
+  @Override
+  public List<UniqueId> replaceVersion(final UniqueId uniqueId, final List<HistoricalTimeSeriesInfoDocument> replacementDocuments) {
+    return getUnderlying().replaceVersion(uniqueId, replacementDocuments);
+  }
+
+  @Override
+  public List<UniqueId> replaceAllVersions(final ObjectIdentifiable objectId, final List<HistoricalTimeSeriesInfoDocument> replacementDocuments) {
+    return getUnderlying().replaceAllVersions(objectId, replacementDocuments);
+  }
+
+  @Override
+  public List<UniqueId> replaceVersions(final ObjectIdentifiable objectId, final List<HistoricalTimeSeriesInfoDocument> replacementDocuments) {
+    return getUnderlying().replaceVersions(objectId, replacementDocuments);
+  }
+
+  @Override
+  public UniqueId replaceVersion(final HistoricalTimeSeriesInfoDocument replacementDocument) {
+    return getUnderlying().replaceVersion(replacementDocument);
+  }
+
+  @Override
+  public void removeVersion(final UniqueId uniqueId) {
+    getUnderlying().removeVersion(uniqueId);
+  }
+
+  @Override
+  public UniqueId addVersion(final ObjectIdentifiable objectId, final HistoricalTimeSeriesInfoDocument documentToAdd) {
+    return getUnderlying().addVersion(objectId, documentToAdd);
+  }
+
+  @Override
+  public ChangeManager changeManager() {
+    return getUnderlying().changeManager();
+  }
+
+}
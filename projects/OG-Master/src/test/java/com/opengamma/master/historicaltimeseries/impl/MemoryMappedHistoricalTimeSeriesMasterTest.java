@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.master.historicaltimeseries.impl;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalIdBundleWithDates;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.ObjectIdSupplier;
+import com.opengamma.id.ObjectIdentifiable;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesBuilder;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test {@link MemoryMappedHistoricalTimeSeriesMaster}.
+ */
+@Test(groups = TestGroup.UNIT, singleThreaded = true)
+public class MemoryMappedHistoricalTimeSeriesMasterTest {
+
+  private static final LocalDate START = LocalDate.of(2010, 1, 1);
+
+  private File _directory;
+  private InMemoryHistoricalTimeSeriesMaster _underlying;
+  private MemoryMappedHistoricalTimeSeriesMaster _master;
+  private ObjectId _objectId;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    _directory = Files.createTempDirectory("MemoryMappedHistoricalTimeSeriesMasterTest").toFile();
+    _underlying = new InMemoryHistoricalTimeSeriesMaster(new ObjectIdSupplier("Test"));
+    _objectId = addTimeSeries(_underlying);
+    _master = new MemoryMappedHistoricalTimeSeriesMaster(_underlying, _directory);
+  }
+
+  private static ObjectId addTimeSeries(final InMemoryHistoricalTimeSeriesMaster master) {
+    final ManageableHistoricalTimeSeriesInfo info = new ManageableHistoricalTimeSeriesInfo();
+    info.setName("Name");
+    info.setDataField("DF");
+    info.setDataSource("DS");
+    info.setDataProvider("DP");
+    info.setObservationTime("OT");
+    info.setExternalIdBundle(ExternalIdBundleWithDates.of(ExternalIdBundle.of(ExternalId.of("A", "B"))));
+    HistoricalTimeSeriesInfoDocument doc = new HistoricalTimeSeriesInfoDocument();
+    doc.setInfo(info);
+    doc = master.add(doc);
+    final ObjectId objectId = doc.getInfo().getTimeSeriesObjectId();
+    master.updateTimeSeriesDataPoints(objectId, series(START, 1000, 0));
+    return objectId;
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    FileUtils.deleteQuietly(_directory);
+  }
+
+  private static LocalDateDoubleTimeSeries series(final LocalDate start, final int count, final double offset) {
+    final LocalDateDoubleTimeSeriesBuilder builder = ImmutableLocalDateDoubleTimeSeries.builder();
+    for (int i = 0; i < count; i++) {
+      builder.put(start.plusDays(i), offset + i);
+    }
+    return builder.build();
+  }
+
+  private void assertMatchesUnderlying(final HistoricalTimeSeriesGetFilter filter) {
+    assertEquals(_underlying.getTimeSeries(_objectId, VersionCorrection.LATEST, filter).getTimeSeries(),
+        _master.getTimeSeries(_objectId, VersionCorrection.LATEST, filter).getTimeSeries());
+  }
+
+  private void assertMatchesUnderlying() {
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofAll());
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofRange(START.plusDays(100), START.plusDays(200)));
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofRange(START.plusDays(100), null, 10));
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofRange(null, START.plusDays(500), -10));
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofLatestPoint());
+    assertMatchesUnderlying(HistoricalTimeSeriesGetFilter.ofEarliestPoint());
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_get() {
+    assertMatchesUnderlying();
+    assertEquals(1, _directory.listFiles().length);
+    assertEquals(_underlying.getTimeSeries(_objectId.atLatestVersion()).getTimeSeries(), _master.getTimeSeries(_objectId.atLatestVersion()).getTimeSeries());
+  }
+
+  public void test_existingFile() {
+    assertMatchesUnderlying();
+    // The in-memory master doesn't version its identifiers so the series must be reloaded
+    final MemoryMappedHistoricalTimeSeriesMaster master = new MemoryMappedHistoricalTimeSeriesMaster(_underlying, _directory);
+    assertEquals(_underlying.getTimeSeries(_objectId, VersionCorrection.LATEST).getTimeSeries(), master.getTimeSeries(_objectId, VersionCorrection.LATEST).getTimeSeries());
+  }
+
+  public void test_existingFileReused() {
+    final AtomicInteger loads = new AtomicInteger();
+    // Underlying master that versions its identifiers, counting the fetches of more than the latest point
+    final InMemoryHistoricalTimeSeriesMaster underlying = new InMemoryHistoricalTimeSeriesMaster(new ObjectIdSupplier("Test")) {
+      @Override
+      public ManageableHistoricalTimeSeries getTimeSeries(final ObjectIdentifiable objectKey, final VersionCorrection versionCorrection, final HistoricalTimeSeriesGetFilter filter) {
+        final ManageableHistoricalTimeSeries series = super.getTimeSeries(objectKey, versionCorrection, filter);
+        series.setUniqueId(objectKey.getObjectId().atVersion("1"));
+        if (filter.getMaxPoints() == null) {
+          loads.incrementAndGet();
+        }
+        return series;
+      }
+    };
+    final ObjectId objectId = addTimeSeries(underlying);
+    loads.set(0);
+    assertEquals(1, new MemoryMappedHistoricalTimeSeriesMaster(underlying, _directory).populate());
+    assertEquals(1, loads.get());
+    loads.set(0);
+    final MemoryMappedHistoricalTimeSeriesMaster master = new MemoryMappedHistoricalTimeSeriesMaster(underlying, _directory);
+    assertEquals(1, master.populate());
+    assertEquals(0, loads.get());
+    assertEquals(1, master.getRegionCount());
+    assertEquals(objectId.atVersion("1"), master.getTimeSeries(objectId, VersionCorrection.LATEST).getUniqueId());
+    assertEquals(series(START, 1000, 0), master.getTimeSeries(objectId, VersionCorrection.LATEST).getTimeSeries());
+    assertEquals(0, loads.get());
+  }
+
+  public void test_update() {
+    assertMatchesUnderlying();
+    _master.updateTimeSeriesDataPoints(_objectId, series(START.plusDays(1000), 10, 1000));
+    assertMatchesUnderlying();
+  }
+
+  public void test_correct() {
+    assertMatchesUnderlying();
+    _master.correctTimeSeriesDataPoints(_objectId, series(START.plusDays(150), 20, -1));
+    assertMatchesUnderlying();
+  }
+
+  public void test_remove() {
+    assertMatchesUnderlying();
+    _master.removeTimeSeriesDataPoints(_objectId, START.plusDays(190), START.plusDays(210));
+    assertMatchesUnderlying();
+    _master.removeTimeSeriesDataPoints(_objectId, null, START.plusDays(10));
+    assertMatchesUnderlying();
+  }
+
+  public void test_compaction() {
+    assertMatchesUnderlying();
+    for (int i = 0; i < 40; i++) {
+      _master.updateTimeSeriesDataPoints(_objectId, series(START.plusDays(1000 + i), 1, i));
+      _master.correctTimeSeriesDataPoints(_objectId, series(START.plusDays(i * 10), 3, -i));
+    }
+    assertMatchesUnderlying();
+  }
+
+  public void test_regions() {
+    _master = new MemoryMappedHistoricalTimeSeriesMaster(_underlying, _directory, 32 * 1024);
+    assertMatchesUnderlying();
+    for (int i = 0; i < 100; i++) {
+      _master.updateTimeSeriesDataPoints(_objectId, series(START.plusDays(1000 + i), 1, i));
+      _master.correctTimeSeriesDataPoints(_objectId, series(START.plusDays(i * 5), 50, -i));
+    }
+    assertMatchesUnderlying();
+    // Superseded regions are deleted
+    assertTrue(_master.getRegionCount() <= 3);
+    assertEquals(_master.getRegionCount(), _directory.listFiles().length);
+  }
+
+  public void test_underlyingChange() {
+    assertMatchesUnderlying();
+    _underlying.updateTimeSeriesDataPoints(_objectId, series(START.plusDays(1000), 10, 1000));
+    assertMatchesUnderlying();
+    _underlying.correctTimeSeriesDataPoints(_objectId, series(START, 10, -1));
+    assertMatchesUnderlying();
+  }
+
+  public void test_populate() {
+    assertEquals(1, _master.populate());
+    assertTrue(_directory.listFiles().length == 1);
+    assertMatchesUnderlying();
+  }
+
+}
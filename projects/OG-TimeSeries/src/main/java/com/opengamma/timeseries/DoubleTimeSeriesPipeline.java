@@ -0,0 +1,311 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * A chain of element-wise and windowed operations applied to the values of a time-series in place.
+ * <p>
+ * A pipeline is applied to a primitive array of values ordered by time and overwrites it with the result. Operations
+ * such as returns or rolling windows produce fewer values than they consume; the results are always packed at the start
+ * of the array and correspond to the last values of the input, so the time of result {@code i} is the time of input
+ * {@code i + getLag()}. Each operation is a single loop over the array; adjacent scaling and shifting operations are
+ * combined into one loop. No memory is allocated when the pipeline is applied.
+ * <p>
+ * This class is immutable and thread-safe. Methods that add an operation return a new instance.
+ */
+public final class DoubleTimeSeriesPipeline {
+
+  /**
+   * The pipeline with no operations.
+   */
+  public static final DoubleTimeSeriesPipeline IDENTITY = new DoubleTimeSeriesPipeline(new Step[0]);
+
+  private static final int AFFINE = 0;
+  private static final int DIFFERENCE = 1;
+  private static final int RELATIVE_RETURN = 2;
+  private static final int LOG_RETURN = 3;
+  private static final int ROLLING_SUM = 4;
+  private static final int CUMULATIVE_SUM = 5;
+
+  /**
+   * A single operation. The affine operation is {@code a * x + b}; the rolling sum is scaled by {@code a}.
+   */
+  private static final class Step {
+
+    private final int _op;
+    private final double _a;
+    private final double _b;
+    private final int _window;
+
+    private Step(final int op, final double a, final double b, final int window) {
+      _op = op;
+      _a = a;
+      _b = b;
+      _window = window;
+    }
+
+  }
+
+  /**
+   * The operations, in order.
+   */
+  private final Step[] _steps;
+  /**
+   * The number of values consumed without producing a result.
+   */
+  private final int _lag;
+
+  private DoubleTimeSeriesPipeline(final Step[] steps) {
+    _steps = steps;
+    int lag = 0;
+    for (Step step : steps) {
+      lag += lag(step);
+    }
+    _lag = lag;
+  }
+
+  private static int lag(final Step step) {
+    switch (step._op) {
+      case DIFFERENCE:
+      case RELATIVE_RETURN:
+      case LOG_RETURN:
+        return 1;
+      case ROLLING_SUM:
+        return step._window - 1;
+      default:
+        return 0;
+    }
+  }
+
+  private DoubleTimeSeriesPipeline with(final Step step) {
+    final int length = _steps.length;
+    if ((step._op == AFFINE) && (length > 0) && (_steps[length - 1]._op == AFFINE)) {
+      // Fuse with the previous affine step: a2 * (a1 * x + b1) + b2
+      final Step previous = _steps[length - 1];
+      final Step[] steps = Arrays.copyOf(_steps, length);
+      steps[length - 1] = new Step(AFFINE, step._a * previous._a, step._a * previous._b + step._b, 0);
+      return new DoubleTimeSeriesPipeline(steps);
+    }
+    final Step[] steps = Arrays.copyOf(_steps, length + 1);
+    steps[length] = step;
+    return new DoubleTimeSeriesPipeline(steps);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds an operation multiplying each value by a constant.
+   *
+   * @param factor  the factor
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline scale(final double factor) {
+    return with(new Step(AFFINE, factor, 0, 0));
+  }
+
+  /**
+   * Adds an operation adding a constant to each value.
+   *
+   * @param amount  the amount to add
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline add(final double amount) {
+    return with(new Step(AFFINE, 1, amount, 0));
+  }
+
+  /**
+   * Adds an operation replacing each value by its difference from the previous value, {@code x[i] - x[i - 1]}.
+   *
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline differences() {
+    return with(new Step(DIFFERENCE, 0, 0, 0));
+  }
+
+  /**
+   * Adds an operation replacing each value by its return relative to the previous value, {@code x[i] / x[i - 1] - 1}.
+   *
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline relativeReturns() {
+    return with(new Step(RELATIVE_RETURN, 0, 0, 0));
+  }
+
+  /**
+   * Adds an operation replacing each value by its continuously compounded return relative to the previous value,
+   * {@code log(x[i] / x[i - 1])}.
+   *
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline logReturns() {
+    return with(new Step(LOG_RETURN, 0, 0, 0));
+  }
+
+  /**
+   * Adds an operation replacing each value by the sum of it and the preceding values in a window.
+   *
+   * @param window  the number of values in each window, at least one
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline rollingSum(final int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be at least one: " + window);
+    }
+    return with(new Step(ROLLING_SUM, 1, 0, window));
+  }
+
+  /**
+   * Adds an operation replacing each value by the mean of it and the preceding values in a window.
+   *
+   * @param window  the number of values in each window, at least one
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline rollingMean(final int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be at least one: " + window);
+    }
+    return with(new Step(ROLLING_SUM, 1d / window, 0, window));
+  }
+
+  /**
+   * Adds an operation replacing each value by the sum of it and all preceding values.
+   *
+   * @return the extended pipeline, not null
+   */
+  public DoubleTimeSeriesPipeline cumulativeSum() {
+    return with(new Step(CUMULATIVE_SUM, 0, 0, 0));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of input values consumed without producing a result.
+   *
+   * @return the lag, zero or more
+   */
+  public int getLag() {
+    return _lag;
+  }
+
+  /**
+   * Gets the number of results produced from a number of input values.
+   *
+   * @param length  the number of input values
+   * @return the number of results, zero or more
+   */
+  public int getResultLength(final int length) {
+    return Math.max(length - _lag, 0);
+  }
+
+  /**
+   * Applies the pipeline in place.
+   *
+   * @param values  the values, overwritten with the results, not null
+   * @param length  the number of values at the start of the array to use
+   * @return the number of results at the start of the array
+   */
+  public int apply(final double[] values, final int length) {
+    if (length > values.length) {
+      throw new IllegalArgumentException("Length " + length + " exceeds array size " + values.length);
+    }
+    int n = length;
+    for (Step step : _steps) {
+      switch (step._op) {
+        case AFFINE:
+          n = affine(values, n, step._a, step._b);
+          break;
+        case DIFFERENCE:
+          n = difference(values, n);
+          break;
+        case RELATIVE_RETURN:
+          n = relativeReturn(values, n);
+          break;
+        case LOG_RETURN:
+          n = logReturn(values, n);
+          break;
+        case ROLLING_SUM:
+          n = rollingSum(values, n, step._window, step._a);
+          break;
+        case CUMULATIVE_SUM:
+          n = cumulativeSum(values, n);
+          break;
+        default:
+          throw new IllegalStateException();
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Applies the pipeline to a copy of the values.
+   *
+   * @param values  the values, not null
+   * @return the results, not null
+   */
+  public double[] apply(final double[] values) {
+    final double[] results = values.clone();
+    final int n = apply(results, results.length);
+    return (n == results.length) ? results : Arrays.copyOf(results, n);
+  }
+
+  //-------------------------------------------------------------------------
+  private static int affine(final double[] values, final int n, final double a, final double b) {
+    for (int i = 0; i < n; i++) {
+      values[i] = a * values[i] + b;
+    }
+    return n;
+  }
+
+  private static int difference(final double[] values, final int n) {
+    for (int i = 1; i < n; i++) {
+      values[i - 1] = values[i] - values[i - 1];
+    }
+    return Math.max(n - 1, 0);
+  }
+
+  private static int relativeReturn(final double[] values, final int n) {
+    for (int i = 1; i < n; i++) {
+      values[i - 1] = values[i] / values[i - 1] - 1;
+    }
+    return Math.max(n - 1, 0);
+  }
+
+  private static int logReturn(final double[] values, final int n) {
+    for (int i = 1; i < n; i++) {
+      values[i - 1] = Math.log(values[i] / values[i - 1]);
+    }
+    return Math.max(n - 1, 0);
+  }
+
+  private static int rollingSum(final double[] values, final int n, final int window, final double scale) {
+    if (n < window) {
+      return 0;
+    }
+    double sum = 0;
+    for (int i = 0; i < window; i++) {
+      sum += values[i];
+    }
+    final int results = n - window + 1;
+    for (int i = 0; i < results; i++) {
+      final double oldest = values[i];
+      values[i] = sum * scale;
+      if (i + window < n) {
+        sum += values[i + window] - oldest;
+      }
+    }
+    return results;
+  }
+
+  private static int cumulativeSum(final double[] values, final int n) {
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += values[i];
+      values[i] = sum;
+    }
+    return n;
+  }
+
+}
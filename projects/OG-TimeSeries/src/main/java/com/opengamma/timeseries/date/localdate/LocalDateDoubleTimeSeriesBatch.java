@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeriesPipeline;
+
+/**
+ * A set of {@code LocalDateDoubleTimeSeries} aligned onto a shared set of dates.
+ * <p>
+ * The series are aligned once, when the batch is created, and held as primitive arrays. Operations on the batch then
+ * work on all of the series together, applying a {@link DoubleTimeSeriesPipeline} to each series without creating
+ * intermediate time-series. This is much cheaper than applying the same chain of {@code operate} calls to each series
+ * individually when the same processing is applied to many series.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class LocalDateDoubleTimeSeriesBatch {
+
+  /**
+   * The shared dates, in their integer form.
+   */
+  private final int[] _dates;
+  /**
+   * The values of each series, indexed by series and then by date.
+   */
+  private final double[][] _values;
+
+  private LocalDateDoubleTimeSeriesBatch(final int[] dates, final double[][] values) {
+    _dates = dates;
+    _values = values;
+  }
+
+  //-------------------------------------------------------------------------
+  private static int[] times(final LocalDateDoubleTimeSeries series) {
+    if (series instanceof AbstractLocalDateDoubleTimeSeries) {
+      return ((AbstractLocalDateDoubleTimeSeries) series).timesArrayFast0();
+    }
+    return series.timesArrayFast();
+  }
+
+  private static double[] values(final LocalDateDoubleTimeSeries series) {
+    if (series instanceof AbstractLocalDateDoubleTimeSeries) {
+      return ((AbstractLocalDateDoubleTimeSeries) series).valuesArrayFast0();
+    }
+    return series.valuesArrayFast();
+  }
+
+  private static void validate(final List<? extends LocalDateDoubleTimeSeries> series) {
+    if (series == null) {
+      throw new NullPointerException("Series must not be null");
+    }
+    for (LocalDateDoubleTimeSeries s : series) {
+      if (s == null) {
+        throw new NullPointerException("Series must not contain null");
+      }
+    }
+  }
+
+  /**
+   * Aligns the series onto the dates present in all of them.
+   *
+   * @param series  the series to align, not null
+   * @return the batch, not null
+   */
+  public static LocalDateDoubleTimeSeriesBatch intersection(final List<? extends LocalDateDoubleTimeSeries> series) {
+    validate(series);
+    if (series.isEmpty()) {
+      return new LocalDateDoubleTimeSeriesBatch(new int[0], new double[0][]);
+    }
+    int[] dates = times(series.get(0));
+    int length = dates.length;
+    boolean copied = false;
+    for (int i = 1; i < series.size() && length > 0; i++) {
+      final int[] other = times(series.get(i));
+      // The common dates can be written over the previous ones once they're no longer the first series' own array
+      final int[] common = copied ? dates : new int[length];
+      copied = true;
+      int n = 0;
+      int j = 0;
+      int k = 0;
+      while (j < length && k < other.length) {
+        if (dates[j] < other[k]) {
+          j++;
+        } else if (dates[j] > other[k]) {
+          k++;
+        } else {
+          common[n++] = dates[j];
+          j++;
+          k++;
+        }
+      }
+      dates = common;
+      length = n;
+    }
+    dates = Arrays.copyOf(dates, length);
+    return new LocalDateDoubleTimeSeriesBatch(dates, gather(series, dates, Double.NaN));
+  }
+
+  /**
+   * Aligns the series onto the dates present in any of them.
+   *
+   * @param series  the series to align, not null
+   * @param missingValue  the value to use for a series that has no point on a date
+   * @return the batch, not null
+   */
+  public static LocalDateDoubleTimeSeriesBatch union(final List<? extends LocalDateDoubleTimeSeries> series, final double missingValue) {
+    validate(series);
+    int[] dates = new int[0];
+    for (LocalDateDoubleTimeSeries s : series) {
+      final int[] other = times(s);
+      final int[] merged = new int[dates.length + other.length];
+      int n = 0;
+      int j = 0;
+      int k = 0;
+      while (j < dates.length || k < other.length) {
+        if (k == other.length || (j < dates.length && dates[j] < other[k])) {
+          merged[n++] = dates[j++];
+        } else if (j == dates.length || dates[j] > other[k]) {
+          merged[n++] = other[k++];
+        } else {
+          merged[n++] = dates[j];
+          j++;
+          k++;
+        }
+      }
+      dates = (n == merged.length) ? merged : Arrays.copyOf(merged, n);
+    }
+    return new LocalDateDoubleTimeSeriesBatch(dates, gather(series, dates, missingValue));
+  }
+
+  /**
+   * Extracts the values of each series on the given dates.
+   */
+  private static double[][] gather(final List<? extends LocalDateDoubleTimeSeries> series, final int[] dates, final double missingValue) {
+    final double[][] result = new double[series.size()][];
+    for (int i = 0; i < result.length; i++) {
+      final int[] times = times(series.get(i));
+      final double[] values = values(series.get(i));
+      final double[] gathered = new double[dates.length];
+      if (times.length == dates.length) {
+        // Series already on the shared dates
+        System.arraycopy(values, 0, gathered, 0, dates.length);
+      } else {
+        int k = 0;
+        for (int j = 0; j < dates.length; j++) {
+          while (k < times.length && times[k] < dates[j]) {
+            k++;
+          }
+          gathered[j] = (k < times.length && times[k] == dates[j]) ? values[k] : missingValue;
+        }
+      }
+      result[i] = gathered;
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of series in the batch.
+   *
+   * @return the number of series
+   */
+  public int getSeriesCount() {
+    return _values.length;
+  }
+
+  /**
+   * Gets the number of shared dates.
+   *
+   * @return the number of dates
+   */
+  public int getDateCount() {
+    return _dates.length;
+  }
+
+  /**
+   * Gets a shared date.
+   *
+   * @param index  the date index
+   * @return the date, not null
+   */
+  public LocalDate getDate(final int index) {
+    return LocalDateToIntConverter.convertToLocalDate(_dates[index]);
+  }
+
+  /**
+   * Gets one of the series.
+   *
+   * @param index  the series index
+   * @return the series, not null
+   */
+  public LocalDateDoubleTimeSeries getSeries(final int index) {
+    return new ImmutableLocalDateDoubleTimeSeries(_dates, _values[index]);
+  }
+
+  /**
+   * Gets all of the series.
+   *
+   * @return the series, in the order they were supplied, not null
+   */
+  public List<LocalDateDoubleTimeSeries> getSeries() {
+    final List<LocalDateDoubleTimeSeries> result = new ArrayList<LocalDateDoubleTimeSeries>(_values.length);
+    for (int i = 0; i < _values.length; i++) {
+      result.add(getSeries(i));
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Applies a pipeline to every series in the batch.
+   * <p>
+   * The dates of the result are the dates of this batch less the leading dates consumed by the pipeline.
+   *
+   * @param pipeline  the pipeline to apply, not null
+   * @return the transformed batch, not null
+   */
+  public LocalDateDoubleTimeSeriesBatch apply(final DoubleTimeSeriesPipeline pipeline) {
+    final int length = pipeline.getResultLength(_dates.length);
+    final int[] dates = Arrays.copyOfRange(_dates, _dates.length - length, _dates.length);
+    final double[][] values = new double[_values.length][];
+    final double[] scratch = new double[_dates.length];
+    for (int i = 0; i < _values.length; i++) {
+      System.arraycopy(_values[i], 0, scratch, 0, scratch.length);
+      pipeline.apply(scratch, scratch.length);
+      values[i] = Arrays.copyOf(scratch, length);
+    }
+    return new LocalDateDoubleTimeSeriesBatch(dates, values);
+  }
+
+  /**
+   * Calculates the weighted sum of the series on each date.
+   *
+   * @param weights  the weight of each series, not null
+   * @return the weighted sum, not null
+   */
+  public LocalDateDoubleTimeSeries weightedSum(final double[] weights) {
+    return weightedSum(weights, DoubleTimeSeriesPipeline.IDENTITY);
+  }
+
+  /**
+   * Applies a pipeline to every series in the batch and calculates the weighted sum of the results on each date.
+   * <p>
+   * The transformed series are accumulated directly into the sum; they are not held.
+   *
+   * @param weights  the weight of each series, not null
+   * @param pipeline  the pipeline to apply, not null
+   * @return the weighted sum, not null
+   */
+  public LocalDateDoubleTimeSeries weightedSum(final double[] weights, final DoubleTimeSeriesPipeline pipeline) {
+    if (weights.length != _values.length) {
+      throw new IllegalArgumentException("Expected " + _values.length + " weights, got " + weights.length);
+    }
+    final int length = pipeline.getResultLength(_dates.length);
+    final int[] dates = Arrays.copyOfRange(_dates, _dates.length - length, _dates.length);
+    final double[] sum = new double[length];
+    final double[] scratch = (pipeline == DoubleTimeSeriesPipeline.IDENTITY) ? null : new double[_dates.length];
+    for (int i = 0; i < _values.length; i++) {
+      final double weight = weights[i];
+      final double[] values;
+      if (scratch != null) {
+        System.arraycopy(_values[i], 0, scratch, 0, scratch.length);
+        pipeline.apply(scratch, scratch.length);
+        values = scratch;
+      } else {
+        values = _values[i];
+      }
+      for (int j = 0; j < length; j++) {
+        sum[j] += weight * values[j];
+      }
+    }
+    return new ImmutableLocalDateDoubleTimeSeries(dates, sum);
+  }
+
+}
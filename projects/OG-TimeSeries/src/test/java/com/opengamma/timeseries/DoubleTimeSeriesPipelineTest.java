@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test {@link DoubleTimeSeriesPipeline}.
+ */
+@Test(groups = "unit")
+public class DoubleTimeSeriesPipelineTest {
+
+  private static final double[] VALUES = {1, 2, 4, 8, 16 };
+  private static final double EPS = 1e-12;
+
+  private static void assertArrayEquals(final double[] expected, final double[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], EPS);
+    }
+  }
+
+  public void testIdentity() {
+    assertEquals(0, DoubleTimeSeriesPipeline.IDENTITY.getLag());
+    assertArrayEquals(VALUES, DoubleTimeSeriesPipeline.IDENTITY.apply(VALUES));
+  }
+
+  public void testAffineFused() {
+    final DoubleTimeSeriesPipeline pipeline = DoubleTimeSeriesPipeline.IDENTITY.scale(2).add(1).scale(3);
+    assertArrayEquals(new double[] {9, 15, 27, 51, 99 }, pipeline.apply(VALUES));
+  }
+
+  public void testDifferences() {
+    final DoubleTimeSeriesPipeline pipeline = DoubleTimeSeriesPipeline.IDENTITY.differences();
+    assertEquals(1, pipeline.getLag());
+    assertArrayEquals(new double[] {1, 2, 4, 8 }, pipeline.apply(VALUES));
+  }
+
+  public void testReturns() {
+    assertArrayEquals(new double[] {1, 1, 1, 1 }, DoubleTimeSeriesPipeline.IDENTITY.relativeReturns().apply(VALUES));
+    final double log2 = Math.log(2);
+    assertArrayEquals(new double[] {log2, log2, log2, log2 }, DoubleTimeSeriesPipeline.IDENTITY.logReturns().apply(VALUES));
+  }
+
+  public void testRolling() {
+    final DoubleTimeSeriesPipeline sum = DoubleTimeSeriesPipeline.IDENTITY.rollingSum(3);
+    assertEquals(2, sum.getLag());
+    assertArrayEquals(new double[] {7, 14, 28 }, sum.apply(VALUES));
+    assertArrayEquals(new double[] {7d / 3, 14d / 3, 28d / 3 }, DoubleTimeSeriesPipeline.IDENTITY.rollingMean(3).apply(VALUES));
+    assertArrayEquals(new double[0], DoubleTimeSeriesPipeline.IDENTITY.rollingSum(6).apply(VALUES));
+  }
+
+  public void testCumulativeSum() {
+    assertArrayEquals(new double[] {1, 3, 7, 15, 31 }, DoubleTimeSeriesPipeline.IDENTITY.cumulativeSum().apply(VALUES));
+  }
+
+  public void testChain() {
+    final DoubleTimeSeriesPipeline pipeline = DoubleTimeSeriesPipeline.IDENTITY.differences().rollingSum(2).scale(0.5);
+    assertEquals(2, pipeline.getLag());
+    assertEquals(3, pipeline.getResultLength(5));
+    assertEquals(0, pipeline.getResultLength(1));
+    final double[] values = VALUES.clone();
+    assertEquals(3, pipeline.apply(values, values.length));
+    assertEquals(1.5, values[0], EPS);
+    assertEquals(3.0, values[1], EPS);
+    assertEquals(6.0, values[2], EPS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidWindow() {
+    DoubleTimeSeriesPipeline.IDENTITY.rollingMean(0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidLength() {
+    DoubleTimeSeriesPipeline.IDENTITY.apply(new double[2], 3);
+  }
+
+}
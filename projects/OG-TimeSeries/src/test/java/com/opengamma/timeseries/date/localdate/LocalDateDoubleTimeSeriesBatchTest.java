@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeriesPipeline;
+
+/**
+ * Test {@link LocalDateDoubleTimeSeriesBatch}.
+ */
+@Test(groups = "unit")
+public class LocalDateDoubleTimeSeriesBatchTest {
+
+  private static final LocalDate D1 = LocalDate.of(2014, 1, 1);
+  private static final LocalDate D2 = LocalDate.of(2014, 1, 2);
+  private static final LocalDate D3 = LocalDate.of(2014, 1, 3);
+  private static final LocalDate D4 = LocalDate.of(2014, 1, 4);
+  private static final LocalDate D5 = LocalDate.of(2014, 1, 5);
+
+  private static final LocalDateDoubleTimeSeries S1 = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D4 }, new double[] {1, 2, 4, 8 });
+  private static final LocalDateDoubleTimeSeries S2 = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D3, D4, D5 }, new double[] {10, 20, 30, 40 });
+  private static final LocalDateDoubleTimeSeries S3 = ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D4 }, new double[] {5, 6, 7 });
+
+  public void testIntersection() {
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.intersection(Arrays.asList(S1, S2, S3));
+    assertEquals(3, batch.getSeriesCount());
+    assertEquals(2, batch.getDateCount());
+    assertEquals(D2, batch.getDate(0));
+    assertEquals(D4, batch.getDate(1));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D4 }, new double[] {2, 8 }), batch.getSeries(0));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D4 }, new double[] {10, 30 }), batch.getSeries(1));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D4 }, new double[] {6, 7 }), batch.getSeries(2));
+    // The first series must be left untouched
+    assertEquals(4, S1.size());
+    assertEquals(D3, S1.getTimeAtIndex(2));
+  }
+
+  public void testIntersectionDisjoint() {
+    final LocalDateDoubleTimeSeries other = ImmutableLocalDateDoubleTimeSeries.of(D5, 1);
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.intersection(Arrays.asList(S1, other));
+    assertEquals(0, batch.getDateCount());
+    assertTrue(batch.getSeries(1).isEmpty());
+  }
+
+  public void testEmpty() {
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.intersection(Collections.<LocalDateDoubleTimeSeries>emptyList());
+    assertEquals(0, batch.getSeriesCount());
+    assertEquals(0, batch.getDateCount());
+  }
+
+  public void testUnion() {
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.union(Arrays.asList(S1, S2, S3), 0);
+    assertEquals(5, batch.getDateCount());
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D4, D5 }, new double[] {1, 2, 4, 8, 0 }), batch.getSeries(0));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D4, D5 }, new double[] {0, 10, 20, 30, 40 }), batch.getSeries(1));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D1, D2, D3, D4, D5 }, new double[] {5, 6, 0, 7, 0 }), batch.getSeries(2));
+  }
+
+  public void testApply() {
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.intersection(Arrays.asList(S1, S2));
+    final LocalDateDoubleTimeSeriesBatch returns = batch.apply(DoubleTimeSeriesPipeline.IDENTITY.relativeReturns().scale(100));
+    assertEquals(2, returns.getDateCount());
+    assertEquals(D3, returns.getDate(0));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D3, D4 }, new double[] {100, 100 }), returns.getSeries(0));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D3, D4 }, new double[] {100, 50 }), returns.getSeries(1));
+  }
+
+  public void testWeightedSum() {
+    final LocalDateDoubleTimeSeriesBatch batch = LocalDateDoubleTimeSeriesBatch.intersection(Arrays.asList(S1, S2));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D2, D3, D4 }, new double[] {2 * 2 - 10, 2 * 4 - 20, 2 * 8 - 30 }),
+        batch.weightedSum(new double[] {2, -1 }));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {D3, D4 }, new double[] {2 * 2 - 10, 2 * 4 - 10 }),
+        batch.weightedSum(new double[] {2, -1 }, DoubleTimeSeriesPipeline.IDENTITY.differences()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWeightedSumMismatch() {
+    LocalDateDoubleTimeSeriesBatch.intersection(Arrays.asList(S1, S2)).weightedSum(new double[] {1 });
+  }
+
+}